@@ -122,6 +122,7 @@ public class GnuCashApplication extends Application{
         mScheduledActionDbAdapter   = new ScheduledActionDbAdapter(mDb);
         mCommoditiesDbAdapter       = new CommoditiesDbAdapter(mDb);
         mPricesDbAdapter            = new PricesDbAdapter(mDb);
+        mCommoditiesDbAdapter.loadCommodityCache();
     }
 
     public static AccountsDbAdapter getAccountsDbAdapter() {
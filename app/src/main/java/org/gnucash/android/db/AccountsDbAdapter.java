@@ -25,7 +25,6 @@ import android.database.sqlite.SQLiteStatement;
 import android.graphics.Color;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.util.Log;
 
 import org.gnucash.android.R;
@@ -39,11 +38,14 @@ import org.gnucash.android.model.TransactionType;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Currency;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import static org.gnucash.android.db.DatabaseSchema.AccountAncestryEntry;
 import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
@@ -104,6 +106,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         List<Transaction> templateTransactions = mTransactionsAdapter.getScheduledTransactionsForAccount(account.getUID());
         super.addRecord(account);
         String accountUID = account.getUID();
+        updateAccountAncestry(accountUID, getParentAccountUID(accountUID));
 		//now add transactions if there are any
 		if (account.getAccountType() != AccountType.ROOT){
             //update the fully qualified account name
@@ -140,12 +143,32 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
             transactionList.addAll(account.getTransactions());
             transactionList.addAll(mTransactionsAdapter.getScheduledTransactionsForAccount(account.getUID()));
         }
-        long nRow = super.bulkAddRecords(accountList);
+        List<String> accountUIDs = new ArrayList<>(accountList.size());
+        for (Account account : accountList) {
+            accountUIDs.add(account.getUID());
+        }
 
-        if (nRow > 0 && !transactionList.isEmpty()){
-            mTransactionsAdapter.bulkAddRecords(transactionList);
+        mDb.beginTransaction();
+        String accountSet = createUIDSet(accountUIDs);
+        try {
+            //the splits removed by the cascade are not in the balances anymore,
+            //the transactions re-added below update the balances for their splits
+            mTransactionsAdapter.getSplitDbAdapter().subtractFromAccountBalances(
+                    inUIDSet(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID), new String[]{accountSet});
+            long nRow = super.bulkAddRecords(accountList);
+            if (nRow > 0) {
+                rebuildAccountAncestry(mDb);
+            }
+
+            if (nRow > 0 && !transactionList.isEmpty()){
+                mTransactionsAdapter.bulkAddRecords(transactionList);
+            }
+            mDb.setTransactionSuccessful();
+            return nRow;
+        } finally {
+            deleteUIDSet(accountSet);
+            mDb.endTransaction();
         }
-        return nRow;
     }
 
     @Override
@@ -186,7 +209,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         mReplaceStatement.bindLong(11, account.isHidden() ? 1 : 0);
         String commodityUID = account.getCommodityUID();
         if (commodityUID == null)
-            commodityUID = CommoditiesDbAdapter.getInstance().getCommodityUID(account.getCurrency().getCurrencyCode());
+            commodityUID = getCommodityUID(account.getCurrency().getCurrencyCode());
 
         mReplaceStatement.bindString(12, commodityUID);
 
@@ -204,6 +227,50 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         return mReplaceStatement;
     }
 
+    /**
+     * Merges accounts into the database, see {@link DatabaseAdapter#mergeRecords(List, MergeResult)}.
+     * <p>The accounts are updated in place, so that their splits are kept.
+     * Full names should be generated prior to the merge, like for {@link #bulkAddRecords(List)}</p>
+     * @param accountList Accounts to merge
+     * @param result Counts of the rows added, updated and unchanged, which are incremented
+     * @return Number of accounts added or updated
+     */
+    @Override
+    public int mergeRecords(@NonNull List<Account> accountList, @NonNull MergeResult result) {
+        int nChanged = super.mergeRecords(accountList, result);
+        if (nChanged > 0) {
+            rebuildAccountAncestry(mDb);
+        }
+        return nChanged;
+    }
+
+    @Override
+    protected ContentValues getContentValues(@NonNull Account account) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(AccountEntry.COLUMN_UID, account.getUID());
+        contentValues.put(AccountEntry.COLUMN_NAME, account.getName());
+        contentValues.put(AccountEntry.COLUMN_DESCRIPTION, account.getDescription());
+        contentValues.put(AccountEntry.COLUMN_TYPE, account.getAccountType().name());
+        contentValues.put(AccountEntry.COLUMN_CURRENCY, account.getCurrency().getCurrencyCode());
+        contentValues.put(AccountEntry.COLUMN_COLOR_CODE, account.getColorHexCode());
+        contentValues.put(AccountEntry.COLUMN_FAVORITE, account.isFavorite() ? 1 : 0);
+        contentValues.put(AccountEntry.COLUMN_FULL_NAME, account.getFullName());
+        contentValues.put(AccountEntry.COLUMN_PLACEHOLDER, account.isPlaceholderAccount() ? 1 : 0);
+        contentValues.put(AccountEntry.COLUMN_HIDDEN, account.isHidden() ? 1 : 0);
+        String commodityUID = account.getCommodityUID();
+        if (commodityUID == null)
+            commodityUID = getCommodityUID(account.getCurrency().getCurrencyCode());
+        contentValues.put(AccountEntry.COLUMN_COMMODITY_UID, commodityUID);
+
+        String parentAccountUID = account.getParentUID();
+        if (parentAccountUID == null && account.getAccountType() != AccountType.ROOT) {
+            parentAccountUID = getOrCreateGnuCashRootAccountUID();
+        }
+        contentValues.put(AccountEntry.COLUMN_PARENT_ACCOUNT_UID, parentAccountUID);
+        contentValues.put(AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID, account.getDefaultTransferAccountUID());
+        return contentValues;
+    }
+
     /**
      * Marks all transactions for a given account as exported
      * @param accountUID Unique ID of the record to be marked as exported
@@ -267,11 +334,17 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
     public void reassignDescendantAccounts(@NonNull String accountUID, @NonNull String newParentAccountUID) {
         List<String> descendantAccountUIDs = getDescendantAccountUIDs(accountUID, null, null);
         if (descendantAccountUIDs.size() > 0) {
-            List<Account> descendantAccounts = getSimpleAccountList(
-                    AccountEntry.COLUMN_UID + " IN ('" + TextUtils.join("','", descendantAccountUIDs) + "')",
-                    null,
-                    null
-            );
+            String descendantAccountSet = createUIDSet(descendantAccountUIDs);
+            List<Account> descendantAccounts;
+            try {
+                descendantAccounts = getSimpleAccountList(
+                        inUIDSet(AccountEntry.COLUMN_UID),
+                        new String[]{descendantAccountSet},
+                        null
+                );
+            } finally {
+                deleteUIDSet(descendantAccountSet);
+            }
             HashMap<String, Account> mapAccounts = new HashMap<>();
             for (Account account : descendantAccounts)
                 mapAccounts.put(account.getUID(), account);
@@ -301,6 +374,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
                             AccountEntry.COLUMN_UID + " = ?",
                             new String[]{acct.getUID()}
                     );
+                    updateAccountAncestry(acct.getUID(), newParentAccountUID);
                 } else {
                     // indirect descendant
                     acct.setFullName(
@@ -351,14 +425,17 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
                 mTransactionsAdapter.deleteTransactionsForAccount(descendantAccountUID);
             }
 
-            String accountUIDList = "'" + TextUtils.join("','", descendantAccountUIDs) + "'";
-
-            // delete accounts
-            mDb.delete(
-                    AccountEntry.TABLE_NAME,
-                    AccountEntry.COLUMN_UID + " IN (" + accountUIDList + ")",
-                    null
-            );
+            String accountSet = createUIDSet(descendantAccountUIDs);
+            try {
+                // delete accounts
+                mDb.delete(
+                        AccountEntry.TABLE_NAME,
+                        inUIDSet(AccountEntry.COLUMN_UID),
+                        new String[]{accountSet}
+                );
+            } finally {
+                deleteUIDSet(accountSet);
+            }
             mDb.setTransactionSuccessful();
             return true;
         }
@@ -367,45 +444,71 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         }
     }
 
-	/**
-	 * Builds an account instance with the provided cursor and loads its corresponding transactions.
-	 *
-	 * @param c Cursor pointing to account record in database
-	 * @return {@link Account} object constructed from database record
-	 */
     @Override
-    public Account buildModelInstance(@NonNull final Cursor c){
-        Account account = buildSimpleAccountInstance(c);
-        account.setTransactions(mTransactionsAdapter.getAllTransactionsForAccount(account.getUID()));
-
-        return account;
-	}
+    protected ModelReader<Account> createModelReader(@NonNull Cursor cursor) {
+        return new AccountReader(cursor, true);
+    }
 
     /**
-     * Builds an account instance with the provided cursor and loads its corresponding transactions.
-     * <p>The method will not move the cursor position, so the cursor should already be pointing
-     * to the account record in the database<br/>
-     * <b>Note</b> Unlike {@link  #buildModelInstance(android.database.Cursor)} this method will not load transactions</p>
-     *
-     * @param c Cursor pointing to account record in database
-     * @return {@link Account} object constructed from database record
+     * Builds account instances from the rows of a cursor.
+     * <p>The reader will not move the cursor position, so the cursor should already be pointing
+     * to the account record in the database</p>
      */
-    private Account buildSimpleAccountInstance(Cursor c) {
-        Account account = new Account(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_NAME)));
-        populateBaseModelAttributes(c, account);
-
-        account.setDescription(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_DESCRIPTION)));
-        account.setParentUID(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_PARENT_ACCOUNT_UID)));
-        account.setAccountType(AccountType.valueOf(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_TYPE))));
-        Currency currency = Currency.getInstance(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_CURRENCY)));
-        account.setCurrency(currency);
-        account.setPlaceHolderFlag(c.getInt(c.getColumnIndexOrThrow(AccountEntry.COLUMN_PLACEHOLDER)) == 1);
-        account.setDefaultTransferAccountUID(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID)));
-        account.setColorCode(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_COLOR_CODE)));
-        account.setFavorite(c.getInt(c.getColumnIndexOrThrow(AccountEntry.COLUMN_FAVORITE)) == 1);
-        account.setFullName(c.getString(c.getColumnIndexOrThrow(AccountEntry.COLUMN_FULL_NAME)));
-        account.setHidden(c.getInt(c.getColumnIndexOrThrow(AccountEntry.COLUMN_HIDDEN)) == 1);
-        return account;
+    private class AccountReader extends ModelReader<Account> {
+        private final boolean mLoadTransactions;
+        private final int mNameIndex;
+        private final int mDescriptionIndex;
+        private final int mParentUIDIndex;
+        private final int mTypeIndex;
+        private final int mCurrencyIndex;
+        private final int mPlaceholderIndex;
+        private final int mDefaultTransferUIDIndex;
+        private final int mColorCodeIndex;
+        private final int mFavoriteIndex;
+        private final int mFullNameIndex;
+        private final int mHiddenIndex;
+
+        /**
+         * Creates a reader of the accounts of a cursor
+         * @param cursor Cursor of account records
+         * @param loadTransactions {@code true} to load the transactions of each account
+         */
+        AccountReader(@NonNull Cursor cursor, boolean loadTransactions) {
+            super(cursor);
+            mLoadTransactions           = loadTransactions;
+            mNameIndex                  = columnIndex(AccountEntry.COLUMN_NAME);
+            mDescriptionIndex           = columnIndex(AccountEntry.COLUMN_DESCRIPTION);
+            mParentUIDIndex             = columnIndex(AccountEntry.COLUMN_PARENT_ACCOUNT_UID);
+            mTypeIndex                  = columnIndex(AccountEntry.COLUMN_TYPE);
+            mCurrencyIndex              = columnIndex(AccountEntry.COLUMN_CURRENCY);
+            mPlaceholderIndex           = columnIndex(AccountEntry.COLUMN_PLACEHOLDER);
+            mDefaultTransferUIDIndex    = columnIndex(AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID);
+            mColorCodeIndex             = columnIndex(AccountEntry.COLUMN_COLOR_CODE);
+            mFavoriteIndex              = columnIndex(AccountEntry.COLUMN_FAVORITE);
+            mFullNameIndex              = columnIndex(AccountEntry.COLUMN_FULL_NAME);
+            mHiddenIndex                = columnIndex(AccountEntry.COLUMN_HIDDEN);
+        }
+
+        @Override
+        public Account read() {
+            Account account = new Account(getString(mNameIndex));
+            populateBaseModelAttributes(account);
+
+            account.setDescription(getString(mDescriptionIndex));
+            account.setParentUID(getString(mParentUIDIndex));
+            account.setAccountType(AccountType.valueOf(getString(mTypeIndex)));
+            account.setCurrency(Currency.getInstance(getString(mCurrencyIndex)));
+            account.setPlaceHolderFlag(getBoolean(mPlaceholderIndex));
+            account.setDefaultTransferAccountUID(getString(mDefaultTransferUIDIndex));
+            account.setColorCode(getString(mColorCodeIndex));
+            account.setFavorite(getBoolean(mFavoriteIndex));
+            account.setFullName(getString(mFullNameIndex));
+            account.setHidden(getBoolean(mHiddenIndex));
+            if (mLoadTransactions) {
+                account.setTransactions(mTransactionsAdapter.getAllTransactionsForAccount(account.getUID()));
+            }
+            return account;
+        }
     }
 
     /**
@@ -473,8 +576,10 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         Cursor c = fetchAccounts(null, null, AccountEntry.COLUMN_FULL_NAME + " ASC");
 
         try {
-            while (c.moveToNext()) {
-                accounts.add(buildSimpleAccountInstance(c));
+            //no transactions are loaded
+            AccountReader reader = new AccountReader(c, false);
+            while (reader.moveToNext()) {
+                accounts.add(reader.read());
             }
         }
         finally {
@@ -492,8 +597,10 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         LinkedList<Account> accounts = new LinkedList<>();
         Cursor c = fetchAccounts(where, whereArgs, orderBy);
         try {
-            while (c.moveToNext()) {
-                accounts.add(buildSimpleAccountInstance(c));
+            //no transactions are loaded
+            AccountReader reader = new AccountReader(c, false);
+            while (reader.moveToNext()) {
+                accounts.add(reader.read());
             }
         }
         finally {
@@ -509,7 +616,28 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
     @Deprecated
     public List<Account> getExportableAccounts(){
         LinkedList<Account> accountsList = new LinkedList<Account>();
-        Cursor cursor = mDb.query(
+        Cursor cursor = fetchExportableAccounts();
+        try {
+            ModelReader<Account> reader = createModelReader(cursor);
+            while (reader.moveToNext()) {
+                accountsList.add(reader.read());
+            }
+        }
+        finally {
+            cursor.close();
+        }
+        return accountsList;
+	}
+
+    /**
+     * Returns a cursor to the accounts which have transactions that have not been exported yet
+     * @return Cursor to the account records
+     * @see #getExportableAccounts()
+     * @deprecated This uses the exported flag in the database which is no longer supported.
+     */
+    @Deprecated
+    public Cursor fetchExportableAccounts(){
+        return mDb.query(
                 TransactionEntry.TABLE_NAME + " , " + SplitEntry.TABLE_NAME +
                         " ON " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " = " +
                         SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID + " , " +
@@ -523,16 +651,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
                 null,
                 null
         );
-        try {
-            while (cursor.moveToNext()) {
-                accountsList.add(buildModelInstance(cursor));
-            }
-        }
-        finally {
-            cursor.close();
-        }
-        return accountsList;
-	}
+    }
 
     /**
      * Retrieves the unique ID of the imbalance account for a particular currency (creates the imbalance account
@@ -772,17 +891,195 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         String currencyCode = mTransactionsAdapter.getAccountCurrencyCode(accountUID);
         boolean hasDebitNormalBalance = getAccountType(accountUID).hasDebitNormalBalance();
 
-        List<String> accountsList = getDescendantAccountUIDs(accountUID,
-                null, null);
-
-        accountsList.add(0, accountUID);
-
-        Log.d(LOG_TAG, "all account list : " + accountsList.size());
         SplitsDbAdapter splitsDbAdapter = SplitsDbAdapter.getInstance();
         return (startTimestamp == -1 && endTimestamp == -1)
-                ? splitsDbAdapter.computeSplitBalance(accountsList, currencyCode, hasDebitNormalBalance)
-                : splitsDbAdapter.computeSplitBalance(accountsList, currencyCode, hasDebitNormalBalance, startTimestamp, endTimestamp);
-        
+                ? splitsDbAdapter.computeSubTreeBalance(accountUID, currencyCode, hasDebitNormalBalance)
+                : splitsDbAdapter.computeSubTreeBalance(accountUID, currencyCode, hasDebitNormalBalance, startTimestamp, endTimestamp);
+    }
+
+    /**
+     * Returns the balances of several accounts, taking their sub-accounts into consideration.
+     * <p>The splits are summed per account in a single query and added to the balances of their ancestors
+     * found in the account ancestry table.
+     * Each balance is in the currency of its account; sub-accounts in other currencies are converted
+     * at the price in effect at {@code endTimestamp}, or at the latest price if it is -1.
+     * Pass -1 for both timestamps to get the balances over all transactions</p>
+     * @param accountUIDs GUIDs of the accounts
+     * @param startTimestamp the start timestamp of the time range, or -1
+     * @param endTimestamp the end timestamp of the time range, or -1
+     * @return Map of the account GUIDs to their balances
+     */
+    public Map<String, Money> getAccountBalances(Collection<String> accountUIDs, long startTimestamp, long endTimestamp) {
+        return getAccountBalances(accountUIDs, startTimestamp, endTimestamp, true);
+    }
+
+    /**
+     * Returns the balances of several accounts in one query
+     * @param accountUIDs GUIDs of the accounts
+     * @param startTimestamp the start timestamp of the time range, or -1
+     * @param endTimestamp the end timestamp of the time range, or -1
+     * @param includeSubAccounts if {@code true}, the balances of the sub-accounts are added to each account
+     * @return Map of the account GUIDs to their balances, in the currency of the account
+     * @see #getAccountBalances(Collection, long, long)
+     */
+    public Map<String, Money> getAccountBalances(Collection<String> accountUIDs, long startTimestamp, long endTimestamp,
+                                                 boolean includeSubAccounts) {
+        return computeAccountBalances(accountUIDs, startTimestamp, endTimestamp, includeSubAccounts, false);
+    }
+
+    /**
+     * Returns the balances of several accounts as of now, taking their sub-accounts into consideration.
+     * <p>The result is the same as {@code getAccountBalances(accountUIDs, -1, System.currentTimeMillis())},
+     * but the balances are read from the stored account balances and only the splits of the transactions
+     * dated in the future are subtracted, so the cost does not grow with the number of transactions</p>
+     * @param accountUIDs GUIDs of the accounts
+     * @return Map of the account GUIDs to their balances, in the currency of the account
+     */
+    public Map<String, Money> getCurrentAccountBalances(Collection<String> accountUIDs) {
+        return computeAccountBalances(accountUIDs, -1, System.currentTimeMillis(), true, true);
+    }
+
+    /**
+     * Computes the balances of several accounts
+     * <p>The balances are summed by a single query, per requested account, currency of the summed accounts
+     * and quantity denominator. Only the conversion to the currency of each account is done afterwards,
+     * since it looks up the prices</p>
+     * @param accountUIDs GUIDs of the accounts
+     * @param startTimestamp the start timestamp of the time range, or -1
+     * @param endTimestamp the end timestamp of the time range, or -1
+     * @param includeSubAccounts if {@code true}, the balances of the sub-accounts are added to each account
+     * @param subtractFromTotals if {@code true}, the splits after {@code endTimestamp} are subtracted from the
+     *                           stored account balances instead of summing the splits until {@code endTimestamp}.
+     *                           {@code startTimestamp} must then be -1
+     * @return Map of the account GUIDs to their balances, in the currency of the account
+     */
+    private Map<String, Money> computeAccountBalances(Collection<String> accountUIDs, long startTimestamp, long endTimestamp,
+                                                      boolean includeSubAccounts, boolean subtractFromTotals) {
+        Map<String, Money> balances = new HashMap<>();
+        if (accountUIDs.isEmpty()) {
+            return balances;
+        }
+
+        String accountSet = createUIDSet(accountUIDs);
+        try {
+            List<String> selectionArgs = new ArrayList<>();
+            // the requested accounts, and the accounts whose splits are added to their balances
+            String accountPairs = includeSubAccounts
+                    ? "SELECT " + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , " + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                        + " FROM " + AccountAncestryEntry.TABLE_NAME + " WHERE " + inUIDSet(AccountAncestryEntry.COLUMN_ANCESTOR_UID)
+                    : "SELECT " + AccountEntry.COLUMN_UID + " AS " + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , "
+                        + AccountEntry.COLUMN_UID + " AS " + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                        + " FROM " + AccountEntry.TABLE_NAME + " WHERE " + inUIDSet(AccountEntry.COLUMN_UID);
+            selectionArgs.add(accountSet);
+
+            // the sums of the summed accounts, debits positive
+            String amounts;
+            if (subtractFromTotals || (startTimestamp == -1 && endTimestamp == -1)) {
+                String accountColumn = DatabaseSchema.AccountBalanceEntry.COLUMN_ACCOUNT_UID;
+                amounts = "SELECT " + accountColumn + " , "
+                        + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_NUM + " , "
+                        + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_DENOM
+                        + " FROM " + DatabaseSchema.AccountBalanceEntry.TABLE_NAME
+                        + " WHERE " + (includeSubAccounts ? getDescendantsSelection(accountColumn) : inUIDSet(accountColumn));
+                selectionArgs.add(accountSet);
+                if (subtractFromTotals) {
+                    amounts += " UNION ALL " + getSplitBalancesQuery(-1, includeSubAccounts, endTimestamp + 1, -1,
+                            accountSet, selectionArgs);
+                }
+            } else {
+                amounts = getSplitBalancesQuery(1, includeSubAccounts, startTimestamp, endTimestamp,
+                        accountSet, selectionArgs);
+            }
+
+            Cursor cursor = mDb.rawQuery("SELECT pairs." + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , "
+                    + "accounts." + AccountEntry.COLUMN_CURRENCY + " , accounts." + AccountEntry.COLUMN_TYPE + " , "
+                    + "descendants." + AccountEntry.COLUMN_CURRENCY + " , "
+                    + "SUM ( amounts." + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_NUM + " ) , "
+                    + "amounts." + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_DENOM
+                    + " FROM ( " + accountPairs + " ) AS pairs"
+                    + " INNER JOIN " + AccountEntry.TABLE_NAME + " AS accounts ON accounts." + AccountEntry.COLUMN_UID
+                    + " = pairs." + AccountAncestryEntry.COLUMN_ANCESTOR_UID
+                    + " INNER JOIN " + AccountEntry.TABLE_NAME + " AS descendants ON descendants." + AccountEntry.COLUMN_UID
+                    + " = pairs." + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                    + " LEFT JOIN ( " + amounts + " ) AS amounts ON amounts." + DatabaseSchema.AccountBalanceEntry.COLUMN_ACCOUNT_UID
+                    + " = pairs." + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                    + " GROUP BY pairs." + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , descendants." + AccountEntry.COLUMN_CURRENCY
+                    + " , amounts." + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_DENOM,
+                    selectionArgs.toArray(new String[selectionArgs.size()]));
+            SplitsDbAdapter splitsDbAdapter = mTransactionsAdapter.getSplitDbAdapter();
+            try {
+                while (cursor.moveToNext()) {
+                    String accountUID = cursor.getString(0);
+                    Money balance = balances.get(accountUID);
+                    if (balance == null) {
+                        balance = Money.createZeroInstance(cursor.getString(1));
+                    }
+                    //the summed accounts without amounts only yield the zero balance
+                    if (!cursor.isNull(5)) {
+                        long amountNum = cursor.getLong(4);
+                        if (!AccountType.valueOf(cursor.getString(2)).hasDebitNormalBalance()) {
+                            amountNum = -amountNum;
+                        }
+                        balance = balance.add(splitsDbAdapter.convertBalance(amountNum, cursor.getLong(5),
+                                cursor.getString(3), balance.getCurrency().getCurrencyCode(), endTimestamp));
+                    }
+                    balances.put(accountUID, balance);
+                }
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            deleteUIDSet(accountSet);
+        }
+        return balances;
+    }
+
+    /**
+     * Returns the query summing the splits of accounts in a time range, per account and quantity denominator
+     * @param sign 1 for the sums, -1 for their opposites
+     * @param includeSubAccounts if {@code true}, the splits of the sub-accounts are summed as well
+     * @param startTimestamp the start timestamp of the time range, or -1
+     * @param endTimestamp the end timestamp of the time range, or -1
+     * @param accountSet Key of the GUID set of the accounts
+     * @param selectionArgs Arguments of the query, to which those of the returned query are appended
+     * @return SQL query with the columns of the stored account balances: account GUID,
+     *         quantity numerator (debits positive) and denominator
+     */
+    private String getSplitBalancesQuery(int sign, boolean includeSubAccounts, long startTimestamp, long endTimestamp,
+                                         String accountSet, List<String> selectionArgs) {
+        String accountColumn = AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID;
+        String selection = (includeSubAccounts ? getDescendantsSelection(accountColumn) : inUIDSet(accountColumn))
+                + " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " = 0";
+        selectionArgs.add(accountSet);
+        if (startTimestamp != -1) {
+            selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " >= ?";
+            selectionArgs.add(String.valueOf(startTimestamp));
+        }
+        if (endTimestamp != -1) {
+            selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " <= ?";
+            selectionArgs.add(String.valueOf(endTimestamp));
+        }
+        String quantityDenom = SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM;
+        return "SELECT " + accountColumn + " AS " + DatabaseSchema.AccountBalanceEntry.COLUMN_ACCOUNT_UID + " , "
+                + sign + " * SUM ( CASE WHEN " + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "
+                + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " ELSE - "
+                + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " END ) AS "
+                + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_NUM + " , "
+                + quantityDenom + " AS " + DatabaseSchema.AccountBalanceEntry.COLUMN_QUANTITY_DENOM
+                + " FROM trans_split_acct WHERE " + selection
+                + " GROUP BY " + accountColumn + " , " + quantityDenom;
+    }
+
+    /**
+     * Returns a selection matching the records whose {@code column} is one of the accounts
+     * in a GUID set or one of their descendants
+     * @param column Column holding account GUIDs
+     * @return SQL selection, with the key of the GUID set as argument
+     * @see #createUIDSet(Collection)
+     */
+    private String getDescendantsSelection(String column) {
+        return column + " IN ( SELECT " + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " FROM " + AccountAncestryEntry.TABLE_NAME
+                + " WHERE " + inUIDSet(AccountAncestryEntry.COLUMN_ANCESTOR_UID) + " )";
     }
 
     /**
@@ -815,38 +1112,118 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
      * @return The descendant accounts list.
      */
     public List<String> getDescendantAccountUIDs(String accountUID, String where, String[] whereArgs) {
-        // accountsList will hold accountUID with all descendant accounts.
-        // accountsListLevel will hold descendant accounts of the same level
-        ArrayList<String> accountsList = new ArrayList<String>();
-        ArrayList<String> accountsListLevel = new ArrayList<String>();
-        accountsListLevel.add(accountUID);
-        for (;;) {
-            Cursor cursor = mDb.query(AccountEntry.TABLE_NAME,
-                    new String[]{AccountEntry.COLUMN_UID},
-                    AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " IN ( '" + TextUtils.join("' , '", accountsListLevel) + "' )" +
-                            (where == null ? "" : " AND " + where),
-                    whereArgs, null, null, null);
-            accountsListLevel.clear();
-            if (cursor != null) {
-                try {
-                    int columnIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_UID);
-                    while (cursor.moveToNext()) {
-                        accountsListLevel.add(cursor.getString(columnIndex));
-                    }
-                } finally {
-                    cursor.close();
-                }
-            }
-            if (accountsListLevel.size() > 0) {
-                accountsList.addAll(accountsListLevel);
+        String selection = AccountAncestryEntry.COLUMN_ANCESTOR_UID + " = ? AND "
+                + AccountAncestryEntry.COLUMN_DEPTH + " > 0";
+        String[] selectionArgs = new String[]{accountUID};
+        if (where != null) {
+            // exclude descendants which have an excluded account on their path to accountUID
+            selection += " AND NOT EXISTS ( SELECT 1 FROM " + AccountAncestryEntry.TABLE_NAME + " path"
+                    + " WHERE path." + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " = "
+                    + AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                    + " AND path." + AccountAncestryEntry.COLUMN_DEPTH + " < "
+                    + AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_DEPTH
+                    + " AND path." + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " NOT IN ( SELECT "
+                    + AccountEntry.COLUMN_UID + " FROM " + AccountEntry.TABLE_NAME + " WHERE " + where + " ) )";
+            if (whereArgs != null) {
+                selectionArgs = new String[whereArgs.length + 1];
+                selectionArgs[0] = accountUID;
+                System.arraycopy(whereArgs, 0, selectionArgs, 1, whereArgs.length);
             }
-            else {
-                break;
+        }
+        // ordering by depth returns parents before their children
+        Cursor cursor = mDb.query(AccountAncestryEntry.TABLE_NAME,
+                new String[]{AccountAncestryEntry.COLUMN_DESCENDANT_UID},
+                selection, selectionArgs, null, null,
+                AccountAncestryEntry.COLUMN_DEPTH + " ASC");
+        ArrayList<String> accountsList = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                accountsList.add(cursor.getString(0));
             }
+        } finally {
+            cursor.close();
         }
         return accountsList;
     }
 
+    /**
+     * Links an account to the ancestors of its parent in the account ancestry table.
+     * <p>The descendants of the account are moved along with it. This should be called every time
+     * the account is inserted or its parent changes.</p>
+     * @param accountUID GUID of the account
+     * @param parentAccountUID GUID of the parent account, may be null for the ROOT account
+     */
+    private void updateAccountAncestry(@NonNull String accountUID, @Nullable String parentAccountUID) {
+        String subTree = "SELECT " + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " FROM " + AccountAncestryEntry.TABLE_NAME
+                + " WHERE " + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " = ?";
+        mDb.beginTransaction();
+        try {
+            mDb.execSQL("INSERT OR IGNORE INTO " + AccountAncestryEntry.TABLE_NAME + " ( "
+                    + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , "
+                    + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " , "
+                    + AccountAncestryEntry.COLUMN_DEPTH + " ) VALUES ( ? , ? , 0 )",
+                    new Object[]{accountUID, accountUID});
+            // unlink the sub-tree from its previous ancestors
+            mDb.delete(AccountAncestryEntry.TABLE_NAME,
+                    AccountAncestryEntry.COLUMN_DESCENDANT_UID + " IN ( " + subTree + " ) AND "
+                            + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " NOT IN ( " + subTree + " )",
+                    new String[]{accountUID, accountUID});
+            if (parentAccountUID != null) {
+                mDb.execSQL("INSERT OR IGNORE INTO " + AccountAncestryEntry.TABLE_NAME + " ( "
+                        + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , "
+                        + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " , "
+                        + AccountAncestryEntry.COLUMN_DEPTH + " ) "
+                        + "SELECT ancestors." + AccountAncestryEntry.COLUMN_ANCESTOR_UID
+                        + " , descendants." + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                        + " , ancestors." + AccountAncestryEntry.COLUMN_DEPTH + " + descendants." + AccountAncestryEntry.COLUMN_DEPTH + " + 1"
+                        + " FROM " + AccountAncestryEntry.TABLE_NAME + " ancestors , " + AccountAncestryEntry.TABLE_NAME + " descendants"
+                        + " WHERE ancestors." + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " = ?"
+                        + " AND descendants." + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " = ?",
+                        new Object[]{parentAccountUID, accountUID});
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Recreates the account ancestry table from the parent links of all accounts.
+     * <p>The table is filled one level at a time, so this runs one query per level of the account tree</p>
+     * @param db Database in which to rebuild the table
+     */
+    static void rebuildAccountAncestry(SQLiteDatabase db) {
+        String insertColumns = "INSERT OR IGNORE INTO " + AccountAncestryEntry.TABLE_NAME + " ( "
+                + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " , "
+                + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " , "
+                + AccountAncestryEntry.COLUMN_DEPTH + " ) ";
+        db.beginTransaction();
+        SQLiteStatement changesStatement = db.compileStatement("SELECT changes()");
+        try {
+            db.delete(AccountAncestryEntry.TABLE_NAME, null, null);
+            db.execSQL(insertColumns + "SELECT " + AccountEntry.COLUMN_UID + " , " + AccountEntry.COLUMN_UID
+                    + " , 0 FROM " + AccountEntry.TABLE_NAME);
+            // every pass links the accounts to the parent of their furthest known ancestor.
+            // Rows are never inserted twice, so this also terminates for cyclic hierarchies
+            long depth = 1;
+            do {
+                db.execSQL(insertColumns + "SELECT " + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID
+                        + " , " + AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_DESCENDANT_UID
+                        + " , ? FROM " + AccountAncestryEntry.TABLE_NAME + " , " + AccountEntry.TABLE_NAME + " ON "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID + " = "
+                        + AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_ANCESTOR_UID
+                        + " WHERE " + AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_DEPTH + " = ? AND "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " IS NOT NULL",
+                        new Object[]{depth, depth - 1});
+                depth++;
+            } while (changesStatement.simpleQueryForLong() > 0);
+            db.setTransactionSuccessful();
+        } finally {
+            changesStatement.close();
+            db.endTransaction();
+        }
+    }
+
     /**
      * Returns a cursor to the dataset containing sub-accounts of the account with record ID <code>accoundId</code>
      * @param accountUID GUID of the parent account
@@ -941,6 +1318,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         contentValues.put(AccountEntry.COLUMN_COMMODITY_UID, getCommodityUID(defaultCurrencyCode));
         Log.i(LOG_TAG, "Creating ROOT account");
         mDb.insert(AccountEntry.TABLE_NAME, null, contentValues);
+        updateAccountAncestry(rootAccount.getUID(), null);
         return rootAccount.getUID();
     }
 
@@ -1199,11 +1577,18 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
 	 */
     @Override
 	public int deleteAllRecords() {
+        //the chain of differential backups does not survive, so the deletions are not worth recording
+        getBackupChain().reset();
         mDb.delete(DatabaseSchema.PriceEntry.TABLE_NAME, null, null);
+        PricesDbAdapter.invalidatePriceCache();
         // Relies "ON DELETE CASCADE" takes too much time
         // It take more than 300s to complete the deletion on my dataset without
         // clearing the split table first, but only needs a little more that 1s
         // if the split table is cleared first.
+        mDb.delete(DatabaseSchema.AccountBalanceEntry.TABLE_NAME, null, null);
+        mDb.delete(AccountAncestryEntry.TABLE_NAME, null, null);
+        //clearing the summaries first skips their triggers for each deleted split
+        mDb.delete(DatabaseSchema.TransactionSummaryEntry.TABLE_NAME, null, null);
         mDb.delete(SplitEntry.TABLE_NAME, null, null);
         mDb.delete(TransactionEntry.TABLE_NAME, null, null);
         mDb.delete(DatabaseSchema.ScheduledActionEntry.TABLE_NAME, null, null);
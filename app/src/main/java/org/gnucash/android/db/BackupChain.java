@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import static org.gnucash.android.db.DatabaseSchema.BackupChainEntry;
+import static org.gnucash.android.db.DatabaseSchema.TombstoneEntry;
+
+/**
+ * Chain of differential backups: a full backup, followed by the backups of the records
+ * changed since the previous backup of the chain.
+ * <p>The records changed since a backup are found with their {@link DatabaseSchema.CommonColumns#COLUMN_MODIFIED_AT}
+ * column, and their deletions with the tombstones table, which is only filled while the chain is not empty.
+ * The times of the backups are taken from the database clock, like the modification times,
+ * and a record changed during the second of a backup is included in the next backup as well.
+ * A typical backup looks like:</p>
+ * <pre>
+ * BackupChain chain = adapter.getBackupChain();
+ * String backupTime = chain.getCurrentTimestamp();
+ * String since = chain.shouldStartNewChain() ? null : chain.getLastBackupTimestamp();
+ * // write the records changed since {@code since}, and its tombstones
+ * chain.recordBackup(since == null ? BackupType.FULL : BackupType.DIFFERENTIAL, backupTime);
+ * </pre>
+ */
+public class BackupChain {
+    /**
+     * Number of differential backups after which a new chain is started with a full backup,
+     * so that restoring does not replay too many backups
+     */
+    public static final int MAX_DIFFERENTIAL_BACKUPS = 30;
+
+    /**
+     * Types of the backups of a chain
+     */
+    public enum BackupType {FULL, DIFFERENTIAL}
+
+    private final SQLiteDatabase mDb;
+
+    BackupChain(@NonNull SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    /**
+     * Returns the current time of the database clock, in the format of the modification times
+     * @return Current timestamp
+     */
+    public String getCurrentTimestamp() {
+        return DatabaseUtils.stringForQuery(mDb, "SELECT CURRENT_TIMESTAMP", null);
+    }
+
+    /**
+     * Returns the time when the last backup of the chain started
+     * @return Timestamp of the last backup, or null if the chain is empty
+     */
+    @Nullable
+    public String getLastBackupTimestamp() {
+        Cursor cursor = mDb.query(BackupChainEntry.TABLE_NAME, new String[]{BackupChainEntry.COLUMN_TIMESTAMP},
+                null, null, null, null, BackupChainEntry._ID + " DESC", "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns whether the next backup must be a full backup starting a new chain,
+     * because the chain is empty or already has {@link #MAX_DIFFERENTIAL_BACKUPS} differential backups
+     * @return {@code true} if the next backup must be full
+     */
+    public boolean shouldStartNewChain() {
+        long differentialCount = DatabaseUtils.queryNumEntries(mDb, BackupChainEntry.TABLE_NAME,
+                BackupChainEntry.COLUMN_TYPE + " = ?", new String[]{BackupType.DIFFERENTIAL.name()});
+        return getLastBackupTimestamp() == null || differentialCount >= MAX_DIFFERENTIAL_BACKUPS;
+    }
+
+    /**
+     * Returns the tombstones of the records deleted since a backup
+     * @param since Timestamp of the backup
+     * @return Cursor with the columns {@link TombstoneEntry#COLUMN_TABLE_NAME} and {@link TombstoneEntry#COLUMN_UID}
+     */
+    public Cursor fetchTombstones(@NonNull String since) {
+        return mDb.query(true, TombstoneEntry.TABLE_NAME,
+                new String[]{TombstoneEntry.COLUMN_TABLE_NAME, TombstoneEntry.COLUMN_UID},
+                TombstoneEntry.COLUMN_DELETED_AT + " >= ?", new String[]{since},
+                null, null, TombstoneEntry.COLUMN_TABLE_NAME, null);
+    }
+
+    /**
+     * Records a backup in the chain, once it has been written.
+     * <p>A full backup replaces the chain. The tombstones older than the backup are dropped,
+     * since the next backup does not need them</p>
+     * @param type Type of the backup
+     * @param timestamp Time when the backup started, from {@link #getCurrentTimestamp()}
+     */
+    public void recordBackup(@NonNull BackupType type, @NonNull String timestamp) {
+        mDb.beginTransaction();
+        try {
+            if (type == BackupType.FULL) {
+                mDb.delete(BackupChainEntry.TABLE_NAME, null, null);
+            }
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(BackupChainEntry.COLUMN_TYPE, type.name());
+            contentValues.put(BackupChainEntry.COLUMN_TIMESTAMP, timestamp);
+            mDb.insert(BackupChainEntry.TABLE_NAME, null, contentValues);
+            mDb.delete(TombstoneEntry.TABLE_NAME, TombstoneEntry.COLUMN_DELETED_AT + " < ?", new String[]{timestamp});
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Empties the chain, so that the next backup is a full one and the deletions are no longer recorded.
+     * <p>This is done when the whole book is replaced, since there is no point in recording
+     * the deletion of every record</p>
+     */
+    public void reset() {
+        mDb.beginTransaction();
+        try {
+            mDb.delete(BackupChainEntry.TABLE_NAME, null, null);
+            mDb.delete(TombstoneEntry.TABLE_NAME, null, null);
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDatabaseCorruptException;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import static org.gnucash.android.db.DatabaseSchema.PriceEntry;
+import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+
+/**
+ * Settings of the database connection for loading many records at once, like imports.
+ * <p>While the session is open, the foreign keys are not enforced and the database file is not synced,
+ * and a larger page cache is used. The secondary indexes and the transaction summary triggers
+ * can also be dropped with {@link #deferIndexes()}, and are rebuilt once by {@link #finish()},
+ * which then checks the foreign keys, and the integrity of the database if {@link #setIntegrityCheck(boolean)}
+ * was enabled, like the GnuCash XML import does in debug builds.
+ * The connection settings are restored by {@link #close()}.</p>
+ * <p>A typical load looks like:</p>
+ * <pre>
+ * BulkLoadSession session = adapter.openBulkLoadSession();
+ * try {
+ *     adapter.beginTransaction();
+ *     try {
+ *         session.deferIndexes();
+ *         // write the records
+ *         session.finish();
+ *         adapter.setTransactionSuccessful();
+ *     } finally {
+ *         adapter.endTransaction();
+ *     }
+ * } finally {
+ *     session.close();
+ * }
+ * </pre>
+ */
+public class BulkLoadSession {
+    private static final String LOG_TAG = "BulkLoadSession";
+
+    /**
+     * Number of pages of the page cache during the load
+     */
+    private static final int BULK_LOAD_CACHE_SIZE = 10000;
+
+    private final SQLiteDatabase mDb;
+
+    /**
+     * Whether the connection settings were changed, which is not possible inside a database transaction
+     */
+    private final boolean mTuned;
+
+    private boolean mForeignKeysEnabled;
+    private long mSynchronous;
+    private long mCacheSize;
+
+    private boolean mIndexesDeferred = false;
+
+    /**
+     * Whether {@link #finish()} runs an integrity check of the whole database, see {@link #setIntegrityCheck(boolean)}
+     */
+    private boolean mIntegrityCheck = false;
+
+    /**
+     * Opens a bulk load session on {@code db}.
+     * <p>The connection settings can only be changed outside of a database transaction.
+     * Inside one, only the indexes can be deferred</p>
+     * @param db SQLite database
+     */
+    BulkLoadSession(@NonNull SQLiteDatabase db) {
+        mDb = db;
+        mTuned = !db.inTransaction();
+        if (!mTuned) {
+            Log.w(LOG_TAG, "Database in a transaction, the connection settings are left unchanged");
+            return;
+        }
+        mForeignKeysEnabled = queryPragma("foreign_keys") != 0;
+        mSynchronous = queryPragma("synchronous");
+        mCacheSize = queryPragma("cache_size");
+        db.execSQL("PRAGMA foreign_keys=OFF");
+        db.execSQL("PRAGMA synchronous=OFF");
+        db.execSQL("PRAGMA cache_size=" + Math.max(mCacheSize, BULK_LOAD_CACHE_SIZE));
+    }
+
+    /**
+     * Drops the secondary indexes and the transaction summary triggers until {@link #finish()}.
+     * <p>This should be called inside the database transaction of the load,
+     * so that they are restored if the transaction is rolled back</p>
+     */
+    public void deferIndexes() {
+        mDb.execSQL("DROP INDEX IF EXISTS '" + SplitEntry.INDEX_ACCOUNT_UID + "'");
+        mDb.execSQL("DROP INDEX IF EXISTS '" + SplitEntry.INDEX_TRANSACTION_UID + "'");
+        mDb.execSQL("DROP INDEX IF EXISTS '" + TransactionEntry.INDEX_TIMESTAMP + "'");
+        mDb.execSQL("DROP INDEX IF EXISTS '" + TransactionEntry.INDEX_TEMPLATE + "'");
+        mDb.execSQL("DROP INDEX IF EXISTS '" + PriceEntry.INDEX_COMMODITY_CURRENCY_DATE + "'");
+        mDb.execSQL("DROP TRIGGER IF EXISTS splits_insert_summary_trigger");
+        mDb.execSQL("DROP TRIGGER IF EXISTS splits_update_summary_trigger");
+        mDb.execSQL("DROP TRIGGER IF EXISTS splits_delete_summary_trigger");
+        mDb.execSQL("DROP TRIGGER IF EXISTS accounts_currency_summary_trigger");
+        mIndexesDeferred = true;
+    }
+
+    /**
+     * Enables the integrity check of the database in {@link #finish()}.
+     * <p>The check reads every page of the database, not only those of the tables loaded,
+     * so its cost grows with the whole book. It is disabled by default</p>
+     * @param integrityCheck {@code true} to run {@code PRAGMA quick_check} when the load finishes
+     */
+    public void setIntegrityCheck(boolean integrityCheck) {
+        mIntegrityCheck = integrityCheck;
+    }
+
+    /**
+     * Rebuilds what was deferred, then checks the foreign keys, and the integrity of the database if enabled.
+     * <p>This should be called inside the database transaction of the load, before it is marked successful,
+     * so that the load is rolled back if a check fails</p>
+     * @throws SQLiteConstraintException if a foreign key is violated
+     * @throws SQLiteDatabaseCorruptException if the integrity check is enabled and fails
+     */
+    public void finish() {
+        long start = System.nanoTime();
+        if (mIndexesDeferred) {
+            DatabaseHelper.createSecondaryIndexes(mDb);
+            DatabaseHelper.createTransactionSummaryTriggers(mDb);
+            DatabaseHelper.rebuildTransactionSummaries(mDb);
+            mIndexesDeferred = false;
+        }
+        Log.d(LOG_TAG, String.format("Indexes rebuilt in %d ms", (System.nanoTime() - start) / 1000000));
+
+        Cursor cursor = mDb.rawQuery("PRAGMA foreign_key_check", null);
+        try {
+            if (cursor.moveToFirst()) {
+                throw new SQLiteConstraintException(String.format(
+                        "Foreign key violated in %s, row %d, referencing %s",
+                        cursor.getString(0), cursor.getLong(1), cursor.getString(2)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (mIntegrityCheck) {
+            //the indexes were just built, so the quick check is enough
+            cursor = mDb.rawQuery("PRAGMA quick_check", null);
+            try {
+                if (cursor.moveToFirst() && !"ok".equals(cursor.getString(0))) {
+                    throw new SQLiteDatabaseCorruptException("Integrity check failed: " + cursor.getString(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        Log.d(LOG_TAG, String.format("Bulk load finished in %d ms", (System.nanoTime() - start) / 1000000));
+    }
+
+    /**
+     * Restores the connection settings. This must be called outside of the database transaction of the load
+     */
+    public void close() {
+        if (!mTuned) {
+            return;
+        }
+        mDb.execSQL("PRAGMA cache_size=" + mCacheSize);
+        mDb.execSQL("PRAGMA synchronous=" + mSynchronous);
+        mDb.execSQL("PRAGMA foreign_keys=" + (mForeignKeysEnabled ? "ON" : "OFF"));
+    }
+
+    private long queryPragma(String pragma) {
+        SQLiteStatement statement = mDb.compileStatement("PRAGMA " + pragma);
+        try {
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.gnucash.android.db;
 
+import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
@@ -8,12 +9,39 @@ import android.support.annotation.NonNull;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.model.Commodity;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.gnucash.android.db.DatabaseSchema.CommodityEntry;
 
 /**
  * Database adapter for {@link org.gnucash.android.model.Commodity}
  */
 public class CommoditiesDbAdapter extends DatabaseAdapter<Commodity> {
+    /**
+     * Lock guarding the cache fields
+     */
+    private static final Object sCacheLock = new Object();
+
+    /**
+     * Commodities of the database, shared by all adapters, or null if the cache has to be loaded.
+     * <p>It holds the whole commodities table, which is small and rarely changes,
+     * and is cleared by every write to the commodities</p>
+     */
+    private static CommodityCache sCache;
+
+    /**
+     * Incremented every time the cache is cleared, so that commodities read before are not cached afterwards
+     */
+    private static long sCacheGeneration;
+
+    /**
+     * Commodities read inside the transaction of the current thread, which may include uncommitted ones
+     */
+    private static final ThreadLocal<CommodityCache> sTransactionCache = new ThreadLocal<>();
+
     /**
      * Opens the database adapter with an existing database
      *
@@ -27,6 +55,72 @@ public class CommoditiesDbAdapter extends DatabaseAdapter<Commodity> {
         return GnuCashApplication.getCommoditiesDbAdapter();
     }
 
+    @Override
+    public void addRecord(@NonNull Commodity commodity) {
+        super.addRecord(commodity);
+        invalidateCommodityCache();
+        //replacing an existing commodity deletes it first, which cascades to its prices
+        PricesDbAdapter.invalidatePriceCache();
+    }
+
+    @Override
+    public long bulkAddRecords(@NonNull List<Commodity> commodityList) {
+        try {
+            return super.bulkAddRecords(commodityList);
+        } finally {
+            invalidateCommodityCache();
+            PricesDbAdapter.invalidatePriceCache();
+        }
+    }
+
+    @Override
+    public int mergeRecords(@NonNull List<Commodity> commodityList, @NonNull MergeResult result) {
+        try {
+            return super.mergeRecords(commodityList, result);
+        } finally {
+            invalidateCommodityCache();
+            PricesDbAdapter.invalidatePriceCache();
+        }
+    }
+
+    @Override
+    public int updateRecord(@NonNull String uid, @NonNull ContentValues contentValues) {
+        int updated = super.updateRecord(uid, contentValues);
+        invalidateCommodityCache();
+        return updated;
+    }
+
+    @Override
+    public int updateRecords(String where, String[] whereArgs, @NonNull String columnKey, String newValue) {
+        int updated = super.updateRecords(where, whereArgs, columnKey, newValue);
+        invalidateCommodityCache();
+        return updated;
+    }
+
+    @Override
+    public boolean deleteRecord(long rowId) {
+        boolean deleted = super.deleteRecord(rowId);
+        invalidateCommodityCache();
+        PricesDbAdapter.invalidatePriceCache();
+        return deleted;
+    }
+
+    @Override
+    public int deleteRecords(@NonNull Collection<String> uids, @NonNull MergeResult result) {
+        int deleted = super.deleteRecords(uids, result);
+        invalidateCommodityCache();
+        PricesDbAdapter.invalidatePriceCache();
+        return deleted;
+    }
+
+    @Override
+    public int deleteAllRecords() {
+        int deleted = super.deleteAllRecords();
+        invalidateCommodityCache();
+        PricesDbAdapter.invalidatePriceCache();
+        return deleted;
+    }
+
     @Override
     protected SQLiteStatement compileReplaceStatement(@NonNull final Commodity commodity) {
         if (mReplaceStatement == null) {
@@ -55,24 +149,59 @@ public class CommoditiesDbAdapter extends DatabaseAdapter<Commodity> {
     }
 
     @Override
-    public Commodity buildModelInstance(@NonNull final Cursor cursor) {
-        String fullname = cursor.getString(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_FULLNAME));
-        String mnemonic = cursor.getString(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_MNEMONIC));
-        String namespace = cursor.getString(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_NAMESPACE));
-        String cusip = cursor.getString(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_CUSIP));
-        String localSymbol = cursor.getString(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_LOCAL_SYMBOL));
-
-        int fraction = cursor.getInt(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_FRACTION));
-        int quoteFlag = cursor.getInt(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_QUOTE_FLAG));
-
-        Commodity commodity = new Commodity(fullname, mnemonic, fraction);
-        commodity.setNamespace(Commodity.Namespace.valueOf(namespace));
-        commodity.setCusip(cusip);
-        commodity.setQuoteFlag(quoteFlag);
-        commodity.setLocalSymbol(localSymbol);
-        populateBaseModelAttributes(cursor, commodity);
+    protected ContentValues getContentValues(@NonNull Commodity commodity) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(CommodityEntry.COLUMN_UID, commodity.getUID());
+        contentValues.put(CommodityEntry.COLUMN_FULLNAME, commodity.getFullname());
+        contentValues.put(CommodityEntry.COLUMN_NAMESPACE, commodity.getNamespace().name());
+        contentValues.put(CommodityEntry.COLUMN_MNEMONIC, commodity.getMnemonic());
+        contentValues.put(CommodityEntry.COLUMN_LOCAL_SYMBOL, commodity.getLocalSymbol());
+        contentValues.put(CommodityEntry.COLUMN_CUSIP, commodity.getCusip());
+        contentValues.put(CommodityEntry.COLUMN_FRACTION, commodity.getFraction());
+        contentValues.put(CommodityEntry.COLUMN_QUOTE_FLAG, commodity.getQuoteFlag());
+        return contentValues;
+    }
 
-        return commodity;
+    @Override
+    protected ModelReader<Commodity> createModelReader(@NonNull Cursor cursor) {
+        return new CommodityReader(cursor);
+    }
+
+    /**
+     * Reads commodities from the rows of a cursor
+     */
+    private static class CommodityReader extends ModelReader<Commodity> {
+        private final int mFullnameIndex;
+        private final int mMnemonicIndex;
+        private final int mNamespaceIndex;
+        private final int mCusipIndex;
+        private final int mLocalSymbolIndex;
+        private final int mFractionIndex;
+        private final int mQuoteFlagIndex;
+
+        CommodityReader(@NonNull Cursor cursor) {
+            super(cursor);
+            mFullnameIndex      = columnIndex(CommodityEntry.COLUMN_FULLNAME);
+            mMnemonicIndex      = columnIndex(CommodityEntry.COLUMN_MNEMONIC);
+            mNamespaceIndex     = columnIndex(CommodityEntry.COLUMN_NAMESPACE);
+            mCusipIndex         = columnIndex(CommodityEntry.COLUMN_CUSIP);
+            mLocalSymbolIndex   = columnIndex(CommodityEntry.COLUMN_LOCAL_SYMBOL);
+            mFractionIndex      = columnIndex(CommodityEntry.COLUMN_FRACTION);
+            mQuoteFlagIndex     = columnIndex(CommodityEntry.COLUMN_QUOTE_FLAG);
+        }
+
+        @Override
+        public Commodity read() {
+            Commodity commodity = new Commodity(getString(mFullnameIndex), getString(mMnemonicIndex),
+                    getInt(mFractionIndex));
+            commodity.setNamespace(Commodity.Namespace.valueOf(getString(mNamespaceIndex)));
+            commodity.setCusip(getString(mCusipIndex));
+            commodity.setQuoteFlag(getInt(mQuoteFlagIndex));
+            commodity.setLocalSymbol(getString(mLocalSymbolIndex));
+            populateBaseModelAttributes(commodity);
+
+            return commodity;
+        }
     }
 
     @Override
@@ -106,18 +235,146 @@ public class CommoditiesDbAdapter extends DatabaseAdapter<Commodity> {
         return commodity;
     }
 
+    /**
+     * Returns the mnemonic of the commodity with GUID {@code guid}
+     * @param guid GUID of the commodity
+     * @return Mnemonic of the commodity, the ISO 4217 code for currencies
+     * @throws IllegalArgumentException if the commodity does not exist
+     */
     public String getCurrencyCode(@NonNull String guid) {
-        Cursor cursor = mDb.query(mTableName, new String[]{CommodityEntry.COLUMN_MNEMONIC},
-                DatabaseSchema.CommonColumns.COLUMN_UID + " = ?", new String[]{guid},
-                null, null, null);
-        try {
-            if (cursor.moveToNext()) {
-                return cursor.getString(cursor.getColumnIndexOrThrow(CommodityEntry.COLUMN_MNEMONIC));
-            } else {
-                throw new IllegalArgumentException("guid " + guid + " not exits in commodity db");
+        String currencyCode = getCachedCurrencyCode(mDb, guid);
+        if (currencyCode == null) {
+            throw new IllegalArgumentException("guid " + guid + " not exits in commodity db");
+        }
+        return currencyCode;
+    }
+
+    /**
+     * Loads the commodities of this adapter's database in the cache, if they are not there already.
+     * <p>This is done at startup so that the first lookups do not hit the database</p>
+     */
+    public void loadCommodityCache() {
+        getCache(mDb);
+    }
+
+    /**
+     * Returns the GUID of the commodity with mnemonic {@code mnemonic} in the database {@code db}
+     * @param db Database holding the commodities
+     * @param mnemonic Mnemonic of the commodity, e.g. the ISO 4217 currency code
+     * @return GUID of the commodity, or null if it does not exist
+     */
+    static String getCachedCommodityUID(@NonNull SQLiteDatabase db, String mnemonic) {
+        return getCache(db).mCommodityUIDs.get(mnemonic);
+    }
+
+    /**
+     * Returns the mnemonic of the commodity with GUID {@code guid} in the database {@code db}
+     * @param db Database holding the commodities
+     * @param guid GUID of the commodity
+     * @return Mnemonic of the commodity, or null if it does not exist
+     */
+    static String getCachedCurrencyCode(@NonNull SQLiteDatabase db, String guid) {
+        return getCache(db).mCommodityMnemonics.get(guid);
+    }
+
+    /**
+     * Returns the commodities of {@code db}, from the cache if it holds them.
+     * <p>The commodities are read without holding the cache lock, since the query may have to wait
+     * for the transaction of another thread. They are only cached if the cache was not cleared in the meantime.</p>
+     * <p>Inside a transaction, the commodities are cached for the thread of the transaction only,
+     * since commodities written by the transaction would outlive its rollback. This snapshot is kept
+     * until the next write to the commodities, so that a long transaction does not read them
+     * on every lookup. It is dropped on rollback and once the thread is outside a transaction</p>
+     * @see DatabaseAdapter#beginTransaction()
+     */
+    private static CommodityCache getCache(@NonNull SQLiteDatabase db) {
+        boolean inTransaction = db.inTransaction();
+        long generation;
+        synchronized (sCacheLock) {
+            generation = sCacheGeneration;
+            CommodityCache cache = inTransaction ? sTransactionCache.get() : null;
+            if (cache != null && cache.mGeneration == generation && cache.mDbPath.equals(db.getPath())) {
+                return cache;
+            }
+            if (sCache != null && sCache.mDbPath.equals(db.getPath())) {
+                return sCache;
+            }
+        }
+
+        if (inTransaction) {
+            CommodityCache cache = new CommodityCache(db, generation);
+            sTransactionCache.set(cache);
+            return cache;
+        }
+
+        sTransactionCache.remove();
+        CommodityCache cache = new CommodityCache(db, generation);
+        synchronized (sCacheLock) {
+            if (generation == sCacheGeneration) {
+                sCache = cache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Clears the commodity cache, so that it is reloaded on the next lookup.
+     * <p>The snapshots read inside transactions are dropped as well, since they have an older generation</p>
+     * <p>Must be called after the commodities are modified without going through this adapter</p>
+     */
+    public static void invalidateCommodityCache() {
+        synchronized (sCacheLock) {
+            sCache = null;
+            sCacheGeneration++;
+        }
+    }
+
+    /**
+     * Drops the commodities read inside the transaction of the current thread.
+     * <p>Called when the transaction is rolled back, since they may include commodities it wrote</p>
+     */
+    static void dropTransactionCommodityCache() {
+        sTransactionCache.remove();
+    }
+
+    /**
+     * Commodity GUIDs and mnemonics of a database.
+     * <p>Instances are not modified once loaded, so they can be read without holding the cache lock</p>
+     */
+    private static class CommodityCache {
+        /**
+         * Path of the database, which identifies it without keeping it open
+         */
+        final String mDbPath;
+        /**
+         * Generation of the cache when the commodities were read
+         */
+        final long mGeneration;
+        final Map<String, String> mCommodityUIDs = new HashMap<>();
+        final Map<String, String> mCommodityMnemonics = new HashMap<>();
+
+        /**
+         * Reads the commodities of {@code db}
+         */
+        CommodityCache(SQLiteDatabase db, long generation) {
+            mDbPath = db.getPath();
+            mGeneration = generation;
+            Cursor cursor = db.query(CommodityEntry.TABLE_NAME,
+                    new String[]{CommodityEntry.COLUMN_UID, CommodityEntry.COLUMN_MNEMONIC},
+                    null, null, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    String uid = cursor.getString(0);
+                    String mnemonic = cursor.getString(1);
+                    //a mnemonic may be used in several namespaces, the first commodity wins like in a query
+                    if (!mCommodityUIDs.containsKey(mnemonic)) {
+                        mCommodityUIDs.put(mnemonic, uid);
+                    }
+                    mCommodityMnemonics.put(uid, mnemonic);
+                }
+            } finally {
+                cursor.close();
             }
-        } finally {
-            cursor.close();
         }
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+/**
+ * Reads the rows of a cursor by column index.
+ * <p>Subclasses resolve the indices of the columns of their projection once, in their constructor,
+ * with {@link #columnIndex(String)}, and read each row with the index-based accessors.
+ * Looking the columns up by name for each row is expensive when exporting or loading many records</p>
+ */
+public class CursorRow {
+    /**
+     * Cursor whose rows are read
+     */
+    protected final Cursor mCursor;
+
+    /**
+     * Creates a reader for the rows of a cursor
+     * @param cursor Cursor to read. It is not closed by the reader
+     */
+    public CursorRow(@NonNull Cursor cursor) {
+        mCursor = cursor;
+    }
+
+    /**
+     * Returns the cursor whose rows are read
+     * @return Cursor
+     */
+    public Cursor getCursor() {
+        return mCursor;
+    }
+
+    /**
+     * Moves the cursor to the next row
+     * @return {@code false} if the cursor is past the last row
+     */
+    public boolean moveToNext() {
+        return mCursor.moveToNext();
+    }
+
+    /**
+     * Returns the index of a column of the cursor
+     * @param columnName Name or alias of the column in the projection
+     * @return Index of the column
+     * @throws IllegalArgumentException if the cursor has no such column
+     */
+    protected final int columnIndex(@NonNull String columnName) {
+        return mCursor.getColumnIndexOrThrow(columnName);
+    }
+
+    protected final String getString(int columnIndex) {
+        return mCursor.getString(columnIndex);
+    }
+
+    protected final long getLong(int columnIndex) {
+        return mCursor.getLong(columnIndex);
+    }
+
+    protected final int getInt(int columnIndex) {
+        return mCursor.getInt(columnIndex);
+    }
+
+    protected final double getDouble(int columnIndex) {
+        return mCursor.getDouble(columnIndex);
+    }
+
+    /**
+     * Returns the value of a flag column, stored as 1 for {@code true}
+     * @param columnIndex Index of the column
+     * @return {@code true} if the column holds 1
+     */
+    protected final boolean getBoolean(int columnIndex) {
+        return mCursor.getInt(columnIndex) == 1;
+    }
+
+    protected final boolean isNull(int columnIndex) {
+        return mCursor.isNull(columnIndex);
+    }
+}
@@ -20,19 +20,22 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
+import android.database.sqlite.SQLiteTransactionListener;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
 import org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import org.gnucash.android.db.DatabaseSchema.CommonColumns;
-import org.gnucash.android.db.DatabaseSchema.SplitEntry;
-import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
 import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.BaseModel;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Adapter to be used for creating and opening the database for read/write operations.
@@ -56,6 +59,34 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
 
     protected SQLiteStatement mReplaceStatement;
 
+    /**
+     * Name of the temporary table holding the sets of GUIDs created with {@link #createUIDSet(Collection)}
+     */
+    private static final String UID_SET_TABLE_NAME = "uid_set";
+
+    /**
+     * Source of the keys of the GUID sets, so that concurrent and nested sets never collide
+     */
+    private static final AtomicLong sUIDSetKeys = new AtomicLong();
+
+    /**
+     * Listener of the transactions begun with {@link #beginTransaction()}
+     */
+    private static final SQLiteTransactionListener ROLLBACK_LISTENER = new SQLiteTransactionListener() {
+        @Override
+        public void onBegin() {
+        }
+
+        @Override
+        public void onCommit() {
+        }
+
+        @Override
+        public void onRollback() {
+            CommoditiesDbAdapter.dropTransactionCommodityCache();
+        }
+    };
+
     /**
      * Opens the database adapter with an existing database
      * @param db SQLiteDatabase object
@@ -66,114 +97,16 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         if (!db.isOpen() || db.isReadOnly())
             throw new IllegalArgumentException("Database not open or is read-only. Require writeable database");
 
-        if (mDb.getVersion() >= 9) {
-            createTempView();
-        }
+        createUIDSetTable();
     }
 
-    private void createTempView() {
-        //the multiplication by 1.0 is to cause sqlite to handle the value as REAL and not to round off
-
-        // Create some temporary views. Temporary views only exists in one DB session, and will not
-        // be saved in the DB
-        //
-        // TODO: Useful views should be add to the DB
-        //
-        // create a temporary view, combining accounts, transactions and splits, as this is often used
-        // in the queries
-        mDb.execSQL("CREATE TEMP VIEW IF NOT EXISTS trans_split_acct AS SELECT "
-                        + TransactionEntry.TABLE_NAME + "." + CommonColumns.COLUMN_MODIFIED_AT + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + CommonColumns.COLUMN_MODIFIED_AT + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_DESCRIPTION + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_DESCRIPTION + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_NOTES + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_NOTES + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_CURRENCY + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_CURRENCY + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TIMESTAMP + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_EXPORTED + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_EXPORTED + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_UID + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_UID + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TYPE + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_NUM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_NUM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_DENOM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_DENOM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_MEMO + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_MEMO + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_NAME + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_NAME + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PLACEHOLDER + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PLACEHOLDER + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_COLOR_CODE + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_COLOR_CODE + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FAVORITE + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FAVORITE + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FULL_NAME + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FULL_NAME + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_TYPE + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_TYPE + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID
-                        + " FROM " + TransactionEntry.TABLE_NAME + " , " + SplitEntry.TABLE_NAME + " ON "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + "=" + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
-                        + " , " + AccountEntry.TABLE_NAME + " ON "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + "=" + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID
-        );
-
-        // SELECT transactions_uid AS trans_acct_t_uid ,
-        //      SUBSTR (
-        //          MIN (
-        //              ( CASE WHEN IFNULL ( splits_memo , '' ) == '' THEN 'a' ELSE 'b' END ) || accounts_uid
-        //          ) ,
-        //          2
-        //      ) as trans_acct_a_uid ,
-        //   TOTAL ( CASE WHEN splits_type = 'DEBIT' THEN splits_amount ELSE - splits_amount END ) AS trans_acct_balance,
-        //   COUNT ( DISTINCT accounts_currency ) as trans_currency_count
-        //   FROM trans_split_acct GROUP BY transactions_uid
-        //
-        // This temporary view would pick one Account_UID for each
-        // Transaction, which can be used to order all transactions. If possible, account_uid of a split whose
-        // memo is null is select.
-        //
-        // Transaction balance is also picked out by this view
-        //
-        // a split without split memo is chosen if possible, in the following manner:
-        //   if the splits memo is null or empty string, attach an 'a' in front of the split account uid,
-        //   if not, attach a 'b' to the split account uid
-        //   pick the minimal value of the modified account uid (one of the ones begins with 'a', if exists)
-        //   use substr to get account uid
-
-        mDb.execSQL("CREATE TEMP VIEW IF NOT EXISTS trans_extra_info AS SELECT " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID +
-                " AS trans_acct_t_uid , SUBSTR ( MIN ( ( CASE WHEN IFNULL ( " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_MEMO + " , '' ) == '' THEN 'a' ELSE 'b' END ) || " +
-                AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID +
-                " ) , 2 ) AS trans_acct_a_uid , TOTAL ( CASE WHEN " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "+ SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_VALUE_NUM + " ELSE - " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_VALUE_NUM + " END ) * 1.0 / " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_VALUE_DENOM + " AS trans_acct_balance , COUNT ( DISTINCT " +
-                AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY +
-                " ) AS trans_currency_count , COUNT (*) AS trans_split_count FROM trans_split_acct " +
-                " GROUP BY " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID
-        );
+    /**
+     * Creates the temporary table holding the GUID sets.
+     * It only exists during the DB session
+     */
+    private void createUIDSetTable() {
+        mDb.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + UID_SET_TABLE_NAME + " ( "
+                + "set_key TEXT NOT NULL , uid TEXT NOT NULL , PRIMARY KEY ( set_key , uid ) )");
     }
 
     /**
@@ -225,13 +158,161 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         return nRow;
     }
 
+    /**
+     * Adds or updates records by GUID, without writing the records whose content did not change.
+     * <p>The content of a record is compared column by column with its row in the database,
+     * except for the creation and modification times. Unlike {@link #bulkAddRecords(List)},
+     * the existing rows are updated in place instead of replaced, so that the rows referencing them
+     * with ON DELETE CASCADE foreign keys are kept.<br>
+     * Either all or none of the records will be written</p>
+     * @param modelList Records to merge
+     * @param result Counts of the rows added, updated and unchanged, which are incremented
+     * @return Number of rows added or updated
+     * @throws UnsupportedOperationException if the adapter does not support merging,
+     * see {@link #getContentValues(BaseModel)}
+     */
+    public int mergeRecords(@NonNull List<Model> modelList, @NonNull MergeResult result) {
+        if (modelList.isEmpty()) {
+            return 0;
+        }
+        Map<String, Model> modelMap = new LinkedHashMap<>(modelList.size());
+        for (Model model : modelList) {
+            modelMap.put(model.getUID(), model);
+        }
+
+        mDb.beginTransaction();
+        try {
+            //compare first, so that the rows are not written while the cursor reads the table
+            List<ContentValues> changedValues = new ArrayList<>();
+            int unchanged = 0;
+            String uidSet = createUIDSet(modelMap.keySet());
+            try {
+                Cursor cursor = mDb.query(mTableName, null, inUIDSet(CommonColumns.COLUMN_UID),
+                        new String[]{uidSet}, null, null, null);
+                try {
+                    int uidIndex = cursor.getColumnIndexOrThrow(CommonColumns.COLUMN_UID);
+                    while (cursor.moveToNext()) {
+                        Model model = modelMap.remove(cursor.getString(uidIndex));
+                        ContentValues contentValues = getContentValues(model);
+                        if (hasSameValues(cursor, contentValues)) {
+                            unchanged++;
+                        } else {
+                            changedValues.add(contentValues);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            } finally {
+                deleteUIDSet(uidSet);
+            }
+
+            for (ContentValues contentValues : changedValues) {
+                mDb.update(mTableName, contentValues, CommonColumns.COLUMN_UID + " = ?",
+                        new String[]{contentValues.getAsString(CommonColumns.COLUMN_UID)});
+            }
+            //the records left in the map are not in the database yet
+            for (Model model : modelMap.values()) {
+                compileReplaceStatement(model).execute();
+            }
+            mDb.setTransactionSuccessful();
+
+            result.addAdded(modelMap.size());
+            result.addUpdated(changedValues.size());
+            result.addUnchanged(unchanged);
+            return modelMap.size() + changedValues.size();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Returns the column values of a record, as written by {@link #compileReplaceStatement(BaseModel)}
+     * but without the creation time.
+     * <p>This is used by {@link #mergeRecords(List, MergeResult)} to compare the records with the rows.
+     * Booleans must be stored as integers, so that they compare equal to the database values</p>
+     * @param model Record
+     * @return Values of the record, by column name
+     */
+    protected abstract ContentValues getContentValues(@NonNull Model model);
+
+    /**
+     * Returns whether the row at the cursor position holds the values of {@code contentValues}
+     * @param cursor Cursor pointing to the row
+     * @param contentValues Values by column name
+     * @return {@code true} if the values of all the columns in {@code contentValues} are equal
+     */
+    private static boolean hasSameValues(Cursor cursor, ContentValues contentValues) {
+        for (Map.Entry<String, Object> entry : contentValues.valueSet()) {
+            int index = cursor.getColumnIndexOrThrow(entry.getKey());
+            Object value = entry.getValue();
+            if (value == null || cursor.isNull(index)) {
+                if (value != null || !cursor.isNull(index)) {
+                    return false;
+                }
+            } else if (value instanceof Number) {
+                if (cursor.getLong(index) != ((Number) value).longValue()) {
+                    return false;
+                }
+            } else if (!value.toString().equals(cursor.getString(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads model instances from the rows of a cursor, with the indices of the columns
+     * resolved once for the cursor
+     * @param <Model> Type of the model read
+     */
+    protected abstract static class ModelReader<Model extends BaseModel> extends CursorRow {
+        private final int mUIDIndex;
+        private final int mCreatedAtIndex;
+        private final int mModifiedAtIndex;
+
+        protected ModelReader(@NonNull Cursor cursor) {
+            super(cursor);
+            mUIDIndex = columnIndex(CommonColumns.COLUMN_UID);
+            mCreatedAtIndex = columnIndex(CommonColumns.COLUMN_CREATED_AT);
+            mModifiedAtIndex = columnIndex(CommonColumns.COLUMN_MODIFIED_AT);
+        }
+
+        /**
+         * Builds an instance of the model from the current row.
+         * <p>This method should not move the cursor</p>
+         * @return Model instance
+         */
+        public abstract Model read();
+
+        /**
+         * Initializes the model with the values of the current row common to all models (i.e. in the BaseModel)
+         * @param model Model instance to be initialized
+         */
+        protected void populateBaseModelAttributes(BaseModel model) {
+            model.setUID(getString(mUIDIndex));
+            model.setCreatedTimestamp(Timestamp.valueOf(getString(mCreatedAtIndex)));
+            model.setModifiedTimestamp(Timestamp.valueOf(getString(mModifiedAtIndex)));
+        }
+    }
+
+    /**
+     * Creates a reader of model instances for the rows of a cursor of the table
+     * @param cursor Cursor of records of the table
+     * @return Model reader for the cursor
+     */
+    protected abstract ModelReader<Model> createModelReader(@NonNull Cursor cursor);
+
     /**
      * Builds an instance of the model from the database record entry
-     * <p>This method should not modify the cursor in any way</p>
+     * <p>This method should not modify the cursor in any way. When reading several rows of the same cursor,
+     * use a reader from {@link #createModelReader(Cursor)} instead, which only looks the columns up once</p>
      * @param cursor Cursor pointing to the record
-     * @return
+     * @return Model instance
      */
-    protected abstract Model buildModelInstance(@NonNull final Cursor cursor);
+    public Model buildModelInstance(@NonNull final Cursor cursor) {
+        return createModelReader(cursor).read();
+    }
 
     /**
      * Generates an {@link SQLiteStatement} with values from the {@code model}.
@@ -284,8 +365,9 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         List<Model> modelRecords = new ArrayList<>();
         Cursor c = fetchAllRecords();
         try {
-            while (c.moveToNext()) {
-                modelRecords.add(buildModelInstance(c));
+            ModelReader<Model> reader = createModelReader(c);
+            while (reader.moveToNext()) {
+                modelRecords.add(reader.read());
             }
         } finally {
             c.close();
@@ -310,20 +392,6 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         return contentValues;
     }
 
-    /**
-     * Initializes the model with values from the database record common to all models (i.e. in the BaseModel)
-     * @param cursor Cursor pointing to database record
-     * @param model Model instance to be initialized
-     */
-    protected void populateBaseModelAttributes(Cursor cursor, BaseModel model){
-        String uid = cursor.getString(cursor.getColumnIndexOrThrow(CommonColumns.COLUMN_UID));
-        String created = cursor.getString(cursor.getColumnIndexOrThrow(CommonColumns.COLUMN_CREATED_AT));
-        String modified= cursor.getString(cursor.getColumnIndexOrThrow(CommonColumns.COLUMN_MODIFIED_AT));
-
-        model.setUID(uid);
-        model.setCreatedTimestamp(Timestamp.valueOf(created));
-        model.setModifiedTimestamp(Timestamp.valueOf(modified));
-    }
 
 	/**
 	 * Retrieves record with id <code>rowId</code> from database table
@@ -457,25 +525,16 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
 
     /**
      * Returns the commodity GUID for the given ISO 4217 currency code
+     * <p>The GUIDs are looked up in the cache of {@link CommoditiesDbAdapter}</p>
      * @param currencyCode ISO 4217 currency code
      * @return GUID of commodity
      */
     public String getCommodityUID(String currencyCode){
-        String where = DatabaseSchema.CommodityEntry.COLUMN_MNEMONIC + "= ?";
-        String[] whereArgs = new String[]{currencyCode};
-
-        Cursor cursor = mDb.query(DatabaseSchema.CommodityEntry.TABLE_NAME,
-                new String[]{DatabaseSchema.CommodityEntry.COLUMN_UID},
-                where, whereArgs, null, null, null);
-        try {
-            if (cursor.moveToNext()) {
-                return cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.CommodityEntry.COLUMN_UID));
-            } else {
-                throw new IllegalArgumentException("Currency code not found in commodities");
-            }
-        } finally {
-            cursor.close();
+        String commodityUID = CommoditiesDbAdapter.getCachedCommodityUID(mDb, currencyCode);
+        if (commodityUID == null) {
+            throw new IllegalArgumentException("Currency code not found in commodities");
         }
+        return commodityUID;
     }
 
     /**
@@ -570,6 +629,28 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         return deleteRecord(getID(uid));
     }
 
+    /**
+     * Deletes the records with the given GUIDs, when merging the deletions of a differential backup.
+     * <p>The GUIDs which are not in the database are ignored. Like {@link #mergeRecords(List, MergeResult)},
+     * the account balances are not recomputed</p>
+     * @param uids GUIDs of the records to delete
+     * @param result Counts of the rows written, to which the deleted rows are added
+     * @return Number of records deleted
+     */
+    public int deleteRecords(@NonNull Collection<String> uids, @NonNull MergeResult result) {
+        if (uids.isEmpty()) {
+            return 0;
+        }
+        String uidSet = createUIDSet(uids);
+        try {
+            int nDeleted = mDb.delete(mTableName, inUIDSet(CommonColumns.COLUMN_UID), new String[]{uidSet});
+            result.addDeleted(nDeleted);
+            return nDeleted;
+        } finally {
+            deleteUIDSet(uidSet);
+        }
+    }
+
     /**
      * Returns an attribute from a specific column in the database for a specific record.
      * <p>The attribute is returned as a string which can then be converted to another type if
@@ -596,6 +677,56 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         }
     }
 
+    /**
+     * Stores a set of GUIDs in a temporary table, so that queries can select against it
+     * instead of inlining every GUID in an {@code IN ( ... )} list.
+     * <p>The SQL of such queries does not depend on the number of GUIDs, so it can be cached as a prepared
+     * statement and never runs into the SQL length limit. The returned key is the selection argument
+     * of {@link #inUIDSet(String)}. Delete the set with {@link #deleteUIDSet(String)} in a {@code finally} block
+     * once the query is done</p>
+     * @param uids GUIDs to put in the set
+     * @return Key of the set
+     */
+    protected String createUIDSet(@NonNull Collection<String> uids) {
+        String setKey = String.valueOf(sUIDSetKeys.incrementAndGet());
+        // uid_set lives in the temporary database, so the inserts do not need a write transaction on the book
+        SQLiteStatement insertStatement = mDb.compileStatement("INSERT OR IGNORE INTO " + UID_SET_TABLE_NAME
+                + " ( set_key , uid ) VALUES ( ? , ? )");
+        boolean created = false;
+        try {
+            for (String uid : uids) {
+                insertStatement.bindString(1, setKey);
+                insertStatement.bindString(2, uid);
+                insertStatement.execute();
+            }
+            created = true;
+        } finally {
+            insertStatement.close();
+            if (!created) {
+                deleteUIDSet(setKey);
+            }
+        }
+        return setKey;
+    }
+
+    /**
+     * Returns a selection matching the records whose {@code column} is in a set of GUIDs.
+     * <p>The key of the set returned by {@link #createUIDSet(Collection)} must be bound as selection argument</p>
+     * @param column Column holding GUIDs
+     * @return SQL selection
+     */
+    protected static String inUIDSet(@NonNull String column) {
+        return column + " IN ( SELECT uid FROM " + UID_SET_TABLE_NAME + " WHERE set_key = ? )";
+    }
+
+    /**
+     * Deletes a set of GUIDs created with {@link #createUIDSet(Collection)}
+     * @param setKey Key of the set
+     */
+    protected void deleteUIDSet(@NonNull String setKey) {
+        mDb.delete(UID_SET_TABLE_NAME, "set_key = ?", new String[]{setKey});
+    }
+
     /**
      * Returns the number of records in the database table backed by this adapter
      * @return Total number of records in the database
@@ -607,10 +738,29 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
     }
 
     /**
-     * Expose mDb.beginTransaction()
+     * Opens a bulk load session on the database, for writing many records at once.
+     * <p>This must be called outside of a database transaction for the connection settings to change,
+     * see {@link BulkLoadSession}</p>
+     * @return Bulk load session, which must be closed once the load is done
+     */
+    public BulkLoadSession openBulkLoadSession() {
+        return new BulkLoadSession(mDb);
+    }
+
+    /**
+     * Returns the chain of differential backups of the database
+     * @return Backup chain
+     */
+    public BackupChain getBackupChain() {
+        return new BackupChain(mDb);
+    }
+
+    /**
+     * Expose mDb.beginTransaction().
+     * <p>The commodities cached inside the transaction are dropped if it is rolled back</p>
      */
     public void beginTransaction() {
-        mDb.beginTransaction();
+        mDb.beginTransactionWithListener(ROLLBACK_LISTENER);
     }
 
     /**
@@ -75,7 +75,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + AccountEntry.COLUMN_CREATED_AT       + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + AccountEntry.COLUMN_MODIFIED_AT      + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + "FOREIGN KEY (" 	+ AccountEntry.COLUMN_COMMODITY_UID + ") REFERENCES " + CommodityEntry.TABLE_NAME + " (" + CommodityEntry.COLUMN_UID + ") "
-			+ ");" + createUpdatedAtTrigger(AccountEntry.TABLE_NAME);
+			+ ");";
 	
 	/**
 	 * SQL statement to create the transactions table in the database
@@ -95,7 +95,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + TransactionEntry.COLUMN_MODIFIED_AT   + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + "FOREIGN KEY (" 	+ TransactionEntry.COLUMN_SCHEDX_ACTION_UID + ") REFERENCES " + ScheduledActionEntry.TABLE_NAME + " (" + ScheduledActionEntry.COLUMN_UID + ") ON DELETE SET NULL, "
             + "FOREIGN KEY (" 	+ TransactionEntry.COLUMN_COMMODITY_UID + ") REFERENCES " + CommodityEntry.TABLE_NAME + " (" + CommodityEntry.COLUMN_UID + ") "
-			+ ");" + createUpdatedAtTrigger(TransactionEntry.TABLE_NAME);
+			+ ");";
 
     /**
      * SQL statement to create the transaction splits table
@@ -115,7 +115,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + SplitEntry.COLUMN_MODIFIED_AT      + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + "FOREIGN KEY (" 	+ SplitEntry.COLUMN_ACCOUNT_UID + ") REFERENCES " + AccountEntry.TABLE_NAME + " (" + AccountEntry.COLUMN_UID + ") ON DELETE CASCADE, "
             + "FOREIGN KEY (" 	+ SplitEntry.COLUMN_TRANSACTION_UID + ") REFERENCES " + TransactionEntry.TABLE_NAME + " (" + TransactionEntry.COLUMN_UID + ") ON DELETE CASCADE "
-            + ");" + createUpdatedAtTrigger(SplitEntry.TABLE_NAME);
+            + ");";
 
 
     public static final String SCHEDULED_ACTIONS_TABLE_CREATE = "CREATE TABLE " + ScheduledActionEntry.TABLE_NAME + " ("
@@ -133,7 +133,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + ScheduledActionEntry.COLUMN_EXECUTION_COUNT+ " integer default 0, "
             + ScheduledActionEntry.COLUMN_CREATED_AT     + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + ScheduledActionEntry.COLUMN_MODIFIED_AT    + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP "
-            + ");" + createUpdatedAtTrigger(ScheduledActionEntry.TABLE_NAME);
+            + ");";
 
     public static final String COMMODITIES_TABLE_CREATE = "CREATE TABLE " + DatabaseSchema.CommodityEntry.TABLE_NAME + " ("
             + CommodityEntry._ID                + " integer primary key autoincrement, "
@@ -147,12 +147,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + CommodityEntry.COLUMN_QUOTE_FLAG  + " integer not null, "
             + CommodityEntry.COLUMN_CREATED_AT  + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + CommodityEntry.COLUMN_MODIFIED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP "
-            + ");" + createUpdatedAtTrigger(CommodityEntry.TABLE_NAME);
+            + ");";
 
     /**
-     * SQL statement to create the commodity prices table
+     * SQL statement to create the commodity prices table.
+     * <p>A commodity / currency pair has one price per date, so that the price history is kept</p>
      */
-    private static final String PRICES_TABLE_CREATE = "CREATE TABLE " + PriceEntry.TABLE_NAME + " ("
+    static final String PRICES_TABLE_CREATE = "CREATE TABLE " + PriceEntry.TABLE_NAME + " ("
             + PriceEntry._ID                    + " integer primary key autoincrement, "
             + PriceEntry.COLUMN_UID             + " varchar(255) not null UNIQUE, "
             + PriceEntry.COLUMN_COMMODITY_UID 	+ " varchar(255) not null, "
@@ -164,10 +165,72 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + PriceEntry.COLUMN_VALUE_DENOM     + " integer not null, "
             + PriceEntry.COLUMN_CREATED_AT      + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
             + PriceEntry.COLUMN_MODIFIED_AT     + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
-            + "UNIQUE (" + PriceEntry.COLUMN_COMMODITY_UID + ", " + PriceEntry.COLUMN_CURRENCY_UID + ") ON CONFLICT REPLACE, "
+            + "UNIQUE (" + PriceEntry.COLUMN_COMMODITY_UID + ", " + PriceEntry.COLUMN_CURRENCY_UID + ", " + PriceEntry.COLUMN_DATE + ") ON CONFLICT REPLACE, "
             + "FOREIGN KEY (" 	+ PriceEntry.COLUMN_COMMODITY_UID + ") REFERENCES " + CommodityEntry.TABLE_NAME + " (" + CommodityEntry.COLUMN_UID + ") ON DELETE CASCADE, "
             + "FOREIGN KEY (" 	+ PriceEntry.COLUMN_CURRENCY_UID + ") REFERENCES " + CommodityEntry.TABLE_NAME + " (" + CommodityEntry.COLUMN_UID + ") ON DELETE CASCADE "
-            + ");" + createUpdatedAtTrigger(PriceEntry.TABLE_NAME);
+            + ");";
+
+    /**
+     * SQL statement to create the account balances table
+     */
+    static final String ACCOUNT_BALANCES_TABLE_CREATE = "CREATE TABLE " + AccountBalanceEntry.TABLE_NAME + " ("
+            + AccountBalanceEntry.COLUMN_ACCOUNT_UID        + " varchar(255) not null, "
+            + AccountBalanceEntry.COLUMN_QUANTITY_NUM       + " integer not null default 0, "
+            + AccountBalanceEntry.COLUMN_QUANTITY_DENOM     + " integer not null, "
+            + "PRIMARY KEY (" + AccountBalanceEntry.COLUMN_ACCOUNT_UID + ", " + AccountBalanceEntry.COLUMN_QUANTITY_DENOM + "), "
+            + "FOREIGN KEY (" 	+ AccountBalanceEntry.COLUMN_ACCOUNT_UID + ") REFERENCES " + AccountEntry.TABLE_NAME + " (" + AccountEntry.COLUMN_UID + ") ON DELETE CASCADE "
+            + ");";
+
+    /**
+     * SQL statement to create the account ancestry table.
+     * <p>Only the descendant is a foreign key, so that replacing an account does not
+     * drop the links of its whole sub-tree</p>
+     */
+    static final String ACCOUNT_ANCESTRY_TABLE_CREATE = "CREATE TABLE " + AccountAncestryEntry.TABLE_NAME + " ("
+            + AccountAncestryEntry.COLUMN_ANCESTOR_UID      + " varchar(255) not null, "
+            + AccountAncestryEntry.COLUMN_DESCENDANT_UID    + " varchar(255) not null, "
+            + AccountAncestryEntry.COLUMN_DEPTH             + " integer not null, "
+            + "PRIMARY KEY (" + AccountAncestryEntry.COLUMN_ANCESTOR_UID + ", " + AccountAncestryEntry.COLUMN_DESCENDANT_UID + "), "
+            + "FOREIGN KEY (" 	+ AccountAncestryEntry.COLUMN_DESCENDANT_UID + ") REFERENCES " + AccountEntry.TABLE_NAME + " (" + AccountEntry.COLUMN_UID + ") ON DELETE CASCADE "
+            + ");";
+
+    /**
+     * SQL statement to create the index on the descendant column of the account ancestry table
+     */
+    static final String ACCOUNT_ANCESTRY_INDEX_CREATE = "CREATE INDEX '" + AccountAncestryEntry.INDEX_DESCENDANT_UID + "' ON "
+            + AccountAncestryEntry.TABLE_NAME + "(" + AccountAncestryEntry.COLUMN_DESCENDANT_UID + ")";
+
+    /**
+     * SQL statement to create the transaction summaries table.
+     * <p>There is no foreign key to the transactions, since the summary of a transaction is recomputed
+     * by the split triggers while the splits of a deleted transaction are cascaded</p>
+     */
+    static final String TRANSACTION_SUMMARIES_TABLE_CREATE = "CREATE TABLE " + TransactionSummaryEntry.TABLE_NAME + " ("
+            + TransactionSummaryEntry.COLUMN_TRANSACTION_UID    + " varchar(255) primary key, "
+            + TransactionSummaryEntry.COLUMN_ACCOUNT_UID        + " varchar(255), "
+            + TransactionSummaryEntry.COLUMN_BALANCE            + " real not null default 0, "
+            + TransactionSummaryEntry.COLUMN_CURRENCY_COUNT     + " integer not null default 0, "
+            + TransactionSummaryEntry.COLUMN_SPLIT_COUNT        + " integer not null default 0 "
+            + ");";
+
+    /**
+     * SQL statement to create the backup chain table
+     */
+    static final String BACKUP_CHAIN_TABLE_CREATE = "CREATE TABLE " + BackupChainEntry.TABLE_NAME + " ("
+            + BackupChainEntry._ID                  + " integer primary key autoincrement, "
+            + BackupChainEntry.COLUMN_TYPE          + " varchar(255) not null, "
+            + BackupChainEntry.COLUMN_TIMESTAMP     + " TIMESTAMP not null "
+            + ");";
+
+    /**
+     * SQL statement to create the tombstones table.
+     * <p>There are no foreign keys, since the records are already deleted</p>
+     */
+    static final String TOMBSTONES_TABLE_CREATE = "CREATE TABLE " + TombstoneEntry.TABLE_NAME + " ("
+            + TombstoneEntry.COLUMN_TABLE_NAME      + " varchar(255) not null, "
+            + TombstoneEntry.COLUMN_UID             + " varchar(255) not null, "
+            + TombstoneEntry.COLUMN_DELETED_AT      + " TIMESTAMP not null default CURRENT_TIMESTAMP "
+            + ");";
 
     /**
 	 * Constructor
@@ -178,21 +241,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
 	}
 
-    /**
-     * Creates an update trigger to update the updated_at column for all records in the database.
-     * This has to be run per table, and is currently appended to the create table statement.
-     * @param tableName Name of table on which to create trigger
-     * @return SQL statement for creating trigger
-     */
-    static String createUpdatedAtTrigger(String tableName){
-        return "CREATE TRIGGER update_time_trigger "
-                + "  AFTER UPDATE ON " + tableName + " FOR EACH ROW"
-                + "  BEGIN " + "UPDATE " + tableName
-                + "  SET " + CommonColumns.COLUMN_MODIFIED_AT + " = CURRENT_TIMESTAMP"
-                + "  WHERE OLD." + CommonColumns.COLUMN_UID + " = NEW." + CommonColumns.COLUMN_UID + ";"
-                + "  END;";
-    }
-
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		createDatabaseTables(db);
@@ -258,6 +306,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(SCHEDULED_ACTIONS_TABLE_CREATE);
         db.execSQL(COMMODITIES_TABLE_CREATE);
         db.execSQL(PRICES_TABLE_CREATE);
+        db.execSQL(ACCOUNT_BALANCES_TABLE_CREATE);
+        db.execSQL(ACCOUNT_ANCESTRY_TABLE_CREATE);
+        db.execSQL(ACCOUNT_ANCESTRY_INDEX_CREATE);
+        db.execSQL(TRANSACTION_SUMMARIES_TABLE_CREATE);
+        db.execSQL(BACKUP_CHAIN_TABLE_CREATE);
+        db.execSQL(TOMBSTONES_TABLE_CREATE);
+        createModifiedAtTriggers(db);
+        createTransactionSummaryTriggers(db);
+        createTombstoneTriggers(db);
+        createViews(db);
 
         String createAccountUidIndex = "CREATE UNIQUE INDEX '" + AccountEntry.INDEX_UID + "' ON "
                 + AccountEntry.TABLE_NAME + "(" + AccountEntry.COLUMN_UID + ")";
@@ -283,6 +341,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(createScheduledEventUidIndex);
         db.execSQL(createCommodityUidIndex);
         db.execSQL(createPriceUidIndex);
+        createSecondaryIndexes(db);
 
         try {
             MigrationHelper.importCommodities(db);
@@ -292,4 +351,239 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Creates the non-unique indexes on the columns used to join and filter splits, transactions and prices.
+     * <p>Existing indexes are left untouched, so this is safe to call during migrations</p>
+     * @param db SQLite database
+     */
+    static void createSecondaryIndexes(SQLiteDatabase db){
+        db.execSQL("CREATE INDEX IF NOT EXISTS '" + SplitEntry.INDEX_ACCOUNT_UID + "' ON "
+                + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_ACCOUNT_UID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS '" + SplitEntry.INDEX_TRANSACTION_UID + "' ON "
+                + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_TRANSACTION_UID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS '" + TransactionEntry.INDEX_TIMESTAMP + "' ON "
+                + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_TIMESTAMP + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS '" + TransactionEntry.INDEX_TEMPLATE + "' ON "
+                + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_TEMPLATE + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS '" + PriceEntry.INDEX_COMMODITY_CURRENCY_DATE + "' ON "
+                + PriceEntry.TABLE_NAME + "(" + PriceEntry.COLUMN_COMMODITY_UID + ", "
+                + PriceEntry.COLUMN_CURRENCY_UID + ", " + PriceEntry.COLUMN_DATE + ")");
+    }
+
+    /**
+     * Creates the views used by the reports and transaction queries.
+     * <p>{@code trans_split_acct} combines the accounts, transactions and splits, as this is often used in the queries.
+     * {@code trans_extra_info} exposes the transaction summaries with the column names the queries expect.
+     * Existing views are left untouched, so this is safe to call during migrations</p>
+     * @param db SQLite database
+     */
+    static void createViews(SQLiteDatabase db){
+        db.execSQL("CREATE VIEW IF NOT EXISTS trans_split_acct AS SELECT "
+                        + TransactionEntry.TABLE_NAME + "." + CommonColumns.COLUMN_MODIFIED_AT + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + CommonColumns.COLUMN_MODIFIED_AT + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_DESCRIPTION + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_DESCRIPTION + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_NOTES + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_NOTES + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_CURRENCY + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_CURRENCY + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TIMESTAMP + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_EXPORTED + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_EXPORTED + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_UID + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_UID + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TYPE + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_NUM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_NUM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_DENOM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_DENOM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_MEMO + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_MEMO + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_NAME + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_NAME + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PLACEHOLDER + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PLACEHOLDER + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_COLOR_CODE + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_COLOR_CODE + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FAVORITE + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FAVORITE + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FULL_NAME + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FULL_NAME + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_TYPE + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_TYPE + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID
+                        + " FROM " + TransactionEntry.TABLE_NAME + " , " + SplitEntry.TABLE_NAME + " ON "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + "=" + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                        + " , " + AccountEntry.TABLE_NAME + " ON "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + "=" + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID
+        );
+
+        // For each transaction: the account used to display it, preferably one of a split without memo,
+        // its balance, and the number of its splits and of their currencies. See createTransactionSummaryTriggers()
+        db.execSQL("CREATE VIEW IF NOT EXISTS trans_extra_info AS SELECT "
+                + TransactionSummaryEntry.COLUMN_TRANSACTION_UID + " AS trans_acct_t_uid , "
+                + TransactionSummaryEntry.COLUMN_ACCOUNT_UID + " AS trans_acct_a_uid , "
+                + TransactionSummaryEntry.COLUMN_BALANCE + " AS trans_acct_balance , "
+                + TransactionSummaryEntry.COLUMN_CURRENCY_COUNT + " AS trans_currency_count , "
+                + TransactionSummaryEntry.COLUMN_SPLIT_COUNT + " AS trans_split_count "
+                + " FROM " + TransactionSummaryEntry.TABLE_NAME);
+    }
+
+    /**
+     * Creates the triggers which recompute the summaries of the transactions whose splits are
+     * inserted, updated or deleted, or whose accounts change currency.
+     * <p>The delete trigger is not fired by REPLACE, since recursive triggers are not enabled.
+     * {@link SplitsDbAdapter} deletes a split moved to another transaction before replacing it.
+     * The delete trigger only fires for transactions which still have a summary</p>
+     * @param db SQLite database
+     */
+    static void createTransactionSummaryTriggers(SQLiteDatabase db){
+        db.execSQL(createTransactionSummaryTrigger("splits_insert_summary_trigger",
+                "INSERT ON " + SplitEntry.TABLE_NAME, null,
+                "NEW." + SplitEntry.COLUMN_TRANSACTION_UID));
+        //only the columns of the summary, so that the modification times set by their own trigger do not fire it
+        db.execSQL(createTransactionSummaryTrigger("splits_update_summary_trigger",
+                "UPDATE OF " + SplitEntry.COLUMN_TRANSACTION_UID + " , " + SplitEntry.COLUMN_ACCOUNT_UID + " , "
+                        + SplitEntry.COLUMN_MEMO + " , " + SplitEntry.COLUMN_TYPE + " , "
+                        + SplitEntry.COLUMN_VALUE_NUM + " , " + SplitEntry.COLUMN_VALUE_DENOM + " ON " + SplitEntry.TABLE_NAME,
+                null, "OLD." + SplitEntry.COLUMN_TRANSACTION_UID + " , NEW." + SplitEntry.COLUMN_TRANSACTION_UID));
+        //bulk deletes clear the summaries first, so that the trigger is skipped for each of their splits
+        db.execSQL(createTransactionSummaryTrigger("splits_delete_summary_trigger",
+                "DELETE ON " + SplitEntry.TABLE_NAME,
+                "EXISTS ( SELECT 1 FROM " + TransactionSummaryEntry.TABLE_NAME + " WHERE "
+                        + TransactionSummaryEntry.COLUMN_TRANSACTION_UID + " = OLD." + SplitEntry.COLUMN_TRANSACTION_UID + " )",
+                "OLD." + SplitEntry.COLUMN_TRANSACTION_UID));
+        db.execSQL(createTransactionSummaryTrigger("accounts_currency_summary_trigger",
+                "UPDATE OF " + AccountEntry.COLUMN_CURRENCY + " ON " + AccountEntry.TABLE_NAME, null,
+                "SELECT " + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME
+                        + " WHERE " + SplitEntry.COLUMN_ACCOUNT_UID + " = NEW." + AccountEntry.COLUMN_UID));
+    }
+
+    /**
+     * Creates the triggers which set the modification time of the records updated in place.
+     * <p>The records written with REPLACE get the current time from the default of the column.
+     * The differential backups find the changed records with the modification times</p>
+     * <p>Each statement is run on its own, since {@link SQLiteDatabase#execSQL(String)} only runs the first one.
+     * A time set explicitly by the update is kept</p>
+     * @param db SQLite database
+     * @see BackupChain
+     */
+    static void createModifiedAtTriggers(SQLiteDatabase db){
+        String[] tableNames = new String[]{AccountEntry.TABLE_NAME, TransactionEntry.TABLE_NAME,
+                SplitEntry.TABLE_NAME, ScheduledActionEntry.TABLE_NAME, CommodityEntry.TABLE_NAME,
+                PriceEntry.TABLE_NAME};
+        for (String tableName : tableNames) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS " + tableName + "_modified_at_trigger AFTER UPDATE ON "
+                    + tableName + " FOR EACH ROW WHEN NEW." + CommonColumns.COLUMN_MODIFIED_AT
+                    + " IS OLD." + CommonColumns.COLUMN_MODIFIED_AT + " "
+                    + "BEGIN UPDATE " + tableName + " SET " + CommonColumns.COLUMN_MODIFIED_AT + " = CURRENT_TIMESTAMP"
+                    + " WHERE " + CommonColumns._ID + " = NEW." + CommonColumns._ID + "; END;");
+        }
+    }
+
+    /**
+     * Creates the triggers which record the deletions of accounts, transactions, splits, prices and
+     * scheduled actions as tombstones, while the backup chain is not empty
+     * @param db SQLite database
+     * @see BackupChain
+     */
+    static void createTombstoneTriggers(SQLiteDatabase db){
+        String[] tableNames = new String[]{AccountEntry.TABLE_NAME, TransactionEntry.TABLE_NAME,
+                SplitEntry.TABLE_NAME, PriceEntry.TABLE_NAME, ScheduledActionEntry.TABLE_NAME};
+        for (String tableName : tableNames) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS " + tableName + "_tombstone_trigger AFTER DELETE ON "
+                    + tableName + " FOR EACH ROW WHEN EXISTS ( SELECT 1 FROM " + BackupChainEntry.TABLE_NAME + " ) "
+                    + "BEGIN INSERT INTO " + TombstoneEntry.TABLE_NAME + " ( "
+                    + TombstoneEntry.COLUMN_TABLE_NAME + " , " + TombstoneEntry.COLUMN_UID + " ) "
+                    + "VALUES ( '" + tableName + "' , OLD." + CommonColumns.COLUMN_UID + " ); END;");
+        }
+    }
+
+    /**
+     * Returns the SQL statement creating a trigger which recomputes the summaries of some transactions
+     * @param triggerName Name of the trigger
+     * @param event Event firing the trigger, e.g. "INSERT ON splits"
+     * @param when SQL condition for firing the trigger, or null to always fire it
+     * @param transactionUIDs SQL list or sub-query of the GUIDs of the transactions to recompute
+     * @return SQL statement for creating the trigger
+     */
+    private static String createTransactionSummaryTrigger(String triggerName, String event, String when,
+                                                          String transactionUIDs){
+        return "CREATE TRIGGER IF NOT EXISTS " + triggerName + " AFTER " + event + " FOR EACH ROW "
+                + (when == null ? "" : "WHEN " + when + " ") + "BEGIN "
+                + "DELETE FROM " + TransactionSummaryEntry.TABLE_NAME + " WHERE "
+                + TransactionSummaryEntry.COLUMN_TRANSACTION_UID + " IN ( " + transactionUIDs + " ) ; "
+                + insertTransactionSummaries(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                        + " IN ( " + transactionUIDs + " )") + " ; "
+                + "END";
+    }
+
+    /**
+     * Returns the SQL statement which computes the summaries of the transactions from their splits
+     * and inserts them into the transaction summaries table
+     * @param where SQL where clause on the splits table, or null for all transactions.
+     *              Columns should be qualified with the table name
+     * @return SQL statement
+     */
+    static String insertTransactionSummaries(String where){
+        // a split without memo is chosen as display account if possible, in the following manner:
+        //   if the splits memo is null or empty string, attach an 'a' in front of the split account uid,
+        //   if not, attach a 'b' to the split account uid
+        //   pick the minimal value of the modified account uid (one of the ones begins with 'a', if exists)
+        //   use substr to get account uid
+        //the multiplication by 1.0 is to cause sqlite to handle the value as REAL and not to round off
+        String splits = SplitEntry.TABLE_NAME + ".";
+        return "INSERT INTO " + TransactionSummaryEntry.TABLE_NAME + " ( "
+                + TransactionSummaryEntry.COLUMN_TRANSACTION_UID + " , "
+                + TransactionSummaryEntry.COLUMN_ACCOUNT_UID + " , "
+                + TransactionSummaryEntry.COLUMN_BALANCE + " , "
+                + TransactionSummaryEntry.COLUMN_CURRENCY_COUNT + " , "
+                + TransactionSummaryEntry.COLUMN_SPLIT_COUNT + " ) "
+                + "SELECT " + splits + SplitEntry.COLUMN_TRANSACTION_UID + " , "
+                + "SUBSTR ( MIN ( ( CASE WHEN IFNULL ( " + splits + SplitEntry.COLUMN_MEMO + " , '' ) == '' THEN 'a' ELSE 'b' END ) || "
+                + splits + SplitEntry.COLUMN_ACCOUNT_UID + " ) , 2 ) , "
+                + "TOTAL ( CASE WHEN " + splits + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "
+                + splits + SplitEntry.COLUMN_VALUE_NUM + " ELSE - " + splits + SplitEntry.COLUMN_VALUE_NUM + " END ) * 1.0 / "
+                + splits + SplitEntry.COLUMN_VALUE_DENOM + " , "
+                + "COUNT ( DISTINCT " + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " ) , "
+                + "COUNT (*) "
+                + " FROM " + SplitEntry.TABLE_NAME + " INNER JOIN " + AccountEntry.TABLE_NAME + " ON "
+                + splits + SplitEntry.COLUMN_ACCOUNT_UID + " = " + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID
+                + (where == null ? "" : " WHERE " + where)
+                + " GROUP BY " + splits + SplitEntry.COLUMN_TRANSACTION_UID;
+    }
+
+    /**
+     * Recomputes the summaries of all transactions from their splits
+     * @param db SQLite database
+     */
+    static void rebuildTransactionSummaries(SQLiteDatabase db){
+        Log.i(LOG_TAG, "Rebuilding transaction summaries");
+        db.beginTransaction();
+        try {
+            db.delete(TransactionSummaryEntry.TABLE_NAME, null, null);
+            db.execSQL(insertTransactionSummaries(null));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
 }
@@ -28,7 +28,7 @@ public class DatabaseSchema {
      * Database version.
      * With any change to the database schema, this number must increase
      */
-    public static final int DATABASE_VERSION = 9;
+    public static final int DATABASE_VERSION = 16;
 
     /**
      * Database version where Splits were introduced
@@ -91,6 +91,8 @@ public class DatabaseSchema {
         public static final String COLUMN_SCHEDX_ACTION_UID     = "scheduled_action_uid";
 
         public static final String INDEX_UID                    = "transaction_uid_index";
+        public static final String INDEX_TIMESTAMP              = "transaction_timestamp_index";
+        public static final String INDEX_TEMPLATE               = "transaction_template_index";
     }
 
     /**
@@ -117,6 +119,8 @@ public class DatabaseSchema {
         public static final String COLUMN_TRANSACTION_UID       = "transaction_uid";
 
         public static final String INDEX_UID                    = "split_uid_index";
+        public static final String INDEX_ACCOUNT_UID            = "split_account_uid_index";
+        public static final String INDEX_TRANSACTION_UID        = "split_transaction_uid_index";
     }
 
     public static abstract class ScheduledActionEntry implements CommonColumns {
@@ -189,6 +193,100 @@ public class DatabaseSchema {
         public static final String COLUMN_VALUE_DENOM   = "value_denom";
 
         public static final String INDEX_UID = "prices_uid_index";
+        public static final String INDEX_COMMODITY_CURRENCY_DATE = "prices_commodity_currency_date_index";
 
     }
+
+    /**
+     * Column schema for the account balances table.
+     * <p>Each row holds the sum of the split quantities of one account for one quantity denominator.
+     * Splits belonging to template transactions are not included.
+     * The table is kept current by the split and transaction adapters</p>
+     */
+    public static abstract class AccountBalanceEntry {
+        public static final String TABLE_NAME               = "account_balances";
+
+        public static final String COLUMN_ACCOUNT_UID       = "account_uid";
+        /**
+         * Sum of the split quantity numerators, debits positive and credits negative
+         */
+        public static final String COLUMN_QUANTITY_NUM      = "quantity_num";
+        public static final String COLUMN_QUANTITY_DENOM    = "quantity_denom";
+    }
+
+    /**
+     * Column schema for the account ancestry table.
+     * <p>This is a closure table of the account hierarchy: there is one row for every account and
+     * each of its ancestors, as well as one row linking every account to itself at depth 0.</p>
+     */
+    public static abstract class AccountAncestryEntry {
+        public static final String TABLE_NAME               = "account_ancestry";
+
+        public static final String COLUMN_ANCESTOR_UID      = "ancestor_uid";
+        public static final String COLUMN_DESCENDANT_UID    = "descendant_uid";
+        /**
+         * Number of levels between the ancestor and the descendant. Direct children have depth 1
+         */
+        public static final String COLUMN_DEPTH             = "depth";
+
+        public static final String INDEX_DESCENDANT_UID = "account_ancestry_descendant_index";
+    }
+
+    /**
+     * Column schema for the transaction summaries table.
+     * <p>Each row summarizes the splits of one transaction. The table is kept current by triggers on
+     * the splits table, and backs the {@code trans_extra_info} view</p>
+     */
+    public static abstract class TransactionSummaryEntry {
+        public static final String TABLE_NAME               = "transaction_summaries";
+
+        public static final String COLUMN_TRANSACTION_UID   = "transaction_uid";
+        /**
+         * Account used to display the transaction, preferably one of a split without memo
+         */
+        public static final String COLUMN_ACCOUNT_UID       = "account_uid";
+        /**
+         * Sum of the split values, debits positive and credits negative
+         */
+        public static final String COLUMN_BALANCE           = "balance";
+        public static final String COLUMN_CURRENCY_COUNT    = "currency_count";
+        public static final String COLUMN_SPLIT_COUNT       = "split_count";
+    }
+
+    /**
+     * Column schema for the backup chain table.
+     * <p>Each row records a backup of the current chain of differential backups: the full backup which
+     * starts the chain, then each differential backup made after it. The chain is empty until the first
+     * differential backup is requested, and deletions are only recorded as tombstones while it is not</p>
+     * @see org.gnucash.android.db.BackupChain
+     */
+    public static abstract class BackupChainEntry implements BaseColumns {
+        public static final String TABLE_NAME               = "backup_chain";
+
+        /**
+         * Type of the backup, one of {@link org.gnucash.android.db.BackupChain.BackupType}
+         */
+        public static final String COLUMN_TYPE              = "type";
+        /**
+         * Database time when the backup started, in the format of {@link CommonColumns#COLUMN_MODIFIED_AT}
+         */
+        public static final String COLUMN_TIMESTAMP         = "timestamp";
+    }
+
+    /**
+     * Column schema for the tombstones table.
+     * <p>Each row records the deletion of an account, transaction, split, price or scheduled action,
+     * so that differential backups can replay it. The table is filled by triggers while the backup chain
+     * is not empty, and the rows older than the last backup are dropped</p>
+     */
+    public static abstract class TombstoneEntry {
+        public static final String TABLE_NAME               = "tombstones";
+
+        /**
+         * Name of the table of the deleted record
+         */
+        public static final String COLUMN_TABLE_NAME        = "table_name";
+        public static final String COLUMN_UID               = "uid";
+        public static final String COLUMN_DELETED_AT        = "deleted_at";
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+/**
+ * Numbers of database rows added, updated, left unchanged and deleted when merging records into the database
+ * @see DatabaseAdapter#mergeRecords(java.util.List, MergeResult)
+ */
+public class MergeResult {
+    private int mAddedCount = 0;
+    private int mUpdatedCount = 0;
+    private int mUnchangedCount = 0;
+    private int mDeletedCount = 0;
+
+    /**
+     * Returns the number of rows which did not exist and were inserted
+     * @return Number of rows added
+     */
+    public int getAddedCount() {
+        return mAddedCount;
+    }
+
+    /**
+     * Returns the number of existing rows whose content changed and which were updated
+     * @return Number of rows updated
+     */
+    public int getUpdatedCount() {
+        return mUpdatedCount;
+    }
+
+    /**
+     * Returns the number of existing rows which had the same content and were not written
+     * @return Number of rows left unchanged
+     */
+    public int getUnchangedCount() {
+        return mUnchangedCount;
+    }
+
+    /**
+     * Returns the number of rows deleted, like the splits removed from a transaction
+     * @return Number of rows deleted
+     */
+    public int getDeletedCount() {
+        return mDeletedCount;
+    }
+
+    /**
+     * Returns whether any row was added, updated or deleted
+     * @return {@code true} if the database changed
+     */
+    public boolean hasChanges() {
+        return mAddedCount > 0 || mUpdatedCount > 0 || mDeletedCount > 0;
+    }
+
+    void addAdded(int count) {
+        mAddedCount += count;
+    }
+
+    void addUpdated(int count) {
+        mUpdatedCount += count;
+    }
+
+    void addUnchanged(int count) {
+        mUnchangedCount += count;
+    }
+
+    void addDeleted(int count) {
+        mDeletedCount += count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d added, %d updated, %d unchanged, %d deleted",
+                mAddedCount, mUpdatedCount, mUnchangedCount, mDeletedCount);
+    }
+}
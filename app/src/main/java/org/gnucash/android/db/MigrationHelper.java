@@ -500,7 +500,7 @@ public class MigrationHelper {
                     + ScheduledActionEntry.COLUMN_EXECUTION_COUNT+ " integer default 0, "
                     + ScheduledActionEntry.COLUMN_CREATED_AT     + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + ScheduledActionEntry.COLUMN_MODIFIED_AT    + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(ScheduledActionEntry.TABLE_NAME));
+                    + ");");
 
 
             //==============================BEGIN TABLE MIGRATIONS ========================================
@@ -524,7 +524,7 @@ public class MigrationHelper {
                     + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID + " varchar(255), "
                     + AccountEntry.COLUMN_CREATED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + AccountEntry.COLUMN_MODIFIED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(AccountEntry.TABLE_NAME));
+                    + ");");
 
             // initialize new account table with data from old table
             db.execSQL("INSERT INTO " + AccountEntry.TABLE_NAME + " ( "
@@ -573,7 +573,7 @@ public class MigrationHelper {
                     + TransactionEntry.COLUMN_CREATED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + TransactionEntry.COLUMN_MODIFIED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + "FOREIGN KEY (" + TransactionEntry.COLUMN_SCHEDX_ACTION_UID + ") REFERENCES " + ScheduledActionEntry.TABLE_NAME + " (" + ScheduledActionEntry.COLUMN_UID + ") ON DELETE SET NULL "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(TransactionEntry.TABLE_NAME));
+                    + ");");
 
             // initialize new transaction table with data from old table
             db.execSQL("INSERT INTO " + TransactionEntry.TABLE_NAME + " ( "
@@ -613,7 +613,7 @@ public class MigrationHelper {
                     + SplitEntry.COLUMN_MODIFIED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + "FOREIGN KEY (" + SplitEntry.COLUMN_ACCOUNT_UID + ") REFERENCES " + AccountEntry.TABLE_NAME + " (" + AccountEntry.COLUMN_UID + ") ON DELETE CASCADE, "
                     + "FOREIGN KEY (" + SplitEntry.COLUMN_TRANSACTION_UID + ") REFERENCES " + TransactionEntry.TABLE_NAME + " (" + TransactionEntry.COLUMN_UID + ") ON DELETE CASCADE "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(SplitEntry.TABLE_NAME));
+                    + ");");
 
             // initialize new split table with data from old table
             db.execSQL("INSERT INTO " + SplitEntry.TABLE_NAME + " ( "
@@ -857,7 +857,7 @@ public class MigrationHelper {
                     + CommodityEntry.COLUMN_QUOTE_FLAG  + " integer not null, "
                     + CommodityEntry.COLUMN_CREATED_AT  + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + CommodityEntry.COLUMN_MODIFIED_AT + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(CommodityEntry.TABLE_NAME);
+                    + ");";
             db.execSQL(createCommoditiesSql);
             try {
                 importCommodities(db);
@@ -902,7 +902,7 @@ public class MigrationHelper {
                     + "UNIQUE (" + PriceEntry.COLUMN_COMMODITY_UID + ", " + PriceEntry.COLUMN_CURRENCY_UID + ") ON CONFLICT REPLACE, "
                     + "FOREIGN KEY (" 	+ PriceEntry.COLUMN_COMMODITY_UID + ") REFERENCES " + CommodityEntry.TABLE_NAME + " (" + CommodityEntry.COLUMN_UID + ") ON DELETE CASCADE, "
                     + "FOREIGN KEY (" 	+ PriceEntry.COLUMN_CURRENCY_UID + ") REFERENCES " + CommodityEntry.TABLE_NAME + " (" + CommodityEntry.COLUMN_UID + ") ON DELETE CASCADE "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(PriceEntry.TABLE_NAME);
+                    + ");";
             db.execSQL(createPricesSql);
 
 
@@ -925,7 +925,7 @@ public class MigrationHelper {
                     + SplitEntry.COLUMN_MODIFIED_AT      + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
                     + "FOREIGN KEY (" 	+ SplitEntry.COLUMN_ACCOUNT_UID + ") REFERENCES " + AccountEntry.TABLE_NAME + " (" + AccountEntry.COLUMN_UID + ") ON DELETE CASCADE, "
                     + "FOREIGN KEY (" 	+ SplitEntry.COLUMN_TRANSACTION_UID + ") REFERENCES " + TransactionEntry.TABLE_NAME + " (" + TransactionEntry.COLUMN_UID + ") ON DELETE CASCADE "
-                    + ");" + DatabaseHelper.createUpdatedAtTrigger(SplitEntry.TABLE_NAME));
+                    + ");");
 
             // initialize new split table with data from old table
             db.execSQL("INSERT INTO " + SplitEntry.TABLE_NAME + " ( "
@@ -1059,4 +1059,192 @@ public class MigrationHelper {
         }
         return oldVersion;
     }
+
+    /**
+     * Upgrades the database to version 10.
+     * <p>This migration adds the account balances table and fills it from the existing splits</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (10) if upgrade successful, old version (9) if unsuccessful
+     */
+    static int upgradeDbToVersion10(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 10");
+        int oldVersion = 9;
+
+        db.beginTransaction();
+        try {
+            db.execSQL(DatabaseHelper.ACCOUNT_BALANCES_TABLE_CREATE);
+            SplitsDbAdapter.rebuildAccountBalances(db);
+            db.setTransactionSuccessful();
+            oldVersion = 10;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
+
+    /**
+     * Upgrades the database to version 11.
+     * <p>This migration adds the account ancestry (closure) table and fills it from the account hierarchy</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (11) if upgrade successful, old version (10) if unsuccessful
+     */
+    static int upgradeDbToVersion11(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 11");
+        int oldVersion = 10;
+
+        db.beginTransaction();
+        try {
+            db.execSQL(DatabaseHelper.ACCOUNT_ANCESTRY_TABLE_CREATE);
+            db.execSQL(DatabaseHelper.ACCOUNT_ANCESTRY_INDEX_CREATE);
+            AccountsDbAdapter.rebuildAccountAncestry(db);
+            db.setTransactionSuccessful();
+            oldVersion = 11;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
+
+    /**
+     * Upgrades the database to version 12.
+     * <p>This migration adds indexes on the split account and transaction, the transaction timestamp
+     * and template flag, and on the price commodity, currency and date</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (12) if upgrade successful, old version (11) if unsuccessful
+     */
+    static int upgradeDbToVersion12(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 12");
+        int oldVersion = 11;
+
+        db.beginTransaction();
+        try {
+            DatabaseHelper.createSecondaryIndexes(db);
+            db.setTransactionSuccessful();
+            oldVersion = 12;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
+
+    /**
+     * Upgrades the database to version 13.
+     * <p>This migration replaces the temporary views, which were created for every database session,
+     * with permanent views. It also adds the transaction summaries table, which backs the
+     * {@code trans_extra_info} view, and the triggers which keep it current</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (13) if upgrade successful, old version (12) if unsuccessful
+     */
+    static int upgradeDbToVersion13(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 13");
+        int oldVersion = 12;
+
+        db.beginTransaction();
+        try {
+            db.execSQL(DatabaseHelper.TRANSACTION_SUMMARIES_TABLE_CREATE);
+            DatabaseHelper.rebuildTransactionSummaries(db);
+            DatabaseHelper.createTransactionSummaryTriggers(db);
+            DatabaseHelper.createViews(db);
+            db.setTransactionSuccessful();
+            oldVersion = 13;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
+
+    /**
+     * Upgrades the database to version 14.
+     * <p>This migration allows several prices per commodity / currency pair, one per date,
+     * so that historical prices are kept. The prices table is re-created for that</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (14) if upgrade successful, old version (13) if unsuccessful
+     */
+    static int upgradeDbToVersion14(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 14");
+        int oldVersion = 13;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("ALTER TABLE " + PriceEntry.TABLE_NAME + " RENAME TO " + PriceEntry.TABLE_NAME + "_bak");
+            db.execSQL(DatabaseHelper.PRICES_TABLE_CREATE);
+            String columns = PriceEntry._ID + " , "
+                    + PriceEntry.COLUMN_UID + " , "
+                    + PriceEntry.COLUMN_COMMODITY_UID + " , "
+                    + PriceEntry.COLUMN_CURRENCY_UID + " , "
+                    + PriceEntry.COLUMN_TYPE + " , "
+                    + PriceEntry.COLUMN_DATE + " , "
+                    + PriceEntry.COLUMN_SOURCE + " , "
+                    + PriceEntry.COLUMN_VALUE_NUM + " , "
+                    + PriceEntry.COLUMN_VALUE_DENOM + " , "
+                    + PriceEntry.COLUMN_CREATED_AT + " , "
+                    + PriceEntry.COLUMN_MODIFIED_AT;
+            db.execSQL("INSERT INTO " + PriceEntry.TABLE_NAME + " ( " + columns + " ) SELECT " + columns
+                    + " FROM " + PriceEntry.TABLE_NAME + "_bak");
+            // the indexes are dropped together with the old table
+            db.execSQL("DROP TABLE " + PriceEntry.TABLE_NAME + "_bak");
+            db.execSQL("CREATE UNIQUE INDEX '" + PriceEntry.INDEX_UID + "' ON "
+                    + PriceEntry.TABLE_NAME + "(" + PriceEntry.COLUMN_UID + ")");
+            DatabaseHelper.createSecondaryIndexes(db);
+            db.setTransactionSuccessful();
+            oldVersion = 14;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
+
+    /**
+     * Upgrades the database to version 15.
+     * <p>This migration adds the backup chain and tombstones tables, and the triggers recording
+     * the deletions, for differential backups</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (15) if upgrade successful, old version (14) if unsuccessful
+     */
+    static int upgradeDbToVersion15(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 15");
+        int oldVersion = 14;
+
+        db.beginTransaction();
+        try {
+            db.execSQL(DatabaseHelper.BACKUP_CHAIN_TABLE_CREATE);
+            db.execSQL(DatabaseHelper.TOMBSTONES_TABLE_CREATE);
+            DatabaseHelper.createTombstoneTriggers(db);
+            db.setTransactionSuccessful();
+            oldVersion = 15;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
+
+    /**
+     * Upgrades the database to version 16.
+     * <p>This migration adds the triggers which set the modification time of the records updated in place,
+     * so that differential backups include them. The trigger meant for that was never created,
+     * since it was appended to the statements creating the tables.
+     * The split update trigger of the transaction summaries is limited to the columns of the summaries,
+     * so that it is not fired again by the new triggers.
+     * The split delete trigger is skipped for the transactions whose summaries were already cleared by bulk deletes</p>
+     * @param db SQLite Database to be upgraded
+     * @return New database version (16) if upgrade successful, old version (15) if unsuccessful
+     */
+    static int upgradeDbToVersion16(SQLiteDatabase db){
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 16");
+        int oldVersion = 15;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("DROP TRIGGER IF EXISTS update_time_trigger");
+            db.execSQL("DROP TRIGGER IF EXISTS splits_update_summary_trigger");
+            db.execSQL("DROP TRIGGER IF EXISTS splits_delete_summary_trigger");
+            DatabaseHelper.createModifiedAtTriggers(db);
+            DatabaseHelper.createTransactionSummaryTriggers(db);
+            db.setTransactionSuccessful();
+            oldVersion = 16;
+        } finally {
+            db.endTransaction();
+        }
+        return oldVersion;
+    }
 }
@@ -10,8 +10,14 @@ import android.util.Pair;
 
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.model.Price;
+import org.gnucash.android.model.PriceSeries;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.gnucash.android.db.DatabaseSchema.PriceEntry;
 
@@ -19,6 +25,33 @@ import static org.gnucash.android.db.DatabaseSchema.PriceEntry;
  * Database adapter for prices
  */
 public class PricesDbAdapter extends DatabaseAdapter<Price> {
+    /**
+     * Cache of the latest price of each commodity / currency pair, including the pairs without price.
+     * <p>The cache is shared by all adapters, since some adapters create their own price adapter.
+     * It only holds prices of the database in {@link #sCachedDb} and is cleared by every write to the prices</p>
+     */
+    private static final Map<String, Pair<Long, Long>> sLatestPriceCache = new HashMap<>();
+
+    /**
+     * Cache of the price series of the commodity / currency pairs. It is guarded and cleared like the latest prices
+     */
+    private static final Map<String, PriceSeries> sPriceSeriesCache = new HashMap<>();
+
+    /**
+     * Database whose prices are in the caches
+     */
+    private static SQLiteDatabase sCachedDb;
+
+    /**
+     * Incremented every time the cache is cleared, so that prices read before are not cached afterwards
+     */
+    private static long sCacheGeneration;
+
+    private static long sCacheHits;
+    private static long sCacheMisses;
+    private static long sSeriesCacheHits;
+    private static long sSeriesCacheMisses;
+
     /**
      * Opens the database adapter with an existing database
      * @param db SQLiteDatabase object
@@ -31,6 +64,65 @@ public class PricesDbAdapter extends DatabaseAdapter<Price> {
         return GnuCashApplication.getPricesDbAdapter();
     }
 
+    @Override
+    public void addRecord(@NonNull Price price) {
+        super.addRecord(price);
+        invalidatePriceCache();
+    }
+
+    @Override
+    public long bulkAddRecords(@NonNull List<Price> priceList) {
+        try {
+            return super.bulkAddRecords(priceList);
+        } finally {
+            invalidatePriceCache();
+        }
+    }
+
+    @Override
+    public int mergeRecords(@NonNull List<Price> priceList, @NonNull MergeResult result) {
+        try {
+            return super.mergeRecords(priceList, result);
+        } finally {
+            invalidatePriceCache();
+        }
+    }
+
+    @Override
+    public int updateRecord(@NonNull String uid, @NonNull ContentValues contentValues) {
+        int updated = super.updateRecord(uid, contentValues);
+        invalidatePriceCache();
+        return updated;
+    }
+
+    @Override
+    public int updateRecords(String where, String[] whereArgs, @NonNull String columnKey, String newValue) {
+        int updated = super.updateRecords(where, whereArgs, columnKey, newValue);
+        invalidatePriceCache();
+        return updated;
+    }
+
+    @Override
+    public boolean deleteRecord(long rowId) {
+        boolean deleted = super.deleteRecord(rowId);
+        invalidatePriceCache();
+        return deleted;
+    }
+
+    @Override
+    public int deleteRecords(@NonNull Collection<String> uids, @NonNull MergeResult result) {
+        int deleted = super.deleteRecords(uids, result);
+        invalidatePriceCache();
+        return deleted;
+    }
+
+    @Override
+    public int deleteAllRecords() {
+        int deleted = super.deleteAllRecords();
+        invalidatePriceCache();
+        return deleted;
+    }
+
     @Override
     protected SQLiteStatement compileReplaceStatement(@NonNull final Price price) {
         if (mReplaceStatement == null) {
@@ -63,24 +155,59 @@ public class PricesDbAdapter extends DatabaseAdapter<Price> {
     }
 
     @Override
-    public Price buildModelInstance(@NonNull final Cursor cursor) {
-        String commodityUID = cursor.getString(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_COMMODITY_UID));
-        String currencyUID  = cursor.getString(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_CURRENCY_UID));
-        String dateString   = cursor.getString(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_DATE));
-        String source       = cursor.getString(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_SOURCE));
-        String type         = cursor.getString(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_TYPE));
-        long valueNum     = cursor.getLong(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_VALUE_NUM));
-        long valueDenom   = cursor.getLong(cursor.getColumnIndexOrThrow(PriceEntry.COLUMN_VALUE_DENOM));
-
-        Price price = new Price(commodityUID, currencyUID);
-        price.setDate(Timestamp.valueOf(dateString));
-        price.setSource(source);
-        price.setType(type);
-        price.setValueNum(valueNum);
-        price.setValueDenom(valueDenom);
-
-        populateBaseModelAttributes(cursor, price);
-        return price;
+    protected ContentValues getContentValues(@NonNull Price price) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(PriceEntry.COLUMN_UID, price.getUID());
+        contentValues.put(PriceEntry.COLUMN_COMMODITY_UID, price.getCommodityUID());
+        contentValues.put(PriceEntry.COLUMN_CURRENCY_UID, price.getCurrencyUID());
+        contentValues.put(PriceEntry.COLUMN_DATE, price.getDate().toString());
+        contentValues.put(PriceEntry.COLUMN_SOURCE, price.getSource());
+        contentValues.put(PriceEntry.COLUMN_TYPE, price.getType());
+        contentValues.put(PriceEntry.COLUMN_VALUE_NUM, price.getValueNum());
+        contentValues.put(PriceEntry.COLUMN_VALUE_DENOM, price.getValueDenom());
+        return contentValues;
+    }
+
+    @Override
+    protected ModelReader<Price> createModelReader(@NonNull Cursor cursor) {
+        return new PriceReader(cursor);
+    }
+
+    /**
+     * Reads prices from the rows of a cursor
+     */
+    private static class PriceReader extends ModelReader<Price> {
+        private final int mCommodityUIDIndex;
+        private final int mCurrencyUIDIndex;
+        private final int mDateIndex;
+        private final int mSourceIndex;
+        private final int mTypeIndex;
+        private final int mValueNumIndex;
+        private final int mValueDenomIndex;
+
+        PriceReader(@NonNull Cursor cursor) {
+            super(cursor);
+            mCommodityUIDIndex  = columnIndex(PriceEntry.COLUMN_COMMODITY_UID);
+            mCurrencyUIDIndex   = columnIndex(PriceEntry.COLUMN_CURRENCY_UID);
+            mDateIndex          = columnIndex(PriceEntry.COLUMN_DATE);
+            mSourceIndex        = columnIndex(PriceEntry.COLUMN_SOURCE);
+            mTypeIndex          = columnIndex(PriceEntry.COLUMN_TYPE);
+            mValueNumIndex      = columnIndex(PriceEntry.COLUMN_VALUE_NUM);
+            mValueDenomIndex    = columnIndex(PriceEntry.COLUMN_VALUE_DENOM);
+        }
+
+        @Override
+        public Price read() {
+            Price price = new Price(getString(mCommodityUIDIndex), getString(mCurrencyUIDIndex));
+            price.setDate(Timestamp.valueOf(getString(mDateIndex)));
+            price.setSource(getString(mSourceIndex));
+            price.setType(getString(mTypeIndex));
+            price.setValueNum(getLong(mValueNumIndex));
+            price.setValueDenom(getLong(mValueDenomIndex));
+
+            populateBaseModelAttributes(price);
+            return price;
+        }
     }
 
     /**
@@ -88,15 +215,152 @@ public class PricesDbAdapter extends DatabaseAdapter<Price> {
      *
      * Pair is used instead of Price because we must sometimes invert the commodity/currency in DB,
      * rendering the Price UID invalid.
+     * <p>The latest prices are cached, see {@link #getPriceCacheHits()} and {@link #getPriceCacheMisses()}</p>
      *
      * @return The numerator/denominator pair for commodity / currency pair
      */
     public Pair<Long, Long> getPrice(@NonNull String commodityUID, @NonNull String currencyUID) {
-        Pair<Long, Long> pairZero = new Pair<>(0L, 0L);
         if (commodityUID.equals(currencyUID))
         {
             return new Pair<Long, Long>(1L, 1L);
         }
+        String key = commodityUID + "/" + currencyUID;
+        long generation;
+        synchronized (sLatestPriceCache) {
+            checkCachedDb();
+            Pair<Long, Long> price = sLatestPriceCache.get(key);
+            if (price != null) {
+                sCacheHits++;
+                return price;
+            }
+            sCacheMisses++;
+            generation = sCacheGeneration;
+        }
+
+        Pair<Long, Long> price = fetchLatestPrice(commodityUID, currencyUID);
+        synchronized (sLatestPriceCache) {
+            if (generation == sCacheGeneration) {
+                sLatestPriceCache.put(key, price);
+            }
+        }
+        return price;
+    }
+
+    /**
+     * Returns the price for commodity / currency pair in effect at {@code timestamp}
+     * @param commodityUID GUID of the commodity
+     * @param currencyUID GUID of the currency
+     * @param timestamp Time in milliseconds
+     * @return The numerator/denominator pair for commodity / currency pair, or (0, 0) if there is no price
+     * for the pair
+     * @see PriceSeries#getPriceAsOf(long)
+     */
+    public Pair<Long, Long> getPrice(@NonNull String commodityUID, @NonNull String currencyUID, long timestamp) {
+        if (commodityUID.equals(currencyUID)) {
+            return new Pair<>(1L, 1L);
+        }
+        Pair<Long, Long> price = getPriceSeries(commodityUID, currencyUID).getPriceAsOf(timestamp);
+        return price == null ? new Pair<>(0L, 0L) : price;
+    }
+
+    /**
+     * Returns all prices for commodity / currency pair, including the inverted prices of currency / commodity.
+     * <p>The series is loaded once and cached until the prices change,
+     * see {@link #getPriceSeriesCacheHits()} and {@link #getPriceSeriesCacheMisses()}</p>
+     * @param commodityUID GUID of the commodity
+     * @param currencyUID GUID of the currency
+     * @return Price series, possibly empty
+     */
+    public PriceSeries getPriceSeries(@NonNull String commodityUID, @NonNull String currencyUID) {
+        String key = commodityUID + "/" + currencyUID;
+        long generation;
+        synchronized (sLatestPriceCache) {
+            checkCachedDb();
+            PriceSeries priceSeries = sPriceSeriesCache.get(key);
+            if (priceSeries != null) {
+                sSeriesCacheHits++;
+                return priceSeries;
+            }
+            sSeriesCacheMisses++;
+            generation = sCacheGeneration;
+        }
+
+        PriceSeries priceSeries = fetchPriceSeries(commodityUID, currencyUID);
+        synchronized (sLatestPriceCache) {
+            if (generation == sCacheGeneration) {
+                sPriceSeriesCache.put(key, priceSeries);
+            }
+        }
+        return priceSeries;
+    }
+
+    /**
+     * Reads the prices for commodity / currency pair from the database, sorted by date
+     * @see #getPriceSeries(String, String)
+     */
+    private PriceSeries fetchPriceSeries(@NonNull String commodityUID, @NonNull String currencyUID) {
+        Cursor cursor = mDb.query(PriceEntry.TABLE_NAME,
+                new String[]{PriceEntry.COLUMN_COMMODITY_UID, PriceEntry.COLUMN_DATE,
+                        PriceEntry.COLUMN_VALUE_NUM, PriceEntry.COLUMN_VALUE_DENOM},
+                // the commodity and currency can be swapped
+                "( " + PriceEntry.COLUMN_COMMODITY_UID + " = ? AND " + PriceEntry.COLUMN_CURRENCY_UID + " = ? ) OR ( "
+                + PriceEntry.COLUMN_COMMODITY_UID + " = ? AND " + PriceEntry.COLUMN_CURRENCY_UID + " = ? )",
+                new String[]{commodityUID, currencyUID, currencyUID, commodityUID}, null, null,
+                PriceEntry.COLUMN_DATE + " ASC");
+        try {
+            int count = 0;
+            long[] dates = new long[cursor.getCount()];
+            long[] valueNums = new long[dates.length];
+            long[] valueDenoms = new long[dates.length];
+            while (cursor.moveToNext()) {
+                long valueNum = cursor.getLong(2);
+                long valueDenom = cursor.getLong(3);
+                if (valueNum <= 0 || valueDenom <= 0) {
+                    // this should not happen
+                    continue;
+                }
+                dates[count] = Timestamp.valueOf(cursor.getString(1)).getTime();
+                if (cursor.getString(0).equals(commodityUID)) {
+                    valueNums[count] = valueNum;
+                    valueDenoms[count] = valueDenom;
+                } else {
+                    // swap Num and denom
+                    valueNums[count] = valueDenom;
+                    valueDenoms[count] = valueNum;
+                }
+                count++;
+            }
+            if (count < dates.length) {
+                dates = Arrays.copyOf(dates, count);
+                valueNums = Arrays.copyOf(valueNums, count);
+                valueDenoms = Arrays.copyOf(valueDenoms, count);
+            }
+            return new PriceSeries(dates, valueNums, valueDenoms);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Clears the caches if they hold prices of another database.
+     * Must be called while holding the lock of the caches
+     */
+    private void checkCachedDb() {
+        if (sCachedDb != mDb) {
+            sLatestPriceCache.clear();
+            sPriceSeriesCache.clear();
+            sCachedDb = mDb;
+            sCacheGeneration++;
+        }
+    }
+
+    /**
+     * Reads the latest price for commodity / currency pair from the database
+     * @return The numerator/denominator pair, or (0, 0) if there is no price
+     * @see #getPrice(String, String)
+     */
+    private Pair<Long, Long> fetchLatestPrice(@NonNull String commodityUID, @NonNull String currencyUID) {
+        Pair<Long, Long> pairZero = new Pair<>(0L, 0L);
         Cursor cursor = mDb.query(PriceEntry.TABLE_NAME, null,
                 // the commodity and currency can be swapped
                 "( " + PriceEntry.COLUMN_COMMODITY_UID + " = ? AND " + PriceEntry.COLUMN_CURRENCY_UID + " = ? ) OR ( "
@@ -127,4 +391,59 @@ public class PricesDbAdapter extends DatabaseAdapter<Price> {
             cursor.close();
         }
     }
+
+    /**
+     * Clears the caches of the latest prices and of the price series.
+     * <p>Writes through this adapter do this already. It should be called after prices have been
+     * written or deleted by other means, e.g. after an import or when a commodity delete cascades to its prices</p>
+     */
+    public static void invalidatePriceCache() {
+        synchronized (sLatestPriceCache) {
+            sLatestPriceCache.clear();
+            sPriceSeriesCache.clear();
+            sCacheGeneration++;
+        }
+    }
+
+    /**
+     * Returns the number of latest prices which were found in the cache
+     * @return Number of cache hits
+     */
+    public static long getPriceCacheHits() {
+        synchronized (sLatestPriceCache) {
+            return sCacheHits;
+        }
+    }
+
+    /**
+     * Returns the number of latest prices which had to be read from the database
+     * @return Number of cache misses
+     */
+    public static long getPriceCacheMisses() {
+        synchronized (sLatestPriceCache) {
+            return sCacheMisses;
+        }
+    }
+
+    /**
+     * Returns the number of price series which were found in the cache
+     * @return Number of cache hits
+     * @see #getPriceSeries(String, String)
+     */
+    public static long getPriceSeriesCacheHits() {
+        synchronized (sLatestPriceCache) {
+            return sSeriesCacheHits;
+        }
+    }
+
+    /**
+     * Returns the number of price series which had to be read from the database
+     * @return Number of cache misses
+     * @see #getPriceSeries(String, String)
+     */
+    public static long getPriceSeriesCacheMisses() {
+        synchronized (sLatestPriceCache) {
+            return sSeriesCacheMisses;
+        }
+    }
 }
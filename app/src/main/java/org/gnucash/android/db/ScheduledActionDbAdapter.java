@@ -113,38 +113,74 @@ public class ScheduledActionDbAdapter extends DatabaseAdapter<ScheduledAction> {
         return mReplaceStatement;
     }
 
+    @Override
+    protected ContentValues getContentValues(@NonNull ScheduledAction schedxAction) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(ScheduledActionEntry.COLUMN_UID, schedxAction.getUID());
+        contentValues.put(ScheduledActionEntry.COLUMN_ACTION_UID, schedxAction.getActionUID());
+        contentValues.put(ScheduledActionEntry.COLUMN_TYPE, schedxAction.getActionType().name());
+        contentValues.put(ScheduledActionEntry.COLUMN_START_TIME, schedxAction.getStartTime());
+        contentValues.put(ScheduledActionEntry.COLUMN_END_TIME, schedxAction.getEndTime());
+        contentValues.put(ScheduledActionEntry.COLUMN_LAST_RUN, schedxAction.getLastRun());
+        contentValues.put(ScheduledActionEntry.COLUMN_PERIOD, schedxAction.getPeriod());
+        contentValues.put(ScheduledActionEntry.COLUMN_ENABLED, schedxAction.isEnabled() ? 1 : 0);
+        contentValues.put(ScheduledActionEntry.COLUMN_TAG, schedxAction.getTag());
+        contentValues.put(ScheduledActionEntry.COLUMN_TOTAL_FREQUENCY, schedxAction.getTotalFrequency());
+        contentValues.put(ScheduledActionEntry.COLUMN_EXECUTION_COUNT, schedxAction.getExecutionCount());
+        return contentValues;
+    }
+
+    @Override
+    protected ModelReader<ScheduledAction> createModelReader(@NonNull Cursor cursor) {
+        return new ScheduledActionReader(cursor);
+    }
+
     /**
-     * Builds a {@link org.gnucash.android.model.ScheduledAction} instance from a row to cursor in the database.
+     * Builds {@link org.gnucash.android.model.ScheduledAction} instances from the rows of a cursor.
      * The cursor should be already pointing to the right entry in the data set. It will not be modified in any way
-     * @param cursor Cursor pointing to data set
-     * @return ScheduledEvent object instance
      */
-    @Override
-    public ScheduledAction buildModelInstance(@NonNull final Cursor cursor){
-        String actionUid = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_ACTION_UID));
-        long period     = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_PERIOD));
-        long startTime  = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_START_TIME));
-        long endTime    = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_END_TIME));
-        long lastRun    = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_LAST_RUN));
-        String typeString = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_TYPE));
-        String tag      = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_TAG));
-        boolean enabled = cursor.getInt(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_ENABLED)) > 0;
-        int numOccurrences = cursor.getInt(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_TOTAL_FREQUENCY));
-        int execCount = cursor.getInt(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_EXECUTION_COUNT));
-
-        ScheduledAction event = new ScheduledAction(ScheduledAction.ActionType.valueOf(typeString));
-        populateBaseModelAttributes(cursor, event);
-        event.setPeriod(period);
-        event.setStartTime(startTime);
-        event.setEndTime(endTime);
-        event.setActionUID(actionUid);
-        event.setLastRun(lastRun);
-        event.setTag(tag);
-        event.setEnabled(enabled);
-        event.setTotalFrequency(numOccurrences);
-        event.setExecutionCount(execCount);
-
-        return event;
+    private static class ScheduledActionReader extends ModelReader<ScheduledAction> {
+        private final int mActionUIDIndex;
+        private final int mPeriodIndex;
+        private final int mStartTimeIndex;
+        private final int mEndTimeIndex;
+        private final int mLastRunIndex;
+        private final int mTypeIndex;
+        private final int mTagIndex;
+        private final int mEnabledIndex;
+        private final int mTotalFrequencyIndex;
+        private final int mExecutionCountIndex;
+
+        ScheduledActionReader(@NonNull Cursor cursor) {
+            super(cursor);
+            mActionUIDIndex         = columnIndex(ScheduledActionEntry.COLUMN_ACTION_UID);
+            mPeriodIndex            = columnIndex(ScheduledActionEntry.COLUMN_PERIOD);
+            mStartTimeIndex         = columnIndex(ScheduledActionEntry.COLUMN_START_TIME);
+            mEndTimeIndex           = columnIndex(ScheduledActionEntry.COLUMN_END_TIME);
+            mLastRunIndex           = columnIndex(ScheduledActionEntry.COLUMN_LAST_RUN);
+            mTypeIndex              = columnIndex(ScheduledActionEntry.COLUMN_TYPE);
+            mTagIndex               = columnIndex(ScheduledActionEntry.COLUMN_TAG);
+            mEnabledIndex           = columnIndex(ScheduledActionEntry.COLUMN_ENABLED);
+            mTotalFrequencyIndex    = columnIndex(ScheduledActionEntry.COLUMN_TOTAL_FREQUENCY);
+            mExecutionCountIndex    = columnIndex(ScheduledActionEntry.COLUMN_EXECUTION_COUNT);
+        }
+
+        @Override
+        public ScheduledAction read() {
+            ScheduledAction event = new ScheduledAction(ScheduledAction.ActionType.valueOf(getString(mTypeIndex)));
+            populateBaseModelAttributes(event);
+            event.setPeriod(getLong(mPeriodIndex));
+            event.setStartTime(getLong(mStartTimeIndex));
+            event.setEndTime(getLong(mEndTimeIndex));
+            event.setActionUID(getString(mActionUIDIndex));
+            event.setLastRun(getLong(mLastRunIndex));
+            event.setTag(getString(mTagIndex));
+            event.setEnabled(getInt(mEnabledIndex) > 0);
+            event.setTotalFrequency(getInt(mTotalFrequencyIndex));
+            event.setExecutionCount(getInt(mExecutionCountIndex));
+
+            return event;
+        }
     }
 
     /**
@@ -160,8 +196,9 @@ public class ScheduledActionDbAdapter extends DatabaseAdapter<ScheduledAction> {
 
         List<ScheduledAction> scheduledActions = new ArrayList<ScheduledAction>();
         try {
-            while (cursor.moveToNext()) {
-                scheduledActions.add(buildModelInstance(cursor));
+            ModelReader<ScheduledAction> reader = createModelReader(cursor);
+            while (reader.moveToNext()) {
+                scheduledActions.add(reader.read());
             }
         } finally {
             cursor.close();
@@ -177,8 +214,9 @@ public class ScheduledActionDbAdapter extends DatabaseAdapter<ScheduledAction> {
         Cursor cursor = mDb.query(mTableName,
                 null, ScheduledActionEntry.COLUMN_ENABLED + "=1", null, null, null, null);
         List<ScheduledAction> scheduledActions = new ArrayList<ScheduledAction>();
-        while (cursor.moveToNext()){
-            scheduledActions.add(buildModelInstance(cursor));
+        ModelReader<ScheduledAction> reader = createModelReader(cursor);
+        while (reader.moveToNext()){
+            scheduledActions.add(reader.read());
         }
         return scheduledActions;
     }
@@ -17,12 +17,12 @@
 
 package org.gnucash.android.db;
 
+import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
-import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
 
@@ -31,15 +31,25 @@ import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.Money;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.TransactionType;
+import org.gnucash.android.ui.report.ReportsActivity.GroupInterval;
+import org.joda.time.LocalDateTime;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Currency;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+import static org.gnucash.android.db.DatabaseSchema.AccountAncestryEntry;
+import static org.gnucash.android.db.DatabaseSchema.AccountBalanceEntry;
+import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionSummaryEntry;
 
 /**
  * Database adapter for managing transaction splits in the database
@@ -50,6 +60,27 @@ import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
  */
 public class SplitsDbAdapter extends DatabaseAdapter<Split> {
 
+    /**
+     * Statement for creating an empty account balance row if none exists yet
+     */
+    private SQLiteStatement mInsertBalanceStatement;
+
+    /**
+     * Statement for adding a quantity to an account balance row
+     */
+    private SQLiteStatement mUpdateBalanceStatement;
+
+    /**
+     * Statement for deleting a split which is moved to another transaction
+     */
+    private SQLiteStatement mDeleteMovedStatement;
+
+    /**
+     * Adapters for converting balances to other currencies, created when first needed
+     */
+    private CommoditiesDbAdapter mCommoditiesDbAdapter;
+    private PricesDbAdapter mPricesDbAdapter;
+
     public SplitsDbAdapter(SQLiteDatabase db) {
         super(db, SplitEntry.TABLE_NAME);
         LOG_TAG = "SplitsDbAdapter";
@@ -69,17 +100,82 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
      * @param split {@link org.gnucash.android.model.Split} to be recorded in DB
      */
     public void addRecord(@NonNull final Split split){
+        addRecord(split, true);
+    }
+
+    /**
+     * Adds a split to the database, optionally without updating the account balances.
+     * <p>Callers which pass {@code false} for {@code updateAccountBalances} are responsible for
+     * updating the balances themselves, like {@link TransactionsDbAdapter#addRecord(org.gnucash.android.model.Transaction)}
+     * does for all the splits of a transaction at once</p>
+     * @param split {@link org.gnucash.android.model.Split} to be recorded in DB
+     * @param updateAccountBalances {@code true} if the account balances should be updated for the split
+     */
+    void addRecord(@NonNull final Split split, boolean updateAccountBalances){
         Log.d(LOG_TAG, "Replace transaction split in db");
-        super.addRecord(split);
+        mDb.beginTransaction();
+        try {
+            String where = SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_UID + " = ?";
+            String[] whereArgs = new String[]{split.getUID()};
+            if (updateAccountBalances) {
+                subtractFromAccountBalances(where, whereArgs);
+            }
+            deleteIfMoved(split);
+            super.addRecord(split);
+            if (updateAccountBalances) {
+                addToAccountBalances(where, whereArgs);
+            }
 
-        long transactionId = getTransactionID(split.getTransactionUID());
-        //when a split is updated, we want mark the transaction as not exported
-        updateRecord(TransactionEntry.TABLE_NAME, transactionId,
-                TransactionEntry.COLUMN_EXPORTED, String.valueOf(0));
+            long transactionId = getTransactionID(split.getTransactionUID());
+            //when a split is updated, we want mark the transaction as not exported
+            updateRecord(TransactionEntry.TABLE_NAME, transactionId,
+                    TransactionEntry.COLUMN_EXPORTED, String.valueOf(0));
 
-        //modifying a split means modifying the accompanying transaction as well
-        updateRecord(TransactionEntry.TABLE_NAME, transactionId,
-                TransactionEntry.COLUMN_MODIFIED_AT, new Timestamp(System.currentTimeMillis()).toString());
+            //modifying a split means modifying the accompanying transaction as well
+            updateRecord(TransactionEntry.TABLE_NAME, transactionId,
+                    TransactionEntry.COLUMN_MODIFIED_AT, new Timestamp(System.currentTimeMillis()).toString());
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Adds several splits to the database.
+     * If a split already exists in the database with the same unique ID, then it is replaced
+     * @param splitList Splits to be inserted to database
+     * @return Number of splits inserted
+     */
+    @Override
+    public long bulkAddRecords(@NonNull List<Split> splitList) {
+        mDb.beginTransaction();
+        try {
+            for (Split split : splitList) {
+                deleteIfMoved(split);
+            }
+            long nRow = super.bulkAddRecords(splitList);
+            mDb.setTransactionSuccessful();
+            return nRow;
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes the row of a split if it belongs to another transaction than {@code split}.
+     * <p>REPLACE does not fire the delete triggers, so the summary of the transaction the split is moved from
+     * would not be recomputed. The split is deleted first instead. The balances are not updated</p>
+     * @param split Split about to be replaced
+     */
+    private void deleteIfMoved(@NonNull Split split) {
+        if (mDeleteMovedStatement == null) {
+            mDeleteMovedStatement = mDb.compileStatement("DELETE FROM " + SplitEntry.TABLE_NAME
+                    + " WHERE " + SplitEntry.COLUMN_UID + " = ? AND " + SplitEntry.COLUMN_TRANSACTION_UID + " != ?");
+        }
+        mDeleteMovedStatement.clearBindings();
+        mDeleteMovedStatement.bindString(1, split.getUID());
+        mDeleteMovedStatement.bindString(2, split.getTransactionUID());
+        mDeleteMovedStatement.execute();
     }
 
     @Override
@@ -104,10 +200,10 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
             mReplaceStatement.bindString(2, split.getMemo());
         }
         mReplaceStatement.bindString(3, split.getType().name());
-        mReplaceStatement.bindLong(4,   split.getValue().getNumerator());
-        mReplaceStatement.bindLong(5,   split.getValue().getDenominator());
-        mReplaceStatement.bindLong(6,   split.getQuantity().getNumerator());
-        mReplaceStatement.bindLong(7,   split.getQuantity().getDenominator());
+        mReplaceStatement.bindLong(4,   split.getValueNumerator());
+        mReplaceStatement.bindLong(5,   split.getValueDenominator());
+        mReplaceStatement.bindLong(6,   split.getQuantityNumerator());
+        mReplaceStatement.bindLong(7,   split.getQuantityDenominator());
         mReplaceStatement.bindString(8, split.getCreatedTimestamp().toString());
         mReplaceStatement.bindString(9, split.getAccountUID());
         mReplaceStatement.bindString(10, split.getTransactionUID());
@@ -115,35 +211,71 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         return mReplaceStatement;
     }
 
+    @Override
+    protected ContentValues getContentValues(@NonNull Split split) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(SplitEntry.COLUMN_UID, split.getUID());
+        contentValues.put(SplitEntry.COLUMN_MEMO, split.getMemo());
+        contentValues.put(SplitEntry.COLUMN_TYPE, split.getType().name());
+        contentValues.put(SplitEntry.COLUMN_VALUE_NUM, split.getValueNumerator());
+        contentValues.put(SplitEntry.COLUMN_VALUE_DENOM, split.getValueDenominator());
+        contentValues.put(SplitEntry.COLUMN_QUANTITY_NUM, split.getQuantityNumerator());
+        contentValues.put(SplitEntry.COLUMN_QUANTITY_DENOM, split.getQuantityDenominator());
+        contentValues.put(SplitEntry.COLUMN_ACCOUNT_UID, split.getAccountUID());
+        contentValues.put(SplitEntry.COLUMN_TRANSACTION_UID, split.getTransactionUID());
+        return contentValues;
+    }
+
+    @Override
+    protected ModelReader<Split> createModelReader(@NonNull Cursor cursor) {
+        return new SplitReader(cursor);
+    }
+
     /**
-     * Builds a split instance from the data pointed to by the cursor provided
-     * <p>This method will not move the cursor in any way. So the cursor should already by pointing to the correct entry</p>
-     * @param cursor Cursor pointing to transaction record in database
-     * @return {@link org.gnucash.android.model.Split} instance
+     * Builds split instances from the rows of a cursor
+     * <p>The reader will not move the cursor in any way. So the cursor should already by pointing to the correct entry</p>
      */
-    public Split buildModelInstance(@NonNull final Cursor cursor){
-        long valueNum       = cursor.getLong(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_VALUE_NUM));
-        long valueDenom     = cursor.getLong(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_VALUE_DENOM));
-        long quantityNum    = cursor.getLong(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_QUANTITY_NUM));
-        long quantityDenom  = cursor.getLong(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_QUANTITY_DENOM));
-        String typeName     = cursor.getString(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_TYPE));
-        String accountUID   = cursor.getString(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_ACCOUNT_UID));
-        String transxUID    = cursor.getString(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_TRANSACTION_UID));
-        String memo         = cursor.getString(cursor.getColumnIndexOrThrow(SplitEntry.COLUMN_MEMO));
+    private class SplitReader extends ModelReader<Split> {
+        private final int mValueNumIndex;
+        private final int mValueDenomIndex;
+        private final int mQuantityNumIndex;
+        private final int mQuantityDenomIndex;
+        private final int mTypeIndex;
+        private final int mAccountUIDIndex;
+        private final int mTransactionUIDIndex;
+        private final int mMemoIndex;
+
+        SplitReader(@NonNull Cursor cursor) {
+            super(cursor);
+            mValueNumIndex          = columnIndex(SplitEntry.COLUMN_VALUE_NUM);
+            mValueDenomIndex        = columnIndex(SplitEntry.COLUMN_VALUE_DENOM);
+            mQuantityNumIndex       = columnIndex(SplitEntry.COLUMN_QUANTITY_NUM);
+            mQuantityDenomIndex     = columnIndex(SplitEntry.COLUMN_QUANTITY_DENOM);
+            mTypeIndex              = columnIndex(SplitEntry.COLUMN_TYPE);
+            mAccountUIDIndex        = columnIndex(SplitEntry.COLUMN_ACCOUNT_UID);
+            mTransactionUIDIndex    = columnIndex(SplitEntry.COLUMN_TRANSACTION_UID);
+            mMemoIndex              = columnIndex(SplitEntry.COLUMN_MEMO);
+        }
+
+        @Override
+        public Split read() {
+            String accountUID   = getString(mAccountUIDIndex);
+            String transxUID    = getString(mTransactionUIDIndex);
 
-        String transactionCurrency = TransactionsDbAdapter.getInstance().getAttribute(transxUID, TransactionEntry.COLUMN_CURRENCY);
-        Money value = new Money(valueNum, valueDenom, transactionCurrency);
-        String currencyCode = getAccountCurrencyCode(accountUID);
-        Money quantity = new Money(quantityNum, quantityDenom, currencyCode);
+            String transactionCurrency = TransactionsDbAdapter.getInstance().getAttribute(transxUID, TransactionEntry.COLUMN_CURRENCY);
+            Money value = new Money(getLong(mValueNumIndex), getLong(mValueDenomIndex), transactionCurrency);
+            String currencyCode = getAccountCurrencyCode(accountUID);
+            Money quantity = new Money(getLong(mQuantityNumIndex), getLong(mQuantityDenomIndex), currencyCode);
 
-        Split split = new Split(value, accountUID);
-        split.setQuantity(quantity);
-        populateBaseModelAttributes(cursor, split);
-        split.setTransactionUID(transxUID);
-        split.setType(TransactionType.valueOf(typeName));
-        split.setMemo(memo);
+            Split split = new Split(value, accountUID);
+            split.setQuantity(quantity);
+            populateBaseModelAttributes(split);
+            split.setTransactionUID(transxUID);
+            split.setType(TransactionType.valueOf(getString(mTypeIndex)));
+            split.setMemo(getString(mMemoIndex));
 
-        return split;
+            return split;
+        }
     }
 
     /**
@@ -156,7 +288,31 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
      * @return Balance of the splits for this account
      */
     public Money computeSplitBalance(List<String> accountUIDList, String currencyCode, boolean hasDebitNormalBalance){
-        return calculateSplitBalance(accountUIDList, currencyCode, hasDebitNormalBalance, -1, -1);
+        if (accountUIDList.size() == 0){
+            return new Money("0", currencyCode);
+        }
+
+        String accountSet = createUIDSet(accountUIDList);
+        try {
+            Cursor cursor = mDb.query(AccountBalanceEntry.TABLE_NAME + " , " + AccountEntry.TABLE_NAME + " ON "
+                            + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_ACCOUNT_UID + " = "
+                            + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID,
+                    new String[]{"SUM ( " + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_QUANTITY_NUM + " )",
+                            AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_QUANTITY_DENOM,
+                            AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY},
+                    inUIDSet(AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_ACCOUNT_UID),
+                    new String[]{accountSet},
+                    AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " , "
+                            + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_QUANTITY_DENOM,
+                    null, null);
+            try {
+                return sumBalances(cursor, currencyCode, hasDebitNormalBalance, -1);
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            deleteUIDSet(accountSet);
+        }
     }
 
     /**
@@ -176,26 +332,87 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
     }
 
 
+    /**
+     * Returns the sum of the splits of an account and all its descendant accounts.
+     * <p>The sub-tree is resolved through the account ancestry table and summed in a single query</p>
+     * @param accountUID GUID of the top account of the sub-tree
+     * @param currencyCode Currency of the returned balance
+     * @param hasDebitNormalBalance Does the final balance has normal debit credit meaning
+     * @return Balance of the account sub-tree
+     */
+    public Money computeSubTreeBalance(String accountUID, String currencyCode, boolean hasDebitNormalBalance){
+        Cursor cursor = mDb.query(AccountBalanceEntry.TABLE_NAME + " , " + AccountEntry.TABLE_NAME + " ON "
+                        + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_ACCOUNT_UID + " = "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID + " , "
+                        + AccountAncestryEntry.TABLE_NAME + " ON "
+                        + AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " = "
+                        + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_ACCOUNT_UID,
+                new String[]{"SUM ( " + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_QUANTITY_NUM + " )",
+                        AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_QUANTITY_DENOM,
+                        AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY},
+                AccountAncestryEntry.TABLE_NAME + "." + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " = ?",
+                new String[]{accountUID},
+                AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " , "
+                        + AccountBalanceEntry.TABLE_NAME + "." + AccountBalanceEntry.COLUMN_QUANTITY_DENOM,
+                null, null);
+        try {
+            return sumBalances(cursor, currencyCode, hasDebitNormalBalance, -1);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns the sum of the splits of an account and all its descendant accounts within the specified time range.
+     * @param accountUID GUID of the top account of the sub-tree
+     * @param currencyCode Currency of the returned balance
+     * @param hasDebitNormalBalance Does the final balance has normal debit credit meaning
+     * @param startTimestamp the start timestamp of the time range
+     * @param endTimestamp the end timestamp of the time range
+     * @return Balance of the account sub-tree within the specified time range
+     */
+    public Money computeSubTreeBalance(String accountUID, String currencyCode, boolean hasDebitNormalBalance,
+                                       long startTimestamp, long endTimestamp){
+        String accountSelection = DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.CommonColumns.COLUMN_UID
+                + " IN ( SELECT " + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " FROM " + AccountAncestryEntry.TABLE_NAME
+                + " WHERE " + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " = ? )";
+        return calculateSplitBalance(accountSelection, new String[]{accountUID}, currencyCode, hasDebitNormalBalance,
+                startTimestamp, endTimestamp);
+    }
+
     private Money calculateSplitBalance(List<String> accountUIDList, String currencyCode, boolean hasDebitNormalBalance,
                           long startTimestamp, long endTimestamp){
         if (accountUIDList.size() == 0){
             return new Money("0", currencyCode);
         }
 
+        String accountSet = createUIDSet(accountUIDList);
+        try {
+            String accountSelection = inUIDSet(AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID);
+            return calculateSplitBalance(accountSelection, new String[]{accountSet}, currencyCode, hasDebitNormalBalance,
+                    startTimestamp, endTimestamp);
+        } finally {
+            deleteUIDSet(accountSet);
+        }
+    }
+
+    private Money calculateSplitBalance(String accountSelection, String[] accountSelectionArgs, String currencyCode,
+                                        boolean hasDebitNormalBalance, long startTimestamp, long endTimestamp){
         Cursor cursor;
-        String[] selectionArgs = null;
-        String selection = DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.CommonColumns.COLUMN_UID + " in ( '" + TextUtils.join("' , '", accountUIDList) + "' ) AND " +
+        List<String> selectionArgs = new ArrayList<>(Arrays.asList(accountSelectionArgs));
+        String selection = accountSelection + " AND " +
                 TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " = 0";
 
         if (startTimestamp != -1 && endTimestamp != -1) {
             selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " BETWEEN ? AND ? ";
-            selectionArgs = new String[]{String.valueOf(startTimestamp), String.valueOf(endTimestamp)};
+            selectionArgs.add(String.valueOf(startTimestamp));
+            selectionArgs.add(String.valueOf(endTimestamp));
         } else if (startTimestamp == -1 && endTimestamp != -1) {
             selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " <= ?";
-            selectionArgs = new String[]{String.valueOf(endTimestamp)};
+            selectionArgs.add(String.valueOf(endTimestamp));
         } else if (startTimestamp != -1/* && endTimestamp == -1*/) {
             selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " >= ?";
-            selectionArgs = new String[]{String.valueOf(startTimestamp)};
+            selectionArgs.add(String.valueOf(startTimestamp));
         }
 
         cursor = mDb.query("trans_split_acct",
@@ -204,56 +421,199 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
                         SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " END )",
                         SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM,
                         DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.AccountEntry.COLUMN_CURRENCY},
-                selection, selectionArgs, DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.AccountEntry.COLUMN_CURRENCY, null, null);
+                selection, selectionArgs.toArray(new String[selectionArgs.size()]),
+                DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.AccountEntry.COLUMN_CURRENCY, null, null);
 
         try {
-            Money total = Money.createZeroInstance(currencyCode);
-            CommoditiesDbAdapter commoditiesDbAdapter = null;
-            PricesDbAdapter pricesDbAdapter = null;
-            Currency currency = null;
-            String currencyUID = null;
-            while (cursor.moveToNext()) {
-                long amount_num = cursor.getLong(0);
-                long amount_denom = cursor.getLong(1);
-                String commodity = cursor.getString(2);
-                //Log.d(getClass().getName(), commodity + " " + amount_num + "/" + amount_denom);
-                if (commodity.equals("XXX") || amount_num == 0) {
-                    // ignore custom currency
-                    continue;
-                }
-                if (!hasDebitNormalBalance) {
-                    amount_num = -amount_num;
-                }
-                if (commodity.equals(currencyCode)) {
-                    // currency matches
-                    total = total.add(new Money(amount_num, amount_denom, currencyCode));
-                    //Log.d(getClass().getName(), "currency " + commodity + " sub - total " + total);
-                } else {
-                    // there is a second currency involved
-                    if (commoditiesDbAdapter == null) {
-                        commoditiesDbAdapter = new CommoditiesDbAdapter(mDb);
-                        pricesDbAdapter = new PricesDbAdapter(mDb);
-                        currency = Currency.getInstance(currencyCode);
-                        currencyUID = commoditiesDbAdapter.getCommodityUID(currencyCode);
+            return sumBalances(cursor, currencyCode, hasDebitNormalBalance, endTimestamp);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Adds up the balances in the cursor, converting them to {@code currencyCode} where necessary.
+     * <p>Each row of the cursor should hold the numerator, the denominator and the currency code
+     * of a balance, in that order. Balances for which no price exists are ignored.</p>
+     * @param cursor Cursor with balances
+     * @param currencyCode Currency of the returned total
+     * @param hasDebitNormalBalance Does the final balance has normal debit credit meaning
+     * @param priceTimestamp Time of the prices used for the conversions, or -1 for the latest prices
+     * @return Sum of the balances in the cursor
+     */
+    private Money sumBalances(Cursor cursor, String currencyCode, boolean hasDebitNormalBalance, long priceTimestamp){
+        Money total = Money.createZeroInstance(currencyCode);
+        while (cursor.moveToNext()) {
+            long amount_num = cursor.getLong(0);
+            long amount_denom = cursor.getLong(1);
+            String commodity = cursor.getString(2);
+            //Log.d(getClass().getName(), commodity + " " + amount_num + "/" + amount_denom);
+            if (!hasDebitNormalBalance) {
+                amount_num = -amount_num;
+            }
+            total = total.add(convertBalance(amount_num, amount_denom, commodity, currencyCode, priceTimestamp));
+        }
+        return total;
+    }
+
+    /**
+     * Returns the split balances of several accounts, summed per account and per time interval.
+     * <p>All intervals are computed in a single query. The intervals are identified by the keys returned by
+     * {@link #getIntervalKey(long, GroupInterval)}; intervals without splits are not in the result.
+     * The balances are signed by the normal balance of the account, like {@link #computeSplitBalance(List, String, boolean)}:
+     * for accounts with a debit normal balance debits are added and credits subtracted, and the reverse
+     * for the other accounts. Splits of template transactions are not included</p>
+     * @param accountUIDList GUIDs of the accounts
+     * @param startTimestamp the start timestamp of the time range
+     * @param endTimestamp the end timestamp of the time range
+     * @param groupInterval Length of the intervals
+     * @return Map of account GUIDs to maps of the interval keys to the balances, in the currency of the account
+     */
+    public Map<String, Map<String, Money>> getSplitBalancesByInterval(List<String> accountUIDList,
+                                                                      long startTimestamp, long endTimestamp,
+                                                                      GroupInterval groupInterval){
+        Map<String, Map<String, Money>> balances = new HashMap<>();
+        if (accountUIDList.isEmpty()) {
+            return balances;
+        }
+
+        String accountSet = createUIDSet(accountUIDList);
+        try {
+            String intervalExpression = getIntervalExpression(
+                    TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP, groupInterval);
+            Cursor cursor = mDb.query("trans_split_acct",
+                    new String[]{AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID,
+                            intervalExpression + " AS interval_key",
+                            "SUM ( CASE WHEN " + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "
+                                    + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " ELSE - "
+                                    + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " END )",
+                            SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM,
+                            AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY,
+                            AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_TYPE},
+                    inUIDSet(AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID) + " AND "
+                            + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " = 0 AND "
+                            + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " BETWEEN ? AND ?",
+                    new String[]{accountSet, String.valueOf(startTimestamp), String.valueOf(endTimestamp)},
+                    AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID + " , interval_key , "
+                            + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM,
+                    null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    String accountUID = cursor.getString(0);
+                    String intervalKey = cursor.getString(1);
+                    long amountNum = cursor.getLong(2);
+                    if (!AccountType.valueOf(cursor.getString(5)).hasDebitNormalBalance()) {
+                        amountNum = -amountNum;
                     }
-                    // get price
-                    String commodityUID = commoditiesDbAdapter.getCommodityUID(commodity);
-                    Pair<Long, Long> price = pricesDbAdapter.getPrice(commodityUID, currencyUID);
-                    if (price.first <= 0 || price.second <= 0) {
-                        // no price exists, just ignore it
-                        continue;
+                    Money amount = new Money(amountNum, cursor.getLong(3), cursor.getString(4));
+                    Map<String, Money> accountBalances = balances.get(accountUID);
+                    if (accountBalances == null) {
+                        accountBalances = new HashMap<>();
+                        balances.put(accountUID, accountBalances);
                     }
-                    BigDecimal amount = Money.getBigDecimal(amount_num, amount_denom);
-                    BigDecimal amountConverted = amount.multiply(new BigDecimal(price.first))
-                            .divide(new BigDecimal(price.second), currency.getDefaultFractionDigits(), BigDecimal.ROUND_HALF_EVEN);
-                    total = total.add(new Money(amountConverted, currency));
-                    //Log.d(getClass().getName(), "currency " + commodity + " sub - total " + total);
+                    Money balance = accountBalances.get(intervalKey);
+                    accountBalances.put(intervalKey, balance == null ? amount : balance.add(amount));
                 }
+            } finally {
+                cursor.close();
             }
-            return total;
         } finally {
-            cursor.close();
+            deleteUIDSet(accountSet);
         }
+        return balances;
+    }
+
+    /**
+     * Returns the key of the interval containing {@code timestamp}.
+     * <p>The keys match the ones computed by the database in {@link #getSplitBalancesByInterval(List, long, long, GroupInterval)}</p>
+     * @param timestamp Time in milliseconds
+     * @param groupInterval Length of the intervals
+     * @return Interval key
+     */
+    public static String getIntervalKey(long timestamp, GroupInterval groupInterval){
+        LocalDateTime date = new LocalDateTime(timestamp);
+        switch (groupInterval) {
+            case WEEK:
+                // weeks start on monday, days before the first monday of the year are in week 0
+                int week = (date.getDayOfYear() - date.getDayOfWeek() + 7) / 7;
+                return date.toString("yyyy") + String.format(Locale.US, "-%02d", week);
+            case MONTH:
+                return date.toString("yyyy-MM");
+            case QUARTER:
+                return date.toString("yyyy") + "-Q" + ((date.getMonthOfYear() - 1) / 3 + 1);
+            case YEAR:
+                return date.toString("yyyy");
+            case ALL:
+            default:
+                return "ALL";
+        }
+    }
+
+    /**
+     * Returns the SQL expression for the key of the interval containing a timestamp
+     * @param timestampColumn Name of the column holding the timestamp in milliseconds
+     * @param groupInterval Length of the intervals
+     * @return SQL expression
+     * @see #getIntervalKey(long, GroupInterval)
+     */
+    private static String getIntervalExpression(String timestampColumn, GroupInterval groupInterval){
+        String date = timestampColumn + " / 1000 , 'unixepoch' , 'localtime'";
+        switch (groupInterval) {
+            case WEEK:
+                return "strftime ( '%Y-%W' , " + date + " )";
+            case MONTH:
+                return "strftime ( '%Y-%m' , " + date + " )";
+            case QUARTER:
+                return "strftime ( '%Y' , " + date + " ) || '-Q' || ( ( strftime ( '%m' , " + date + " ) + 2 ) / 3 )";
+            case YEAR:
+                return "strftime ( '%Y' , " + date + " )";
+            case ALL:
+            default:
+                return "'ALL'";
+        }
+    }
+
+    /**
+     * Converts a balance to the currency {@code currencyCode} using the price in effect at {@code priceTimestamp}.
+     * <p>Balances in the custom currency XXX and balances for which there is no price at all
+     * are ignored, that is, a zero amount is returned for them. Before the first price,
+     * the first price is used</p>
+     * @param amountNum Numerator of the balance
+     * @param amountDenom Denominator of the balance
+     * @param commodity Currency code of the balance
+     * @param currencyCode Currency code to which the balance is converted
+     * @param priceTimestamp Time of the price to use, or -1 for the latest price
+     * @return Converted balance
+     */
+    Money convertBalance(long amountNum, long amountDenom, String commodity, String currencyCode, long priceTimestamp){
+        if (commodity.equals("XXX") || amountNum == 0) {
+            // ignore custom currency
+            return Money.createZeroInstance(currencyCode);
+        }
+        if (commodity.equals(currencyCode)) {
+            // currency matches
+            return new Money(amountNum, amountDenom, currencyCode);
+        }
+        // there is a second currency involved
+        if (mCommoditiesDbAdapter == null) {
+            mCommoditiesDbAdapter = new CommoditiesDbAdapter(mDb);
+            mPricesDbAdapter = new PricesDbAdapter(mDb);
+        }
+        // get price
+        String commodityUID = mCommoditiesDbAdapter.getCommodityUID(commodity);
+        String currencyUID = mCommoditiesDbAdapter.getCommodityUID(currencyCode);
+        Pair<Long, Long> price = priceTimestamp == -1
+                ? mPricesDbAdapter.getPrice(commodityUID, currencyUID)
+                : mPricesDbAdapter.getPrice(commodityUID, currencyUID, priceTimestamp);
+        if (price.first <= 0 || price.second <= 0) {
+            // no price exists, just ignore it
+            return Money.createZeroInstance(currencyCode);
+        }
+        Currency currency = Currency.getInstance(currencyCode);
+        BigDecimal amount = Money.getBigDecimal(amountNum, amountDenom);
+        BigDecimal amountConverted = amount.multiply(new BigDecimal(price.first))
+                .divide(new BigDecimal(price.second), currency.getDefaultFractionDigits(), BigDecimal.ROUND_HALF_EVEN);
+        return new Money(amountConverted, currency);
     }
 
     /**
@@ -265,8 +625,9 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         Cursor cursor = fetchSplitsForTransaction(transactionUID);
         List<Split> splitList = new ArrayList<Split>();
         try {
-            while (cursor.moveToNext()) {
-                splitList.add(buildModelInstance(cursor));
+            ModelReader<Split> reader = createModelReader(cursor);
+            while (reader.moveToNext()) {
+                splitList.add(reader.read());
             }
         } finally {
             cursor.close();
@@ -295,8 +656,9 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         Cursor cursor = fetchSplitsForTransactionAndAccount(transactionUID, accountUID);
         List<Split> splitList = new ArrayList<Split>();
         if (cursor != null){
-            while (cursor.moveToNext()){
-                splitList.add(buildModelInstance(cursor));
+            ModelReader<Split> reader = createModelReader(cursor);
+            while (reader.moveToNext()){
+                splitList.add(reader.read());
             }
             cursor.close();
         }
@@ -399,6 +761,7 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
     public boolean deleteRecord(long rowId) {
         Split split = getRecord(rowId);
         String transactionUID = split.getTransactionUID();
+        subtractFromAccountBalances(SplitEntry.TABLE_NAME + "." + SplitEntry._ID + " = " + rowId, null);
         boolean result = mDb.delete(SplitEntry.TABLE_NAME, SplitEntry._ID + "=" + rowId, null) > 0;
 
         if (!result) //we didn't delete for whatever reason, invalid rowId etc
@@ -409,6 +772,8 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         try {
             if (cursor.getCount() > 0) {
                 long transactionID = getTransactionID(transactionUID);
+                subtractFromAccountBalances(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID + " = ?",
+                        new String[]{transactionUID});
                 result = mDb.delete(TransactionEntry.TABLE_NAME,
                         TransactionEntry._ID + "=" + transactionID, null) > 0;
             }
@@ -439,4 +804,132 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         }
     }
 
+    /**
+     * Adds the quantities of the splits matching {@code where} to the account balances.
+     * <p>Splits of template transactions are not counted.
+     * Call this after the splits have been written to the database</p>
+     * @param where SQL where clause on the splits table. Columns should be qualified with the table name
+     * @param whereArgs Arguments for the where clause
+     */
+    void addToAccountBalances(String where, String[] whereArgs){
+        updateAccountBalances(where, whereArgs, 1);
+    }
+
+    /**
+     * Subtracts the quantities of the splits matching {@code where} from the account balances.
+     * <p>Splits of template transactions are not counted.
+     * Call this before the splits are removed or replaced in the database</p>
+     * @param where SQL where clause on the splits table. Columns should be qualified with the table name
+     * @param whereArgs Arguments for the where clause
+     */
+    void subtractFromAccountBalances(String where, String[] whereArgs){
+        updateAccountBalances(where, whereArgs, -1);
+    }
+
+    private void updateAccountBalances(String where, String[] whereArgs, int sign){
+        Cursor cursor = mDb.rawQuery("SELECT " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + " , "
+                + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
+                + "SUM ( CASE WHEN " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "
+                + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " ELSE - "
+                + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " END ) "
+                + " FROM " + SplitEntry.TABLE_NAME + " INNER JOIN " + TransactionEntry.TABLE_NAME + " ON "
+                + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " = "
+                + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                + " WHERE " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + " = 0 AND ( " + where + " ) "
+                + " GROUP BY " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + " , "
+                + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM, whereArgs);
+        try {
+            while (cursor.moveToNext()) {
+                applyBalanceDelta(cursor.getString(0), sign * cursor.getLong(2), cursor.getLong(1));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Adds {@code quantityNum} to the balance of the account for the denominator {@code quantityDenom}
+     * @param accountUID GUID of the account
+     * @param quantityNum Numerator to add. Debits are positive and credits negative
+     * @param quantityDenom Denominator of the quantity
+     */
+    private void applyBalanceDelta(String accountUID, long quantityNum, long quantityDenom){
+        if (quantityNum == 0)
+            return;
+
+        if (mInsertBalanceStatement == null) {
+            mInsertBalanceStatement = mDb.compileStatement("INSERT OR IGNORE INTO " + AccountBalanceEntry.TABLE_NAME + " ( "
+                    + AccountBalanceEntry.COLUMN_ACCOUNT_UID + " , "
+                    + AccountBalanceEntry.COLUMN_QUANTITY_DENOM + " ) VALUES ( ? , ? )");
+            mUpdateBalanceStatement = mDb.compileStatement("UPDATE " + AccountBalanceEntry.TABLE_NAME
+                    + " SET " + AccountBalanceEntry.COLUMN_QUANTITY_NUM + " = "
+                    + AccountBalanceEntry.COLUMN_QUANTITY_NUM + " + ? "
+                    + " WHERE " + AccountBalanceEntry.COLUMN_ACCOUNT_UID + " = ? AND "
+                    + AccountBalanceEntry.COLUMN_QUANTITY_DENOM + " = ?");
+        }
+
+        mInsertBalanceStatement.clearBindings();
+        mInsertBalanceStatement.bindString(1, accountUID);
+        mInsertBalanceStatement.bindLong(2, quantityDenom);
+        mInsertBalanceStatement.execute();
+
+        mUpdateBalanceStatement.clearBindings();
+        mUpdateBalanceStatement.bindLong(1, quantityNum);
+        mUpdateBalanceStatement.bindString(2, accountUID);
+        mUpdateBalanceStatement.bindLong(3, quantityDenom);
+        mUpdateBalanceStatement.execute();
+    }
+
+    /**
+     * Recomputes the balances of all accounts from the splits in the database.
+     * <p>This should be called after splits have been written in bulk without updating the
+     * balances, e.g. after an import or a database migration</p>
+     */
+    public void rebuildAccountBalances(){
+        rebuildAccountBalances(mDb);
+    }
+
+    /**
+     * Recomputes the balances of all accounts in {@code db} from the splits.
+     * <p>This method does not require an adapter instance so that it can also be used during database upgrades</p>
+     * @param db SQLite database
+     * @see #rebuildAccountBalances()
+     */
+    static void rebuildAccountBalances(SQLiteDatabase db){
+        Log.i("SplitsDbAdapter", "Rebuilding account balances");
+        db.beginTransaction();
+        try {
+            db.delete(AccountBalanceEntry.TABLE_NAME, null, null);
+            db.execSQL("INSERT INTO " + AccountBalanceEntry.TABLE_NAME + " ( "
+                    + AccountBalanceEntry.COLUMN_ACCOUNT_UID + " , "
+                    + AccountBalanceEntry.COLUMN_QUANTITY_DENOM + " , "
+                    + AccountBalanceEntry.COLUMN_QUANTITY_NUM + " ) "
+                    + " SELECT " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + " , "
+                    + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
+                    + "SUM ( CASE WHEN " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "
+                    + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " ELSE - "
+                    + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " END ) "
+                    + " FROM " + SplitEntry.TABLE_NAME + " INNER JOIN " + TransactionEntry.TABLE_NAME + " ON "
+                    + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " = "
+                    + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                    + " WHERE " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + " = 0 "
+                    + " GROUP BY " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + " , "
+                    + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes all splits, the stored account balances and the transaction summaries
+     * @return Number of deleted splits
+     */
+    @Override
+    public int deleteAllRecords() {
+        mDb.delete(AccountBalanceEntry.TABLE_NAME, null, null);
+        //clearing the summaries first skips their triggers for each deleted split
+        mDb.delete(TransactionSummaryEntry.TABLE_NAME, null, null);
+        return super.deleteAllRecords();
+    }
 }
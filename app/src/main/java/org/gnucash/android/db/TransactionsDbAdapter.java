@@ -25,7 +25,6 @@ import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
@@ -39,10 +38,12 @@ import org.gnucash.android.model.Transaction;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.gnucash.android.db.DatabaseSchema.AccountBalanceEntry;
 import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionSummaryEntry;
 
 /**
  * Manages persistence of {@link Transaction}s in the database
@@ -93,22 +94,34 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
                 String imbalanceAccountUID = AccountsDbAdapter.getInstance().getOrCreateImbalanceAccountUID(transaction.getCurrency());
                 imbalanceSplit.setAccountUID(imbalanceAccountUID);
             }
+            //the balances are updated for all splits of the transaction at once, before and after the changes
+            String splitsOfTransaction = SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID + " = ?";
+            String[] transactionUIDArgs = new String[]{transaction.getUID()};
+            mSplitsDbAdapter.subtractFromAccountBalances(splitsOfTransaction, transactionUIDArgs);
+
             super.addRecord(transaction);
 
             Log.d(LOG_TAG, "Adding splits for transaction");
             ArrayList<String> splitUIDs = new ArrayList<>(transaction.getSplits().size());
             for (Split split : transaction.getSplits()) {
                 Log.d(LOG_TAG, "Replace transaction split in db");
-                mSplitsDbAdapter.addRecord(split);
+                mSplitsDbAdapter.addRecord(split, false);
                 splitUIDs.add(split.getUID());
             }
             Log.d(LOG_TAG, transaction.getSplits().size() + " splits added");
 
-            long deleted = mDb.delete(SplitEntry.TABLE_NAME,
-                    SplitEntry.COLUMN_TRANSACTION_UID + " = ? AND "
-                            + SplitEntry.COLUMN_UID + " NOT IN ('" + TextUtils.join("' , '", splitUIDs) + "')",
-                    new String[]{transaction.getUID()});
-            Log.d(LOG_TAG, deleted + " splits deleted");
+            String splitSet = createUIDSet(splitUIDs);
+            try {
+                long deleted = mDb.delete(SplitEntry.TABLE_NAME,
+                        SplitEntry.COLUMN_TRANSACTION_UID + " = ? AND NOT "
+                                + inUIDSet(SplitEntry.COLUMN_UID),
+                        new String[]{transaction.getUID(), splitSet});
+                Log.d(LOG_TAG, deleted + " splits deleted");
+            } finally {
+                deleteUIDSet(splitSet);
+            }
+
+            mSplitsDbAdapter.addToAccountBalances(splitsOfTransaction, transactionUIDArgs);
 
             mDb.setTransactionSuccessful();
         } catch (SQLException sqlEx) {
@@ -130,13 +143,61 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
      */
     @Override
     public long bulkAddRecords(@NonNull List<Transaction> transactionList){
+        if (transactionList.isEmpty()) {
+            return 0;
+        }
+        List<String> transactionUIDs = new ArrayList<>(transactionList.size());
+        List<String> splitUIDs = new ArrayList<>(transactionList.size()*3);
+        for (Transaction transaction : transactionList) {
+            transactionUIDs.add(transaction.getUID());
+            for (Split split : transaction.getSplits()) {
+                splitUIDs.add(split.getUID());
+            }
+        }
+
+        //like addRecord, the balances are only updated for the splits replaced and added
+        mDb.beginTransaction();
+        String transactionSet = createUIDSet(transactionUIDs);
+        String splitSet = createUIDSet(splitUIDs);
+        try {
+            String splitsOfTransactions = inUIDSet(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID);
+            mSplitsDbAdapter.subtractFromAccountBalances(splitsOfTransactions + " OR "
+                            + inUIDSet(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_UID),
+                    new String[]{transactionSet, splitSet});
+
+            long rowInserted = bulkAddRecords(transactionList, false);
+
+            mSplitsDbAdapter.addToAccountBalances(splitsOfTransactions, new String[]{transactionSet});
+            mDb.setTransactionSuccessful();
+            return rowInserted;
+        } finally {
+            deleteUIDSet(transactionSet);
+            deleteUIDSet(splitSet);
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Adds several transactions to the database, optionally without recomputing the account balances.
+     * <p>Importers which insert the transactions in batches pass {@code false} for {@code rebuildAccountBalances}
+     * and call {@link SplitsDbAdapter#rebuildAccountBalances()} once after the last batch</p>
+     * @param transactionList {@link Transaction} transactions to be inserted to database
+     * @param rebuildAccountBalances {@code true} if the account balances should be recomputed afterwards
+     * @return Number of transactions inserted
+     * @see #bulkAddRecords(List)
+     */
+    public long bulkAddRecords(@NonNull List<Transaction> transactionList, boolean rebuildAccountBalances){
         long start = System.nanoTime();
         long rowInserted = super.bulkAddRecords(transactionList);
         long end = System.nanoTime();
         Log.d(getClass().getSimpleName(), String.format("bulk add transaction time %d ", end - start));
         List<Split> splitList = new ArrayList<>(transactionList.size()*3);
+        List<String> emptyTransactionUIDs = new ArrayList<>();
         for (Transaction transaction : transactionList) {
             splitList.addAll(transaction.getSplits());
+            if (transaction.getSplits().isEmpty()) {
+                emptyTransactionUIDs.add(transaction.getUID());
+            }
         }
         if (rowInserted != 0 && !splitList.isEmpty()) {
             try {
@@ -145,17 +206,94 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
                 Log.d(LOG_TAG, String.format("%d splits inserted in %d ns", splitList.size(), System.nanoTime()-start));
             }
             finally {
-                SQLiteStatement deleteEmptyTransaction = mDb.compileStatement("DELETE FROM " +
-                        TransactionEntry.TABLE_NAME + " WHERE NOT EXISTS ( SELECT * FROM " +
-                        SplitEntry.TABLE_NAME +
-                        " WHERE " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID +
-                        " = " + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID + " ) ");
-                deleteEmptyTransaction.execute();
+                //replacing a transaction deleted its old splits, so the transactions without splits in the list
+                //are empty. This does not query the splits, whose indexes may be deferred during bulk loads
+                if (!emptyTransactionUIDs.isEmpty()) {
+                    String transactionSet = createUIDSet(emptyTransactionUIDs);
+                    try {
+                        mDb.delete(TransactionEntry.TABLE_NAME, inUIDSet(TransactionEntry.COLUMN_UID),
+                                new String[]{transactionSet});
+                    } finally {
+                        deleteUIDSet(transactionSet);
+                    }
+                }
             }
         }
+        if (rowInserted != 0 && rebuildAccountBalances) {
+            //replacing the transactions also removed their old splits, so recompute all balances
+            mSplitsDbAdapter.rebuildAccountBalances();
+        }
         return rowInserted;
     }
 
+    /**
+     * Merges transactions and their splits into the database, see {@link DatabaseAdapter#mergeRecords(List, MergeResult)}.
+     * <p>The splits of the transactions are merged as well, and the splits of the transactions
+     * which are not in their split lists anymore are deleted.
+     * The account balances are not recomputed, call {@link SplitsDbAdapter#rebuildAccountBalances()}
+     * after the last merge if any split changed</p>
+     * @param transactionList Transactions to merge
+     * @param result Counts of the transaction and split rows added, updated, unchanged and deleted,
+     *               which are incremented
+     * @return Number of transactions added or updated
+     */
+    @Override
+    public int mergeRecords(@NonNull List<Transaction> transactionList, @NonNull MergeResult result) {
+        if (transactionList.isEmpty()) {
+            return 0;
+        }
+        List<Split> splitList = new ArrayList<>(transactionList.size()*3);
+        List<String> splitUIDs = new ArrayList<>(transactionList.size()*3);
+        List<String> transactionUIDs = new ArrayList<>(transactionList.size());
+        for (Transaction transaction : transactionList) {
+            for (Split split : transaction.getSplits()) {
+                splitList.add(split);
+                splitUIDs.add(split.getUID());
+            }
+            transactionUIDs.add(transaction.getUID());
+        }
+
+        mDb.beginTransaction();
+        try {
+            int nChanged = super.mergeRecords(transactionList, result);
+            mSplitsDbAdapter.mergeRecords(splitList, result);
+
+            String transactionSet = createUIDSet(transactionUIDs);
+            String splitSet = createUIDSet(splitUIDs);
+            try {
+                int nDeleted = mDb.delete(SplitEntry.TABLE_NAME, inUIDSet(SplitEntry.COLUMN_TRANSACTION_UID)
+                        + " AND NOT " + inUIDSet(SplitEntry.COLUMN_UID), new String[]{transactionSet, splitSet});
+                result.addDeleted(nDeleted);
+            } finally {
+                deleteUIDSet(transactionSet);
+                deleteUIDSet(splitSet);
+            }
+
+            mDb.setTransactionSuccessful();
+            return nChanged;
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    @Override
+    protected ContentValues getContentValues(@NonNull Transaction transaction) {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(TransactionEntry.COLUMN_UID, transaction.getUID());
+        contentValues.put(TransactionEntry.COLUMN_DESCRIPTION, transaction.getDescription());
+        contentValues.put(TransactionEntry.COLUMN_NOTES, transaction.getNote());
+        contentValues.put(TransactionEntry.COLUMN_TIMESTAMP, transaction.getTimeMillis());
+        contentValues.put(TransactionEntry.COLUMN_EXPORTED, transaction.isExported() ? 1 : 0);
+        contentValues.put(TransactionEntry.COLUMN_CURRENCY, transaction.getCurrencyCode());
+        String commodityUID = transaction.getCommodityUID();
+        if (commodityUID == null)
+            commodityUID = getCommodityUID(transaction.getCurrency().getCurrencyCode());
+        contentValues.put(TransactionEntry.COLUMN_COMMODITY_UID, commodityUID);
+        contentValues.put(TransactionEntry.COLUMN_SCHEDX_ACTION_UID, transaction.getScheduledActionUID());
+        contentValues.put(TransactionEntry.COLUMN_TEMPLATE, transaction.isTemplate() ? 1 : 0);
+        return contentValues;
+    }
+
     @Override
     protected SQLiteStatement compileReplaceStatement(@NonNull final Transaction transaction) {
         if (mReplaceStatement == null) {
@@ -219,6 +357,44 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         return queryBuilder.query(mDb, projectionIn, selection, selectionArgs, null, null, sortOrder);
     }
 
+    /**
+     * Returns a cursor to the splits of an account joined with their transactions, for the exports which
+     * stream the transactions of each account without loading them.
+     * <p>The rows are ordered like {@link #fetchAllTransactionsForAccount(String)}, and the rows of the same
+     * transaction are consecutive. Each row has the columns {@code trans_uid}, {@code trans_desc},
+     * {@code trans_notes}, {@code trans_time}, {@code trans_modified_at}, {@code trans_currency},
+     * {@code split_type}, {@code split_value_num}, {@code split_value_denom}, {@code split_quantity_num},
+     * {@code split_quantity_denom}, {@code trans_split_count} with the number of splits of the transaction,
+     * and {@code other_acct_uid} with the account of a split of the transaction in another account,
+     * or null if there is none. Template transactions are excluded</p>
+     * @param accountUID GUID of the account
+     * @return Cursor to the splits of the account
+     */
+    public Cursor fetchSplitsWithTransactionsForAccount(String accountUID){
+        String sql = "SELECT "
+                + "t." + TransactionEntry.COLUMN_UID            + " AS trans_uid, "
+                + "t." + TransactionEntry.COLUMN_DESCRIPTION    + " AS trans_desc, "
+                + "t." + TransactionEntry.COLUMN_NOTES          + " AS trans_notes, "
+                + "t." + TransactionEntry.COLUMN_TIMESTAMP      + " AS trans_time, "
+                + "t." + TransactionEntry.COLUMN_MODIFIED_AT    + " AS trans_modified_at, "
+                + "t." + TransactionEntry.COLUMN_CURRENCY       + " AS trans_currency, "
+                + "s." + SplitEntry.COLUMN_TYPE                 + " AS split_type, "
+                + "s." + SplitEntry.COLUMN_VALUE_NUM            + " AS split_value_num, "
+                + "s." + SplitEntry.COLUMN_VALUE_DENOM          + " AS split_value_denom, "
+                + "s." + SplitEntry.COLUMN_QUANTITY_NUM         + " AS split_quantity_num, "
+                + "s." + SplitEntry.COLUMN_QUANTITY_DENOM       + " AS split_quantity_denom, "
+                + "(SELECT COUNT(*) FROM " + SplitEntry.TABLE_NAME + " AS s2 WHERE s2." + SplitEntry.COLUMN_TRANSACTION_UID
+                + " = t." + TransactionEntry.COLUMN_UID + ") AS trans_split_count, "
+                + "(SELECT s3." + SplitEntry.COLUMN_ACCOUNT_UID + " FROM " + SplitEntry.TABLE_NAME + " AS s3 WHERE s3."
+                + SplitEntry.COLUMN_TRANSACTION_UID + " = t." + TransactionEntry.COLUMN_UID + " AND s3."
+                + SplitEntry.COLUMN_ACCOUNT_UID + " != ? LIMIT 1) AS other_acct_uid"
+                + " FROM " + TransactionEntry.TABLE_NAME + " AS t INNER JOIN " + SplitEntry.TABLE_NAME + " AS s ON "
+                + "t." + TransactionEntry.COLUMN_UID + " = s." + SplitEntry.COLUMN_TRANSACTION_UID
+                + " WHERE s." + SplitEntry.COLUMN_ACCOUNT_UID + " = ? AND t." + TransactionEntry.COLUMN_TEMPLATE + " = 0"
+                + " ORDER BY t." + TransactionEntry.COLUMN_TIMESTAMP + " DESC, t." + TransactionEntry.COLUMN_UID;
+        return mDb.rawQuery(sql, new String[]{accountUID, accountUID});
+    }
+
     /**
      * Returns a cursor to all scheduled transactions which have at least one split in the account
      * <p>This is basically a set of all template transactions for this account</p>
@@ -248,6 +424,9 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
      * @param accountUID GUID of the account
      */
     public void deleteTransactionsForAccount(String accountUID){
+        mSplitsDbAdapter.subtractFromAccountBalances(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                + " IN ( SELECT " + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME
+                + " WHERE " + SplitEntry.COLUMN_ACCOUNT_UID + " = ? )", new String[]{accountUID});
         String rawDeleteQuery = "DELETE FROM " + TransactionEntry.TABLE_NAME + " WHERE " + TransactionEntry.COLUMN_UID + " IN "
                 + " (SELECT " + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME + " WHERE "
                 + SplitEntry.COLUMN_ACCOUNT_UID + " = ?)";
@@ -307,8 +486,9 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
 		Cursor c = fetchAllTransactionsForAccount(accountUID);
 		ArrayList<Transaction> transactionsList = new ArrayList<>();
         try {
-            while (c.moveToNext()) {
-                transactionsList.add(buildModelInstance(c));
+            ModelReader<Transaction> reader = createModelReader(c);
+            while (reader.moveToNext()) {
+                transactionsList.add(reader.read());
             }
         } finally {
             c.close();
@@ -324,8 +504,9 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         Cursor cursor = fetchAllRecords();
         List<Transaction> transactions = new ArrayList<Transaction>();
         try {
-            while (cursor.moveToNext()) {
-                transactions.add(buildModelInstance(cursor));
+            ModelReader<Transaction> reader = createModelReader(cursor);
+            while (reader.moveToNext()) {
+                transactions.add(reader.read());
             }
         } finally {
             cursor.close();
@@ -396,29 +577,53 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         }
     }
 
-	/**
-	 * Builds a transaction instance with the provided cursor.
-	 * The cursor should already be pointing to the transaction record in the database
-	 * @param c Cursor pointing to transaction record in database
-	 * @return {@link Transaction} object constructed from database record
-	 */
     @Override
-    public Transaction buildModelInstance(@NonNull final Cursor c){
-		String name   = c.getString(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_DESCRIPTION));
-		Transaction transaction = new Transaction(name);
-        populateBaseModelAttributes(c, transaction);
-
-		transaction.setTime(c.getLong(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_TIMESTAMP)));
-		transaction.setNote(c.getString(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_NOTES)));
-		transaction.setExported(c.getInt(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_EXPORTED)) == 1);
-		transaction.setTemplate(c.getInt(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_TEMPLATE)) == 1);
-        transaction.setCurrencyCode(c.getString(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_CURRENCY)));
-        transaction.setScheduledActionUID(c.getString(c.getColumnIndexOrThrow(TransactionEntry.COLUMN_SCHEDX_ACTION_UID)));
-        long transactionID = c.getLong(c.getColumnIndexOrThrow(TransactionEntry._ID));
-        transaction.setSplits(mSplitsDbAdapter.getSplitsForTransaction(transactionID));
-
-		return transaction;
-	}
+    protected ModelReader<Transaction> createModelReader(@NonNull Cursor cursor) {
+        return new TransactionReader(cursor);
+    }
+
+    /**
+     * Builds transaction instances from the rows of a cursor, with their splits.
+     * The cursor should already be pointing to the transaction record in the database
+     */
+    private class TransactionReader extends ModelReader<Transaction> {
+        private final int mIdIndex;
+        private final int mDescriptionIndex;
+        private final int mTimestampIndex;
+        private final int mNotesIndex;
+        private final int mExportedIndex;
+        private final int mTemplateIndex;
+        private final int mCurrencyIndex;
+        private final int mScheduledActionUIDIndex;
+
+        TransactionReader(@NonNull Cursor cursor) {
+            super(cursor);
+            mIdIndex                    = columnIndex(TransactionEntry._ID);
+            mDescriptionIndex           = columnIndex(TransactionEntry.COLUMN_DESCRIPTION);
+            mTimestampIndex             = columnIndex(TransactionEntry.COLUMN_TIMESTAMP);
+            mNotesIndex                 = columnIndex(TransactionEntry.COLUMN_NOTES);
+            mExportedIndex              = columnIndex(TransactionEntry.COLUMN_EXPORTED);
+            mTemplateIndex              = columnIndex(TransactionEntry.COLUMN_TEMPLATE);
+            mCurrencyIndex              = columnIndex(TransactionEntry.COLUMN_CURRENCY);
+            mScheduledActionUIDIndex    = columnIndex(TransactionEntry.COLUMN_SCHEDX_ACTION_UID);
+        }
+
+        @Override
+        public Transaction read() {
+            Transaction transaction = new Transaction(getString(mDescriptionIndex));
+            populateBaseModelAttributes(transaction);
+
+            transaction.setTime(getLong(mTimestampIndex));
+            transaction.setNote(getString(mNotesIndex));
+            transaction.setExported(getBoolean(mExportedIndex));
+            transaction.setTemplate(getBoolean(mTemplateIndex));
+            transaction.setCurrencyCode(getString(mCurrencyIndex));
+            transaction.setScheduledActionUID(getString(mScheduledActionUIDIndex));
+            transaction.setSplits(mSplitsDbAdapter.getSplitsForTransaction(getLong(mIdIndex)));
+
+            return transaction;
+        }
+    }
 
 	/**
 	 * Returns the currency code (ISO 4217) used by the account with id <code>accountId</code>
@@ -461,9 +666,53 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         for (Split split : splits) {
             split.setAccountUID(dstAccountUID);
         }
-        mSplitsDbAdapter.bulkAddRecords(splits);
+        String splitsOfTransaction = SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID + " = ?";
+        String[] transactionUIDArgs = new String[]{transactionUID};
+        mDb.beginTransaction();
+        try {
+            mSplitsDbAdapter.subtractFromAccountBalances(splitsOfTransaction, transactionUIDArgs);
+            mSplitsDbAdapter.bulkAddRecords(splits);
+            mSplitsDbAdapter.addToAccountBalances(splitsOfTransaction, transactionUIDArgs);
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
         return splits.size();
 	}
+
+    /**
+     * Deletes the transaction with database ID {@code rowId} and its splits.
+     * <p>The balances of the accounts which the splits belong to are updated accordingly</p>
+     * @param rowId Database record ID of the transaction
+     * @return <code>true</code> if deletion was successful, <code>false</code> otherwise
+     */
+    @Override
+    public boolean deleteRecord(long rowId) {
+        mDb.beginTransaction();
+        try {
+            mSplitsDbAdapter.subtractFromAccountBalances(SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                    + " = ( SELECT " + TransactionEntry.COLUMN_UID + " FROM " + TransactionEntry.TABLE_NAME
+                    + " WHERE " + TransactionEntry._ID + " = " + rowId + " )", null);
+            boolean result = super.deleteRecord(rowId);
+            mDb.setTransactionSuccessful();
+            return result;
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes all transactions and their splits from the database.
+     * <p>The stored account balances and transaction summaries are cleared as well</p>
+     * @return Number of deleted transactions
+     */
+    @Override
+    public int deleteAllRecords() {
+        mDb.delete(AccountBalanceEntry.TABLE_NAME, null, null);
+        //clearing the summaries first skips their triggers for each deleted split
+        mDb.delete(TransactionSummaryEntry.TABLE_NAME, null, null);
+        return super.deleteAllRecords();
+    }
 	
 	/**
 	 * Returns the number of transactions belonging to account with id <code>accountId</code>
@@ -515,8 +764,9 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         Cursor cursor = fetchScheduledTransactionsForAccount(accountUID);
         List<Transaction> scheduledTransactions = new ArrayList<>();
         try {
-            while (cursor.moveToNext()) {
-                scheduledTransactions.add(buildModelInstance(cursor));
+            ModelReader<Transaction> reader = createModelReader(cursor);
+            while (reader.moveToNext()) {
+                scheduledTransactions.add(reader.read());
             }
             return scheduledTransactions;
         } finally {
@@ -607,6 +857,11 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
      */
     public int deleteAllNonTemplateTransactions(){
         String where = TransactionEntry.COLUMN_TEMPLATE + "=0";
+        //template transactions do not count towards the balances, so nothing remains
+        mDb.delete(AccountBalanceEntry.TABLE_NAME, null, null);
+        //clearing the summaries first skips their triggers for each deleted split
+        mDb.delete(TransactionSummaryEntry.TABLE_NAME, TransactionSummaryEntry.COLUMN_TRANSACTION_UID
+                + " IN ( SELECT " + TransactionEntry.COLUMN_UID + " FROM " + mTableName + " WHERE " + where + " )", null);
         return mDb.delete(mTableName, where, null);
     }
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.export;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Export sink which writes the export to a content URI, e.g. a document picked by the user.
+ * <p>A content URI holds a single file, so the files of an export are written one after the other
+ * to the same document. The document cannot be removed if the export fails</p>
+ */
+public class ContentUriExportSink implements ExportSink {
+    private final ContentResolver mContentResolver;
+    private final Uri mUri;
+    private boolean mOpened = false;
+
+    /**
+     * Creates a sink writing to a content URI
+     * @param contentResolver Content resolver of the application
+     * @param uri URI of the document to write, which is truncated
+     */
+    public ContentUriExportSink(@NonNull ContentResolver contentResolver, @NonNull Uri uri) {
+        mContentResolver = contentResolver;
+        mUri = uri;
+    }
+
+    @Override
+    public OutputStream openFile(@NonNull String filename, @NonNull String mimeType) throws IOException {
+        //the first file truncates the document, the next ones are appended to it
+        String mode = mOpened ? "wa" : "wt";
+        mOpened = true;
+        OutputStream outputStream = mContentResolver.openOutputStream(mUri, mode);
+        if (outputStream == null) {
+            throw new FileNotFoundException("Cannot open " + mUri);
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void abort() {
+        //the provider owns the document, which is left as written
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.export;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.dropbox.sync.android.DbxAccountManager;
+import com.dropbox.sync.android.DbxException;
+import com.dropbox.sync.android.DbxFile;
+import com.dropbox.sync.android.DbxFileSystem;
+import com.dropbox.sync.android.DbxPath;
+
+import org.gnucash.android.R;
+import org.gnucash.android.ui.settings.SettingsActivity;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Export sink which writes the exported files to the app folder of the linked Dropbox account.
+ * <p>The files are written to the Dropbox file system while the export is generated,
+ * and uploaded by the Dropbox service once they are closed</p>
+ */
+public class DropboxExportSink implements ExportSink {
+    private static final String LOG_TAG = "DropboxExportSink";
+
+    private final DbxFileSystem mFileSystem;
+    /**
+     * Paths of the files written and closed
+     */
+    private final List<DbxPath> mPaths = new ArrayList<>();
+    private boolean mAborted = false;
+
+    /**
+     * Creates a sink writing to the linked Dropbox account
+     * @param context Application context
+     * @throws DbxException.Unauthorized if no Dropbox account is linked
+     */
+    public DropboxExportSink(@NonNull Context context) throws DbxException.Unauthorized {
+        String dropboxAppKey = context.getString(R.string.dropbox_app_key, SettingsActivity.DROPBOX_APP_KEY);
+        String dropboxAppSecret = context.getString(R.string.dropbox_app_secret, SettingsActivity.DROPBOX_APP_SECRET);
+        DbxAccountManager accountManager = DbxAccountManager.getInstance(context.getApplicationContext(),
+                dropboxAppKey, dropboxAppSecret);
+        mFileSystem = DbxFileSystem.forAccount(accountManager.getLinkedAccount());
+    }
+
+    @Override
+    public OutputStream openFile(@NonNull String filename, @NonNull String mimeType) throws IOException {
+        final DbxPath path = new DbxPath(filename);
+        final DbxFile file = mFileSystem.create(path);
+        try {
+            return new FilterOutputStream(file.getWriteStream()) {
+                @Override
+                public void write(@NonNull byte[] buffer, int offset, int length) throws IOException {
+                    out.write(buffer, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        file.close();
+                    }
+                    if (mAborted) {
+                        delete(path);
+                    } else {
+                        mPaths.add(path);
+                    }
+                }
+            };
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void abort() {
+        mAborted = true;
+        for (DbxPath path : mPaths) {
+            delete(path);
+        }
+        mPaths.clear();
+    }
+
+    private void delete(DbxPath path) {
+        try {
+            mFileSystem.delete(path);
+        } catch (DbxException e) {
+            Log.w(LOG_TAG, "Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+}
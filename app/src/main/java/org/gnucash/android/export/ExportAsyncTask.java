@@ -22,7 +22,6 @@ import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
 import android.os.AsyncTask;
@@ -32,19 +31,6 @@ import android.util.Log;
 import android.widget.Toast;
 
 import com.crashlytics.android.Crashlytics;
-import com.dropbox.sync.android.DbxAccountManager;
-import com.dropbox.sync.android.DbxException;
-import com.dropbox.sync.android.DbxFile;
-import com.dropbox.sync.android.DbxFileSystem;
-import com.dropbox.sync.android.DbxPath;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.drive.Drive;
-import com.google.android.gms.drive.DriveApi;
-import com.google.android.gms.drive.DriveContents;
-import com.google.android.gms.drive.DriveFolder;
-import com.google.android.gms.drive.DriveId;
-import com.google.android.gms.drive.MetadataChangeSet;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
@@ -56,17 +42,9 @@ import org.gnucash.android.export.xml.GncXmlExporter;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.ui.account.AccountsActivity;
 import org.gnucash.android.ui.account.AccountsListFragment;
-import org.gnucash.android.ui.settings.SettingsActivity;
 import org.gnucash.android.ui.transaction.TransactionsActivity;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -142,18 +120,28 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
                     break;
             }
 
+        FileExportSink fileSink = null;
         try {
-            File file = new File(mExportParams.getTargetFilepath());
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
-            try {
-                // FIXME: detect if there aren't transactions to export and inform the user
-                mExporter.generateExport(writer);
-                writer.flush();
-            }
-            finally {
-                writer.close();
+            ExportSink sink;
+            switch (mExportParams.getExportTarget()) {
+                case DROPBOX:
+                    Log.i(TAG, "Exporting to DropBox");
+                    sink = new DropboxExportSink(mContext);
+                    break;
+                case GOOGLE_DRIVE:
+                    Log.i(TAG, "Exporting to Google Drive");
+                    sink = new GoogleDriveExportSink(GnuCashApplication.getAppContext());
+                    break;
+                case SHARING:
+                case SD_CARD:
+                default:
+                    Log.i(TAG, "Exporting to external storage");
+                    fileSink = new FileExportSink(new File(Exporter.EXPORT_FOLDER_PATH));
+                    sink = fileSink;
+                    break;
             }
-
+            // FIXME: detect if there aren't transactions to export and inform the user
+            mExporter.generateExport(sink);
         } catch (final Exception e) {
             Log.e(TAG, "Error exporting: " + e.getMessage());
             Crashlytics.logException(e);
@@ -172,26 +160,10 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
             return false;
         }
 
-        switch (mExportParams.getExportTarget()) {
-            case SHARING:
-                File output = moveExportToSDCard();
-                shareFile(output.getAbsolutePath());
-                return true;
-
-            case DROPBOX:
-                copyExportToDropbox();
-                return true;
-
-            case GOOGLE_DRIVE:
-                copyExportToGoogleDrive();
-                return true;
-
-            case SD_CARD:
-                moveExportToSDCard();
-                return true;
+        if (mExportParams.getExportTarget() == ExportParams.ExportTarget.SHARING) {
+            shareFiles(fileSink.getFiles());
         }
-
-        return false;
+        return true;
     }
 
     /**
@@ -250,150 +222,12 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
         }
     }
 
-    private void copyExportToGoogleDrive(){
-        Log.i(TAG, "Moving exported file to Google Drive");
-        final GoogleApiClient googleApiClient = SettingsActivity.getGoogleApiClient(GnuCashApplication.getAppContext());
-        googleApiClient.blockingConnect();
-        final ResultCallback<DriveFolder.DriveFileResult> fileCallback = new
-                ResultCallback<DriveFolder.DriveFileResult>() {
-                    @Override
-                    public void onResult(DriveFolder.DriveFileResult result) {
-                        if (!result.getStatus().isSuccess()) {
-                            Log.e(TAG, "Error while trying to sync to Google Drive");
-                            return;
-                        }
-                        Log.i(TAG, "Created a file with content: " + result.getDriveFile().getDriveId());
-                    }
-                };
-
-        Drive.DriveApi.newDriveContents(googleApiClient).setResultCallback(new ResultCallback<DriveApi.DriveContentsResult>() {
-            @Override
-            public void onResult(DriveApi.DriveContentsResult result) {
-                if (!result.getStatus().isSuccess()) {
-                    Log.e(TAG, "Error while trying to create new file contents");
-                    return;
-                }
-                final DriveContents driveContents = result.getDriveContents();
-                try {
-                    // write content to DriveContents
-                    OutputStream outputStream = driveContents.getOutputStream();
-                    List<String> exportedFilePaths = getExportedFiles();
-                    for (String exportedFilePath : exportedFilePaths) {
-                        File exportedFile = new File(exportedFilePath);
-                        FileInputStream fileInputStream = new FileInputStream(exportedFile);
-                        byte[] buffer = new byte[1024];
-                        int count = 0;
-
-                        while ((count = fileInputStream.read(buffer)) >= 0) {
-                            outputStream.write(buffer, 0, count);
-                        }
-                        fileInputStream.close();
-                        outputStream.flush();
-                        exportedFile.delete();
-
-                        MetadataChangeSet changeSet = new MetadataChangeSet.Builder()
-                                .setTitle(exportedFile.getName())
-                                .setMimeType(getExportMimeType())
-                                .build();
-
-                        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(mContext);
-                        String folderId = sharedPreferences.getString(mContext.getString(R.string.key_google_drive_app_folder_id), "");
-                        DriveFolder folder = Drive.DriveApi.getFolder(googleApiClient, DriveId.decodeFromString(folderId));
-                        // create a file on root folder
-                        folder.createFile(googleApiClient, changeSet, driveContents)
-                                .setResultCallback(fileCallback);
-                    }
-
-                } catch (IOException e) {
-                    Crashlytics.logException(e);
-                    Log.e(TAG, e.getMessage());
-                }
-            }
-        });
-    }
-
     /**
      * Returns the mime type for the configured export format
      * @return MIME type as string
      */
     public String getExportMimeType(){
-        switch (mExportParams.getExportFormat()){
-            case OFX:
-            case XML:
-                return "text/xml";
-            case QIF:
-            default:
-                return "text/plain";
-        }
-    }
-
-    private void copyExportToDropbox() {
-        Log.i(TAG, "Copying exported file to DropBox");
-        String dropboxAppKey = mContext.getString(R.string.dropbox_app_key, SettingsActivity.DROPBOX_APP_KEY);
-        String dropboxAppSecret = mContext.getString(R.string.dropbox_app_secret, SettingsActivity.DROPBOX_APP_SECRET);
-        DbxAccountManager mDbxAcctMgr = DbxAccountManager.getInstance(mContext.getApplicationContext(),
-                dropboxAppKey, dropboxAppSecret);
-        DbxFile dbExportFile = null;
-        try {
-            DbxFileSystem dbxFileSystem = DbxFileSystem.forAccount(mDbxAcctMgr.getLinkedAccount());
-            List<String> exportedFilePaths = getExportedFiles();
-            for (String exportedFilePath : exportedFilePaths) {
-                File exportedFile = new File(exportedFilePath);
-                dbExportFile = dbxFileSystem.create(new DbxPath(exportedFile.getName()));
-                dbExportFile.writeFromExistingFile(exportedFile, false);
-                exportedFile.delete();
-            }
-        } catch (DbxException.Unauthorized unauthorized) {
-            Crashlytics.logException(unauthorized);
-            Log.e(TAG, unauthorized.getMessage());
-            throw new Exporter.ExporterException(mExportParams);
-        } catch (IOException e) {
-            Crashlytics.logException(e);
-            Log.e(TAG, e.getMessage());
-        } finally {
-            if (dbExportFile != null) {
-                dbExportFile.close();
-            }
-        }
-    }
-
-    /**
-     * Returns the list of files generated by one export session.
-     * <p>Typically it is one file. But QIF export generate multiple files per currency.</p>
-     * @return List of paths to exported files
-     * @throws IOException if the exported files could not be created
-     */
-    private List<String> getExportedFiles() throws IOException {
-        List<String> exportedFilePaths;
-        if (mExportParams.getExportFormat() == ExportFormat.QIF) {
-            String path = mExportParams.getTargetFilepath();
-            exportedFilePaths = QifExporter.splitQIF(new File(path));
-        } else {
-            exportedFilePaths = new ArrayList<>();
-            exportedFilePaths.add(mExportParams.getTargetFilepath());
-        }
-        return exportedFilePaths;
-    }
-
-    /**
-     * Moves the exported file from the internal storage where it is generated to external storage
-     * which is accessible to the user.
-     * @return File to which the export was moved.
-     */
-    private File moveExportToSDCard() {
-        Log.i(TAG, "Moving exported file to external storage");
-        File src = new File(mExportParams.getTargetFilepath());
-        File dst = Exporter.createExportFile(mExportParams.getExportFormat());
-
-        try {
-            copyFile(src, dst);
-            src.delete();
-            return dst;
-        } catch (IOException e) {
-            Crashlytics.logException(e);
-            Log.e(TAG, e.getMessage());
-            throw new Exporter.ExporterException(mExportParams, e);
-        }
+        return mExportParams.getExportFormat().getMimeType();
     }
 
     /**
@@ -418,28 +252,17 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
 
     /**
      * Starts an intent chooser to allow the user to select an activity to receive
-     * the exported OFX file
-     * @param path String path to the file on disk
+     * the exported files
+     * @param files Exported files on disk
      */
-    private void shareFile(String path) {
+    private void shareFiles(List<File> files) {
         String defaultEmail = PreferenceManager.getDefaultSharedPreferences(mContext)
                 .getString(mContext.getString(R.string.key_default_export_email), null);
         Intent shareIntent = new Intent(Intent.ACTION_SEND_MULTIPLE);
         shareIntent.setType("text/xml");
         ArrayList<Uri> exportFiles = new ArrayList<>();
-        if (mExportParams.getExportFormat() == ExportFormat.QIF) {
-            try {
-                List<String> splitFiles = QifExporter.splitQIF(new File(path));
-                for (String file : splitFiles) {
-                    exportFiles.add(Uri.parse("file://" + file));
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Error split up files in shareFile. " + e.getMessage());
-                Crashlytics.logException(e);
-                return;
-            }
-        } else {
-            exportFiles.add(Uri.parse("file://" + path));
+        for (File file : files) {
+            exportFiles.add(Uri.fromFile(file));
         }
         shareIntent.putExtra(Intent.EXTRA_STREAM, exportFiles);
         shareIntent.putExtra(Intent.EXTRA_SUBJECT, mContext.getString(R.string.title_export_email,
@@ -465,23 +288,4 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
         }
     }
 
-    /**
-     * Copies a file from <code>src</code> to <code>dst</code>
-     * @param src Absolute path to the source file
-     * @param dst Absolute path to the destination file
-     * @throws IOException if the file could not be copied
-     */
-    public void copyFile(File src, File dst) throws IOException {
-        //TODO: Make this asynchronous at some time, t in the future.
-        FileChannel inChannel = new FileInputStream(src).getChannel();
-        FileChannel outChannel = new FileOutputStream(dst).getChannel();
-        try {
-            inChannel.transferTo(0, inChannel.size(), outChannel);
-        } finally {
-            if (inChannel != null)
-                inChannel.close();
-            outChannel.close();
-        }
-    }
-
 }
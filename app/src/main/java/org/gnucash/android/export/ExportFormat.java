@@ -50,6 +50,21 @@ public enum ExportFormat {
         }
     }
 
+    /**
+     * Returns the MIME type of the files of this export format
+     * @return MIME type as string
+     */
+    public String getMimeType(){
+        switch (this) {
+            case OFX:
+            case XML:
+                return "text/xml";
+            case QIF:
+            default:
+                return "text/plain";
+        }
+    }
+
     @Override
     public String toString() {
         return mDescription;
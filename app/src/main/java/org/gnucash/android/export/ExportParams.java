@@ -16,7 +16,6 @@
 
 package org.gnucash.android.export;
 
-import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.ui.export.ExportFormFragment;
 
 /**
@@ -54,14 +53,16 @@ public class ExportParams {
     private boolean mDeleteTransactionsAfterExport = false;
 
     /**
-     * Destination for the exported transactions
+     * Flag to determine if an XML export is a differential backup, holding only the changes since
+     * the previous backup of the chain. By default the whole book is exported
+     * @see org.gnucash.android.db.BackupChain
      */
-    private ExportTarget mExportTarget      = ExportTarget.SHARING;
+    private boolean mDifferentialBackup = false;
 
     /**
-     * File path for the internal saving of transactions before determining export destination.
+     * Destination for the exported transactions
      */
-    private String mTargetFilepath;
+    private ExportTarget mExportTarget      = ExportTarget.SHARING;
 
     /**
      * Creates a new set of paramters and specifies the export format
@@ -85,8 +86,6 @@ public class ExportParams {
      */
     public void setExportFormat(ExportFormat exportFormat) {
         this.mExportFormat = exportFormat;
-        this.mTargetFilepath = GnuCashApplication.getAppContext().getFilesDir() + "/"
-                            + Exporter.buildExportFilename(mExportFormat);
     }
 
     /**
@@ -121,6 +120,23 @@ public class ExportParams {
         this.mDeleteTransactionsAfterExport = deleteTransactions;
     }
 
+    /**
+     * Returns flag whether the XML export is a differential backup
+     * @return <code>true</code> if only the changes since the previous backup are exported, <code>false</code> otherwise
+     */
+    public boolean isDifferentialBackup() {
+        return mDifferentialBackup;
+    }
+
+    /**
+     * Sets flag for exporting only the changes since the previous backup of the chain, in XML format.
+     * <p>The first backup of a chain holds the whole book</p>
+     * @param differentialBackup Boolean flag
+     */
+    public void setDifferentialBackup(boolean differentialBackup) {
+        this.mDifferentialBackup = differentialBackup;
+    }
+
     /**
      * Get the target for the exported file
      * @return {@link org.gnucash.android.export.ExportParams.ExportTarget}
@@ -137,31 +153,22 @@ public class ExportParams {
         this.mExportTarget = mExportTarget;
     }
 
-    /**
-     * Returns the internal target file path for the exported transactions.
-     * This file path is not accessible outside the context of the application
-     * @return String path to exported transactions
-     */
-    public String getTargetFilepath() {
-        return mTargetFilepath;
-    }
-
     @Override
     public String toString() {
-        return "Export " + mExportFormat.name() + " to " + mExportTarget.name() + " at "
-                + mTargetFilepath;
+        return "Export " + mExportFormat.name() + " to " + mExportTarget.name();
     }
 
     /**
      * Returns the export parameters formatted as CSV.
-     * <p>The CSV format is: exportformat;exportTarget;shouldExportAllTransactions;shouldDeleteAllTransactions</p>
+     * <p>The CSV format is: exportformat;exportTarget;shouldExportAllTransactions;shouldDeleteAllTransactions;isDifferentialBackup</p>
      * @return String containing CSV format of ExportParams
      */
     public String toCsv(){
         String separator = ";";
         String csv = mExportFormat.name() + separator + mExportTarget.name() + separator
                 + Boolean.toString(mExportAllTransactions) + separator
-                + Boolean.toString(mDeleteTransactionsAfterExport);
+                + Boolean.toString(mDeleteTransactionsAfterExport) + separator
+                + Boolean.toString(mDifferentialBackup);
 
         return csv;
     }
@@ -177,6 +184,9 @@ public class ExportParams {
         params.setExportTarget(ExportTarget.valueOf(tokens[1]));
         params.setExportAllTransactions(Boolean.parseBoolean(tokens[2]));
         params.setDeleteTransactionsAfterExport(Boolean.parseBoolean(tokens[3]));
+        //scheduled exports saved before differential backups have no such flag
+        if (tokens.length > 4)
+            params.setDifferentialBackup(Boolean.parseBoolean(tokens[4]));
 
         return params;
     }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.export;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destination of the files of an export, which {@link Exporter#generateExport(ExportSink)} writes to
+ * while the export is generated, instead of writing a temporary file and copying it afterwards.
+ * <p>An export usually writes one file, but QIF exports write one file per currency.
+ * A file is complete once its stream is closed</p>
+ */
+public interface ExportSink {
+    /**
+     * Opens a stream for writing an exported file to the destination
+     * @param filename Name of the file, without folder
+     * @param mimeType MIME type of the file
+     * @return Stream to which the file is written
+     * @throws IOException if the file cannot be created at the destination
+     */
+    OutputStream openFile(@NonNull String filename, @NonNull String mimeType) throws IOException;
+
+    /**
+     * Discards the files of a failed export.
+     * <p>The streams opened by the sink are closed after this call, and must then not publish their files.
+     * Files which were already published are removed where the destination allows it</p>
+     */
+    void abort();
+}
@@ -33,15 +33,17 @@ import org.gnucash.android.db.PricesDbAdapter;
 import org.gnucash.android.db.ScheduledActionDbAdapter;
 import org.gnucash.android.db.SplitsDbAdapter;
 import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.util.TimestampCodec;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.sql.Timestamp;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 
 /**
  * Base class for the different exporters
@@ -76,8 +78,6 @@ public abstract class Exporter {
      */
     protected ExportParams mParameters;
 
-    private static final SimpleDateFormat EXPORT_FILENAME_DATE_FORMAT = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US);
-
     /**
      * last export time in preferences
      */
@@ -121,8 +121,7 @@ public abstract class Exporter {
      * @return String containing the file name
      */
     public static String buildExportFilename(ExportFormat format) {
-        String filename = EXPORT_FILENAME_DATE_FORMAT.format(
-                new Date(System.currentTimeMillis()))
+        String filename = TimestampCodec.formatFilenameTime(System.currentTimeMillis())
                 + "_gnucash_export" + format.getExtension();
         return filename;
     }
@@ -139,8 +138,7 @@ public abstract class Exporter {
             return timeMillis;
         }
         try {
-            Date date = EXPORT_FILENAME_DATE_FORMAT.parse(tokens[0] + "_" + tokens[1]);
-            timeMillis = date.getTime();
+            timeMillis = TimestampCodec.parseFilenameTime(tokens[0] + "_" + tokens[1]);
         } catch (ParseException e) {
             Log.e("Exporter", "Error parsing time from file name: " + e.getMessage());
             Crashlytics.logException(e);
@@ -203,6 +201,65 @@ public abstract class Exporter {
      */
     public abstract void generateExport(Writer writer) throws ExporterException;
 
+    /**
+     * Generates the export output straight into its destination.
+     * <p>The files are written to the sink while the export is generated. If the export fails,
+     * the sink is aborted so that it discards the files it can. Once the files are closed,
+     * {@link #onExportCompleted()} is called</p>
+     * @param sink Destination of the exported files
+     * @throws ExporterException if an error occurs during export
+     */
+    public void generateExport(@NonNull ExportSink sink) throws ExporterException {
+        Writer writer;
+        try {
+            writer = createWriter(sink);
+        } catch (IOException e) {
+            sink.abort();
+            throw new ExporterException(mParameters, e);
+        }
+        try {
+            generateExport(writer);
+            writer.close(); //the files are complete once closed
+        } catch (IOException e) {
+            abort(sink, writer);
+            throw new ExporterException(mParameters, e);
+        } catch (RuntimeException e) {
+            abort(sink, writer);
+            throw e;
+        }
+        onExportCompleted();
+    }
+
+    /**
+     * Called by {@link #generateExport(ExportSink)} once the files of the export are closed,
+     * and so written to their destination. Does nothing by default
+     */
+    protected void onExportCompleted() {
+        //nothing to do
+    }
+
+    /**
+     * Creates the writer to which {@link #generateExport(Writer)} writes the export,
+     * which writes a single file to the sink by default
+     * @param sink Destination of the exported files
+     * @return Writer of the export output
+     * @throws IOException if the sink cannot open the file
+     */
+    protected Writer createWriter(@NonNull ExportSink sink) throws IOException {
+        ExportFormat format = mParameters.getExportFormat();
+        OutputStream outputStream = sink.openFile(buildExportFilename(format), format.getMimeType());
+        return new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+    }
+
+    private static void abort(ExportSink sink, Writer writer) {
+        sink.abort();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Error closing the aborted export: " + e.getMessage());
+        }
+    }
+
     public static class ExporterException extends RuntimeException{
 
         public ExporterException(ExportParams params){
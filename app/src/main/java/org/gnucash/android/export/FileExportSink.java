@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.export;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Export sink which writes the exported files to a local folder, e.g. the exports folder on external storage
+ */
+public class FileExportSink implements ExportSink {
+    private static final String LOG_TAG = "FileExportSink";
+
+    private final File mFolder;
+    private final List<File> mFiles = new ArrayList<>();
+
+    /**
+     * Creates a sink writing to a folder, which is created if necessary
+     * @param folder Folder of the exported files
+     */
+    public FileExportSink(@NonNull File folder) {
+        mFolder = folder;
+    }
+
+    @Override
+    public OutputStream openFile(@NonNull String filename, @NonNull String mimeType) throws IOException {
+        if (!mFolder.isDirectory() && !mFolder.mkdirs()) {
+            throw new IOException("Cannot create the folder " + mFolder);
+        }
+        File file = new File(mFolder, filename);
+        mFiles.add(file);
+        return new FileOutputStream(file);
+    }
+
+    @Override
+    public void abort() {
+        for (File file : mFiles) {
+            if (file.exists() && !file.delete()) {
+                Log.w(LOG_TAG, "Could not delete " + file);
+            }
+        }
+        mFiles.clear();
+    }
+
+    /**
+     * Returns the files written to the folder, in the order they were opened
+     * @return Exported files
+     */
+    public List<File> getFiles() {
+        return Collections.unmodifiableList(mFiles);
+    }
+}
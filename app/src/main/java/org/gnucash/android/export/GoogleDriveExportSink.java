@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.export;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.drive.Drive;
+import com.google.android.gms.drive.DriveApi;
+import com.google.android.gms.drive.DriveContents;
+import com.google.android.gms.drive.DriveFolder;
+import com.google.android.gms.drive.DriveId;
+import com.google.android.gms.drive.MetadataChangeSet;
+
+import org.gnucash.android.R;
+import org.gnucash.android.ui.settings.SettingsActivity;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Export sink which writes the exported files to the app folder on Google Drive.
+ * <p>Each file is written to new Drive contents while the export is generated,
+ * and the Drive file is created with them when the stream is closed.
+ * This sink blocks, so it must be used from a background thread.
+ * The files which were already created cannot be removed if the export fails</p>
+ */
+public class GoogleDriveExportSink implements ExportSink {
+    private static final String LOG_TAG = "GoogleDriveExportSink";
+
+    private final GoogleApiClient mGoogleApiClient;
+    private final String mFolderId;
+    private boolean mAborted = false;
+
+    /**
+     * Creates a sink writing to the Google Drive folder chosen in the settings, and connects to Google Drive
+     * @param context Application context
+     */
+    public GoogleDriveExportSink(@NonNull Context context) {
+        mGoogleApiClient = SettingsActivity.getGoogleApiClient(context);
+        mGoogleApiClient.blockingConnect();
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        mFolderId = sharedPreferences.getString(context.getString(R.string.key_google_drive_app_folder_id), "");
+    }
+
+    @Override
+    public OutputStream openFile(@NonNull final String filename, @NonNull final String mimeType) throws IOException {
+        DriveApi.DriveContentsResult result = Drive.DriveApi.newDriveContents(mGoogleApiClient).await();
+        if (!result.getStatus().isSuccess()) {
+            throw new IOException("Error while trying to create new file contents: " + result.getStatus());
+        }
+        final DriveContents driveContents = result.getDriveContents();
+        return new FilterOutputStream(driveContents.getOutputStream()) {
+            @Override
+            public void write(@NonNull byte[] buffer, int offset, int length) throws IOException {
+                out.write(buffer, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if (mAborted) {
+                    driveContents.discard(mGoogleApiClient);
+                    return;
+                }
+                MetadataChangeSet changeSet = new MetadataChangeSet.Builder()
+                        .setTitle(filename)
+                        .setMimeType(mimeType)
+                        .build();
+                DriveFolder folder = Drive.DriveApi.getFolder(mGoogleApiClient, DriveId.decodeFromString(mFolderId));
+                DriveFolder.DriveFileResult fileResult = folder.createFile(mGoogleApiClient, changeSet, driveContents).await();
+                if (!fileResult.getStatus().isSuccess()) {
+                    throw new IOException("Error while trying to sync to Google Drive: " + fileResult.getStatus());
+                }
+                Log.i(LOG_TAG, "Created a file with content: " + fileResult.getDriveFile().getDriveId());
+            }
+        };
+    }
+
+    @Override
+    public void abort() {
+        mAborted = true;
+    }
+}
@@ -17,53 +17,66 @@
 
 package org.gnucash.android.export.ofx;
 
+import android.database.Cursor;
 import android.preference.PreferenceManager;
-import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
-import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import org.gnucash.android.export.ExportParams;
 import org.gnucash.android.export.Exporter;
 import org.gnucash.android.model.Account;
-import org.gnucash.android.model.Transaction;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.ProcessingInstruction;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.TransactionType;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
 
+import java.io.FilterWriter;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.util.Map;
 
 /**
  * Exports the data in the database in OFX format
+ * <p>The transactions of each account are read from a cursor and written with an {@link XmlSerializer},
+ * so they are never all in memory. The output is indented with two spaces, like the documents which used
+ * to be built with DOM and written with a {@link javax.xml.transform.Transformer}</p>
  * @author Ngewi Fet <ngewi.fet@gmail.com>
  * @author Yongxin Wang <fefe.wyx@gmail.com>
  */
 public class OfxExporter extends Exporter{
 
     /**
-	 * List of accounts in the expense report
-	 */
-	private List<Account> mAccountsList;
+     * XML declaration of the OFX documents with XML header
+     */
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
+    private XmlSerializer mXmlSerializer;
+
+    /**
+     * Writer of the export, for the parts which the serializer cannot write like the DOM documents were written
+     */
+    private Writer mWriter;
+
+    /**
+     * Depth of the element being written, for the indentation
+     */
+    private int mDepth;
 
     /**
-	 * Builds an XML representation of the {@link Account}s and {@link Transaction}s in the database
+     * Types of all the accounts by GUID, for the accounts to which transactions are transferred
+     */
+    private Map<String, AccountType> mAccountTypes;
+
+    /**
+	 * Builds an XML representation of the {@link Account}s and {@link org.gnucash.android.model.Transaction}s in the database
 	 */
 	public OfxExporter(ExportParams params) {
         super(params, null);
@@ -71,122 +84,305 @@ public class OfxExporter extends Exporter{
 	}
 
     /**
-	 * Converts all expenses into OFX XML format and adds them to the XML document
-	 * @param doc DOM document of the OFX expenses.
-	 * @param parent Parent node for all expenses in report
+	 * Writes the statements of all the exported accounts
 	 */
-	private void generateOfx(Document doc, Element parent){
-		Element transactionUid = doc.createElement(OfxHelper.TAG_TRANSACTION_UID);
-		//unsolicited because the data exported is not as a result of a request
-		transactionUid.appendChild(doc.createTextNode(OfxHelper.UNSOLICITED_TRANSACTION_ID));
-
-		Element statementTransactionResponse = doc.createElement(OfxHelper.TAG_STATEMENT_TRANSACTION_RESPONSE);
-		statementTransactionResponse.appendChild(transactionUid);
-		
-		Element bankmsgs = doc.createElement(OfxHelper.TAG_BANK_MESSAGES_V1);
-		bankmsgs.appendChild(statementTransactionResponse);
-		
-		parent.appendChild(bankmsgs);		
-		
-		AccountsDbAdapter accountsDbAdapter = mAccountsDbAdapter;
-		for (Account account : mAccountsList) {		
-			if (account.getTransactionCount() == 0)
-				continue; 
-
-            //do not export imbalance accounts for OFX transactions and double-entry disabled
-            if (!GnuCashApplication.isDoubleEntryEnabled() && account.getName().contains(mContext.getString(R.string.imbalance_account_name)))
-                continue;
-
-
-			//add account details (transactions) to the XML document			
-			account.toOfx(doc, statementTransactionResponse, mParameters.shouldExportAllTransactions());
-			
-			//mark as exported
-			accountsDbAdapter.markAsExported(account.getUID());
-			
-		}
-	}
+	private void generateOfx() throws IOException {
+        startElement(OfxHelper.TAG_BANK_MESSAGES_V1);
+        startElement(OfxHelper.TAG_STATEMENT_TRANSACTION_RESPONSE);
+        //unsolicited because the data exported is not as a result of a request
+        textElement(OfxHelper.TAG_TRANSACTION_UID, OfxHelper.UNSOLICITED_TRANSACTION_ID);
 
-    public String generateExport() throws ExporterException {
-        mAccountsList = mParameters.shouldExportAllTransactions() ?
-                mAccountsDbAdapter.getAllRecords() : mAccountsDbAdapter.getExportableAccounts();
+        mAccountTypes = new HashMap<>();
+        Cursor typeCursor = mAccountsDbAdapter.fetchAccounts(null, null, null);
+        try {
+            int typeUIDIndex = typeCursor.getColumnIndexOrThrow(AccountEntry.COLUMN_UID);
+            int typeIndex = typeCursor.getColumnIndexOrThrow(AccountEntry.COLUMN_TYPE);
+            while (typeCursor.moveToNext()) {
+                mAccountTypes.put(typeCursor.getString(typeUIDIndex), AccountType.valueOf(typeCursor.getString(typeIndex)));
+            }
+        } finally {
+            typeCursor.close();
+        }
 
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory
-                .newInstance();
-        DocumentBuilder docBuilder;
+        String imbalanceAccountName = mContext.getString(R.string.imbalance_account_name);
+        Timestamp lastExportedTimestamp = Timestamp.valueOf(PreferenceManager.getDefaultSharedPreferences(mContext)
+                .getString(Exporter.PREF_LAST_EXPORT_TIME, Exporter.TIMESTAMP_ZERO));
+        //the accounts are marked as exported once the cursor is closed, since marking them changes its rows
+        List<String> exportedAccountUIDs = new ArrayList<>();
+        Cursor cursor = mParameters.shouldExportAllTransactions() ?
+                mAccountsDbAdapter.fetchAllRecords() : mAccountsDbAdapter.fetchExportableAccounts();
         try {
-            docBuilder = docFactory.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            throw new ExporterException(mParameters, e);
+            int uidIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_UID);
+            int nameIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_NAME);
+            int currencyIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_CURRENCY);
+            int typeIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_TYPE);
+            while (cursor.moveToNext()) {
+                String accountUID = cursor.getString(uidIndex);
+                String accountName = cursor.getString(nameIndex);
+
+                //do not export imbalance accounts for OFX transactions and double-entry disabled
+                if (!GnuCashApplication.isDoubleEntryEnabled() && accountName.contains(imbalanceAccountName))
+                    continue;
+
+                boolean exported = exportAccount(accountUID,
+                        cursor.getString(currencyIndex),
+                        AccountType.valueOf(cursor.getString(typeIndex)),
+                        lastExportedTimestamp);
+                if (exported) {
+                    exportedAccountUIDs.add(accountUID);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        for (String accountUID : exportedAccountUIDs) {
+            mAccountsDbAdapter.markAsExported(accountUID);
         }
 
-        Document document = docBuilder.newDocument();
-        Element root = document.createElement("OFX");
+        endElement(OfxHelper.TAG_STATEMENT_TRANSACTION_RESPONSE);
+        endElement(OfxHelper.TAG_BANK_MESSAGES_V1);
+    }
 
-        ProcessingInstruction pi = document.createProcessingInstruction("OFX", OfxHelper.OFX_HEADER);
-        document.appendChild(pi);
-        document.appendChild(root);
+    /**
+     * Writes the statement of an account with its transactions.
+     * <p>Accounts without transactions are not written. Only the transactions modified since the last export
+     * are written, unless all transactions are exported</p>
+     * @return {@code true} if the statement was written, {@code false} if the account has no transactions
+     */
+    private boolean exportAccount(String accountUID, String currencyCode, AccountType accountType,
+                                  Timestamp lastExportedTimestamp) throws IOException {
+        boolean exportAllTransactions = mParameters.shouldExportAllTransactions();
+        String formattedCurrentTimeString = null;
+        Cursor cursor = mTransactionsDbAdapter.fetchSplitsWithTransactionsForAccount(accountUID);
+        try {
+            int uidIndex = cursor.getColumnIndexOrThrow("trans_uid");
+            int descriptionIndex = cursor.getColumnIndexOrThrow("trans_desc");
+            int notesIndex = cursor.getColumnIndexOrThrow("trans_notes");
+            int timeIndex = cursor.getColumnIndexOrThrow("trans_time");
+            int modifiedIndex = cursor.getColumnIndexOrThrow("trans_modified_at");
+            int transactionCurrencyIndex = cursor.getColumnIndexOrThrow("trans_currency");
+            int splitTypeIndex = cursor.getColumnIndexOrThrow("split_type");
+            int valueNumIndex = cursor.getColumnIndexOrThrow("split_value_num");
+            int valueDenomIndex = cursor.getColumnIndexOrThrow("split_value_denom");
+            int quantityNumIndex = cursor.getColumnIndexOrThrow("split_quantity_num");
+            int quantityDenomIndex = cursor.getColumnIndexOrThrow("split_quantity_denom");
+            int splitCountIndex = cursor.getColumnIndexOrThrow("trans_split_count");
+            int otherAccountIndex = cursor.getColumnIndexOrThrow("other_acct_uid");
 
-        generateOfx(document, root);
+            boolean hasNext = cursor.moveToFirst();
+            if (!hasNext)
+                return false;
 
-        boolean useXmlHeader = PreferenceManager.getDefaultSharedPreferences(mContext)
-                .getBoolean(mContext.getString(R.string.key_xml_ofx_header), false);
+            formattedCurrentTimeString = OfxHelper.getFormattedCurrentTime();
+            startElement(OfxHelper.TAG_STATEMENT_TRANSACTIONS);
+            textElement(OfxHelper.TAG_CURRENCY_DEF, currencyCode);
+            startElement(OfxHelper.TAG_BANK_ACCOUNT_FROM);
+            textElement(OfxHelper.TAG_BANK_ID, OfxHelper.APP_ID);
+            textElement(OfxHelper.TAG_ACCOUNT_ID, accountUID);
+            textElement(OfxHelper.TAG_ACCOUNT_TYPE, Account.convertToOfxAccountType(accountType).toString());
+            endElement(OfxHelper.TAG_BANK_ACCOUNT_FROM);
+            startElement(OfxHelper.TAG_BANK_TRANSACTION_LIST);
+            textElement(OfxHelper.TAG_DATE_START, formattedCurrentTimeString);
+            textElement(OfxHelper.TAG_DATE_END, formattedCurrentTimeString);
 
-        String timeStamp = new Timestamp(System.currentTimeMillis()).toString();
+            boolean isDebitAccount = accountType.hasDebitNormalBalance();
+            while (hasNext) {
+                String transactionUID = cursor.getString(uidIndex);
+                String description = cursor.getString(descriptionIndex);
+                String notes = cursor.getString(notesIndex);
+                long time = cursor.getLong(timeIndex);
+                Timestamp modified = Timestamp.valueOf(cursor.getString(modifiedIndex));
+                boolean isAccountCurrency = currencyCode.equals(cursor.getString(transactionCurrencyIndex));
+                int splitCount = cursor.getInt(splitCountIndex);
+                String otherAccountUID = cursor.getString(otherAccountIndex);
+
+                //balance of the splits of the transaction in the account, in the currency of the account
+                Money balance = Money.createZeroInstance(currencyCode);
+                do {
+                    Money amount = isAccountCurrency
+                            ? new Money(cursor.getLong(valueNumIndex), cursor.getLong(valueDenomIndex), currencyCode)
+                            : new Money(cursor.getLong(quantityNumIndex), cursor.getLong(quantityDenomIndex), currencyCode);
+                    amount = amount.absolute();
+                    boolean isDebitSplit = TransactionType.valueOf(cursor.getString(splitTypeIndex)) == TransactionType.DEBIT;
+                    balance = isDebitSplit == isDebitAccount ? balance.add(amount) : balance.subtract(amount);
+                    hasNext = cursor.moveToNext();
+                } while (hasNext && transactionUID.equals(cursor.getString(uidIndex)));
+
+                if (!exportAllTransactions && modified.before(lastExportedTimestamp))
+                    continue;
+
+                //if there is exactly one other split, then treat it like a transfer
+                String transferAccountUID = null;
+                if (splitCount == 2)
+                    transferAccountUID = otherAccountUID == null ? accountUID : otherAccountUID;
+                exportTransaction(transactionUID, description, notes, time, balance, transferAccountUID);
+            }
+            endElement(OfxHelper.TAG_BANK_TRANSACTION_LIST);
+        } finally {
+            cursor.close();
+        }
+
+        //the ledger balance is always zero, like in the DOM documents of Account.toOfx()
+        startElement(OfxHelper.TAG_LEDGER_BALANCE);
+        textElement(OfxHelper.TAG_BALANCE_AMOUNT, Money.createZeroInstance(currencyCode).toPlainString());
+        textElement(OfxHelper.TAG_DATE_AS_OF, formattedCurrentTimeString);
+        endElement(OfxHelper.TAG_LEDGER_BALANCE);
+        endElement(OfxHelper.TAG_STATEMENT_TRANSACTIONS);
+        return true;
+    }
+
+    /**
+     * Writes an OFX statement transaction, see {@link org.gnucash.android.model.Transaction#toOFX}
+     * @param balance Balance of the transaction in the exported account
+     * @param transferAccountUID GUID of the account of the other split if the transaction has two splits, or null
+     */
+    private void exportTransaction(String transactionUID, String description, String notes, long time,
+                                   Money balance, String transferAccountUID) throws IOException {
+        TransactionType transactionType = balance.isNegative() ? TransactionType.DEBIT : TransactionType.CREDIT;
+        String formattedTime = OfxHelper.getOfxFormattedTime(time);
 
-        StringWriter stringWriter = new StringWriter();
-        //if we want SGML OFX headers, write first to string and then prepend header
-        if (useXmlHeader){
-            write(document, stringWriter, false);
-            PreferenceManager.getDefaultSharedPreferences(mContext).edit().putString(Exporter.PREF_LAST_EXPORT_TIME, timeStamp).apply();
-            return stringWriter.toString();
-        } else {
-            Node ofxNode = document.getElementsByTagName("OFX").item(0);
-
-            write(ofxNode, stringWriter, true);
-
-            StringBuffer stringBuffer = new StringBuffer(OfxHelper.OFX_SGML_HEADER);
-            stringBuffer.append('\n');
-            stringBuffer.append(stringWriter.toString());
-            PreferenceManager.getDefaultSharedPreferences(mContext).edit().putString(Exporter.PREF_LAST_EXPORT_TIME, timeStamp).apply();
-            return stringBuffer.toString();
+        startElement(OfxHelper.TAG_STATEMENT_TRANSACTION);
+        textElement(OfxHelper.TAG_TRANSACTION_TYPE, transactionType.toString());
+        textElement(OfxHelper.TAG_DATE_POSTED, formattedTime);
+        textElement(OfxHelper.TAG_DATE_USER, formattedTime);
+        textElement(OfxHelper.TAG_TRANSACTION_AMOUNT, balance.toPlainString());
+        textElement(OfxHelper.TAG_TRANSACTION_FITID, transactionUID);
+        textElement(OfxHelper.TAG_NAME, description);
+        if (notes != null && notes.length() > 0) {
+            textElement(OfxHelper.TAG_MEMO, notes);
+        }
+        if (transferAccountUID != null) {
+            startElement(OfxHelper.TAG_BANK_ACCOUNT_TO);
+            textElement(OfxHelper.TAG_BANK_ID, OfxHelper.APP_ID);
+            textElement(OfxHelper.TAG_ACCOUNT_ID, transferAccountUID);
+            textElement(OfxHelper.TAG_ACCOUNT_TYPE,
+                    Account.convertToOfxAccountType(mAccountTypes.get(transferAccountUID)).toString());
+            endElement(OfxHelper.TAG_BANK_ACCOUNT_TO);
         }
+        endElement(OfxHelper.TAG_STATEMENT_TRANSACTION);
+    }
+
+    /**
+     * Starts an element with child elements, on a new line
+     */
+    private void startElement(String tag) throws IOException {
+        indent();
+        mXmlSerializer.startTag(null, tag);
+        mDepth++;
+    }
+
+    /**
+     * Ends an element started with {@link #startElement(String)}, on a new line
+     */
+    private void endElement(String tag) throws IOException {
+        mDepth--;
+        indent();
+        mXmlSerializer.endTag(null, tag);
+    }
+
+    /**
+     * Writes an element with text on a new line.
+     * <p>Empty elements are written as {@code <TAG/>}, without the space added by the serializer,
+     * and carriage returns are written as character references</p>
+     */
+    private void textElement(String tag, String text) throws IOException {
+        indent();
+        if (text == null || text.isEmpty()) {
+            mXmlSerializer.flush();
+            mWriter.write("<" + tag + "/>");
+            return;
+        }
+        mXmlSerializer.startTag(null, tag);
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\r', start)) >= 0) {
+            mXmlSerializer.text(text.substring(start, end));
+            mXmlSerializer.entityRef("#13");
+            start = end + 1;
+        }
+        mXmlSerializer.text(text.substring(start));
+        mXmlSerializer.endTag(null, tag);
+    }
+
+    private void indent() throws IOException {
+        if (mDepth == 0)
+            return;
+        StringBuilder indentation = new StringBuilder(1 + 2 * mDepth).append('\n');
+        for (int i = 0; i < mDepth; i++) {
+            indentation.append("  ");
+        }
+        mXmlSerializer.ignorableWhitespace(indentation.toString());
     }
 
     @Override
     public void generateExport(Writer writer) throws ExporterException {
+        boolean useXmlHeader = PreferenceManager.getDefaultSharedPreferences(mContext)
+                .getBoolean(mContext.getString(R.string.key_xml_ofx_header), false);
         try {
-            writer.write(generateExport());
-        }
-        catch (IOException e) {
+            mWriter = writer;
+            mDepth = 0;
+            mXmlSerializer = XmlPullParserFactory.newInstance().newSerializer();
+            //the serializer only writes the characters outside of ASCII as they are after starting a document
+            //with a Unicode encoding, but its XML declaration is not the one of the OFX documents, so it is dropped
+            PrologFilterWriter prologFilter = new PrologFilterWriter(writer);
+            mXmlSerializer.setOutput(prologFilter);
+            mXmlSerializer.startDocument("UTF-8", null);
+            mXmlSerializer.flush();
+            prologFilter.startOutput();
+
+            if (useXmlHeader) {
+                writer.write(XML_DECLARATION);
+                mXmlSerializer.processingInstruction("OFX " + OfxHelper.OFX_HEADER);
+            } else {
+                //SGML header for compatibility with desktop GnuCash
+                writer.write(OfxHelper.OFX_SGML_HEADER);
+                writer.write('\n');
+            }
+            mXmlSerializer.startTag(null, "OFX");
+            mDepth++;
+            generateOfx();
+            endElement("OFX");
+            mXmlSerializer.ignorableWhitespace("\n");
+            mXmlSerializer.endDocument();
+        } catch (Exception e) {
+            Crashlytics.logException(e);
             throw new ExporterException(mParameters, e);
         }
+
+        String timeStamp = new Timestamp(System.currentTimeMillis()).toString();
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit().putString(Exporter.PREF_LAST_EXPORT_TIME, timeStamp).apply();
     }
 
     /**
-     * Writes out the document held in <code>node</code> to <code>outputWriter</code>
-     * @param node {@link Node} containing the OFX document structure. Usually the parent node
-     * @param outputWriter {@link java.io.Writer} to use in writing the file to stream
-     * @param omitXmlDeclaration Flag which causes the XML declaration to be omitted
+     * Writer which drops everything written before {@link #startOutput()} is called
      */
-    private void write(Node node, Writer outputWriter, boolean omitXmlDeclaration){
-        try {
-            TransformerFactory transformerFactory = TransformerFactory
-                    .newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            DOMSource source = new DOMSource(node);
-            StreamResult result = new StreamResult(outputWriter);
-
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            if (omitXmlDeclaration) {
-                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            }
+    private static class PrologFilterWriter extends FilterWriter {
+        private boolean mOutputStarted = false;
+
+        PrologFilterWriter(Writer out) {
+            super(out);
+        }
+
+        void startOutput() {
+            mOutputStarted = true;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (mOutputStarted)
+                super.write(c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int count) throws IOException {
+            if (mOutputStarted)
+                super.write(buffer, offset, count);
+        }
 
-            transformer.transform(source, result);
-        } catch (TransformerException tfException) {
-            Log.e(LOG_TAG, tfException.getMessage());
-            Crashlytics.logException(tfException);
+        @Override
+        public void write(String str, int offset, int count) throws IOException {
+            if (mOutputStarted)
+                super.write(str, offset, count);
         }
     }
 }
@@ -15,9 +15,8 @@
  */
 package org.gnucash.android.export.ofx;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import org.gnucash.android.util.TimestampCodec;
+
 import java.util.Locale;
 import java.util.TimeZone;
 
@@ -27,11 +26,6 @@ import java.util.TimeZone;
  * @author Ngewi Fet <ngewif@gmail.com>
  */
 public class OfxHelper {
-    /**
-     * A date formatter used when creating file names for the exported data
-     */
-    public final static SimpleDateFormat OFX_DATE_FORMATTER = new SimpleDateFormat("yyyyMMddHHmmss", Locale.US);
-
     /**
      * The Transaction ID is usually the client ID sent in a request.
      * Since the data exported is not as a result of a request, we use 0
@@ -83,7 +77,7 @@ public class OfxHelper {
     public static String APP_ID = "org.gnucash.android";
 
     /**
-     * Returns the current time formatted using the pattern in {@link #OFX_DATE_FORMATTER}
+     * Returns the current time formatted using {@link #getOfxFormattedTime(long)}
      * @return Current time as a formatted string
      * @see #getOfxFormattedTime(long)
      */
@@ -92,17 +86,25 @@ public class OfxHelper {
     }
 
     /**
-     * Returns a formatted string representation of time in <code>milliseconds</code>
+     * Suffix of the formatted times with the offset and name of the local time zone, e.g. [+1:CET].
+     * It is built once, since the time zone of the times is the one of {@link TimestampCodec}
+     */
+    private static final String TIME_ZONE_SUFFIX = buildTimeZoneSuffix();
+
+    /**
+     * Returns a formatted string representation of time in <code>milliseconds</code>, as yyyyMMddHHmmss[offset:zone]
      * @param milliseconds Long value representing the time to be formatted
      * @return Formatted string representation of time in <code>milliseconds</code>
      */
     public static String getOfxFormattedTime(long milliseconds){
-        Date date = new Date(milliseconds);
-        String dateString = OFX_DATE_FORMATTER.format(date);
-        TimeZone tz = Calendar.getInstance().getTimeZone();
+        return TimestampCodec.formatOfxTime(milliseconds) + TIME_ZONE_SUFFIX;
+    }
+
+    private static String buildTimeZoneSuffix(){
+        TimeZone tz = TimeZone.getDefault();
         int offset = tz.getRawOffset();
         int hours   = (int) (( offset / (1000*60*60)) % 24);
         String sign = offset > 0 ?  "+" : "";
-        return dateString + "[" + sign + hours + ":" + tz.getDisplayName(false, TimeZone.SHORT, Locale.getDefault()) + "]";
+        return "[" + sign + hours + ":" + tz.getDisplayName(false, TimeZone.SHORT, Locale.getDefault()) + "]";
     }
 }
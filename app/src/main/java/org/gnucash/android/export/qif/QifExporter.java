@@ -19,26 +19,25 @@ package org.gnucash.android.export.qif;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.preference.PreferenceManager;
+import android.support.annotation.NonNull;
 
 import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.CursorRow;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.ExportFormat;
 import org.gnucash.android.export.ExportParams;
+import org.gnucash.android.export.ExportSink;
 import org.gnucash.android.export.Exporter;
 import org.gnucash.android.model.Transaction;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.Currency;
-import java.util.List;
 
 import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
@@ -98,13 +97,14 @@ public class QifExporter extends Exporter{
                    "acct1_currency ASC, trans_time ASC, trans_uid ASC"
                     );
             try {
+                QifRow row = new QifRow(cursor);
                 String currentCurrencyCode = "";
                 String currentAccountUID = "";
                 String currentTransactionUID = "";
-                while (cursor.moveToNext()) {
-                    String currencyCode = cursor.getString(cursor.getColumnIndexOrThrow("acct1_currency"));
-                    String accountUID = cursor.getString(cursor.getColumnIndexOrThrow("acct1_uid"));
-                    String transactionUID = cursor.getString(cursor.getColumnIndexOrThrow("trans_uid"));
+                while (row.moveToNext()) {
+                    String currencyCode = row.getAccountCurrency();
+                    String accountUID = row.getAccountUID();
+                    String transactionUID = row.getTransactionUID();
                     if (!transactionUID.equals(currentTransactionUID)) {
                         if (!currentTransactionUID.equals("")) {
                             writer.append(QifHelper.ENTRY_TERMINATOR).append(newLine);
@@ -125,27 +125,27 @@ public class QifExporter extends Exporter{
                             currentAccountUID = accountUID;
                             writer.append(QifHelper.ACCOUNT_HEADER).append(newLine);
                             writer.append(QifHelper.ACCOUNT_NAME_PREFIX)
-                                    .append(cursor.getString(cursor.getColumnIndexOrThrow("acct1_full_name")))
+                                    .append(row.getAccountFullName())
                                     .append(newLine);
                             writer.append(QifHelper.ENTRY_TERMINATOR).append(newLine);
-                            writer.append(QifHelper.getQifHeader(cursor.getString(cursor.getColumnIndexOrThrow("acct1_type"))))
+                            writer.append(QifHelper.getQifHeader(row.getAccountType()))
                                     .append(newLine);
                         }
                         // start new transaction
                         currentTransactionUID = transactionUID;
                         writer.append(QifHelper.DATE_PREFIX)
-                                .append(QifHelper.formatDate(cursor.getLong(cursor.getColumnIndexOrThrow("trans_time"))))
+                                .append(QifHelper.formatDate(row.getTransactionTime()))
                                 .append(newLine);
                         writer.append(QifHelper.MEMO_PREFIX)
-                                .append(cursor.getString(cursor.getColumnIndexOrThrow("trans_desc")))
+                                .append(row.getTransactionDescription())
                                 .append(newLine);
                         // deal with imbalance first
-                        double imbalance = cursor.getDouble(cursor.getColumnIndexOrThrow("trans_acct_balance"));
+                        double imbalance = row.getTransactionAccountBalance();
                         BigDecimal decimalImbalance = BigDecimal.valueOf(imbalance).setScale(2, BigDecimal.ROUND_HALF_UP);
                         if (decimalImbalance.compareTo(BigDecimal.ZERO) != 0) {
                             writer.append(QifHelper.SPLIT_CATEGORY_PREFIX)
                                     .append(AccountsDbAdapter.getImbalanceAccountName(
-                                            Currency.getInstance(cursor.getString(cursor.getColumnIndexOrThrow("acct1_currency")))
+                                            Currency.getInstance(currencyCode)
                                     ))
                                     .append(newLine);
                             writer.append(QifHelper.SPLIT_AMOUNT_PREFIX)
@@ -153,7 +153,7 @@ public class QifExporter extends Exporter{
                                     .append(newLine);
                         }
                     }
-                    if (cursor.getInt(cursor.getColumnIndexOrThrow("trans_split_count")) == 1) {
+                    if (row.getTransactionSplitCount() == 1) {
                         // No other splits should be recorded if this is the only split.
                         continue;
                     }
@@ -161,17 +161,17 @@ public class QifExporter extends Exporter{
                     // amount associated with the header account will not be exported.
                     // It can be auto balanced when importing to GnuCash
                     writer.append(QifHelper.SPLIT_CATEGORY_PREFIX)
-                            .append(cursor.getString(cursor.getColumnIndexOrThrow("acct2_full_name")))
+                            .append(row.getSplitAccountFullName())
                             .append(newLine);
-                    String splitMemo = cursor.getString(cursor.getColumnIndexOrThrow("split_memo"));
+                    String splitMemo = row.getSplitMemo();
                     if (splitMemo != null && splitMemo.length() > 0) {
                         writer.append(QifHelper.SPLIT_MEMO_PREFIX)
                                 .append(splitMemo)
                                 .append(newLine);
                     }
-                    String splitType = cursor.getString(cursor.getColumnIndexOrThrow("split_type"));
-                    Double quantity_num = cursor.getDouble(cursor.getColumnIndexOrThrow("split_quantity_num"));
-                    int quantity_denom = cursor.getInt(cursor.getColumnIndexOrThrow("split_quantity_denom"));
+                    String splitType = row.getSplitType();
+                    Double quantity_num = row.getSplitQuantityNum();
+                    int quantity_denom = row.getSplitQuantityDenom();
                     int precision = 0;
                     switch (quantity_denom) {
                         case 0: // will sometimes happen for zero values
@@ -223,42 +223,173 @@ public class QifExporter extends Exporter{
     }
 
     /**
-     * Splits a Qif file into several ones for each currency.
-     *
-     * @param file File object of the Qif file to split.
-     * @return a list of paths of the newly created Qif files.
-     * @throws IOException if something went wrong while splitting the file.
+     * Writes the export to one file per currency, since a QIF file cannot hold several currencies
+     * @param sink Destination of the exported files
+     * @return Writer of the export output
      */
-    public static List<String> splitQIF(File file) throws IOException {
-        // split only at the last dot
-        String[] pathParts = file.getPath().split("(?=\\.[^\\.]+$)");
-        ArrayList<String> splitFiles = new ArrayList<>();
-        String line;
-        BufferedReader in = new BufferedReader(new FileReader(file));
-        BufferedWriter out = null;
-        try {
-            while ((line = in.readLine()) != null) {
-                if (line.startsWith(QifHelper.INTERNAL_CURRENCY_PREFIX)) {
-                    String currencyCode = line.substring(1);
-                    if (out != null) {
-                        out.close();
-                    }
-                    String newFileName = pathParts[0] + "_" + currencyCode + pathParts[1];
-                    splitFiles.add(newFileName);
-                    out = new BufferedWriter(new FileWriter(newFileName));
+    @Override
+    protected Writer createWriter(@NonNull ExportSink sink) {
+        String filename = buildExportFilename(ExportFormat.QIF);
+        String baseName = filename.substring(0, filename.length() - ExportFormat.QIF.getExtension().length());
+        return new CurrencySplittingWriter(sink, baseName);
+    }
+
+    /**
+     * Writer which splits the QIF output into one file per currency while it is written.
+     * <p>The currency lines, starting with {@link QifHelper#INTERNAL_CURRENCY_PREFIX}, start a new file
+     * and are not written</p>
+     */
+    private static class CurrencySplittingWriter extends Writer {
+        private final ExportSink mSink;
+        private final String mBaseName;
+        private final StringBuilder mLine = new StringBuilder();
+        private Writer mOut;
+
+        CurrencySplittingWriter(ExportSink sink, String baseName) {
+            mSink = sink;
+            mBaseName = baseName;
+        }
+
+        @Override
+        public void write(@NonNull char[] buffer, int offset, int count) throws IOException {
+            for (int i = offset; i < offset + count; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    writeLine();
                 } else {
-                    if (out == null) {
-                        throw new IllegalArgumentException(file.getPath() + " format is not correct");
-                    }
-                    out.append(line).append('\n');
+                    mLine.append(c);
+                }
+            }
+        }
+
+        private void writeLine() throws IOException {
+            if (mLine.length() > 0 && mLine.charAt(0) == QifHelper.INTERNAL_CURRENCY_PREFIX.charAt(0)) {
+                String currencyCode = mLine.substring(1);
+                if (mOut != null) {
+                    mOut.close();
+                }
+                String filename = mBaseName + "_" + currencyCode + ExportFormat.QIF.getExtension();
+                mOut = new BufferedWriter(new OutputStreamWriter(
+                        mSink.openFile(filename, ExportFormat.QIF.getMimeType()), "UTF-8"));
+            } else {
+                if (mOut == null) {
+                    throw new IOException("QIF output does not start with a currency");
                 }
+                mOut.append(mLine).append('\n');
+            }
+            mLine.setLength(0);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mOut != null) {
+                mOut.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mLine.length() > 0) {
+                writeLine();
             }
-        } finally {
-            in.close();
-            if (out != null) {
-                out.close();
+            if (mOut != null) {
+                mOut.close();
+                mOut = null;
             }
         }
-        return splitFiles;
+    }
+
+    /**
+     * Reads the rows of the QIF export query, one per split with the account of its transaction
+     */
+    private static class QifRow extends CursorRow {
+        private final int mTransactionUIDIndex;
+        private final int mTransactionTimeIndex;
+        private final int mTransactionDescriptionIndex;
+        private final int mTransactionAccountBalanceIndex;
+        private final int mTransactionSplitCountIndex;
+        private final int mSplitQuantityNumIndex;
+        private final int mSplitQuantityDenomIndex;
+        private final int mSplitTypeIndex;
+        private final int mSplitMemoIndex;
+        private final int mSplitAccountFullNameIndex;
+        private final int mAccountUIDIndex;
+        private final int mAccountFullNameIndex;
+        private final int mAccountCurrencyIndex;
+        private final int mAccountTypeIndex;
+
+        QifRow(Cursor cursor) {
+            super(cursor);
+            mTransactionUIDIndex            = columnIndex("trans_uid");
+            mTransactionTimeIndex           = columnIndex("trans_time");
+            mTransactionDescriptionIndex    = columnIndex("trans_desc");
+            mTransactionAccountBalanceIndex = columnIndex("trans_acct_balance");
+            mTransactionSplitCountIndex     = columnIndex("trans_split_count");
+            mSplitQuantityNumIndex          = columnIndex("split_quantity_num");
+            mSplitQuantityDenomIndex        = columnIndex("split_quantity_denom");
+            mSplitTypeIndex                 = columnIndex("split_type");
+            mSplitMemoIndex                 = columnIndex("split_memo");
+            mSplitAccountFullNameIndex      = columnIndex("acct2_full_name");
+            mAccountUIDIndex                = columnIndex("acct1_uid");
+            mAccountFullNameIndex           = columnIndex("acct1_full_name");
+            mAccountCurrencyIndex           = columnIndex("acct1_currency");
+            mAccountTypeIndex               = columnIndex("acct1_type");
+        }
+
+        String getTransactionUID() {
+            return getString(mTransactionUIDIndex);
+        }
+
+        long getTransactionTime() {
+            return getLong(mTransactionTimeIndex);
+        }
+
+        String getTransactionDescription() {
+            return getString(mTransactionDescriptionIndex);
+        }
+
+        double getTransactionAccountBalance() {
+            return getDouble(mTransactionAccountBalanceIndex);
+        }
+
+        int getTransactionSplitCount() {
+            return getInt(mTransactionSplitCountIndex);
+        }
+
+        double getSplitQuantityNum() {
+            return getDouble(mSplitQuantityNumIndex);
+        }
+
+        int getSplitQuantityDenom() {
+            return getInt(mSplitQuantityDenomIndex);
+        }
+
+        String getSplitType() {
+            return getString(mSplitTypeIndex);
+        }
+
+        String getSplitMemo() {
+            return getString(mSplitMemoIndex);
+        }
+
+        String getSplitAccountFullName() {
+            return getString(mSplitAccountFullNameIndex);
+        }
+
+        String getAccountUID() {
+            return getString(mAccountUIDIndex);
+        }
+
+        String getAccountFullName() {
+            return getString(mAccountFullNameIndex);
+        }
+
+        String getAccountCurrency() {
+            return getString(mAccountCurrencyIndex);
+        }
+
+        String getAccountType() {
+            return getString(mAccountTypeIndex);
+        }
     }
 }
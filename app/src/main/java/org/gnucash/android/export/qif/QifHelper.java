@@ -18,9 +18,9 @@
 package org.gnucash.android.export.qif;
 
 import org.gnucash.android.model.AccountType;
+import org.gnucash.android.util.TimestampCodec;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.text.ParseException;
 
 /**
  * @author Ngewi Fet <ngewif@gmail.com>
@@ -43,17 +43,70 @@ public class QifHelper {
     public static final String INTERNAL_CURRENCY_PREFIX = "*";
 
     public static final String ENTRY_TERMINATOR = "^";
-    private static final SimpleDateFormat QIF_DATE_FORMATTER = new SimpleDateFormat("yyyy/M/d");
 
     /**
-     * Formats the date for QIF in the form d MMMM YYYY.
-     * For example 25 January 2013
+     * Formats the date for QIF in the form yyyy/M/d.
+     * For example 2013/1/25
      * @param timeMillis Time in milliseconds since epoch
      * @return Formatted date from the time
      */
     public static final String formatDate(long timeMillis){
-        Date date = new Date(timeMillis);
-        return QIF_DATE_FORMATTER.format(date);
+        return TimestampCodec.formatQifDate(timeMillis);
+    }
+
+    /**
+     * Parses a QIF date, as written by this app or by other programs.
+     * <p>The dates are read as {@code yyyy/M/d} if they start with the year, and as {@code M/d/y} otherwise,
+     * unless the month is above 12. Two digit years after an apostrophe, like {@code 1/25'13}, are in the 2000s,
+     * the others are in the 2000s below 50 and in the 1900s from 50. Spaces are ignored</p>
+     * @param date QIF date
+     * @return Milliseconds since epoch of the start of the day in the local time zone
+     * @throws ParseException if the date does not have three numbers, or if they are not a valid date
+     */
+    public static long parseDate(String date) throws ParseException {
+        int[] fields = new int[3];
+        int count = 0;
+        boolean inNumber = false;
+        boolean apostrophe = false;
+        for (int i = 0; i < date.length(); i++) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inNumber) {
+                    if (count == fields.length)
+                        throw new ParseException("Invalid QIF date: " + date, i);
+                    inNumber = true;
+                    count++;
+                }
+                fields[count - 1] = fields[count - 1] * 10 + (c - '0');
+                if (fields[count - 1] > 9999)
+                    throw new ParseException("Invalid QIF date: " + date, i);
+            } else if (c != ' ') {
+                inNumber = false;
+                apostrophe = c == '\'';
+            }
+        }
+        if (count != fields.length)
+            throw new ParseException("Invalid QIF date: " + date, 0);
+
+        int year, month, day;
+        if (fields[0] > 31) {
+            year = fields[0];
+            month = fields[1];
+            day = fields[2];
+        } else {
+            month = fields[0];
+            day = fields[1];
+            year = fields[2];
+            if (month > 12 && day <= 12) { //day first
+                month = fields[1];
+                day = fields[0];
+            }
+        }
+        if (year < 100)
+            year += apostrophe || year < 50 ? 2000 : 1900;
+        if (month < 1 || month > 12 || day < 1 || day > 31)
+            throw new ParseException("Invalid QIF date: " + date, 0);
+        return TimestampCodec.getStartOfDay(year, month, day);
     }
 
     /**
@@ -23,6 +23,8 @@ import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
 
+import org.gnucash.android.db.BackupChain;
+import org.gnucash.android.db.CursorRow;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.TransactionsDbAdapter;
 import org.gnucash.android.export.ExportFormat;
@@ -35,6 +37,8 @@ import org.gnucash.android.model.Money;
 import org.gnucash.android.model.PeriodType;
 import org.gnucash.android.model.ScheduledAction;
 import org.gnucash.android.model.TransactionType;
+import org.gnucash.android.util.ParallelGzipOutputStream;
+import org.gnucash.android.util.TimestampCodec;
 import org.xmlpull.v1.XmlPullParserFactory;
 import org.xmlpull.v1.XmlSerializer;
 
@@ -46,16 +50,19 @@ import java.io.Writer;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Currency;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
-import java.util.zip.GZIPOutputStream;
 
+import static org.gnucash.android.db.DatabaseSchema.AccountAncestryEntry;
+import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import static org.gnucash.android.db.DatabaseSchema.TombstoneEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
 
 /**
@@ -72,6 +79,55 @@ public class GncXmlExporter extends Exporter{
     private Account mRootTemplateAccount;
     private Map<String, Account> mTransactionToTemplateAccountMap = new TreeMap<>();
 
+    /**
+     * Selection of the transactions changed since a backup, themselves or through their splits
+     * or scheduled actions. The time of the backup is bound three times
+     */
+    private static final String CHANGED_TRANSACTIONS_SELECTION = "( "
+            + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_MODIFIED_AT + " >= ? OR "
+            + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " IN ( SELECT "
+            + "changed_splits." + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME + " changed_splits"
+            + " WHERE changed_splits." + SplitEntry.COLUMN_MODIFIED_AT + " >= ? ) OR "
+            + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " IN ( SELECT "
+            + "changed_actions." + ScheduledActionEntry.COLUMN_ACTION_UID + " FROM " + ScheduledActionEntry.TABLE_NAME + " changed_actions"
+            + " WHERE changed_actions." + ScheduledActionEntry.COLUMN_MODIFIED_AT + " >= ? ) )";
+
+    /**
+     * Selection of the accounts changed since a backup or used by the transactions changed since then,
+     * together with their ancestors, so that the importer can rebuild their full names.
+     * The time of the backup is bound four times
+     */
+    private static final String CHANGED_ACCOUNTS_SELECTION = AccountEntry.COLUMN_UID + " IN ( SELECT "
+            + AccountAncestryEntry.COLUMN_ANCESTOR_UID + " FROM " + AccountAncestryEntry.TABLE_NAME
+            + " WHERE " + AccountAncestryEntry.COLUMN_DESCENDANT_UID + " IN ( SELECT "
+            + "changed_accounts." + AccountEntry.COLUMN_UID + " FROM " + AccountEntry.TABLE_NAME + " changed_accounts"
+            + " WHERE changed_accounts." + AccountEntry.COLUMN_MODIFIED_AT + " >= ? UNION SELECT "
+            + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + " FROM " + TransactionEntry.TABLE_NAME + " , "
+            + SplitEntry.TABLE_NAME + " ON " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " = "
+            + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+            + " WHERE " + CHANGED_TRANSACTIONS_SELECTION + " ) )";
+
+    /**
+     * Time of the previous backup of the chain when exporting a differential backup,
+     * or null when exporting the whole book
+     */
+    private String mSince;
+
+    /**
+     * Chain of the differential backup being exported, recorded in {@link #onExportCompleted()}
+     */
+    private BackupChain mBackupChain;
+
+    /**
+     * Database time when the differential backup being exported started
+     */
+    private String mBackupTime;
+
+    /**
+     * Buffer for formatting dates without allocating a string for each of them
+     */
+    private final char[] mDateBuffer = new char[2 * TimestampCodec.TIMESTAMP_LENGTH];
+
     /**
      * Construct a new exporter with export parameters
      * @param params Parameters for the export
@@ -117,23 +173,30 @@ public class GncXmlExporter extends Exporter{
     private void exportAccounts(XmlSerializer xmlSerializer) throws IOException {
         // gnucash desktop requires that parent account appears before its descendants.
         // sort by full-name to fulfill the request
-        Cursor cursor = mAccountsDbAdapter.fetchAccounts(null, null, DatabaseSchema.AccountEntry.COLUMN_FULL_NAME + " ASC");
-        while (cursor.moveToNext()) {
+        Cursor cursor;
+        if (mSince == null) {
+            cursor = mAccountsDbAdapter.fetchAccounts(null, null, DatabaseSchema.AccountEntry.COLUMN_FULL_NAME + " ASC");
+        } else {
+            cursor = mAccountsDbAdapter.fetchAccounts(CHANGED_ACCOUNTS_SELECTION,
+                    new String[]{mSince, mSince, mSince, mSince}, DatabaseSchema.AccountEntry.COLUMN_FULL_NAME + " ASC");
+        }
+        AccountRow row = new AccountRow(cursor);
+        while (row.moveToNext()) {
             // write account
             xmlSerializer.startTag(null, GncXmlHelper.TAG_ACCOUNT);
             xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.BOOK_VERSION);
             // account name
             xmlSerializer.startTag(null, GncXmlHelper.TAG_NAME);
-            xmlSerializer.text(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_NAME)));
+            xmlSerializer.text(row.getName());
             xmlSerializer.endTag(null, GncXmlHelper.TAG_NAME);
             // account guid
             xmlSerializer.startTag(null, GncXmlHelper.TAG_ACCT_ID);
             xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, GncXmlHelper.ATTR_VALUE_GUID);
-            xmlSerializer.text(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID)));
+            xmlSerializer.text(row.getUID());
             xmlSerializer.endTag(null, GncXmlHelper.TAG_ACCT_ID);
             // account type
             xmlSerializer.startTag(null, GncXmlHelper.TAG_TYPE);
-            String acct_type = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_TYPE));
+            String acct_type = row.getType();
             xmlSerializer.text(acct_type);
             xmlSerializer.endTag(null, GncXmlHelper.TAG_TYPE);
             // commodity
@@ -142,7 +205,7 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.text("ISO4217");
             xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_SPACE);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_COMMODITY_ID);
-            String acctCurrencyCode = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_CURRENCY));
+            String acctCurrencyCode = row.getCurrency();
             xmlSerializer.text(acctCurrencyCode);
             xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_ID);
             xmlSerializer.endTag(null, GncXmlHelper.TAG_ACCOUNT_COMMODITY);
@@ -151,7 +214,7 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.text(Integer.toString((int) Math.pow(10, Currency.getInstance(acctCurrencyCode).getDefaultFractionDigits())));
             xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_SCU);
             // account description
-            String description = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_DESCRIPTION));
+            String description = row.getDescription();
             if (description != null && !description.equals("")) {
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_ACCT_DESCRIPTION);
                 xmlSerializer.text(description);
@@ -163,16 +226,16 @@ public class GncXmlExporter extends Exporter{
             ArrayList<String> slotValue = new ArrayList<>();
             slotKey.add(GncXmlHelper.KEY_PLACEHOLDER);
             slotType.add(GncXmlHelper.ATTR_VALUE_STRING);
-            slotValue.add(Boolean.toString(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER)) != 0));
+            slotValue.add(Boolean.toString(row.isPlaceholder()));
 
-            String color = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_COLOR_CODE));
+            String color = row.getColorCode();
             if (color != null && color.length() > 0) {
                 slotKey.add(GncXmlHelper.KEY_COLOR);
                 slotType.add(GncXmlHelper.ATTR_VALUE_STRING);
                 slotValue.add(color);
             }
 
-            String defaultTransferAcctUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID));
+            String defaultTransferAcctUID = row.getDefaultTransferAccountUID();
             if (defaultTransferAcctUID != null && defaultTransferAcctUID.length() > 0) {
                 slotKey.add(GncXmlHelper.KEY_DEFAULT_TRANSFER_ACCOUNT);
                 slotType.add(GncXmlHelper.ATTR_VALUE_STRING);
@@ -181,21 +244,21 @@ public class GncXmlExporter extends Exporter{
 
             slotKey.add(GncXmlHelper.KEY_FAVORITE);
             slotType.add(GncXmlHelper.ATTR_VALUE_STRING);
-            slotValue.add(Boolean.toString(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_FAVORITE)) != 0));
+            slotValue.add(Boolean.toString(row.isFavorite()));
 
             xmlSerializer.startTag(null, GncXmlHelper.TAG_ACT_SLOTS);
             exportSlots(xmlSerializer, slotKey, slotType, slotValue);
             xmlSerializer.endTag(null, GncXmlHelper.TAG_ACT_SLOTS);
 
             // parent uid
-            String parentUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_PARENT_ACCOUNT_UID));
+            String parentUID = row.getParentUID();
             if (!acct_type.equals("ROOT") && parentUID != null && parentUID.length() > 0) {
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PARENT_UID);
                 xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, GncXmlHelper.ATTR_VALUE_GUID);
                 xmlSerializer.text(parentUID);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PARENT_UID);
             } else {
-                Log.d("export", "root account : " + cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID)));
+                Log.d("export", "root account : " + row.getUID());
             }
             xmlSerializer.endTag(null, GncXmlHelper.TAG_ACCOUNT);
         }
@@ -262,6 +325,11 @@ public class GncXmlExporter extends Exporter{
         if (exportTemplates) {
             where = TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + "=1";
         }
+        String[] whereArgs = null;
+        if (mSince != null) {
+            where += " AND " + CHANGED_TRANSACTIONS_SELECTION;
+            whereArgs = new String[]{mSince, mSince, mSince};
+        }
         Cursor cursor = mTransactionsDbAdapter.fetchTransactionsWithSplits(
                 new String[]{
                         TransactionEntry.TABLE_NAME+"."+ TransactionEntry.COLUMN_UID + " AS trans_uid",
@@ -279,21 +347,26 @@ public class GncXmlExporter extends Exporter{
                         SplitEntry.TABLE_NAME+"."+ SplitEntry.COLUMN_VALUE_DENOM + " AS split_value_denom",
                         SplitEntry.TABLE_NAME+"."+ SplitEntry.COLUMN_QUANTITY_NUM + " AS split_quantity_num",
                         SplitEntry.TABLE_NAME+"."+ SplitEntry.COLUMN_QUANTITY_DENOM + " AS split_quantity_denom",                        SplitEntry.TABLE_NAME+"."+ SplitEntry.COLUMN_ACCOUNT_UID + " AS split_acct_uid"},
-                        where, null,
+                        where, whereArgs,
                         TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TIMESTAMP + " ASC , " +
                         TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " ASC ");
         String lastTrxUID = "";
         Currency trxCurrency = null;
         String denomString = "100";
 
+        SplitRow row = new SplitRow(cursor);
         if (exportTemplates) {
             mRootTemplateAccount = new Account("Template Root");
             mRootTemplateAccount.setAccountType(AccountType.ROOT);
             mTransactionToTemplateAccountMap.put(" ", mRootTemplateAccount);
-            while (cursor.moveToNext()) {
-                Account account = new Account(BaseModel.generateUID());
+            Map<String, String> scheduledActionUIDs = getScheduledActionUIDs();
+            while (row.moveToNext()) {
+                String trnUID = row.getTransactionUID();
+                //the template account is named after the scheduled action, whose GUID then stays the same
+                //from one export to the next, so that the action is not duplicated when merging the export
+                String scheduledActionUID = scheduledActionUIDs.get(trnUID);
+                Account account = new Account(scheduledActionUID != null ? scheduledActionUID : BaseModel.generateUID());
                 account.setAccountType(AccountType.BANK);
-                String trnUID = cursor.getString(cursor.getColumnIndexOrThrow("trans_uid"));
                 mTransactionToTemplateAccountMap.put(trnUID, account);
             }
 
@@ -303,8 +376,8 @@ public class GncXmlExporter extends Exporter{
             cursor.moveToPrevious();
         }
 
-        while (cursor.moveToNext()){
-            String curTrxUID = cursor.getString(cursor.getColumnIndexOrThrow("trans_uid"));
+        while (row.moveToNext()){
+            String curTrxUID = row.getTransactionUID();
             if (!lastTrxUID.equals(curTrxUID)) { // new transaction starts
                 if (!lastTrxUID.equals("")) { // there's an old transaction, close it
                     xmlSerializer.endTag(null, GncXmlHelper.TAG_TRN_SPLITS);
@@ -319,7 +392,7 @@ public class GncXmlExporter extends Exporter{
                 xmlSerializer.text(curTrxUID);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_TRX_ID);
                 // currency
-                String currency = cursor.getString(cursor.getColumnIndexOrThrow("trans_currency"));
+                String currency = row.getTransactionCurrency();
                 trxCurrency = Currency.getInstance(currency);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_TRX_CURRENCY);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_COMMODITY_SPACE);
@@ -330,25 +403,24 @@ public class GncXmlExporter extends Exporter{
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_ID);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_TRX_CURRENCY);
                 // date posted, time which user put on the transaction
-                String strDate = GncXmlHelper.formatDate(cursor.getLong(cursor.getColumnIndexOrThrow("trans_time")));
+                long datePosted = row.getTransactionTime();
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_DATE_POSTED);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_TS_DATE);
-                xmlSerializer.text(strDate);
+                xmlSerializer.text(mDateBuffer, 0, TimestampCodec.formatTimestamp(datePosted, mDateBuffer, 0));
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_TS_DATE);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_DATE_POSTED);
 
                 // date entered, time when the transaction was actually created
-                Timestamp timeEntered = Timestamp.valueOf(cursor.getString(cursor.getColumnIndexOrThrow("trans_date_posted")));
-                String dateEntered = GncXmlHelper.formatDate(timeEntered.getTime());
+                Timestamp timeEntered = Timestamp.valueOf(row.getTransactionCreatedAt());
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_DATE_ENTERED);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_TS_DATE);
-                xmlSerializer.text(dateEntered);
+                xmlSerializer.text(mDateBuffer, 0, TimestampCodec.formatTimestamp(timeEntered.getTime(), mDateBuffer, 0));
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_TS_DATE);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_DATE_ENTERED);
 
                 // description
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_TRN_DESCRIPTION);
-                xmlSerializer.text(cursor.getString(cursor.getColumnIndexOrThrow("trans_desc")));
+                xmlSerializer.text(row.getTransactionDescription());
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_TRN_DESCRIPTION);
                 lastTrxUID = curTrxUID;
                 // slots
@@ -356,8 +428,8 @@ public class GncXmlExporter extends Exporter{
                 ArrayList<String> slotType = new ArrayList<>();
                 ArrayList<String> slotValue = new ArrayList<>();
 
-                String notes = cursor.getString(cursor.getColumnIndexOrThrow("trans_notes"));
-                boolean exported = cursor.getInt(cursor.getColumnIndexOrThrow("trans_exported")) == 1;
+                String notes = row.getTransactionNotes();
+                boolean exported = row.isTransactionExported();
                 if (notes != null && notes.length() > 0) {
                     slotKey.add(GncXmlHelper.KEY_NOTES);
                     slotType.add(GncXmlHelper.ATTR_VALUE_STRING);
@@ -369,7 +441,7 @@ public class GncXmlExporter extends Exporter{
                     slotValue.add("false");
                 }
 
-                String scheduledActionUID = cursor.getString(cursor.getColumnIndexOrThrow("trans_from_sched_action"));
+                String scheduledActionUID = row.getTransactionScheduledActionUID();
                 if (scheduledActionUID != null && !scheduledActionUID.isEmpty()){
                     slotKey.add(GncXmlHelper.KEY_FROM_SCHED_ACTION);
                     slotType.add(GncXmlHelper.ATTR_VALUE_GUID);
@@ -386,10 +458,10 @@ public class GncXmlExporter extends Exporter{
             // split id
             xmlSerializer.startTag(null, GncXmlHelper.TAG_SPLIT_ID);
             xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, GncXmlHelper.ATTR_VALUE_GUID);
-            xmlSerializer.text(cursor.getString(cursor.getColumnIndexOrThrow("split_uid")));
+            xmlSerializer.text(row.getSplitUID());
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SPLIT_ID);
             // memo
-            String memo = cursor.getString(cursor.getColumnIndexOrThrow("split_memo"));
+            String memo = row.getSplitMemo();
             if (memo != null && memo.length() > 0){
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_SPLIT_MEMO);
                 xmlSerializer.text(memo);
@@ -400,9 +472,9 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.text("n");
             xmlSerializer.endTag(null, GncXmlHelper.TAG_RECONCILED_STATE);
             // value, in the transaction's currency
-            String trxType = cursor.getString(cursor.getColumnIndexOrThrow("split_type"));
-            int splitValueNum = cursor.getInt(cursor.getColumnIndexOrThrow("split_value_num"));
-            int splitValueDenom = cursor.getInt(cursor.getColumnIndexOrThrow("split_value_denom"));
+            String trxType = row.getSplitType();
+            int splitValueNum = row.getSplitValueNum();
+            int splitValueDenom = row.getSplitValueDenom();
             BigDecimal splitAmount = Money.getBigDecimal(splitValueNum, splitValueDenom);
             String strValue = "0/" + denomString;
             if (!exportTemplates) { //when doing normal transaction export
@@ -412,8 +484,8 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.text(strValue);
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SPLIT_VALUE);
             // quantity, in the split account's currency
-            String splitQuantityNum = cursor.getString(cursor.getColumnIndexOrThrow("split_quantity_num"));
-            String splitQuantityDenom = cursor.getString(cursor.getColumnIndexOrThrow("split_quantity_denom"));
+            String splitQuantityNum = row.getSplitQuantityNum();
+            String splitQuantityDenom = row.getSplitQuantityDenom();
             if (!exportTemplates) {
                 strValue = (trxType.equals("CREDIT") ? "-" : "") + splitQuantityNum + "/" + splitQuantityDenom;
             }
@@ -428,7 +500,7 @@ public class GncXmlExporter extends Exporter{
                 //get the UID of the template account
                  splitAccountUID = mTransactionToTemplateAccountMap.get(curTrxUID).getUID();
             } else {
-                splitAccountUID = cursor.getString(cursor.getColumnIndexOrThrow("split_acct_uid"));
+                splitAccountUID = row.getSplitAccountUID();
             }
             xmlSerializer.text(splitAccountUID);
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SPLIT_ACCOUNT);
@@ -448,7 +520,7 @@ public class GncXmlExporter extends Exporter{
                 List<String> slotValues = new ArrayList<>();
                 slotKeys.add(GncXmlHelper.KEY_SPLIT_ACCOUNT_SLOT);
                 slotTypes.add(GncXmlHelper.ATTR_VALUE_GUID);
-                slotValues.add(cursor.getString(cursor.getColumnIndexOrThrow("split_acct_uid")));
+                slotValues.add(row.getSplitAccountUID());
                 TransactionType type = TransactionType.valueOf(trxType);
                 if (type == TransactionType.CREDIT){
                     slotKeys.add(GncXmlHelper.KEY_CREDIT_FORMULA);
@@ -482,6 +554,56 @@ public class GncXmlExporter extends Exporter{
         cursor.close();
     }
 
+    /**
+     * Returns the GUIDs of the scheduled actions of the template transactions
+     * @return GUID of the first scheduled action of each template transaction, by transaction GUID
+     */
+    private Map<String, String> getScheduledActionUIDs() {
+        Map<String, String> scheduledActionUIDs = new TreeMap<>();
+        Cursor cursor = mScheduledActionDbAdapter.fetchAllRecords(
+                ScheduledActionEntry.COLUMN_TYPE + "=?", new String[]{ScheduledAction.ActionType.TRANSACTION.name()});
+        try {
+            int actionUIDIndex = cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_ACTION_UID);
+            int uidIndex = cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_UID);
+            while (cursor.moveToNext()) {
+                String actionUID = cursor.getString(actionUIDIndex);
+                if (!scheduledActionUIDs.containsKey(actionUID))
+                    scheduledActionUIDs.put(actionUID, cursor.getString(uidIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        return scheduledActionUIDs;
+    }
+
+    /**
+     * Serializes the deletions since the previous backup of the chain, for a differential backup
+     * @param xmlSerializer XML serializer
+     * @param backupChain Chain of differential backups
+     * @throws IOException if the XML serializer cannot be written to
+     */
+    private void exportTombstones(XmlSerializer xmlSerializer, BackupChain backupChain) throws IOException {
+        xmlSerializer.startTag(null, GncXmlHelper.TAG_DIFFERENTIAL);
+        Cursor cursor = backupChain.fetchTombstones(mSince);
+        try {
+            int tableNameIndex = cursor.getColumnIndexOrThrow(TombstoneEntry.COLUMN_TABLE_NAME);
+            int uidIndex = cursor.getColumnIndexOrThrow(TombstoneEntry.COLUMN_UID);
+            while (cursor.moveToNext()) {
+                xmlSerializer.startTag(null, GncXmlHelper.TAG_TOMBSTONE);
+                xmlSerializer.startTag(null, GncXmlHelper.TAG_TOMBSTONE_TABLE);
+                xmlSerializer.text(cursor.getString(tableNameIndex));
+                xmlSerializer.endTag(null, GncXmlHelper.TAG_TOMBSTONE_TABLE);
+                xmlSerializer.startTag(null, GncXmlHelper.TAG_TOMBSTONE_ID);
+                xmlSerializer.text(cursor.getString(uidIndex));
+                xmlSerializer.endTag(null, GncXmlHelper.TAG_TOMBSTONE_ID);
+                xmlSerializer.endTag(null, GncXmlHelper.TAG_TOMBSTONE);
+            }
+        } finally {
+            cursor.close();
+        }
+        xmlSerializer.endTag(null, GncXmlHelper.TAG_DIFFERENTIAL);
+    }
+
     /**
      * Serializes {@link ScheduledAction}s from the database to XML
      * @param xmlSerializer XML serializer
@@ -492,8 +614,9 @@ public class GncXmlExporter extends Exporter{
         Cursor cursor = mScheduledActionDbAdapter.fetchAllRecords(
                 ScheduledActionEntry.COLUMN_TYPE + "=?", new String[]{ScheduledAction.ActionType.TRANSACTION.name()});
 
-        while (cursor.moveToNext()) {
-            String actionUID = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_ACTION_UID));
+        ScheduledActionRow row = new ScheduledActionRow(cursor);
+        while (row.moveToNext()) {
+            String actionUID = row.getActionUID();
             Account accountUID = mTransactionToTemplateAccountMap.get(actionUID);
 
             if (accountUID == null) //if the action UID does not belong to a transaction we've seen before, skip it
@@ -509,7 +632,7 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_ID);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_NAME);
 
-            ScheduledAction.ActionType actionType = ScheduledAction.ActionType.valueOf(cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_TYPE)));
+            ScheduledAction.ActionType actionType = ScheduledAction.ActionType.valueOf(row.getType());
             if (actionType == ScheduledAction.ActionType.TRANSACTION) {
                 String description = TransactionsDbAdapter.getInstance().getAttribute(actionUID, TransactionEntry.COLUMN_DESCRIPTION);
                 xmlSerializer.text(description);
@@ -518,7 +641,7 @@ public class GncXmlExporter extends Exporter{
             }
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_NAME);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_ENABLED);
-            boolean enabled = cursor.getShort(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_ENABLED)) > 0;
+            boolean enabled = row.isEnabled();
             xmlSerializer.text(enabled ? "y" : "n");
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_ENABLED);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_AUTO_CREATE);
@@ -534,39 +657,39 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.text("0");
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_ADVANCE_REMIND_DAYS);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_INSTANCE_COUNT);
-            String scheduledActionUID = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_UID));
+            String scheduledActionUID = row.getUID();
             long instanceCount = mScheduledActionDbAdapter.getActionInstanceCount(scheduledActionUID);
             xmlSerializer.text(Long.toString(instanceCount));
             xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_INSTANCE_COUNT);
 
             //start date
-            String createdTimestamp = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_CREATED_AT));
+            String createdTimestamp = row.getCreatedAt();
             long scheduleStartTime = Timestamp.valueOf(createdTimestamp).getTime();
             serializeDate(xmlSerializer, GncXmlHelper.TAG_SX_START, scheduleStartTime);
 
-            long lastRunTime = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_LAST_RUN));
+            long lastRunTime = row.getLastRun();
             if (lastRunTime > 0){
                 serializeDate(xmlSerializer, GncXmlHelper.TAG_SX_LAST, lastRunTime);
             }
 
-            long endTime = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_END_TIME));
+            long endTime = row.getEndTime();
             if (endTime > 0) {
                 //end date
                 serializeDate(xmlSerializer, GncXmlHelper.TAG_SX_END, endTime);
             } else { //add number of occurrences
-                int totalFrequency = cursor.getInt(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_TOTAL_FREQUENCY));
+                int totalFrequency = row.getTotalFrequency();
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_NUM_OCCUR);
                 xmlSerializer.text(Integer.toString(totalFrequency));
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_NUM_OCCUR);
 
                 //remaining occurrences
-                int executionCount = cursor.getInt(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_EXECUTION_COUNT));
+                int executionCount = row.getExecutionCount();
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_REM_OCCUR);
                 xmlSerializer.text(Integer.toString(totalFrequency - executionCount));
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_SX_REM_OCCUR);
             }
 
-            String tag = cursor.getString(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_TAG));
+            String tag = row.getTag();
             if (tag != null && !tag.isEmpty()){
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_TAG);
                 xmlSerializer.text(tag);
@@ -581,7 +704,7 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.startTag(null, GncXmlHelper.TAG_SX_SCHEDULE);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_RECURRENCE);
             xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.RECURRENCE_VERSION);
-            long period = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_PERIOD));
+            long period = row.getPeriod();
             PeriodType periodType = ScheduledAction.getPeriodType(period);
             xmlSerializer.startTag(null, GncXmlHelper.TAG_RX_MULT);
             xmlSerializer.text(String.valueOf(periodType.getMultiplier()));
@@ -590,7 +713,7 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.text(periodType.name().toLowerCase());
             xmlSerializer.endTag(null, GncXmlHelper.TAG_RX_PERIOD_TYPE);
 
-            long recurrenceStartTime = cursor.getLong(cursor.getColumnIndexOrThrow(ScheduledActionEntry.COLUMN_START_TIME));
+            long recurrenceStartTime = row.getStartTime();
             serializeDate(xmlSerializer, GncXmlHelper.TAG_RX_START, recurrenceStartTime);
 
             xmlSerializer.endTag(null, GncXmlHelper.TAG_RECURRENCE);
@@ -602,7 +725,7 @@ public class GncXmlExporter extends Exporter{
 
     /**
      * Serializes a date as a {@code tag} which has a nested {@link GncXmlHelper#TAG_GDATE} which
-     * has the date as a text element formatted using {@link GncXmlHelper#DATE_FORMATTER}
+     * has the date as a text element formatted using {@link GncXmlHelper#formatGDate(long)}
      * @param xmlSerializer XML serializer
      * @param tag Enclosing tag
      * @param timeMillis Date to be formatted and output
@@ -611,7 +734,7 @@ public class GncXmlExporter extends Exporter{
     private void serializeDate(XmlSerializer xmlSerializer, String tag, long timeMillis) throws IOException {
         xmlSerializer.startTag(null, tag);
         xmlSerializer.startTag(null, GncXmlHelper.TAG_GDATE);
-        xmlSerializer.text(GncXmlHelper.DATE_FORMATTER.format(timeMillis));
+        xmlSerializer.text(mDateBuffer, 0, TimestampCodec.formatDate(timeMillis, mDateBuffer, 0));
         xmlSerializer.endTag(null, GncXmlHelper.TAG_GDATE);
         xmlSerializer.endTag(null, tag);
     }
@@ -633,14 +756,20 @@ public class GncXmlExporter extends Exporter{
     private void exportPrices(XmlSerializer xmlSerializer) throws IOException {
         xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICEDB);
         xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, "1");
-        Cursor cursor = mPricesDbAdpater.fetchAllRecords();
+        Cursor cursor;
+        if (mSince == null) {
+            cursor = mPricesDbAdpater.fetchAllRecords();
+        } else {
+            cursor = mPricesDbAdpater.fetchAllRecords(DatabaseSchema.PriceEntry.COLUMN_MODIFIED_AT + " >= ?", new String[]{mSince});
+        }
         try {
-            while(cursor.moveToNext()) {
+            PriceRow row = new PriceRow(cursor);
+            while(row.moveToNext()) {
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE);
                 // GUID
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE_ID);
                 xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, GncXmlHelper.ATTR_VALUE_GUID);
-                xmlSerializer.text(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.CommonColumns.COLUMN_UID)));
+                xmlSerializer.text(row.getUID());
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE_ID);
                 // commodity
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE_COMMODITY);
@@ -648,7 +777,7 @@ public class GncXmlExporter extends Exporter{
                 xmlSerializer.text("ISO4217");
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_SPACE);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_COMMODITY_ID);;
-                xmlSerializer.text(mCommoditiesDbAdapter.getCurrencyCode(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_COMMODITY_UID))));
+                xmlSerializer.text(mCommoditiesDbAdapter.getCurrencyCode(row.getCommodityUID()));
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_ID);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE_COMMODITY);
                 // currency
@@ -657,11 +786,11 @@ public class GncXmlExporter extends Exporter{
                 xmlSerializer.text("ISO4217");
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_SPACE);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_COMMODITY_ID);;
-                xmlSerializer.text(mCommoditiesDbAdapter.getCurrencyCode(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_CURRENCY_UID))));
+                xmlSerializer.text(mCommoditiesDbAdapter.getCurrencyCode(row.getCurrencyUID()));
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_COMMODITY_ID);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE_CURRENCY);
                 // time
-                String strDate = GncXmlHelper.formatDate(Timestamp.valueOf(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_DATE))).getTime());
+                String strDate = GncXmlHelper.formatDate(Timestamp.valueOf(row.getDate()).getTime());
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE_TIME);
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_TS_DATE);
                 xmlSerializer.text(strDate);
@@ -669,10 +798,10 @@ public class GncXmlExporter extends Exporter{
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE_TIME);
                 // source
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE_SOURCE);
-                xmlSerializer.text(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_SOURCE)));
+                xmlSerializer.text(row.getSource());
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE_SOURCE);
                 // type, optional
-                String type = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_TYPE));
+                String type = row.getType();
                 if (type != null && !type.equals("")) {
                     xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE_TYPE);
                     xmlSerializer.text(type);
@@ -680,8 +809,8 @@ public class GncXmlExporter extends Exporter{
                 }
                 // value
                 xmlSerializer.startTag(null, GncXmlHelper.TAG_PRICE_VALUE);
-                xmlSerializer.text(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_VALUE_NUM))
-                                + "/" + cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.PriceEntry.COLUMN_VALUE_DENOM)));
+                xmlSerializer.text(row.getValueNum()
+                                + "/" + row.getValueDenom());
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE_VALUE);
                 xmlSerializer.endTag(null, GncXmlHelper.TAG_PRICE);
             }
@@ -694,8 +823,17 @@ public class GncXmlExporter extends Exporter{
     @Override
     public void generateExport(Writer writer) throws ExporterException{
         try {
-            String[] namespaces = new String[] {"gnc", "act", "book", "cd", "cmdty", "price", "slot",
-                    "split", "trn", "ts", "sx", "recurrence"};
+            mBackupChain = null;
+            if (mParameters.isDifferentialBackup()) {
+                mBackupChain = mAccountsDbAdapter.getBackupChain();
+                mBackupTime = mBackupChain.getCurrentTimestamp();
+                mSince = mBackupChain.shouldStartNewChain() ? null : mBackupChain.getLastBackupTimestamp();
+            }
+            List<String> namespaces = new ArrayList<>(Arrays.asList("gnc", "act", "book", "cd", "cmdty", "price", "slot",
+                    "split", "trn", "ts", "sx", "recurrence"));
+            if (mSince != null) {
+                namespaces.add("tombstone");
+            }
             XmlSerializer xmlSerializer = XmlPullParserFactory.newInstance().newSerializer();
             xmlSerializer.setOutput(writer);
             xmlSerializer.startDocument("utf-8", true);
@@ -717,6 +855,10 @@ public class GncXmlExporter extends Exporter{
             xmlSerializer.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, GncXmlHelper.ATTR_VALUE_GUID);
             xmlSerializer.text(BaseModel.generateUID());
             xmlSerializer.endTag(null, GncXmlHelper.TAG_BOOK_ID);
+            //deletions since the previous backup, which the importer applies before merging the rest
+            if (mSince != null) {
+                exportTombstones(xmlSerializer, mBackupChain);
+            }
             //commodity count
             List<Currency> currencies = mAccountsDbAdapter.getCurrenciesInUse();
             for (int i = 0; i< currencies.size();i++) {
@@ -774,19 +916,48 @@ public class GncXmlExporter extends Exporter{
             throw new ExporterException(mParameters, e);
         }
     }
+
     /**
-     * Creates a backup of current database contents to the default backup location
+     * Records the differential backup in its chain, now that its file is complete.
+     * <p>A backup written with {@link #generateExport(Writer)} alone is not recorded,
+     * since the file may still be lost before the writer is closed</p>
+     */
+    @Override
+    protected void onExportCompleted() {
+        if (mBackupChain != null) {
+            mBackupChain.recordBackup(mSince == null ? BackupChain.BackupType.FULL
+                    : BackupChain.BackupType.DIFFERENTIAL, mBackupTime);
+            mBackupChain = null;
+        }
+    }
+
+    /**
+     * Creates a backup of current database contents to the default backup location.
+     * <p>The backup is compressed on one thread per processor</p>
      * @return {@code true} if backup was successful, {@code false} otherwise
      */
     public static boolean createBackup(){
+        return createBackup(ParallelGzipOutputStream.getDefaultThreadCount());
+    }
+
+    /**
+     * Creates a backup of current database contents to the default backup location
+     * @param compressionThreads Number of threads compressing the backup, at least 1
+     * @return {@code true} if backup was successful, {@code false} otherwise
+     * @see ParallelGzipOutputStream
+     */
+    public static boolean createBackup(int compressionThreads){
         ExportParams params = new ExportParams(ExportFormat.XML);
         try {
             FileOutputStream fileOutputStream = new FileOutputStream(Exporter.buildBackupFile());
             BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream);
-            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bufferedOutputStream);
+            ParallelGzipOutputStream gzipOutputStream = new ParallelGzipOutputStream(bufferedOutputStream, compressionThreads);
             OutputStreamWriter outputStreamWriter = new OutputStreamWriter(gzipOutputStream);
-            new GncXmlExporter(params).generateExport(outputStreamWriter);
-            outputStreamWriter.close();
+            try {
+                new GncXmlExporter(params).generateExport(outputStreamWriter);
+            } finally {
+                outputStreamWriter.close(); //also stops the compression threads
+            }
             return true;
         } catch (IOException e) {
             Crashlytics.logException(e);
@@ -794,4 +965,320 @@ public class GncXmlExporter extends Exporter{
             return false;
         }
     }
+
+    /**
+     * Reads the rows of the accounts exported
+     */
+    private static class AccountRow extends CursorRow {
+        private final int mNameIndex;
+        private final int mUIDIndex;
+        private final int mTypeIndex;
+        private final int mCurrencyIndex;
+        private final int mDescriptionIndex;
+        private final int mPlaceholderIndex;
+        private final int mColorCodeIndex;
+        private final int mDefaultTransferAccountUIDIndex;
+        private final int mFavoriteIndex;
+        private final int mParentUIDIndex;
+
+        AccountRow(Cursor cursor) {
+            super(cursor);
+            mNameIndex                      = columnIndex(AccountEntry.COLUMN_NAME);
+            mUIDIndex                       = columnIndex(AccountEntry.COLUMN_UID);
+            mTypeIndex                      = columnIndex(AccountEntry.COLUMN_TYPE);
+            mCurrencyIndex                  = columnIndex(AccountEntry.COLUMN_CURRENCY);
+            mDescriptionIndex               = columnIndex(AccountEntry.COLUMN_DESCRIPTION);
+            mPlaceholderIndex               = columnIndex(AccountEntry.COLUMN_PLACEHOLDER);
+            mColorCodeIndex                 = columnIndex(AccountEntry.COLUMN_COLOR_CODE);
+            mDefaultTransferAccountUIDIndex = columnIndex(AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID);
+            mFavoriteIndex                  = columnIndex(AccountEntry.COLUMN_FAVORITE);
+            mParentUIDIndex                 = columnIndex(AccountEntry.COLUMN_PARENT_ACCOUNT_UID);
+        }
+
+        String getName() {
+            return getString(mNameIndex);
+        }
+
+        String getUID() {
+            return getString(mUIDIndex);
+        }
+
+        String getType() {
+            return getString(mTypeIndex);
+        }
+
+        String getCurrency() {
+            return getString(mCurrencyIndex);
+        }
+
+        String getDescription() {
+            return getString(mDescriptionIndex);
+        }
+
+        boolean isPlaceholder() {
+            return getInt(mPlaceholderIndex) != 0;
+        }
+
+        String getColorCode() {
+            return getString(mColorCodeIndex);
+        }
+
+        String getDefaultTransferAccountUID() {
+            return getString(mDefaultTransferAccountUIDIndex);
+        }
+
+        boolean isFavorite() {
+            return getInt(mFavoriteIndex) != 0;
+        }
+
+        String getParentUID() {
+            return getString(mParentUIDIndex);
+        }
+    }
+
+    /**
+     * Reads the rows of the transactions exported, one per split
+     */
+    private static class SplitRow extends CursorRow {
+        private final int mTransactionUIDIndex;
+        private final int mTransactionDescriptionIndex;
+        private final int mTransactionNotesIndex;
+        private final int mTransactionTimeIndex;
+        private final int mTransactionExportedIndex;
+        private final int mTransactionCurrencyIndex;
+        private final int mTransactionCreatedAtIndex;
+        private final int mTransactionScheduledActionUIDIndex;
+        private final int mSplitUIDIndex;
+        private final int mSplitMemoIndex;
+        private final int mSplitTypeIndex;
+        private final int mSplitValueNumIndex;
+        private final int mSplitValueDenomIndex;
+        private final int mSplitQuantityNumIndex;
+        private final int mSplitQuantityDenomIndex;
+        private final int mSplitAccountUIDIndex;
+
+        SplitRow(Cursor cursor) {
+            super(cursor);
+            mTransactionUIDIndex                = columnIndex("trans_uid");
+            mTransactionDescriptionIndex        = columnIndex("trans_desc");
+            mTransactionNotesIndex              = columnIndex("trans_notes");
+            mTransactionTimeIndex               = columnIndex("trans_time");
+            mTransactionExportedIndex           = columnIndex("trans_exported");
+            mTransactionCurrencyIndex           = columnIndex("trans_currency");
+            mTransactionCreatedAtIndex          = columnIndex("trans_date_posted");
+            mTransactionScheduledActionUIDIndex = columnIndex("trans_from_sched_action");
+            mSplitUIDIndex                      = columnIndex("split_uid");
+            mSplitMemoIndex                     = columnIndex("split_memo");
+            mSplitTypeIndex                     = columnIndex("split_type");
+            mSplitValueNumIndex                 = columnIndex("split_value_num");
+            mSplitValueDenomIndex               = columnIndex("split_value_denom");
+            mSplitQuantityNumIndex              = columnIndex("split_quantity_num");
+            mSplitQuantityDenomIndex            = columnIndex("split_quantity_denom");
+            mSplitAccountUIDIndex               = columnIndex("split_acct_uid");
+        }
+
+        String getTransactionUID() {
+            return getString(mTransactionUIDIndex);
+        }
+
+        String getTransactionDescription() {
+            return getString(mTransactionDescriptionIndex);
+        }
+
+        String getTransactionNotes() {
+            return getString(mTransactionNotesIndex);
+        }
+
+        long getTransactionTime() {
+            return getLong(mTransactionTimeIndex);
+        }
+
+        boolean isTransactionExported() {
+            return getBoolean(mTransactionExportedIndex);
+        }
+
+        String getTransactionCurrency() {
+            return getString(mTransactionCurrencyIndex);
+        }
+
+        String getTransactionCreatedAt() {
+            return getString(mTransactionCreatedAtIndex);
+        }
+
+        String getTransactionScheduledActionUID() {
+            return getString(mTransactionScheduledActionUIDIndex);
+        }
+
+        String getSplitUID() {
+            return getString(mSplitUIDIndex);
+        }
+
+        String getSplitMemo() {
+            return getString(mSplitMemoIndex);
+        }
+
+        String getSplitType() {
+            return getString(mSplitTypeIndex);
+        }
+
+        int getSplitValueNum() {
+            return getInt(mSplitValueNumIndex);
+        }
+
+        int getSplitValueDenom() {
+            return getInt(mSplitValueDenomIndex);
+        }
+
+        String getSplitQuantityNum() {
+            return getString(mSplitQuantityNumIndex);
+        }
+
+        String getSplitQuantityDenom() {
+            return getString(mSplitQuantityDenomIndex);
+        }
+
+        String getSplitAccountUID() {
+            return getString(mSplitAccountUIDIndex);
+        }
+    }
+
+    /**
+     * Reads the rows of the scheduled actions exported
+     */
+    private static class ScheduledActionRow extends CursorRow {
+        private final int mUIDIndex;
+        private final int mActionUIDIndex;
+        private final int mTypeIndex;
+        private final int mEnabledIndex;
+        private final int mCreatedAtIndex;
+        private final int mLastRunIndex;
+        private final int mEndTimeIndex;
+        private final int mTotalFrequencyIndex;
+        private final int mExecutionCountIndex;
+        private final int mTagIndex;
+        private final int mPeriodIndex;
+        private final int mStartTimeIndex;
+
+        ScheduledActionRow(Cursor cursor) {
+            super(cursor);
+            mUIDIndex               = columnIndex(ScheduledActionEntry.COLUMN_UID);
+            mActionUIDIndex         = columnIndex(ScheduledActionEntry.COLUMN_ACTION_UID);
+            mTypeIndex              = columnIndex(ScheduledActionEntry.COLUMN_TYPE);
+            mEnabledIndex           = columnIndex(ScheduledActionEntry.COLUMN_ENABLED);
+            mCreatedAtIndex         = columnIndex(ScheduledActionEntry.COLUMN_CREATED_AT);
+            mLastRunIndex           = columnIndex(ScheduledActionEntry.COLUMN_LAST_RUN);
+            mEndTimeIndex           = columnIndex(ScheduledActionEntry.COLUMN_END_TIME);
+            mTotalFrequencyIndex    = columnIndex(ScheduledActionEntry.COLUMN_TOTAL_FREQUENCY);
+            mExecutionCountIndex    = columnIndex(ScheduledActionEntry.COLUMN_EXECUTION_COUNT);
+            mTagIndex               = columnIndex(ScheduledActionEntry.COLUMN_TAG);
+            mPeriodIndex            = columnIndex(ScheduledActionEntry.COLUMN_PERIOD);
+            mStartTimeIndex         = columnIndex(ScheduledActionEntry.COLUMN_START_TIME);
+        }
+
+        String getUID() {
+            return getString(mUIDIndex);
+        }
+
+        String getActionUID() {
+            return getString(mActionUIDIndex);
+        }
+
+        String getType() {
+            return getString(mTypeIndex);
+        }
+
+        boolean isEnabled() {
+            return getInt(mEnabledIndex) > 0;
+        }
+
+        String getCreatedAt() {
+            return getString(mCreatedAtIndex);
+        }
+
+        long getLastRun() {
+            return getLong(mLastRunIndex);
+        }
+
+        long getEndTime() {
+            return getLong(mEndTimeIndex);
+        }
+
+        int getTotalFrequency() {
+            return getInt(mTotalFrequencyIndex);
+        }
+
+        int getExecutionCount() {
+            return getInt(mExecutionCountIndex);
+        }
+
+        String getTag() {
+            return getString(mTagIndex);
+        }
+
+        long getPeriod() {
+            return getLong(mPeriodIndex);
+        }
+
+        long getStartTime() {
+            return getLong(mStartTimeIndex);
+        }
+    }
+
+    /**
+     * Reads the rows of the prices exported
+     */
+    private static class PriceRow extends CursorRow {
+        private final int mUIDIndex;
+        private final int mCommodityUIDIndex;
+        private final int mCurrencyUIDIndex;
+        private final int mDateIndex;
+        private final int mSourceIndex;
+        private final int mTypeIndex;
+        private final int mValueNumIndex;
+        private final int mValueDenomIndex;
+
+        PriceRow(Cursor cursor) {
+            super(cursor);
+            mUIDIndex           = columnIndex(DatabaseSchema.PriceEntry.COLUMN_UID);
+            mCommodityUIDIndex  = columnIndex(DatabaseSchema.PriceEntry.COLUMN_COMMODITY_UID);
+            mCurrencyUIDIndex   = columnIndex(DatabaseSchema.PriceEntry.COLUMN_CURRENCY_UID);
+            mDateIndex          = columnIndex(DatabaseSchema.PriceEntry.COLUMN_DATE);
+            mSourceIndex        = columnIndex(DatabaseSchema.PriceEntry.COLUMN_SOURCE);
+            mTypeIndex          = columnIndex(DatabaseSchema.PriceEntry.COLUMN_TYPE);
+            mValueNumIndex      = columnIndex(DatabaseSchema.PriceEntry.COLUMN_VALUE_NUM);
+            mValueDenomIndex    = columnIndex(DatabaseSchema.PriceEntry.COLUMN_VALUE_DENOM);
+        }
+
+        String getUID() {
+            return getString(mUIDIndex);
+        }
+
+        String getCommodityUID() {
+            return getString(mCommodityUIDIndex);
+        }
+
+        String getCurrencyUID() {
+            return getString(mCurrencyUIDIndex);
+        }
+
+        String getDate() {
+            return getString(mDateIndex);
+        }
+
+        String getSource() {
+            return getString(mSourceIndex);
+        }
+
+        String getType() {
+            return getString(mTypeIndex);
+        }
+
+        long getValueNum() {
+            return getLong(mValueNumIndex);
+        }
+
+        long getValueDenom() {
+            return getLong(mValueDenomIndex);
+        }
+    }
 }
@@ -20,15 +20,13 @@ package org.gnucash.android.export.xml;
 import android.support.annotation.NonNull;
 
 import org.gnucash.android.ui.transaction.TransactionFormFragment;
+import org.gnucash.android.util.TimestampCodec;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.NumberFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Currency;
-import java.util.Date;
-import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -129,11 +127,18 @@ public abstract class GncXmlHelper {
     public static final String TAG_RX_PERIOD_TYPE           = "recurrence:period_type";
     public static final String TAG_RX_START                 = "recurrence:start";
 
+    /**
+     * Element of a differential backup holding the deletions since the previous backup.
+     * It is specific to GnuCash Android, like the {@link #TAG_TOMBSTONE} elements it holds
+     */
+    public static final String TAG_DIFFERENTIAL             = "gnc:differential";
+    public static final String TAG_TOMBSTONE                = "gnc:tombstone";
+    public static final String TAG_TOMBSTONE_TABLE          = "tombstone:table";
+    public static final String TAG_TOMBSTONE_ID             = "tombstone:id";
+
 
     public static final String RECURRENCE_VERSION           = "1.0.0";
     public static final String BOOK_VERSION                 = "2.0.0";
-    public static final SimpleDateFormat TIME_FORMATTER     = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z", Locale.US);
-    public static final SimpleDateFormat DATE_FORMATTER     = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
 
     public static final String KEY_PLACEHOLDER              = "placeholder";
     public static final String KEY_COLOR                    = "color";
@@ -151,11 +156,12 @@ public abstract class GncXmlHelper {
 
 
     /**
-     * Formats dates for the GnuCash XML format
+     * Formats dates for the GnuCash XML format, as "yyyy-MM-dd HH:mm:ss Z"
      * @param milliseconds Milliseconds since epoch
+     * @see TimestampCodec#formatTimestamp(long)
      */
     public static String formatDate(long milliseconds){
-        return TIME_FORMATTER.format(new Date(milliseconds));
+        return TimestampCodec.formatTimestamp(milliseconds);
     }
 
     /**
@@ -165,8 +171,26 @@ public abstract class GncXmlHelper {
      * @throws ParseException if the date string could not be parsed e.g. because of different format
      */
     public static long parseDate(String dateString) throws ParseException {
-        Date date = TIME_FORMATTER.parse(dateString);
-        return date.getTime();
+        return TimestampCodec.parseTimestamp(dateString);
+    }
+
+    /**
+     * Formats the date of {@link #TAG_GDATE} elements, as "yyyy-MM-dd"
+     * @param milliseconds Milliseconds since epoch
+     * @see TimestampCodec#formatDate(long)
+     */
+    public static String formatGDate(long milliseconds){
+        return TimestampCodec.formatDate(milliseconds);
+    }
+
+    /**
+     * Parses the date of {@link #TAG_GDATE} elements, formatted as "yyyy-MM-dd"
+     * @param dateString String date representation
+     * @return Time in milliseconds since epoch of the start of the day
+     * @throws ParseException if the date string could not be parsed e.g. because of different format
+     */
+    public static long parseGDate(String dateString) throws ParseException {
+        return TimestampCodec.parseDate(dateString);
     }
 
     /**
@@ -191,6 +215,58 @@ public abstract class GncXmlHelper {
         return new BigDecimal(numeratorInt, scale);
     }
 
+    /**
+     * Parses an amount formatted as "num/denom" into its numerator for {@code denominator}, without creating a BigDecimal.
+     * For example "3250/100" and "325/10" both have the numerator 3250 for the denominator 100.
+     * <p>Returns {@link Long#MIN_VALUE} if the amount is not a plain fraction (like with digit separators),
+     * or if it cannot be expressed exactly with {@code denominator}.
+     * Such amounts should be parsed with {@link #parseSplitAmount(String)} instead</p>
+     * @param amountString String containing the amount
+     * @param denominator Denominator of the result
+     * @return Numerator of the amount with its sign, or {@link Long#MIN_VALUE}
+     */
+    public static long parseSplitAmountNumerator(String amountString, long denominator) {
+        int pos = amountString.indexOf('/');
+        if (pos <= 0 || denominator <= 0)
+            return Long.MIN_VALUE;
+        long numerator = parsePlainLong(amountString, 0, pos);
+        long amountDenominator = parsePlainLong(amountString, pos + 1, amountString.length());
+        if (numerator == Long.MIN_VALUE || amountDenominator <= 0)
+            return Long.MIN_VALUE;
+
+        if (amountDenominator == denominator)
+            return numerator;
+        if (denominator % amountDenominator == 0) {
+            long factor = denominator / amountDenominator;
+            return Math.abs(numerator) <= Long.MAX_VALUE / factor ? numerator * factor : Long.MIN_VALUE;
+        }
+        if (amountDenominator % denominator == 0) {
+            long factor = amountDenominator / denominator;
+            return numerator % factor == 0 ? numerator / factor : Long.MIN_VALUE;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Parses the characters from {@code start} to {@code end} as a decimal integer with an optional minus sign
+     * @return Parsed value, or {@link Long#MIN_VALUE} if the characters are not only digits or the value overflows
+     */
+    private static long parsePlainLong(String string, int start, int end) {
+        boolean negative = start < end && string.charAt(start) == '-';
+        if (negative)
+            start++;
+        if (start == end)
+            return Long.MIN_VALUE;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = string.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10)
+                return Long.MIN_VALUE;
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
     /**
      * Formats money amounts for splits in the format 2550/100
      * @param amount Split amount as BigDecimal
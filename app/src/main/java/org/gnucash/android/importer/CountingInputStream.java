@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream reporting the number of bytes read to an {@link ImportProgress}
+ */
+class CountingInputStream extends FilterInputStream {
+    private final ImportProgress mProgress;
+
+    /**
+     * Wraps an input stream
+     * @param in Input stream to count the bytes of
+     * @param progress Progress to which the bytes read are added
+     */
+    CountingInputStream(InputStream in, ImportProgress progress) {
+        super(in);
+        mProgress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            mProgress.addBytesRead(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        int n = super.read(buffer, offset, count);
+        if (n > 0) {
+            mProgress.addBytesRead(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+        long n = super.skip(byteCount);
+        mProgress.addBytesRead(n);
+        return n;
+    }
+
+    /**
+     * Marks are not supported, since the bytes read again after a reset would be counted twice
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.importer;
+
+import android.util.Log;
+
+import org.xml.sax.SAXException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Thread writing the records of an import to the database, while the parser thread goes on with the XML.
+ * <p>The parser submits write tasks into a bounded queue, and blocks when the writer lags behind,
+ * so that only a few batches of records are held in memory.
+ * All the tasks run on this thread, since a database transaction is bound to the thread which opened it.</p>
+ * <p>Once a task fails, the following tasks are skipped and the error is thrown to the parser
+ * the next time it submits a task or when it finishes</p>
+ */
+class DbWriterThread extends Thread {
+    private static final String LOG_TAG = "DbWriterThread";
+
+    /**
+     * Marks the end of the tasks in the queue
+     */
+    private static final Runnable END_OF_TASKS = new Runnable() {
+        @Override
+        public void run() {
+            //nothing to do
+        }
+    };
+
+    private final BlockingQueue<Runnable> mTasks;
+
+    /**
+     * Task run after all the others, even if one failed, to close the database transaction
+     */
+    private final Runnable mFinalTask;
+
+    private volatile Throwable mError;
+
+    private volatile boolean mCancelled = false;
+
+    /**
+     * Time spent running the tasks, in nanoseconds
+     */
+    private long mWriteTime = 0;
+
+    /**
+     * Time the parser spent waiting for this thread, in nanoseconds
+     */
+    private long mWaitTime = 0;
+
+    /**
+     * Time at which the parser started submitting tasks, in nanoseconds
+     */
+    private long mStartTime;
+
+    /**
+     * Creates a writer thread, which must then be started
+     * @param capacity Maximum number of tasks waiting in the queue
+     * @param finalTask Task run after all the others, even if one failed
+     */
+    DbWriterThread(int capacity, Runnable finalTask) {
+        super("GnuCash import writer");
+        mTasks = new ArrayBlockingQueue<>(capacity);
+        mFinalTask = finalTask;
+    }
+
+    @Override
+    public synchronized void start() {
+        mStartTime = System.nanoTime();
+        super.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Runnable task = mTasks.take();
+                if (task == END_OF_TASKS) {
+                    break;
+                }
+                if (mError == null && !mCancelled) {
+                    long start = System.nanoTime();
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        Log.e(LOG_TAG, "Error writing imported records: " + e.getMessage());
+                        mError = e;
+                    }
+                    mWriteTime += System.nanoTime() - start;
+                }
+            }
+        } catch (InterruptedException e) {
+            mError = e;
+        } finally {
+            try {
+                mFinalTask.run();
+            } catch (Throwable e) {
+                if (mError == null) {
+                    mError = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a task to be run on this thread, waiting for room in the queue if needed
+     * @param task Database write
+     * @throws SAXException if a previous task failed, or the parser thread was interrupted
+     */
+    void submit(Runnable task) throws SAXException {
+        checkError();
+        long start = System.nanoTime();
+        try {
+            mTasks.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAXException("Import interrupted", e);
+        } finally {
+            mWaitTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Waits until all the submitted tasks and the final task have been run.
+     * <p>The time spent by the parser and by this thread is logged</p>
+     * @throws SAXException if a task failed, or the parser thread was interrupted
+     */
+    void finish() throws SAXException {
+        long start = System.nanoTime();
+        long parseTime = start - mStartTime - mWaitTime;
+        try {
+            mTasks.put(END_OF_TASKS);
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAXException("Import interrupted", e);
+        } finally {
+            mWaitTime += System.nanoTime() - start;
+        }
+        Log.i(LOG_TAG, String.format("Parser: %d ms parsing, %d ms waiting for the writer",
+                parseTime / 1000000, mWaitTime / 1000000));
+        Log.i(LOG_TAG, String.format("Writer: %d ms writing", mWriteTime / 1000000));
+        checkError();
+    }
+
+    /**
+     * Skips the tasks which have not been run yet. The final task is still run
+     */
+    void cancel() {
+        mCancelled = true;
+    }
+
+    private void checkError() throws SAXException {
+        Throwable error = mError;
+        if (error instanceof SAXException) {
+            throw (SAXException) error;
+        } else if (error instanceof Exception) {
+            throw new SAXException((Exception) error);
+        } else if (error != null) {
+            throw new SAXException(error.toString());
+        }
+    }
+}
@@ -24,7 +24,15 @@ import android.util.Log;
 import com.crashlytics.android.Crashlytics;
 
 import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.BulkLoadSession;
 import org.gnucash.android.db.CommoditiesDbAdapter;
+import org.gnucash.android.db.DatabaseAdapter;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.DatabaseSchema.PriceEntry;
+import org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
+import org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import org.gnucash.android.db.MergeResult;
 import org.gnucash.android.db.PricesDbAdapter;
 import org.gnucash.android.db.ScheduledActionDbAdapter;
 import org.gnucash.android.db.SplitsDbAdapter;
@@ -48,12 +56,17 @@ import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.regex.Pattern;
 
 /**
@@ -75,6 +88,34 @@ public class GncXmlHandler extends DefaultHandler {
      */
     private static final String LOG_TAG = "GnuCashAccountImporter";
 
+    /**
+     * Number of transactions written at once to the database in streaming mode
+     * @see #setBatchSize(int)
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Number of batches which can wait for the writer thread in pipelined mode
+     */
+    private static final int WRITER_QUEUE_CAPACITY = 4;
+
+    /**
+     * Elements whose text is used by {@link #endElement(String, String, String)}.
+     * The text of the other elements is not needed
+     */
+    private static final Set<String> TEXT_ELEMENTS = new HashSet<>(Arrays.asList(
+            GncXmlHelper.TAG_NAME, GncXmlHelper.TAG_ACCT_ID, GncXmlHelper.TAG_TYPE,
+            GncXmlHelper.TAG_COMMODITY_SPACE, GncXmlHelper.TAG_COMMODITY_ID, GncXmlHelper.TAG_ACCT_DESCRIPTION,
+            GncXmlHelper.TAG_PARENT_UID, GncXmlHelper.TAG_SLOT_KEY, GncXmlHelper.TAG_SLOT_VALUE,
+            GncXmlHelper.TAG_TRX_ID, GncXmlHelper.TAG_TRN_DESCRIPTION, GncXmlHelper.TAG_TS_DATE,
+            GncXmlHelper.TAG_RECURRENCE_PERIOD, GncXmlHelper.TAG_SPLIT_ID, GncXmlHelper.TAG_SPLIT_MEMO,
+            GncXmlHelper.TAG_SPLIT_VALUE, GncXmlHelper.TAG_SPLIT_QUANTITY, GncXmlHelper.TAG_SPLIT_ACCOUNT,
+            GncXmlHelper.TAG_SX_ID, GncXmlHelper.TAG_SX_NAME, GncXmlHelper.TAG_SX_ENABLED,
+            GncXmlHelper.TAG_SX_AUTO_CREATE, GncXmlHelper.TAG_SX_NUM_OCCUR, GncXmlHelper.TAG_RX_MULT,
+            GncXmlHelper.TAG_RX_PERIOD_TYPE, GncXmlHelper.TAG_GDATE, GncXmlHelper.TAG_SX_TEMPL_ACCOUNT,
+            GncXmlHelper.TAG_PRICE_ID, GncXmlHelper.TAG_PRICE_SOURCE, GncXmlHelper.TAG_PRICE_VALUE,
+            GncXmlHelper.TAG_PRICE_TYPE, GncXmlHelper.TAG_TOMBSTONE_TABLE, GncXmlHelper.TAG_TOMBSTONE_ID));
+
     /**
      * Adapter for saving the imported accounts
      */
@@ -136,14 +177,15 @@ public class GncXmlHandler extends DefaultHandler {
     Split mSplit;
 
     /**
-     * (Absolute) quantity of the split, which uses split account currency
+     * Quantity of the split as formatted in the file, which uses split account currency.
+     * It is parsed when the split account, and so the currency, is known
      */
-    BigDecimal mQuantity;
+    String mQuantity;
 
     /**
-     * (Absolute) value of the split, which uses transaction currency
+     * Value of the split as formatted in the file, which uses transaction currency
      */
-    BigDecimal mValue;
+    String mValue;
 
     /**
      * price table entry
@@ -165,6 +207,11 @@ public class GncXmlHandler extends DefaultHandler {
      */
     List<Split> mAutoBalanceSplits;
 
+    /**
+     * Top level imbalance accounts of the book, by currency code
+     */
+    Map<String, Account> mImbalanceAccounts;
+
     /**
      * Ignore certain elements in GnuCash XML file, such as "<gnc:template-transactions>"
      */
@@ -231,6 +278,92 @@ public class GncXmlHandler extends DefaultHandler {
 
     private PricesDbAdapter mPricesDbAdapter;
 
+    private SplitsDbAdapter mSplitsDbAdapter;
+
+    /**
+     * Number of transactions parsed before they are written to the database, or 0 if all records
+     * are only written at the end of the document
+     */
+    private int mBatchSize = 0;
+
+    /**
+     * Whether the accounts have been completed and handed over to be written to the database
+     */
+    private boolean mAccountsWritten = false;
+
+    /**
+     * Whether the database transaction of the import is open.
+     * Only used on the thread writing to the database
+     */
+    private boolean mImportInProgress = false;
+
+    /**
+     * Whether the database writes run on a separate thread, see {@link #setPipelined(boolean)}
+     */
+    private boolean mPipelined = false;
+
+    /**
+     * Thread writing to the database in pipelined mode, while the document is being parsed
+     */
+    private DbWriterThread mWriterThread;
+
+    /**
+     * Progress of the import, or null if it is not reported
+     */
+    private ImportProgress mProgress;
+
+    /**
+     * Whether the records are merged into the existing book, see {@link #setMerge(boolean)}
+     */
+    private boolean mMerge = false;
+
+    /**
+     * Counts of the rows written in merge mode. Only written on the thread writing to the database
+     */
+    private MergeResult mMergeResult;
+
+    /**
+     * GUID of the root account in the database, which the imported root account is merged into
+     */
+    private String mExistingRootUID;
+
+    /**
+     * GUIDs of the records deleted since the previous backup of a differential backup, by table name
+     */
+    private Map<String, List<String>> mTombstones = new HashMap<>();
+
+    /**
+     * Table of the tombstone being parsed
+     */
+    private String mTombstoneTable;
+
+    /**
+     * Scheduled actions in the database before a merge, by GUID
+     */
+    private Map<String, ScheduledAction> mExistingScheduledActions;
+
+    /**
+     * Whether the records are written in a bulk load session, see {@link #setBulkLoad(boolean)}
+     */
+    private boolean mBulkLoad = false;
+
+    /**
+     * Whether the bulk load session checks the integrity of the database, see {@link #setIntegrityCheck(boolean)}
+     */
+    private boolean mIntegrityCheck = false;
+
+    /**
+     * Bulk load session of the import, or null. Only used on the thread writing to the database
+     */
+    private BulkLoadSession mBulkLoadSession;
+
+    /**
+     * Number of rows written and time the writes started, to report the write rate.
+     * Only used on the thread writing to the database
+     */
+    private long mRowsWritten = 0;
+    private long mWriteStartTime;
+
     /**
      * Creates a handler for handling XML stream events when parsing the XML backup file
      */
@@ -254,8 +387,10 @@ public class GncXmlHandler extends DefaultHandler {
             mScheduledActionsDbAdapter = ScheduledActionDbAdapter.getInstance();
             mCommoditiesDbAdapter = CommoditiesDbAdapter.getInstance();
             mPricesDbAdapter = PricesDbAdapter.getInstance();
+            mSplitsDbAdapter = SplitsDbAdapter.getInstance();
         } else {
-            mTransactionsDbAdapter = new TransactionsDbAdapter(db, new SplitsDbAdapter(db));
+            mSplitsDbAdapter = new SplitsDbAdapter(db);
+            mTransactionsDbAdapter = new TransactionsDbAdapter(db, mSplitsDbAdapter);
             mAccountsDbAdapter = new AccountsDbAdapter(db, mTransactionsDbAdapter);
             mScheduledActionsDbAdapter = new ScheduledActionDbAdapter(db);
             mCommoditiesDbAdapter = new CommoditiesDbAdapter(db);
@@ -274,14 +409,222 @@ public class GncXmlHandler extends DefaultHandler {
         mTemplateAccountToTransactionMap = new HashMap<>();
 
         mAutoBalanceSplits = new ArrayList<>();
+        mImbalanceAccounts = new HashMap<>();
 
         mPriceList = new ArrayList<>();
     }
 
+    /**
+     * Enables the streaming mode, in which transactions are written to the database while the document is parsed.
+     * <p>The accounts are written when the first transaction is found, and then the transactions in batches
+     * of {@code batchSize}, so that the memory used does not depend on the number of transactions in the book.
+     * All records are still written inside a single database transaction, committed at the end of the document.</p>
+     * @param batchSize Number of transactions written at once, or 0 to write all records at the end of the document
+     */
+    public void setBatchSize(int batchSize) {
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Rolls back the records written so far if the document could not be parsed completely.
+     * <p>In streaming mode the database transaction of the import is opened while parsing,
+     * and would otherwise never be closed when the parser stops with an exception.
+     * This does nothing if the import was completed</p>
+     */
+    public void cancelImport() {
+        if (mWriterThread != null) {
+            mWriterThread.cancel();
+        }
+        try {
+            finishWriting();
+        } catch (SAXException e) {
+            Log.e(LOG_TAG, "Error cancelling the import: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the progress to which the parsed records are counted.
+     * <p>The progress is also checked at every element, and the import is stopped and rolled back
+     * if it has been cancelled</p>
+     * @param progress Progress of the import
+     */
+    public void setProgress(@Nullable ImportProgress progress) {
+        mProgress = progress;
+    }
+
+    /**
+     * Stops the parsing if the import has been cancelled
+     * @throws SAXException if the import has been cancelled
+     */
+    private void checkCancelled() throws SAXException {
+        if (mProgress != null && mProgress.isCancelled()) {
+            throw new SAXException("Import cancelled");
+        }
+    }
+
+    /**
+     * Enables the pipelined mode, in which the database writes run on a separate thread
+     * while the parsing goes on.
+     * <p>This is only useful in streaming mode, where the records are written while parsing.
+     * It must not be used when the database is already in a transaction on the parser thread,
+     * like during migrations, since the writer thread would wait for that transaction to end.</p>
+     * @param pipelined {@code true} to write to the database on a separate thread
+     * @see #setBatchSize(int)
+     */
+    public void setPipelined(boolean pipelined) {
+        mPipelined = pipelined;
+    }
+
+    /**
+     * Enables the merge mode, in which the records are merged into the existing book instead of replacing it.
+     * <p>Records are matched by GUID: new records are added, and existing records are only written
+     * if their content changed. Records of the book which are not in the file are kept.
+     * The numbers of rows written are available from {@link #getMergeResult()} after the import</p>
+     * @param merge {@code true} to merge into the existing book, {@code false} to replace it
+     */
+    public void setMerge(boolean merge) {
+        mMerge = merge;
+    }
+
+    /**
+     * Enables the bulk load mode, in which the records are written in a {@link BulkLoadSession}.
+     * <p>The foreign keys, secondary indexes and transaction summary triggers are then only enforced
+     * and rebuilt once at the end of the import. This is ignored in merge mode,
+     * which looks up the existing records and needs the indexes</p>
+     * @param bulkLoad {@code true} to write the records in a bulk load session
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        mBulkLoad = bulkLoad;
+    }
+
+    /**
+     * Enables the integrity check of the database at the end of an import in bulk load mode.
+     * <p>The import is rolled back if the check fails</p>
+     * @param integrityCheck {@code true} to check the integrity of the database
+     * @see BulkLoadSession#setIntegrityCheck(boolean)
+     */
+    public void setIntegrityCheck(boolean integrityCheck) {
+        mIntegrityCheck = integrityCheck;
+    }
+
+    /**
+     * Returns the numbers of rows added, updated and left unchanged by the import in merge mode
+     * @return Counts of the rows written, or null if the records are not merged
+     */
+    @Nullable
+    public MergeResult getMergeResult() {
+        return mMergeResult;
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        super.startDocument();
+        if (mMerge) {
+            loadExistingRecords();
+        }
+        //the commodities are only cached outside of transactions, and in pipelined mode
+        //the parser thread must not query the database while the writer thread holds the import transaction
+        mCommoditiesDbAdapter.loadCommodityCache();
+        if (mPipelined) {
+            mWriterThread = new DbWriterThread(WRITER_QUEUE_CAPACITY, new Runnable() {
+                @Override
+                public void run() {
+                    endImport();
+                }
+            });
+            mWriterThread.start();
+        }
+    }
+
+    /**
+     * Reads the records of the book which the imported records are merged with.
+     * <p>This is done before the database transaction of the import is opened,
+     * since the parser thread must not query the database afterwards in pipelined mode</p>
+     */
+    private void loadExistingRecords() {
+        mMergeResult = new MergeResult();
+        mExistingRootUID = mAccountsDbAdapter.getOrCreateGnuCashRootAccountUID();
+
+        //balancing splits go to the existing imbalance accounts, unless the file has its own
+        String imbalancePrefix = AccountsDbAdapter.getImbalanceAccountPrefix();
+        List<Account> imbalanceAccounts = mAccountsDbAdapter.getSimpleAccountList(
+                AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " = ? AND " + AccountEntry.COLUMN_NAME + " LIKE ?",
+                new String[]{mExistingRootUID, imbalancePrefix + "%"}, null);
+        for (Account account : imbalanceAccounts) {
+            mImbalanceAccounts.put(account.getName().substring(imbalancePrefix.length()), account);
+        }
+
+        mExistingScheduledActions = new HashMap<>();
+        for (ScheduledAction scheduledAction : mScheduledActionsDbAdapter.getAllRecords()) {
+            mExistingScheduledActions.put(scheduledAction.getUID(), scheduledAction);
+        }
+    }
+
+    /**
+     * Runs a database write, on the writer thread in pipelined mode, or right away otherwise
+     * @param task Database write
+     * @throws SAXException if a previous write failed in pipelined mode
+     */
+    private void write(Runnable task) throws SAXException {
+        if (mWriterThread != null) {
+            mWriterThread.submit(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Waits for the database writes to complete and closes the database transaction of the import
+     * @throws SAXException if a write failed in pipelined mode
+     */
+    private void finishWriting() throws SAXException {
+        if (mWriterThread != null) {
+            DbWriterThread writerThread = mWriterThread;
+            mWriterThread = null;
+            writerThread.finish();
+        } else {
+            endImport();
+        }
+    }
+
+    /**
+     * Closes the database transaction of the import, which is committed only if it was marked successful
+     */
+    private void endImport() {
+        if (mImportInProgress) {
+            mImportInProgress = false;
+            mAccountsDbAdapter.endTransaction();
+            //the cache may hold prices read during the import, which was possibly rolled back
+            PricesDbAdapter.invalidatePriceCache();
+        }
+        if (mBulkLoadSession != null) {
+            mBulkLoadSession.close();
+            mBulkLoadSession = null;
+        }
+    }
+
+    /**
+     * Checks if the text of an element is used when importing.
+     * <p>Parsers driving this handler do not need to report the characters of the other elements</p>
+     * @param qualifiedName Qualified name of the element
+     * @return {@code true} if the text of the element is used, {@code false} otherwise
+     */
+    static boolean isTextElement(String qualifiedName) {
+        return TEXT_ELEMENTS.contains(qualifiedName);
+    }
+
     @Override
     public void startElement(String uri, String localName,
                              String qualifiedName, Attributes attributes) throws SAXException {
+        checkCancelled();
+        //the whitespace before the element is not part of its text
+        mContent.setLength(0);
         switch (qualifiedName){
+            case GncXmlHelper.TAG_DIFFERENTIAL:
+                if (!mMerge) {
+                    throw new SAXException("A differential backup can only be merged into the book it was made from");
+                }
+                break;
             case GncXmlHelper.TAG_ACCOUNT:
                 mAccount = new Account(""); // dummy name, will be replaced when we find name tag
                 mISO4217Currency = false;
@@ -337,7 +680,8 @@ public class GncXmlHandler extends DefaultHandler {
 
     @Override
     public void endElement(String uri, String localName, String qualifiedName) throws SAXException {
-        String characterString = mContent.toString().trim();
+        checkCancelled();
+        String characterString = mContent.length() == 0 ? "" : mContent.toString().trim();
 
         if (mIgnoreElement != null) {
             // Ignore everything inside
@@ -397,6 +741,9 @@ public class GncXmlHandler extends DefaultHandler {
             case GncXmlHelper.TAG_ACCOUNT:
                 if (!mInTemplates) { //we ignore template accounts, we have no use for them
                     mAccountList.add(mAccount);
+                    if (mProgress != null) {
+                        mProgress.incrementAccountCount();
+                    }
                     mAccountMap.put(mAccount.getUID(), mAccount);
                     // check ROOT account
                     if (mAccount.getAccountType() == AccountType.ROOT) {
@@ -532,43 +879,44 @@ public class GncXmlHandler extends DefaultHandler {
                 mSplit.setMemo(characterString);
                 break;
             case GncXmlHelper.TAG_SPLIT_VALUE:
-                try {
-                    // The value and quantity can have different sign for custom currency(stock).
-                    // Use the sign of value for split, as it would not be custom currency
-                    String q = characterString;
-                    if (q.charAt(0) == '-') {
-                        mNegativeQuantity = true;
-                        q = q.substring(1);
-                    } else {
-                        mNegativeQuantity = false;
-                    }
-                    mValue = GncXmlHelper.parseSplitAmount(characterString).abs(); // use sign from quantity
-                } catch (ParseException e) {
-                    String msg = "Error parsing split quantity - " + characterString;
-                    Crashlytics.log(msg);
-                    Crashlytics.logException(e);
-                    throw new SAXException(msg, e);
-                }
+                // The value and quantity can have different sign for custom currency(stock).
+                // Use the sign of value for split, as it would not be custom currency
+                mNegativeQuantity = characterString.charAt(0) == '-';
+                mValue = characterString;
                 break;
             case GncXmlHelper.TAG_SPLIT_QUANTITY:
-                // delay the assignment of currency when the split account is seen
-                try {
-                    mQuantity = GncXmlHelper.parseSplitAmount(characterString).abs();
-                } catch (ParseException e) {
-                    String msg = "Error parsing split quantity - " + characterString;
-                    Crashlytics.log(msg);
-                    Crashlytics.logException(e);
-                    throw new SAXException(msg, e);
-                }
+                // delay the parsing until the currency is known, when the split account is seen
+                mQuantity = characterString;
                 break;
             case GncXmlHelper.TAG_SPLIT_ACCOUNT:
                 if (!mInTemplates) {
                     //this is intentional: GnuCash XML formats split amounts, credits are negative, debits are positive.
                     mSplit.setType(mNegativeQuantity ? TransactionType.CREDIT : TransactionType.DEBIT);
-                    //the split amount uses the account currency
-                    mSplit.setQuantity(new Money(mQuantity, getCurrencyForAccount(characterString)));
-                    //the split value uses the transaction currency
-                    mSplit.setValue(new Money(mValue, mTransaction.getCurrency()));
+                    try {
+                        //the split amount uses the account currency
+                        Currency accountCurrency = getCurrencyForAccount(characterString);
+                        long quantityDenom = getDenominator(accountCurrency);
+                        long quantityNum = GncXmlHelper.parseSplitAmountNumerator(mQuantity, quantityDenom);
+                        if (quantityNum != Long.MIN_VALUE) {
+                            mSplit.setQuantity(Math.abs(quantityNum), quantityDenom, accountCurrency);
+                        } else {
+                            mSplit.setQuantity(new Money(GncXmlHelper.parseSplitAmount(mQuantity).abs(), accountCurrency));
+                        }
+                        //the split value uses the transaction currency
+                        Currency transactionCurrency = mTransaction.getCurrency();
+                        long valueDenom = getDenominator(transactionCurrency);
+                        long valueNum = GncXmlHelper.parseSplitAmountNumerator(mValue, valueDenom);
+                        if (valueNum != Long.MIN_VALUE) {
+                            mSplit.setValue(Math.abs(valueNum), valueDenom, transactionCurrency);
+                        } else {
+                            mSplit.setValue(new Money(GncXmlHelper.parseSplitAmount(mValue).abs(), transactionCurrency));
+                        }
+                    } catch (ParseException e) {
+                        String msg = "Error parsing split amounts - " + mValue + ", " + mQuantity;
+                        Crashlytics.log(msg);
+                        Crashlytics.logException(e);
+                        throw new SAXException(msg, e);
+                    }
                     mSplit.setAccountUID(characterString);
                 } else {
                     if (!mIgnoreTemplateTransaction)
@@ -580,21 +928,35 @@ public class GncXmlHandler extends DefaultHandler {
                 break;
             case GncXmlHelper.TAG_TRANSACTION:
                 mTransaction.setTemplate(mInTemplates);
+                if (mBatchSize > 0 && !mAccountsWritten) {
+                    //the accounts come before the transactions in the book
+                    startImport();
+                }
                 Split imbSplit = mTransaction.getAutoBalanceSplit();
                 if (imbSplit != null) {
-                    mAutoBalanceSplits.add(imbSplit);
+                    if (mAccountsWritten) {
+                        setImbalanceAccount(imbSplit);
+                    } else {
+                        mAutoBalanceSplits.add(imbSplit);
+                    }
                 }
                 if (mInTemplates){
                     if (!mIgnoreTemplateTransaction)
                         mTemplateTransactions.add(mTransaction);
                 } else {
                     mTransactionList.add(mTransaction);
+                    if (mProgress != null) {
+                        mProgress.incrementTransactionCount();
+                    }
                 }
                 if (mRecurrencePeriod > 0) { //if we find an old format recurrence period, parse it
                     mTransaction.setTemplate(true);
                     ScheduledAction scheduledAction = ScheduledAction.parseScheduledAction(mTransaction, mRecurrencePeriod);
                     mScheduledActionsList.add(scheduledAction);
                 }
+                if (mBatchSize > 0 && mTransactionList.size() >= mBatchSize) {
+                    flushTransactions();
+                }
                 mRecurrencePeriod = 0;
                 mIgnoreTemplateTransaction = true;
                 mTransaction = null;
@@ -640,7 +1002,7 @@ public class GncXmlHandler extends DefaultHandler {
                 break;
             case GncXmlHelper.TAG_GDATE:
                 try {
-                    long date = GncXmlHelper.DATE_FORMATTER.parse(characterString).getTime();
+                    long date = GncXmlHelper.parseGDate(characterString);
                     if (mIsScheduledStart && mScheduledAction != null) {
                         mScheduledAction.setCreatedTimestamp(new Timestamp(date));
                         mIsScheduledStart = false;
@@ -677,6 +1039,9 @@ public class GncXmlHandler extends DefaultHandler {
                 break;
             case GncXmlHelper.TAG_SCHEDULED_ACTION:
                 if (mScheduledAction.getActionUID() != null && !mIgnoreScheduledAction) {
+                    if (mMerge) {
+                        mergeScheduledActionRuns(mScheduledAction);
+                    }
                     mScheduledActionsList.add(mScheduledAction);
                     int count = generateMissedScheduledTransactions(mScheduledAction);
                     Log.i(LOG_TAG, String.format("Generated %d transactions from scheduled action", count));
@@ -714,9 +1079,23 @@ public class GncXmlHandler extends DefaultHandler {
                     mPrice.setType(characterString);
                 }
                 break;
+            case GncXmlHelper.TAG_TOMBSTONE_TABLE:
+                mTombstoneTable = characterString;
+                break;
+            case GncXmlHelper.TAG_TOMBSTONE_ID:
+                List<String> uids = mTombstones.get(mTombstoneTable);
+                if (uids == null) {
+                    uids = new ArrayList<>();
+                    mTombstones.put(mTombstoneTable, uids);
+                }
+                uids.add(characterString);
+                break;
             case GncXmlHelper.TAG_PRICE:
                 if (mPrice != null) {
                     mPriceList.add(mPrice);
+                    if (mProgress != null) {
+                        mProgress.incrementPriceCount();
+                    }
                     mPrice = null;
                 }
                 break;
@@ -734,8 +1113,67 @@ public class GncXmlHandler extends DefaultHandler {
     @Override
     public void endDocument() throws SAXException {
         super.endDocument();
+        try {
+            if (!mAccountsWritten) {
+                startImport();
+            }
+            final List<ScheduledAction> scheduledActions = mScheduledActionsList;
+            final List<Transaction> templateTransactions = mTemplateTransactions;
+            final List<Transaction> transactions = mTransactionList;
+            final List<Price> prices = mPriceList;
+            write(new Runnable() {
+                @Override
+                public void run() {
+                    long startTime = System.nanoTime();
+                    //We need to add scheduled actions first because there is a foreign key constraint on transactions
+                    //which are generated from scheduled actions (we do auto-create some transactions during import)
+                    long nSchedActions = writeRecords(mScheduledActionsDbAdapter, scheduledActions);
+                    Log.d("Handler:", String.format("%d scheduled actions inserted", nSchedActions));
+
+                    long nTempTransactions = writeTransactions(templateTransactions);
+                    Log.d("Handler:", String.format("%d template transactions inserted", nTempTransactions));
+
+                    long nTransactions = writeTransactions(transactions);
+                    Log.d("Handler:", String.format("%d transactions inserted", nTransactions));
+
+                    long nPrices = writeRecords(mPricesDbAdapter, prices);
+                    Log.d(LOG_TAG, String.format("%d prices inserted", nPrices));
+
+                    long endTime = System.nanoTime();
+                    Log.d(LOG_TAG, String.format("bulk insert time: %d", endTime - startTime));
+                    long writeTime = Math.max((endTime - mWriteStartTime) / 1000000, 1);
+                    Log.i(LOG_TAG, String.format("%d rows written in %d ms, %d rows/s%s", mRowsWritten, writeTime,
+                            mRowsWritten * 1000 / writeTime, mBulkLoadSession == null ? "" : " in bulk load mode"));
+
+                    if (mBulkLoadSession != null) {
+                        mBulkLoadSession.finish();
+                    }
+                    if (!mMerge || mMergeResult.hasChanges()) {
+                        mSplitsDbAdapter.rebuildAccountBalances();
+                    }
+                    if (mMerge) {
+                        Log.i(LOG_TAG, "Merged rows: " + mMergeResult);
+                    }
+
+                    if (mProgress != null && !mProgress.startCommit()) {
+                        //the import was cancelled while the last records were written
+                        throw new CancellationException("Import cancelled");
+                    }
+                    mAccountsDbAdapter.setTransactionSuccessful();
+                }
+            });
+        } finally {
+            finishWriting();
+        }
+    }
+
+    /**
+     * Completes the parsed accounts, opens the database transaction of the import and writes the accounts.
+     * <p>The existing records are deleted first, unless they are merged with. This is called at the end
+     * of the document, or at the first transaction in streaming mode</p>
+     */
+    private void startImport() throws SAXException {
         HashMap<String, String> mapFullName = new HashMap<>(mAccountList.size());
-        HashMap<String, Account> mapImbalanceAccount = new HashMap<>();
 
         // The XML has no ROOT, create one
         if (mRootAccount == null) {
@@ -745,6 +1183,19 @@ public class GncXmlHandler extends DefaultHandler {
             mAccountMap.put(mRootAccount.getUID(), mRootAccount);
         }
 
+        if (mMerge && !mRootAccount.getUID().equals(mExistingRootUID)) {
+            //the book can only have one root, so the imported accounts are attached to the existing one
+            String importedRootUID = mRootAccount.getUID();
+            mAccountMap.remove(importedRootUID);
+            mRootAccount.setUID(mExistingRootUID);
+            mAccountMap.put(mExistingRootUID, mRootAccount);
+            for (Account account : mAccountList) {
+                if (importedRootUID.equals(account.getParentUID())) {
+                    account.setParentUID(mExistingRootUID);
+                }
+            }
+        }
+
         String imbalancePrefix = AccountsDbAdapter.getImbalanceAccountPrefix();
 
         // Add all account without a parent to ROOT, and collect top level imbalance accounts
@@ -757,24 +1208,16 @@ public class GncXmlHandler extends DefaultHandler {
             }
             if (topLevel || (mRootAccount.getUID().equals(account.getParentUID()))) {
                 if (account.getName().startsWith(imbalancePrefix)) {
-                    mapImbalanceAccount.put(account.getName().substring(imbalancePrefix.length()), account);
+                    mImbalanceAccounts.put(account.getName().substring(imbalancePrefix.length()), account);
                 }
             }
         }
 
         // Set the account for created balancing splits to correct imbalance accounts
         for (Split split: mAutoBalanceSplits) {
-            String currencyCode = split.getAccountUID();
-            Account imbAccount = mapImbalanceAccount.get(currencyCode);
-            if (imbAccount == null) {
-                imbAccount = new Account(imbalancePrefix + currencyCode, Currency.getInstance(currencyCode));
-                imbAccount.setParentUID(mRootAccount.getUID());
-                imbAccount.setAccountType(AccountType.BANK);
-                mapImbalanceAccount.put(currencyCode, imbAccount);
-                mAccountList.add(imbAccount);
-            }
-            split.setAccountUID(imbAccount.getUID());
+            setImbalanceAccount(split);
         }
+        mAutoBalanceSplits.clear();
 
         java.util.Stack<Account> stack = new Stack<>();
         for (Account account:mAccountList){
@@ -815,36 +1258,145 @@ public class GncXmlHandler extends DefaultHandler {
         for (Account account:mAccountList){
             account.setFullName(mapFullName.get(account.getUID()));
         }
-        long startTime = System.nanoTime();
-        mAccountsDbAdapter.beginTransaction();
-        Log.d(getClass().getSimpleName(), "bulk insert starts");
-        try {
-            Log.d(getClass().getSimpleName(), "before clean up db");
-            mAccountsDbAdapter.deleteAllRecords();
-            Log.d(getClass().getSimpleName(), String.format("deb clean up done %d ns", System.nanoTime()-startTime));
-            long nAccounts = mAccountsDbAdapter.bulkAddRecords(mAccountList);
-            Log.d("Handler:", String.format("%d accounts inserted", nAccounts));
-            //We need to add scheduled actions first because there is a foreign key constraint on transactions
-            //which are generated from scheduled actions (we do auto-create some transactions during import)
-            long nSchedActions = mScheduledActionsDbAdapter.bulkAddRecords(mScheduledActionsList);
-            Log.d("Handler:", String.format("%d scheduled actions inserted", nSchedActions));
+        mAccountsWritten = true;
+        //imbalance accounts may still be added to the list while the writer thread reads it
+        final List<Account> accounts = new ArrayList<>(mAccountList);
+        final Map<String, List<String>> tombstones = mTombstones;
+        write(new Runnable() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                mWriteStartTime = startTime;
+                if (mBulkLoad && !mMerge) {
+                    //the connection settings cannot change once the transaction is open
+                    mBulkLoadSession = mAccountsDbAdapter.openBulkLoadSession();
+                    mBulkLoadSession.setIntegrityCheck(mIntegrityCheck);
+                }
+                mAccountsDbAdapter.beginTransaction();
+                mImportInProgress = true;
+                if (mBulkLoadSession != null) {
+                    mBulkLoadSession.deferIndexes();
+                }
+                if (!mMerge) {
+                    Log.d(LOG_TAG, "before clean up db");
+                    mAccountsDbAdapter.deleteAllRecords();
+                    Log.d(LOG_TAG, String.format("deb clean up done %d ns", System.nanoTime() - startTime));
+                } else if (!tombstones.isEmpty()) {
+                    deleteTombstonedRecords(tombstones);
+                }
+                long nAccounts = writeRecords(mAccountsDbAdapter, accounts);
+                Log.d("Handler:", String.format("%d accounts inserted", nAccounts));
+            }
+        });
+    }
 
-            long nTempTransactions = mTransactionsDbAdapter.bulkAddRecords(mTemplateTransactions);
-            Log.d("Handler:", String.format("%d template transactions inserted", nTempTransactions));
+    /**
+     * Deletes the records which were deleted since the previous backup, when merging a differential backup.
+     * <p>This is done before the records of the backup are merged, so that a record added again
+     * after its deletion is kept. The records referencing others are deleted first</p>
+     * @param tombstones GUIDs of the deleted records, by table name
+     */
+    private void deleteTombstonedRecords(Map<String, List<String>> tombstones) {
+        String[] tableNames = {SplitEntry.TABLE_NAME, TransactionEntry.TABLE_NAME, ScheduledActionEntry.TABLE_NAME,
+                PriceEntry.TABLE_NAME, AccountEntry.TABLE_NAME};
+        DatabaseAdapter<?>[] adapters = {mSplitsDbAdapter, mTransactionsDbAdapter, mScheduledActionsDbAdapter,
+                mPricesDbAdapter, mAccountsDbAdapter};
+        for (int i = 0; i < tableNames.length; i++) {
+            List<String> uids = tombstones.get(tableNames[i]);
+            if (uids != null) {
+                int nDeleted = adapters[i].deleteRecords(uids, mMergeResult);
+                Log.d(LOG_TAG, String.format("%d records deleted from %s", nDeleted, tableNames[i]));
+            }
+        }
+    }
 
-            long nTransactions = mTransactionsDbAdapter.bulkAddRecords(mTransactionList);
-            Log.d("Handler:", String.format("%d transactions inserted", nTransactions));
+    /**
+     * Writes the transactions parsed so far to the database, in streaming mode
+     * <p>The scheduled actions parsed so far are written first, since generated transactions reference them</p>
+     */
+    private void flushTransactions() throws SAXException {
+        final List<ScheduledAction> scheduledActions = mScheduledActionsList;
+        final List<Transaction> transactions = mTransactionList;
+        mScheduledActionsList = new ArrayList<>();
+        mTransactionList = new ArrayList<>(mBatchSize);
+        write(new Runnable() {
+            @Override
+            public void run() {
+                if (!scheduledActions.isEmpty()) {
+                    writeRecords(mScheduledActionsDbAdapter, scheduledActions);
+                }
+                long nTransactions = writeTransactions(transactions);
+                Log.d("Handler:", String.format("%d transactions inserted", nTransactions));
+            }
+        });
+    }
 
-            long nPrices = mPricesDbAdapter.bulkAddRecords(mPriceList);
-            Log.d(getClass().getSimpleName(), String.format("%d prices inserted", nPrices));
+    /**
+     * Writes records to the database, merging them with the existing ones in merge mode
+     * @param adapter Database adapter of the records
+     * @param records Records to write
+     * @return Number of records written
+     */
+    private <T extends BaseModel> long writeRecords(DatabaseAdapter<T> adapter, List<T> records) {
+        long nRecords;
+        if (mMerge) {
+            nRecords = adapter.mergeRecords(records, mMergeResult);
+        } else {
+            nRecords = adapter.bulkAddRecords(records);
+        }
+        mRowsWritten += nRecords;
+        return nRecords;
+    }
 
-            long endTime = System.nanoTime();
-            Log.d(getClass().getSimpleName(), String.format("bulk insert time: %d", endTime - startTime));
+    /**
+     * Writes transactions and their splits to the database, merging them with the existing ones in merge mode.
+     * <p>The account balances are not recomputed</p>
+     * @param transactions Transactions to write
+     * @return Number of transactions written
+     */
+    private long writeTransactions(List<Transaction> transactions) {
+        long nTransactions;
+        if (mMerge) {
+            nTransactions = mTransactionsDbAdapter.mergeRecords(transactions, mMergeResult);
+        } else {
+            nTransactions = mTransactionsDbAdapter.bulkAddRecords(transactions, false);
+            for (Transaction transaction : transactions) {
+                mRowsWritten += transaction.getSplits().size();
+            }
+        }
+        mRowsWritten += nTransactions;
+        return nTransactions;
+    }
 
-            mAccountsDbAdapter.setTransactionSuccessful();
-        } finally {
-            mAccountsDbAdapter.endTransaction();
+    /**
+     * Assigns a balancing split to the top level imbalance account of its currency.
+     * <p>Until then, the account GUID of the split holds the currency code.
+     * The imbalance account is created if it does not exist, and is written right away
+     * if the other accounts already are</p>
+     * @param split Balancing split created for a transaction
+     */
+    private void setImbalanceAccount(Split split) throws SAXException {
+        String currencyCode = split.getAccountUID();
+        Account imbAccount = mImbalanceAccounts.get(currencyCode);
+        if (imbAccount == null) {
+            imbAccount = new Account(AccountsDbAdapter.getImbalanceAccountPrefix() + currencyCode,
+                    Currency.getInstance(currencyCode));
+            imbAccount.setParentUID(mRootAccount.getUID());
+            imbAccount.setAccountType(AccountType.BANK);
+            mImbalanceAccounts.put(currencyCode, imbAccount);
+            mAccountList.add(imbAccount);
+            if (mAccountsWritten) {
+                imbAccount.setFullName(imbAccount.getName());
+                final List<Account> accounts = Collections.singletonList(imbAccount);
+                write(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeRecords(mAccountsDbAdapter, accounts);
+                    }
+                });
+            }
         }
+        split.setAccountUID(imbAccount.getUID());
     }
 
     /**
@@ -863,6 +1415,21 @@ public class GncXmlHandler extends DefaultHandler {
     }
 
 
+    /**
+     * Returns the denominator of the GnuCash amounts in {@code currency}, like {@link Money#getDenominator()}
+     * @param currency Currency of the amounts
+     * @return Denominator, or -1 if the amounts of the currency cannot be stored as numerator and denominator
+     */
+    private static long getDenominator(Currency currency){
+        switch (currency.getDefaultFractionDigits()) {
+            case 0: return 1;
+            case 1: return 10;
+            case 2: return 100;
+            case 3: return 1000;
+            default: return -1;
+        }
+    }
+
     /**
      * Handles the case when we reach the end of the template numeric slot
      * @param characterString Parsed characters containing split amount
@@ -887,6 +1454,26 @@ public class GncXmlHandler extends DefaultHandler {
         }
     }
 
+    /**
+     * Keeps the runs of a scheduled action which is already in the database, when merging.
+     * <p>Otherwise the transactions generated since the file was saved would be generated again</p>
+     * @param scheduledAction Scheduled action parsed from the file
+     */
+    private void mergeScheduledActionRuns(ScheduledAction scheduledAction) {
+        ScheduledAction existingAction = mExistingScheduledActions.get(scheduledAction.getUID());
+        if (existingAction == null) {
+            return;
+        }
+        if (existingAction.getLastRun() > scheduledAction.getLastRun()) {
+            scheduledAction.setLastRun(existingAction.getLastRun());
+            scheduledAction.setExecutionCount(existingAction.getExecutionCount());
+        }
+        if (scheduledAction.getActionType() != ScheduledAction.ActionType.TRANSACTION) {
+            //the action GUID of other actions is generated at each import
+            scheduledAction.setActionUID(existingAction.getActionUID());
+        }
+    }
+
     /**
      * Generates the runs of the scheduled action which have been missed since the file was last opened.
      * @param scheduledAction Scheduled action for transaction
@@ -18,20 +18,27 @@ package org.gnucash.android.importer;
 
 import android.database.sqlite.SQLiteDatabase;
 import android.preference.PreferenceManager;
+import android.support.annotation.Nullable;
 import android.util.Log;
+import android.util.Xml;
 
+import org.gnucash.android.BuildConfig;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.MergeResult;
 import org.gnucash.android.export.Exporter;
+import org.gnucash.android.util.MultiMemberGzipInputStream;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.sql.Timestamp;
-import java.util.zip.GZIPInputStream;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -44,6 +51,21 @@ import javax.xml.parsers.SAXParserFactory;
  */
 public class GncXmlImporter {
 
+    /**
+     * XML parsers which can be used to import a file.
+     * <p>They produce the same database contents, since both drive a {@link GncXmlHandler}</p>
+     */
+    public enum ParserType {
+        /**
+         * SAX parser, reporting the text of all elements
+         */
+        SAX,
+        /**
+         * Pull parser, only reading the text of the elements used by the import
+         */
+        PULL
+    }
+
     /**
      * Parses XML into an already open database.
      * <p>This method is used mainly by the {@link org.gnucash.android.db.DatabaseHelper} for database migrations.<br>
@@ -61,9 +83,14 @@ public class GncXmlImporter {
         /** Create handler to handle XML Tags ( extends DefaultHandler ) */
 
         GncXmlHandler handler = new GncXmlHandler(db);
+        handler.setBatchSize(GncXmlHandler.DEFAULT_BATCH_SIZE);
 
         xr.setContentHandler(handler);
-        xr.parse(new InputSource(bos));
+        try {
+            xr.parse(new InputSource(bos));
+        } finally {
+            handler.cancelImport();
+        }
     }
 
     /**
@@ -71,31 +98,160 @@ public class GncXmlImporter {
      * @param gncXmlInputStream InputStream source of the GnuCash XML file
      */
     public static void parse(InputStream gncXmlInputStream) throws ParserConfigurationException, SAXException, IOException {
-        SAXParserFactory spf = SAXParserFactory.newInstance();
-        SAXParser sp = spf.newSAXParser();
-        XMLReader xr = sp.getXMLReader();
+        parse(gncXmlInputStream, ParserType.SAX);
+    }
+
+    /**
+     * Parse GnuCash XML input with the specified parser and populates the database
+     * <p>The time spent is logged with the parser type, so that the parsers can be compared</p>
+     * @param gncXmlInputStream InputStream source of the GnuCash XML file
+     * @param parserType XML parser to use
+     */
+    public static void parse(InputStream gncXmlInputStream, ParserType parserType)
+            throws ParserConfigurationException, SAXException, IOException {
+        parse(gncXmlInputStream, parserType, null);
+    }
+
+    /**
+     * Parse GnuCash XML input with the specified parser and populates the database, reporting the progress
+     * <p>If the import is cancelled through {@code progress}, the database is left unchanged
+     * and a {@link SAXException} is thrown</p>
+     * @param gncXmlInputStream InputStream source of the GnuCash XML file
+     * @param parserType XML parser to use
+     * @param progress Progress of the import, or null if it is not reported
+     */
+    public static void parse(InputStream gncXmlInputStream, ParserType parserType, @Nullable ImportProgress progress)
+            throws ParserConfigurationException, SAXException, IOException {
+        importXml(gncXmlInputStream, parserType, progress, false);
+    }
 
+    /**
+     * Merges GnuCash XML input into the existing book, instead of replacing it.
+     * <p>Records are matched by GUID. New records are added, and existing records are only updated
+     * if their content changed, so that re-importing a mostly identical book only writes the changed rows.
+     * The records of the book which are not in the file are kept</p>
+     * @param gncXmlInputStream InputStream source of the GnuCash XML file
+     * @param progress Progress of the import, or null if it is not reported
+     * @return Numbers of rows added, updated and left unchanged
+     */
+    public static MergeResult merge(InputStream gncXmlInputStream, @Nullable ImportProgress progress)
+            throws ParserConfigurationException, SAXException, IOException {
+        return importXml(gncXmlInputStream, ParserType.SAX, progress, true);
+    }
+
+    /**
+     * Restores a chain of backups: a full backup, followed by the differential backups made after it, in order.
+     * <p>The full backup replaces the book, and the differential backups are merged into it,
+     * deleting the records which were deleted in between. Each backup is imported in its own
+     * database transaction, so that the book is left as of the last backup restored if one of them fails</p>
+     * @param backups Input streams of the backups of the chain, starting with the full backup
+     * @param progress Progress of the import, or null if it is not reported
+     */
+    public static void restoreBackupChain(List<InputStream> backups, @Nullable ImportProgress progress)
+            throws ParserConfigurationException, SAXException, IOException {
+        for (int i = 0; i < backups.size(); i++) {
+            importXml(backups.get(i), ParserType.SAX, progress, i > 0);
+        }
+    }
+
+    /**
+     * Imports GnuCash XML input into the database
+     * @param gncXmlInputStream InputStream source of the GnuCash XML file
+     * @param parserType XML parser to use
+     * @param progress Progress of the import, or null if it is not reported
+     * @param merge {@code true} to merge the records into the existing book, {@code false} to replace it
+     * @return Numbers of rows written when merging, or null
+     */
+    private static MergeResult importXml(InputStream gncXmlInputStream, ParserType parserType,
+                                         @Nullable ImportProgress progress, boolean merge)
+            throws ParserConfigurationException, SAXException, IOException {
+        if (progress != null) {
+            //count the bytes of the file itself, before decompression
+            gncXmlInputStream = new CountingInputStream(gncXmlInputStream, progress);
+        }
         BufferedInputStream bos;
         PushbackInputStream pb = new PushbackInputStream( gncXmlInputStream, 2 ); //we need a pushbackstream to look ahead
         byte [] signature = new byte[2];
         pb.read( signature ); //read the signature
         pb.unread( signature ); //push back the signature to the stream
         if( signature[ 0 ] == (byte) 0x1f && signature[ 1 ] == (byte) 0x8b ) //check if matches standard gzip magic number
-            bos = new BufferedInputStream(new GZIPInputStream(pb));
+            bos = new BufferedInputStream(new MultiMemberGzipInputStream(pb)); //backups are made of several gzip members
         else
             bos = new BufferedInputStream(pb);
 
         //TODO: Set an error handler which can log errors
         Log.d(GncXmlImporter.class.getSimpleName(), "Start import");
         GncXmlHandler handler = new GncXmlHandler();
-        xr.setContentHandler(handler);
+        handler.setBatchSize(GncXmlHandler.DEFAULT_BATCH_SIZE);
+        handler.setPipelined(true);
+        handler.setProgress(progress);
+        handler.setMerge(merge);
+        handler.setBulkLoad(true);
+        //the check reads the whole database, so only debug builds pay for it
+        handler.setIntegrityCheck(BuildConfig.DEBUG);
         long startTime = System.nanoTime();
-        xr.parse(new InputSource(bos));
+        try {
+            if (parserType == ParserType.PULL) {
+                pullParse(bos, handler);
+            } else {
+                SAXParserFactory spf = SAXParserFactory.newInstance();
+                SAXParser sp = spf.newSAXParser();
+                XMLReader xr = sp.getXMLReader();
+                xr.setContentHandler(handler);
+                xr.parse(new InputSource(bos));
+            }
+        } finally {
+            handler.cancelImport();
+        }
         long endTime = System.nanoTime();
 
         String timeStamp = new Timestamp(System.currentTimeMillis()).toString();
         PreferenceManager.getDefaultSharedPreferences(GnuCashApplication.getAppContext()).edit().putString(Exporter.PREF_LAST_EXPORT_TIME, timeStamp).apply();
 
-        Log.d(GncXmlImporter.class.getSimpleName(), String.format("%d ns spent on importing the file", endTime-startTime));
+        Log.d(GncXmlImporter.class.getSimpleName(), String.format("%d ns spent on importing the file with the %s parser",
+                endTime-startTime, parserType));
+        return handler.getMergeResult();
+    }
+
+    /**
+     * Reads the XML with a pull parser, and reports the events to the handler like a SAX parser would.
+     * <p>The text is only reported for the elements whose text the handler uses,
+     * so that the text of the other elements is never copied</p>
+     * @param inputStream XML input
+     * @param handler Handler for the XML events
+     */
+    private static void pullParse(InputStream inputStream, GncXmlHandler handler) throws SAXException, IOException {
+        try {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(inputStream, null);
+            int[] textBounds = new int[2];
+            boolean isTextElement = false;
+            handler.startDocument();
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                switch (eventType) {
+                    case XmlPullParser.START_TAG:
+                        String startName = parser.getName();
+                        handler.startElement("", startName, startName, null);
+                        isTextElement = GncXmlHandler.isTextElement(startName);
+                        break;
+                    case XmlPullParser.TEXT:
+                        if (isTextElement) {
+                            char[] text = parser.getTextCharacters(textBounds);
+                            handler.characters(text, textBounds[0], textBounds[1]);
+                        }
+                        break;
+                    case XmlPullParser.END_TAG:
+                        String endName = parser.getName();
+                        handler.endElement("", endName, endName);
+                        isTextElement = false;
+                        break;
+                }
+                eventType = parser.next();
+            }
+            handler.endDocument();
+        } catch (XmlPullParserException e) {
+            throw new SAXException(e);
+        }
     }
 }
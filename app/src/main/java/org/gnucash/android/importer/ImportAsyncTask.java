@@ -18,8 +18,14 @@ package org.gnucash.android.importer;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.ProgressDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Build;
+import android.provider.OpenableColumns;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -29,17 +35,32 @@ import org.gnucash.android.R;
 import org.gnucash.android.ui.account.AccountsActivity;
 import org.gnucash.android.ui.util.TaskDelegate;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * Imports a GnuCash (desktop) account file and displays a progress dialog.
  * The AccountsActivity is opened when importing is done.
+ * <p>The progress dialog shows the part of the file read and the records found,
+ * and lets the user cancel the import, which leaves the database unchanged</p>
  */
 public class ImportAsyncTask extends AsyncTask<InputStream, Void, Boolean> {
     private final Activity context;
     private TaskDelegate mDelegate;
     private ProgressDialog progressDialog;
 
+    /**
+     * Size of the file in bytes, or -1 if it is not known
+     */
+    private long mFileSize = -1;
+
+    private final ImportProgress mImportProgress = new ImportProgress() {
+        @Override
+        protected void onProgress() {
+            publishProgress();
+        }
+    };
+
     public ImportAsyncTask(Activity context){
         this.context = context;
     }
@@ -49,6 +70,51 @@ public class ImportAsyncTask extends AsyncTask<InputStream, Void, Boolean> {
         this.mDelegate = delegate;
     }
 
+    /**
+     * Sets the size of the imported file, so that the progress can be shown as a percentage.
+     * <p>The progress is indeterminate if the size is not set</p>
+     * @param fileSize Size of the file in bytes, or -1 if it is not known
+     * @see #getFileSize(Context, Uri)
+     */
+    public void setFileSize(long fileSize) {
+        mFileSize = fileSize;
+    }
+
+    /**
+     * Returns the size of the file at {@code uri}, as reported by its content provider
+     * or by its file descriptor
+     * @param context Context for the content resolver
+     * @param uri URI of the file
+     * @return Size of the file in bytes, or -1 if it is not known
+     */
+    public static long getFileSize(Context context, Uri uri) {
+        try {
+            Cursor cursor = context.getContentResolver().query(uri, new String[]{OpenableColumns.SIZE},
+                    null, null, null);
+            if (cursor != null) {
+                try {
+                    if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                        return cursor.getLong(0);
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            //file URIs have no provider to query
+            AssetFileDescriptor fileDescriptor = context.getContentResolver().openAssetFileDescriptor(uri, "r");
+            if (fileDescriptor != null) {
+                try {
+                    return fileDescriptor.getLength(); //UNKNOWN_LENGTH is -1
+                } finally {
+                    fileDescriptor.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(ImportAsyncTask.class.getName(), "Could not get the size of " + uri + ": " + e.getMessage());
+        }
+        return -1;
+    }
+
     @TargetApi(11)
     @Override
     protected void onPreExecute() {
@@ -57,6 +123,20 @@ public class ImportAsyncTask extends AsyncTask<InputStream, Void, Boolean> {
         progressDialog.setTitle(R.string.title_progress_importing_accounts);
         progressDialog.setIndeterminate(true);
         progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        progressDialog.setMessage(getProgressMessage());
+        progressDialog.setButton(DialogInterface.BUTTON_NEGATIVE, context.getString(R.string.btn_cancel),
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        cancelImport();
+                    }
+                });
+        progressDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+                cancelImport();
+            }
+        });
         progressDialog.show();
         if (Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB){
             //these methods must be called after progressDialog.show()
@@ -69,8 +149,12 @@ public class ImportAsyncTask extends AsyncTask<InputStream, Void, Boolean> {
     @Override
     protected Boolean doInBackground(InputStream... inputStreams) {
         try {
-            GncXmlImporter.parse(inputStreams[0]);
+            GncXmlImporter.parse(inputStreams[0], GncXmlImporter.ParserType.SAX, mImportProgress);
         } catch (Exception exception){
+            if (mImportProgress.isCancelled()) {
+                Log.i(ImportAsyncTask.class.getName(), "Import cancelled");
+                return false;
+            }
             Log.e(ImportAsyncTask.class.getName(), "" + exception.getMessage());
             Crashlytics.logException(exception);
             exception.printStackTrace();
@@ -90,11 +174,59 @@ public class ImportAsyncTask extends AsyncTask<InputStream, Void, Boolean> {
         return true;
     }
 
+    @Override
+    protected void onProgressUpdate(Void... values) {
+        if (progressDialog == null)
+            return;
+
+        long bytesRead = mImportProgress.getBytesRead();
+        if (mFileSize > 0 && bytesRead <= mFileSize) {
+            progressDialog.setIndeterminate(false);
+            progressDialog.setMax(100);
+            progressDialog.setProgress((int) (bytesRead * 100 / mFileSize));
+        }
+        progressDialog.setMessage(getProgressMessage());
+    }
+
     @Override
     protected void onPostExecute(Boolean importSuccess) {
         if (mDelegate != null)
             mDelegate.onTaskComplete();
 
+        dismissProgressDialog();
+
+        int message = importSuccess ? R.string.toast_success_importing_accounts : R.string.toast_error_importing_accounts;
+        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+
+        AccountsActivity.start(context);
+    }
+
+    @Override
+    protected void onCancelled() {
+        if (mDelegate != null)
+            mDelegate.onTaskComplete();
+
+        dismissProgressDialog();
+        Toast.makeText(context, R.string.toast_import_cancelled, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Stops the import, unless it has started to commit. The records already written are rolled back
+     */
+    private void cancelImport() {
+        if (mImportProgress.cancel()) {
+            cancel(false);
+        } else {
+            Log.i(ImportAsyncTask.class.getName(), "Import is committing, the cancel is ignored");
+        }
+    }
+
+    private String getProgressMessage() {
+        return context.getString(R.string.label_import_progress, mImportProgress.getAccountCount(),
+                mImportProgress.getTransactionCount(), mImportProgress.getPriceCount());
+    }
+
+    private void dismissProgressDialog() {
         try {
             if (progressDialog != null && progressDialog.isShowing())
                 progressDialog.dismiss();
@@ -104,10 +236,5 @@ public class ImportAsyncTask extends AsyncTask<InputStream, Void, Boolean> {
         } finally {
             progressDialog = null;
         }
-
-        int message = importSuccess ? R.string.toast_success_importing_accounts : R.string.toast_error_importing_accounts;
-        Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
-
-        AccountsActivity.start(context);
     }
 }
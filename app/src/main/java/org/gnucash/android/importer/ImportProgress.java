@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.importer;
+
+/**
+ * Progress of an import, which is also used to cancel it.
+ * <p>The counters are updated by the import and can be read from any thread.
+ * {@link #onProgress()} is called on the parser thread every time {@link #REPORT_INTERVAL_BYTES}
+ * more bytes of the input have been read</p>
+ */
+public class ImportProgress {
+    /**
+     * Number of bytes read between two calls to {@link #onProgress()}
+     */
+    public static final long REPORT_INTERVAL_BYTES = 64 * 1024;
+
+    private volatile long mBytesRead = 0;
+    private long mReportedBytes = 0;
+
+    private volatile int mAccountCount = 0;
+    private volatile int mTransactionCount = 0;
+    private volatile int mPriceCount = 0;
+
+    private boolean mCancelled = false;
+
+    /**
+     * Set once the import commits its records, after which it can no longer be cancelled
+     */
+    private boolean mCommitting = false;
+
+    /**
+     * Returns the number of bytes of the input read so far, before decompression
+     * @return Number of bytes read
+     */
+    public long getBytesRead() {
+        return mBytesRead;
+    }
+
+    /**
+     * Returns the number of accounts parsed so far
+     * @return Number of accounts
+     */
+    public int getAccountCount() {
+        return mAccountCount;
+    }
+
+    /**
+     * Returns the number of transactions parsed so far, excluding the template transactions
+     * @return Number of transactions
+     */
+    public int getTransactionCount() {
+        return mTransactionCount;
+    }
+
+    /**
+     * Returns the number of prices parsed so far
+     * @return Number of prices
+     */
+    public int getPriceCount() {
+        return mPriceCount;
+    }
+
+    /**
+     * Requests the import to stop.
+     * <p>The import stops at the next XML element and rolls back the records already written,
+     * so the database keeps its previous contents. Once the import has started to commit,
+     * the request is ignored</p>
+     * @return {@code true} if the import will stop, {@code false} if it is committing its records
+     */
+    public synchronized boolean cancel() {
+        if (mCommitting) {
+            return false;
+        }
+        mCancelled = true;
+        return true;
+    }
+
+    /**
+     * Checks if the import has been cancelled
+     * @return {@code true} if {@link #cancel()} succeeded, {@code false} otherwise
+     */
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Marks the start of the commit of the imported records, unless the import was cancelled before
+     * @return {@code true} if the records can be committed, {@code false} if the import was cancelled
+     */
+    synchronized boolean startCommit() {
+        if (mCancelled) {
+            return false;
+        }
+        mCommitting = true;
+        return true;
+    }
+
+    /**
+     * Called on the parser thread when the progress has changed.
+     * Subclasses can override it to report the progress, the default implementation does nothing
+     */
+    protected void onProgress() {
+        //nothing to do
+    }
+
+    void addBytesRead(long count) {
+        mBytesRead += count;
+        if (mBytesRead - mReportedBytes >= REPORT_INTERVAL_BYTES) {
+            mReportedBytes = mBytesRead;
+            onProgress();
+        }
+    }
+
+    void incrementAccountCount() {
+        mAccountCount++;
+    }
+
+    void incrementTransactionCount() {
+        mTransactionCount++;
+    }
+
+    void incrementPriceCount() {
+        mPriceCount++;
+    }
+}
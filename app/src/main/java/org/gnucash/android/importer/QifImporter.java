@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.importer;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Pair;
+
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.PricesDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.qif.QifHelper;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.model.TransactionType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importer for QIF files, like the ones written by {@link org.gnucash.android.export.qif.QifExporter}
+ * or by other personal finance programs.
+ * <p>The file is read line by line and the transactions are written in batches, so the memory used
+ * does not depend on the size of the file. The transactions are added to the existing book:
+ * the accounts of the {@code !Account} headers and of the categories are looked up by their full name,
+ * and the missing ones are created. Categories and classes lists, memorized transactions,
+ * investment registers and prices are skipped</p>
+ * <p>The amounts of a register are in the currency of its account. The splits to accounts in another
+ * currency are converted with the price in effect at the date of the transaction, and go to the
+ * imbalance account if there is no such price</p>
+ * <p>All the transactions are written in one database transaction, so the book is left unchanged
+ * if the import fails or is cancelled</p>
+ */
+public class QifImporter {
+    private static final String LOG_TAG = "QifImporter";
+
+    /**
+     * Number of transactions written to the database at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of transfers kept while they wait for their second copy, see {@link #setMaxPendingTransfers(int)}
+     */
+    public static final int DEFAULT_MAX_PENDING_TRANSFERS = 10000;
+
+    /**
+     * Sections of a QIF file
+     */
+    private enum Section {
+        /**
+         * Lines before the first header, or of a section which has ended
+         */
+        NONE,
+        /**
+         * Account definitions, which also select the account of the following transactions
+         */
+        ACCOUNT,
+        /**
+         * Transactions of a bank, cash, credit card or other asset or liability register
+         */
+        TRANSACTIONS,
+        /**
+         * Lists and registers which are not imported
+         */
+        OTHER
+    }
+
+    /**
+     * Split of the transaction being read, from its {@code S}, {@code E} and {@code $} lines
+     */
+    private static class QifSplit {
+        String category;
+        String memo;
+        String amount;
+    }
+
+    private final AccountsDbAdapter mAccountsDbAdapter;
+    private final TransactionsDbAdapter mTransactionsDbAdapter;
+    private final PricesDbAdapter mPricesDbAdapter;
+    @Nullable private final ImportProgress mProgress;
+    private int mBatchSize = DEFAULT_BATCH_SIZE;
+    private int mMaxPendingTransfers = DEFAULT_MAX_PENDING_TRANSFERS;
+
+    /**
+     * GUIDs of the accounts by full name, loaded once before the import
+     */
+    private final Map<String, String> mAccountUIDs = new HashMap<>();
+
+    /**
+     * Currencies of the accounts by GUID
+     */
+    private final Map<String, Currency> mAccountCurrencies = new HashMap<>();
+
+    /**
+     * Accounts created during the import, which are written with the next batch of transactions
+     */
+    private List<Account> mNewAccounts = new ArrayList<>();
+
+    private List<Transaction> mTransactions;
+
+    /**
+     * Transfers imported from the register of one account, which will appear again in the register of
+     * the other account, mapped to the GUID of that account. They are removed when their second copy is found
+     * or when the register of the other account ends, and the oldest are dropped past {@link #mMaxPendingTransfers}
+     */
+    private final LinkedHashMap<String, String> mPendingTransfers = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() <= mMaxPendingTransfers)
+                return false;
+            Log.w(LOG_TAG, "Too many transfers waiting for their second copy, dropping the oldest");
+            return true;
+        }
+    };
+
+    /**
+     * GUIDs of the accounts whose register was read. The transfers to them have no second copy to wait for
+     */
+    private final Set<String> mReadRegisters = new HashSet<>();
+
+    /**
+     * Whether transactions were read since the account of the register was selected
+     */
+    private boolean mRegisterHasTransactions = false;
+
+    private String mRootAccountUID;
+    private int mLineNumber = 0;
+    private int mTransactionCount = 0;
+
+    private Section mSection = Section.NONE;
+    private Currency mCurrency;
+    private String mAccountUID;
+
+    private String mAccountName;
+    private String mAccountType;
+
+    private String mDate;
+    private String mAmount;
+    private String mPayee;
+    private String mMemo;
+    private String mCategory;
+    private final List<QifSplit> mSplits = new ArrayList<>();
+
+    /**
+     * Creates an importer which adds the transactions to the database of the adapters
+     * @param accountsDbAdapter Accounts database adapter
+     * @param transactionsDbAdapter Transactions database adapter of the same database
+     * @param pricesDbAdapter Prices database adapter of the same database
+     * @param progress Progress of the import, or null if it is not reported
+     */
+    public QifImporter(@NonNull AccountsDbAdapter accountsDbAdapter, @NonNull TransactionsDbAdapter transactionsDbAdapter,
+                       @NonNull PricesDbAdapter pricesDbAdapter, @Nullable ImportProgress progress) {
+        mAccountsDbAdapter = accountsDbAdapter;
+        mTransactionsDbAdapter = transactionsDbAdapter;
+        mPricesDbAdapter = pricesDbAdapter;
+        mProgress = progress;
+        mTransactions = new ArrayList<>(mBatchSize);
+    }
+
+    /**
+     * Imports QIF input into the application database
+     * @param qifInputStream InputStream source of the QIF file
+     * @param progress Progress of the import, or null if it is not reported
+     * @return Number of transactions imported
+     */
+    public static int parse(InputStream qifInputStream, @Nullable ImportProgress progress) throws IOException, ParseException {
+        return new QifImporter(AccountsDbAdapter.getInstance(), TransactionsDbAdapter.getInstance(),
+                PricesDbAdapter.getInstance(), progress).importQif(qifInputStream);
+    }
+
+    /**
+     * Sets the number of transactions written to the database at once
+     * @param batchSize Number of transactions, at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        mBatchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Sets the maximum number of transfers kept while they wait for their second copy in the register
+     * of the other account. Past it, the oldest are dropped, and their second copy is imported
+     * as a transaction of its own
+     * @param maxPendingTransfers Number of transfers, at least 1
+     */
+    public void setMaxPendingTransfers(int maxPendingTransfers) {
+        mMaxPendingTransfers = Math.max(1, maxPendingTransfers);
+    }
+
+    /**
+     * Imports QIF input into the database.
+     * <p>If the import is cancelled through the progress, the database is left unchanged
+     * and an {@link IOException} is thrown</p>
+     * @param qifInputStream InputStream source of the QIF file
+     * @return Number of transactions imported
+     * @throws ParseException if a line of the file cannot be read, with its line number as error offset
+     */
+    public int importQif(InputStream qifInputStream) throws IOException, ParseException {
+        if (mProgress != null) {
+            qifInputStream = new CountingInputStream(qifInputStream, mProgress);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(qifInputStream, "UTF-8"));
+        mCurrency = Currency.getInstance(GnuCashApplication.getDefaultCurrencyCode());
+        long startTime = System.nanoTime();
+
+        mAccountsDbAdapter.beginTransaction();
+        try {
+            mRootAccountUID = mAccountsDbAdapter.getOrCreateGnuCashRootAccountUID();
+            loadAccounts();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                mLineNumber++;
+                readLine(line);
+            }
+            if (mDate != null) {
+                //the last transaction has no terminator
+                endTransaction();
+            }
+            flush();
+            mTransactionsDbAdapter.getSplitDbAdapter().rebuildAccountBalances();
+            if (mProgress != null && !mProgress.startCommit())
+                throw new IOException("Import cancelled");
+            mAccountsDbAdapter.setTransactionSuccessful();
+        } finally {
+            mAccountsDbAdapter.endTransaction();
+        }
+        Log.d(LOG_TAG, String.format("%d transactions imported in %d ns", mTransactionCount, System.nanoTime() - startTime));
+        return mTransactionCount;
+    }
+
+    /**
+     * Loads the full names, GUIDs and currencies of all the accounts
+     */
+    private void loadAccounts() {
+        Cursor cursor = mAccountsDbAdapter.fetchAccounts(null, null, null);
+        try {
+            int uidIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_UID);
+            int fullNameIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_FULL_NAME);
+            int currencyIndex = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_CURRENCY);
+            while (cursor.moveToNext()) {
+                String uid = cursor.getString(uidIndex);
+                mAccountUIDs.put(cursor.getString(fullNameIndex), uid);
+                mAccountCurrencies.put(uid, Currency.getInstance(cursor.getString(currencyIndex)));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void readLine(String line) throws IOException, ParseException {
+        if (line.trim().isEmpty())
+            return;
+
+        if (line.charAt(0) == '!') {
+            readHeader(line.trim());
+            return;
+        }
+        if (line.startsWith(QifHelper.INTERNAL_CURRENCY_PREFIX)) {
+            String currencyCode = line.substring(1).trim();
+            try {
+                mCurrency = Currency.getInstance(currencyCode);
+            } catch (IllegalArgumentException e) {
+                throw new ParseException("Unknown currency: " + currencyCode, mLineNumber);
+            }
+            return;
+        }
+
+        char prefix = line.charAt(0);
+        String value = line.substring(1).trim();
+        switch (mSection) {
+            case ACCOUNT:
+                readAccountLine(prefix, value);
+                break;
+            case TRANSACTIONS:
+                readTransactionLine(prefix, value);
+                break;
+            default:
+                //lines of the sections which are not imported
+                break;
+        }
+    }
+
+    private void readHeader(String header) throws ParseException {
+        if (mDate != null) {
+            //the transaction before the header has no terminator
+            endTransaction();
+        }
+        if (header.equalsIgnoreCase(QifHelper.ACCOUNT_HEADER) || header.equalsIgnoreCase("!Option:AutoSwitch")) {
+            //the account list between !Option:AutoSwitch and !Clear:AutoSwitch only has account definitions
+            mSection = Section.ACCOUNT;
+            mAccountName = null;
+            mAccountType = null;
+        } else if (header.regionMatches(true, 0, "!Type:", 0, 6)) {
+            String type = header.substring(6).trim();
+            if (getAccountType(type) != null) {
+                mSection = Section.TRANSACTIONS;
+            } else {
+                Log.i(LOG_TAG, "Skipping the QIF section " + header);
+                mSection = Section.OTHER;
+            }
+        } else {
+            mSection = Section.NONE;
+        }
+    }
+
+    private void readAccountLine(char prefix, String value) {
+        switch (prefix) {
+            case 'N':
+                mAccountName = value;
+                break;
+            case 'T':
+                mAccountType = value;
+                break;
+            case '^':
+                if (mAccountName != null && !mAccountName.isEmpty()) {
+                    AccountType accountType = mAccountType == null ? null : getAccountType(mAccountType);
+                    String accountUID = findOrCreateAccount(mAccountName,
+                            accountType == null ? AccountType.BANK : accountType, mCurrency);
+                    if (!accountUID.equals(mAccountUID))
+                        endRegister();
+                    mAccountUID = accountUID;
+                }
+                mAccountName = null;
+                mAccountType = null;
+                break;
+            default:
+                //description, credit limit and balance are not imported
+                break;
+        }
+    }
+
+    private void readTransactionLine(char prefix, String value) throws IOException, ParseException {
+        switch (prefix) {
+            case 'D':
+                mDate = value;
+                break;
+            case 'T':
+                mAmount = value;
+                break;
+            case 'U':
+                //same amount as T with more digits, written by recent versions of Quicken
+                if (mAmount == null)
+                    mAmount = value;
+                break;
+            case 'P':
+                mPayee = value;
+                break;
+            case 'M':
+                mMemo = value;
+                break;
+            case 'L':
+                mCategory = value;
+                break;
+            case 'S': {
+                QifSplit split = new QifSplit();
+                split.category = value;
+                mSplits.add(split);
+                break;
+            }
+            case 'E':
+                if (!mSplits.isEmpty())
+                    mSplits.get(mSplits.size() - 1).memo = value;
+                break;
+            case '$':
+                if (!mSplits.isEmpty())
+                    mSplits.get(mSplits.size() - 1).amount = value;
+                break;
+            case '^':
+                endTransaction();
+                if (mTransactions.size() >= mBatchSize)
+                    flush();
+                if (mProgress != null && mProgress.isCancelled())
+                    throw new IOException("Import cancelled");
+                break;
+            default:
+                //check numbers, cleared status, addresses and split percentages are not imported
+                break;
+        }
+    }
+
+    /**
+     * Drops the transfers waiting for their second copy in the register which ends,
+     * if transactions were read from it
+     */
+    private void endRegister() {
+        if (mAccountUID == null || !mRegisterHasTransactions)
+            return;
+        mReadRegisters.add(mAccountUID);
+        Iterator<String> iterator = mPendingTransfers.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().equals(mAccountUID))
+                iterator.remove();
+        }
+        mRegisterHasTransactions = false;
+    }
+
+    /**
+     * Creates the transaction from the lines read since the last one, and adds it to the current batch.
+     * <p>The amount of the transaction goes to the account of the register. If there are splits, they go
+     * to their categories, otherwise the opposite amount goes to the category of the transaction.
+     * What is left unbalanced goes to the imbalance account</p>
+     */
+    private void endTransaction() throws ParseException {
+        if (mDate == null) {
+            if (mAmount != null || !mSplits.isEmpty())
+                throw new ParseException("Transaction without date", mLineNumber);
+            return;
+        }
+
+        String accountUID = mAccountUID != null ? mAccountUID : getImbalanceAccountUID(mCurrency);
+        Currency currency = mAccountCurrencies.get(accountUID);
+        long time = QifHelper.parseDate(mDate);
+        mRegisterHasTransactions = true;
+
+        BigDecimal splitTotal = BigDecimal.ZERO;
+        List<Split> splits = new ArrayList<>(mSplits.size() + 2);
+        String transferKey = null;
+        String transferAccountUID = null;
+        if (!mSplits.isEmpty()) {
+            for (QifSplit qifSplit : mSplits) {
+                BigDecimal amount = parseAmount(qifSplit.amount);
+                String categoryUID = findOrCreateCategory(qifSplit.category, amount, currency);
+                Split split = createSplit(amount, categoryUID == null ? getImbalanceAccountUID(currency) : categoryUID,
+                        currency, time, TransactionType.CREDIT);
+                split.setMemo(qifSplit.memo);
+                splits.add(split);
+                splitTotal = splitTotal.add(amount);
+            }
+        }
+        BigDecimal amount = mAmount == null ? splitTotal : parseAmount(mAmount);
+        if (mSplits.isEmpty() && mCategory != null) {
+            String categoryUID = findOrCreateCategory(mCategory, amount, currency);
+            if (categoryUID != null) {
+                boolean transfer = isTransfer(mCategory);
+                if (transfer) {
+                    String mirrorKey = getTransferKey(categoryUID, accountUID, time, amount.negate());
+                    if (mPendingTransfers.remove(mirrorKey) != null) {
+                        //already imported from the register of the other account
+                        resetTransaction();
+                        return;
+                    }
+                }
+                Split split = createSplit(amount, categoryUID, currency, time, TransactionType.CREDIT);
+                if (transfer && split.getAccountUID().equals(categoryUID) && !mReadRegisters.contains(categoryUID)) {
+                    //the second copy has the amount in the currency of the other account
+                    BigDecimal quantity = split.getQuantity().asBigDecimal();
+                    transferKey = getTransferKey(accountUID, categoryUID, time,
+                            amount.signum() < 0 ? quantity.negate() : quantity);
+                    transferAccountUID = categoryUID;
+                }
+                splits.add(split);
+                splitTotal = amount;
+            }
+        }
+        BigDecimal imbalance = amount.subtract(splitTotal);
+        if (imbalance.signum() != 0) {
+            splits.add(createSplit(imbalance, getImbalanceAccountUID(currency), currency, time, TransactionType.CREDIT));
+        }
+        splits.add(0, createSplit(amount, accountUID, currency, time, TransactionType.DEBIT));
+
+        //other programs use the payee as description, this app exports the description as memo
+        Transaction transaction = new Transaction(mPayee != null ? mPayee : mMemo == null ? "" : mMemo);
+        if (mPayee != null && mMemo != null)
+            transaction.setNote(mMemo);
+        transaction.setTime(time);
+        transaction.setCurrencyCode(currency.getCurrencyCode());
+        for (Split split : splits) {
+            transaction.addSplit(split);
+        }
+        mTransactions.add(transaction);
+        if (transferKey != null)
+            mPendingTransfers.put(transferKey, transferAccountUID);
+        mTransactionCount++;
+        if (mProgress != null)
+            mProgress.incrementTransactionCount();
+        resetTransaction();
+    }
+
+    private void resetTransaction() {
+        mDate = null;
+        mAmount = null;
+        mPayee = null;
+        mMemo = null;
+        mCategory = null;
+        mSplits.clear();
+    }
+
+    /**
+     * Writes the accounts created and the transactions read since the last batch
+     */
+    private void flush() {
+        if (!mNewAccounts.isEmpty()) {
+            mAccountsDbAdapter.bulkAddRecords(mNewAccounts);
+            mNewAccounts = new ArrayList<>();
+        }
+        if (!mTransactions.isEmpty()) {
+            long nTransactions = mTransactionsDbAdapter.bulkAddRecords(mTransactions, false);
+            Log.d(LOG_TAG, String.format("%d transactions inserted", nTransactions));
+            mTransactions = new ArrayList<>(mBatchSize);
+        }
+    }
+
+    /**
+     * Creates a split of the amount, whose type is {@code positiveType} if the amount is positive.
+     * <p>If the account has another currency than the transaction, the quantity is converted with the price
+     * in effect at {@code time}. Without such a price, the split goes to the imbalance account of the
+     * transaction currency instead</p>
+     * @param amount Amount in the currency of the transaction
+     * @param accountUID GUID of the account of the split
+     * @param currency Currency of the transaction
+     * @param time Time of the transaction in milliseconds
+     * @param positiveType Type of the split if the amount is positive
+     */
+    private Split createSplit(BigDecimal amount, String accountUID, Currency currency, long time,
+                              TransactionType positiveType) {
+        Money value = new Money(amount.abs(), currency);
+        Money quantity = value;
+        Currency accountCurrency = mAccountCurrencies.get(accountUID);
+        if (!accountCurrency.equals(currency)) {
+            quantity = convert(amount.abs(), currency, accountCurrency, time);
+            if (quantity == null) {
+                Log.w(LOG_TAG, String.format("No price from %s to %s at line %d, the amount goes to the imbalance account",
+                        currency.getCurrencyCode(), accountCurrency.getCurrencyCode(), mLineNumber));
+                accountUID = getImbalanceAccountUID(currency);
+                quantity = value;
+            }
+        }
+        Split split = new Split(value, quantity, accountUID);
+        split.setType(amount.signum() < 0 ? positiveType.invert() : positiveType);
+        return split;
+    }
+
+    /**
+     * Converts an amount with the price in effect at {@code time}
+     * @return Converted amount, or null if there is no price
+     */
+    @Nullable
+    private Money convert(BigDecimal amount, Currency fromCurrency, Currency toCurrency, long time) {
+        Pair<Long, Long> price = mPricesDbAdapter.getPrice(
+                mAccountsDbAdapter.getCommodityUID(fromCurrency.getCurrencyCode()),
+                mAccountsDbAdapter.getCommodityUID(toCurrency.getCurrencyCode()), time);
+        if (price.first <= 0 || price.second <= 0)
+            return null;
+        BigDecimal converted = amount.multiply(new BigDecimal(price.first))
+                .divide(new BigDecimal(price.second), toCurrency.getDefaultFractionDigits(), BigDecimal.ROUND_HALF_EVEN);
+        return new Money(converted, toCurrency);
+    }
+
+    /**
+     * Returns the account of a category, creating it if it does not exist.
+     * <p>Transfers to other accounts are written in brackets, like {@code [Checking]}, and the class of the
+     * category, after a slash, is ignored. A transfer to the account of the register itself is
+     * an opening balance, and goes to the opening balance account</p>
+     * @param category Category of a transaction or split
+     * @param amount Amount of the category in the register, which is positive for income
+     * @param currency Currency of new accounts
+     * @return GUID of the account, or null if the category is empty
+     */
+    private String findOrCreateCategory(String category, BigDecimal amount, Currency currency) {
+        if (category == null)
+            return null;
+        boolean transfer = isTransfer(category);
+        String name = getCategoryName(category);
+        if (name.isEmpty())
+            return null;
+
+        AccountType accountType = transfer ? AccountType.BANK
+                : amount.signum() > 0 ? AccountType.INCOME : AccountType.EXPENSE;
+        String uid = findOrCreateAccount(name, accountType, currency);
+        if (uid.equals(mAccountUID)) {
+            uid = findOrCreateAccount(AccountsDbAdapter.getOpeningBalanceAccountFullName(), AccountType.EQUITY, currency);
+        }
+        return uid;
+    }
+
+    /**
+     * Returns the account with a full name, creating it and its missing parents if it does not exist.
+     * <p>The new accounts are written to the database with the next batch of transactions</p>
+     * @param fullName Full name of the account, with {@link AccountsDbAdapter#ACCOUNT_NAME_SEPARATOR} between the levels
+     * @param accountType Type of the new accounts
+     * @param currency Currency of the new accounts
+     * @return GUID of the account
+     */
+    private String findOrCreateAccount(String fullName, AccountType accountType, Currency currency) {
+        String uid = mAccountUIDs.get(fullName);
+        if (uid != null)
+            return uid;
+
+        String parentUID = mRootAccountUID;
+        int start = 0;
+        while (true) {
+            int end = fullName.indexOf(AccountsDbAdapter.ACCOUNT_NAME_SEPARATOR, start);
+            String levelFullName = end < 0 ? fullName : fullName.substring(0, end);
+            uid = mAccountUIDs.get(levelFullName);
+            if (uid == null) {
+                Account account = new Account(levelFullName.substring(start), currency);
+                account.setAccountType(accountType);
+                account.setParentUID(parentUID);
+                account.setFullName(levelFullName);
+                mNewAccounts.add(account);
+                uid = account.getUID();
+                mAccountUIDs.put(levelFullName, uid);
+                mAccountCurrencies.put(uid, currency);
+                if (mProgress != null)
+                    mProgress.incrementAccountCount();
+            }
+            if (end < 0)
+                return uid;
+            parentUID = uid;
+            start = end + AccountsDbAdapter.ACCOUNT_NAME_SEPARATOR.length();
+        }
+    }
+
+    /**
+     * Returns the imbalance account of a currency, which is created right away if it does not exist
+     */
+    private String getImbalanceAccountUID(Currency currency) {
+        String fullName = AccountsDbAdapter.getImbalanceAccountName(currency);
+        String uid = mAccountUIDs.get(fullName);
+        if (uid == null) {
+            uid = mAccountsDbAdapter.getOrCreateImbalanceAccountUID(currency);
+            mAccountUIDs.put(fullName, uid);
+            mAccountCurrencies.put(uid, currency);
+        }
+        return uid;
+    }
+
+    private static boolean isTransfer(String category) {
+        return category.trim().startsWith("[");
+    }
+
+    /**
+     * Returns the account full name of a category, without the brackets of transfers and without the class
+     */
+    private static String getCategoryName(String category) {
+        String name = category.trim();
+        if (name.startsWith("[")) {
+            int end = name.indexOf(']');
+            return (end < 0 ? name.substring(1) : name.substring(1, end)).trim();
+        }
+        int classStart = name.indexOf('/');
+        return (classStart < 0 ? name : name.substring(0, classStart)).trim();
+    }
+
+    /**
+     * Returns a key identifying a transfer from the register of {@code fromUID}
+     */
+    private static String getTransferKey(String fromUID, String toUID, long time, BigDecimal amount) {
+        return fromUID + '\n' + toUID + '\n' + time + '\n' + amount.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Parses a QIF amount, which may have thousands separators
+     * @param amount Amount, or null for zero
+     */
+    private BigDecimal parseAmount(String amount) throws ParseException {
+        if (amount == null || amount.isEmpty())
+            return BigDecimal.ZERO;
+        try {
+            return new BigDecimal(amount.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid amount: " + amount, mLineNumber);
+        }
+    }
+
+    /**
+     * Returns the account type of a QIF register type, or null if the register is not imported
+     * @param qifType Type of a {@code !Type:} header or of an account definition, like {@code Bank} or {@code CCard}
+     */
+    @Nullable
+    private static AccountType getAccountType(String qifType) {
+        if (qifType.equalsIgnoreCase("Bank"))
+            return AccountType.BANK;
+        if (qifType.equalsIgnoreCase("Cash"))
+            return AccountType.CASH;
+        if (qifType.equalsIgnoreCase("CCard"))
+            return AccountType.CREDIT;
+        if (qifType.equalsIgnoreCase("Oth A"))
+            return AccountType.ASSET;
+        if (qifType.equalsIgnoreCase("Oth L"))
+            return AccountType.LIABILITY;
+        return null;
+    }
+}
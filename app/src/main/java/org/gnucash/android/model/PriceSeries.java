@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.model;
+
+import android.support.annotation.Nullable;
+import android.util.Pair;
+
+import java.util.Arrays;
+
+/**
+ * Prices of a commodity in a currency over time.
+ * <p>The prices are held in arrays sorted by date, so that the price in effect at a given time
+ * is found with a binary search. Instances are immutable.</p>
+ */
+public class PriceSeries {
+
+    private final long[] mDates;
+    private final long[] mValueNums;
+    private final long[] mValueDenoms;
+
+    /**
+     * Creates a price series from parallel arrays.
+     * <p>The arrays are not copied and must not be modified afterwards</p>
+     * @param dates Dates of the prices in milliseconds, in ascending order
+     * @param valueNums Numerators of the prices
+     * @param valueDenoms Denominators of the prices
+     * @throws IllegalArgumentException if the arrays do not have the same length
+     */
+    public PriceSeries(long[] dates, long[] valueNums, long[] valueDenoms){
+        if (dates.length != valueNums.length || dates.length != valueDenoms.length) {
+            throw new IllegalArgumentException("The dates and values of the prices must have the same length");
+        }
+        mDates = dates;
+        mValueNums = valueNums;
+        mValueDenoms = valueDenoms;
+    }
+
+    /**
+     * Returns the number of prices in the series
+     * @return Number of prices
+     */
+    public int size(){
+        return mDates.length;
+    }
+
+    /**
+     * Returns the price in effect at {@code timestamp}, that is the latest price which is not later.
+     * <p>Before the first price of the series, the first price is used, so that amounts older than
+     * the price history are still converted</p>
+     * @param timestamp Time in milliseconds
+     * @return The numerator/denominator pair of the price, or null if the series is empty
+     */
+    @Nullable
+    public Pair<Long, Long> getPriceAsOf(long timestamp){
+        int index = Arrays.binarySearch(mDates, timestamp);
+        if (index < 0) {
+            // the price before the insertion point
+            index = -index - 2;
+        } else {
+            // there can be several prices at the same time, the last one wins
+            while (index + 1 < mDates.length && mDates[index + 1] == timestamp) {
+                index++;
+            }
+        }
+        if (index < 0) {
+            // all prices are later, the earliest one is used
+            if (mDates.length == 0) {
+                return null;
+            }
+            index = 0;
+        }
+        return new Pair<>(mValueNums[index], mValueDenoms[index]);
+    }
+}
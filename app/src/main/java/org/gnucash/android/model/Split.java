@@ -6,6 +6,8 @@ import android.util.Log;
 
 import org.gnucash.android.db.AccountsDbAdapter;
 
+import java.util.Currency;
+
 /**
  * A split amount in a transaction.
  * Every transaction is made up of at least two splits (representing a double entry transaction)
@@ -27,6 +29,23 @@ public class Split extends BaseModel{
      */
     private Money mQuantity;
 
+    /**
+     * Numerator and denominator of the value, when it was set with {@link #setValue(long, long, Currency)}.
+     * The {@link Money} value is then only created when it is requested.
+     * The currency is null when the value was set as {@link Money}
+     */
+    private long mValueNum;
+    private long mValueDenom;
+    private Currency mValueCurrency;
+
+    /**
+     * Numerator and denominator of the quantity, when it was set with {@link #setQuantity(long, long, Currency)}
+     * @see #mValueNum
+     */
+    private long mQuantityNum;
+    private long mQuantityDenom;
+    private Currency mQuantityCurrency;
+
     /**
      * Transaction UID which this split belongs to
      */
@@ -88,8 +107,14 @@ public class Split extends BaseModel{
         this.mAccountUID    = sourceSplit.mAccountUID;
         this.mSplitType     = sourceSplit.mSplitType;
         this.mTransactionUID = sourceSplit.mTransactionUID;
-        this.mValue         = new Money(sourceSplit.mValue);
-        this.mQuantity      = new Money(sourceSplit.mQuantity);
+        this.mValue         = sourceSplit.mValue == null ? null : new Money(sourceSplit.mValue);
+        this.mValueNum      = sourceSplit.mValueNum;
+        this.mValueDenom    = sourceSplit.mValueDenom;
+        this.mValueCurrency = sourceSplit.mValueCurrency;
+        this.mQuantity      = sourceSplit.mQuantity == null ? null : new Money(sourceSplit.mQuantity);
+        this.mQuantityNum   = sourceSplit.mQuantityNum;
+        this.mQuantityDenom = sourceSplit.mQuantityDenom;
+        this.mQuantityCurrency = sourceSplit.mQuantityCurrency;
 
         if (generateUID){
             generateUID();
@@ -104,6 +129,9 @@ public class Split extends BaseModel{
      * @see #getQuantity()
      */
     public Money getValue() {
+        if (mValue == null && mValueCurrency != null) {
+            mValue = new Money(Money.getBigDecimal(mValueNum, mValueDenom), mValueCurrency);
+        }
         return mValue;
     }
 
@@ -115,6 +143,41 @@ public class Split extends BaseModel{
      */
     public void setValue(Money value) {
         mValue = value;
+        mValueCurrency = null;
+    }
+
+    /**
+     * Sets the value amount of the split from its GnuCash numerator and denominator, without creating a {@link Money}.
+     * <p>This is used when many splits are loaded at once, like during imports.
+     * The {@link Money} value is only created if {@link #getValue()} is called</p>
+     * @param numerator Numerator of the value, like 3250 for 32.50
+     * @param denominator Denominator of the currency: 1, 10, 100 or 1000
+     * @param currency Currency of the containing transaction
+     * @see #getValueNumerator()
+     */
+    public void setValue(long numerator, long denominator, @NonNull Currency currency) {
+        mValue = null;
+        mValueNum = numerator;
+        mValueDenom = denominator;
+        mValueCurrency = currency;
+    }
+
+    /**
+     * Returns the GnuCash numerator of the value, as it is stored in the database
+     * @return Numerator of the value
+     * @see Money#getNumerator()
+     */
+    public long getValueNumerator() {
+        return mValueCurrency != null ? mValueNum : mValue.getNumerator();
+    }
+
+    /**
+     * Returns the GnuCash denominator of the value, as it is stored in the database
+     * @return Denominator of the value
+     * @see Money#getDenominator()
+     */
+    public long getValueDenominator() {
+        return mValueCurrency != null ? mValueDenom : mValue.getDenominator();
     }
 
     /**
@@ -124,6 +187,9 @@ public class Split extends BaseModel{
      * @see #getValue()
      */
     public Money getQuantity() {
+        if (mQuantity == null && mQuantityCurrency != null) {
+            mQuantity = new Money(Money.getBigDecimal(mQuantityNum, mQuantityDenom), mQuantityCurrency);
+        }
         return mQuantity;
     }
 
@@ -134,6 +200,37 @@ public class Split extends BaseModel{
      */
     public void setQuantity(Money quantity) {
         this.mQuantity = quantity;
+        mQuantityCurrency = null;
+    }
+
+    /**
+     * Sets the quantity of the split from its GnuCash numerator and denominator, without creating a {@link Money}
+     * @param numerator Numerator of the quantity
+     * @param denominator Denominator of the currency: 1, 10, 100 or 1000
+     * @param currency Currency of the account of the split
+     * @see #setValue(long, long, Currency)
+     */
+    public void setQuantity(long numerator, long denominator, @NonNull Currency currency) {
+        mQuantity = null;
+        mQuantityNum = numerator;
+        mQuantityDenom = denominator;
+        mQuantityCurrency = currency;
+    }
+
+    /**
+     * Returns the GnuCash numerator of the quantity, as it is stored in the database
+     * @return Numerator of the quantity
+     */
+    public long getQuantityNumerator() {
+        return mQuantityCurrency != null ? mQuantityNum : mQuantity.getNumerator();
+    }
+
+    /**
+     * Returns the GnuCash denominator of the quantity, as it is stored in the database
+     * @return Denominator of the quantity
+     */
+    public long getQuantityDenominator() {
+        return mQuantityCurrency != null ? mQuantityDenom : mQuantity.getDenominator();
     }
 
     /**
@@ -209,11 +306,11 @@ public class Split extends BaseModel{
      * @see TransactionType#invert()
      */
     public Split createPair(String accountUID){
-        Split pair = new Split(mValue.absolute(), accountUID);
+        Split pair = new Split(getValue().absolute(), accountUID);
         pair.setType(mSplitType.invert());
         pair.setMemo(mMemo);
         pair.setTransactionUID(mTransactionUID);
-        pair.setQuantity(mQuantity);
+        pair.setQuantity(getQuantity());
         return pair;
     }
 
@@ -223,12 +320,12 @@ public class Split extends BaseModel{
      */
     protected Split clone() throws CloneNotSupportedException {
         super.clone();
-        Split split = new Split(mValue, mAccountUID);
+        Split split = new Split(getValue(), mAccountUID);
         split.setUID(getUID());
         split.setType(mSplitType);
         split.setMemo(mMemo);
         split.setTransactionUID(mTransactionUID);
-        split.setQuantity(mQuantity);
+        split.setQuantity(getQuantity());
         return split;
     }
 
@@ -239,7 +336,7 @@ public class Split extends BaseModel{
      * @return whether the two splits are a pair
      */
     public boolean isPairOf(Split other) {
-        return mValue.absolute().equals(other.mValue.absolute())
+        return getValue().absolute().equals(other.getValue().absolute())
                 && mSplitType.invert().equals(other.mSplitType);
     }
 
@@ -249,7 +346,7 @@ public class Split extends BaseModel{
      * @see #getFormattedAmount(Money, String, TransactionType)
      */
     public Money getFormattedValue(){
-        return getFormattedAmount(mValue, mAccountUID, mSplitType);
+        return getFormattedAmount(getValue(), mAccountUID, mSplitType);
     }
 
     /**
@@ -258,7 +355,7 @@ public class Split extends BaseModel{
      * @see #getFormattedAmount(Money, String, TransactionType)
      */
     public Money getFormattedQuantity(){
-        return getFormattedAmount(mQuantity, mAccountUID, mSplitType);
+        return getFormattedAmount(getQuantity(), mAccountUID, mSplitType);
     }
 
     /**
@@ -292,7 +389,7 @@ public class Split extends BaseModel{
 
     @Override
     public String toString() {
-        return mSplitType.name() + " of " + mValue.toString() + " in account: " + mAccountUID;
+        return mSplitType.name() + " of " + getValue().toString() + " in account: " + mAccountUID;
     }
 
     /**
@@ -306,8 +403,10 @@ public class Split extends BaseModel{
     public String toCsv(){
         String sep = ";";
 
-        String splitString = getUID() + sep + mValue.getNumerator() + sep + mValue.getDenominator() + sep + mValue.getCurrency().getCurrencyCode() + sep
-                + mQuantity.getNumerator() + sep + mQuantity.getDenominator() + sep + mQuantity.getCurrency().getCurrencyCode()
+        Money value = getValue();
+        Money quantity = getQuantity();
+        String splitString = getUID() + sep + value.getNumerator() + sep + value.getDenominator() + sep + value.getCurrency().getCurrencyCode() + sep
+                + quantity.getNumerator() + sep + quantity.getDenominator() + sep + quantity.getCurrency().getCurrencyCode()
                 + sep + mTransactionUID + sep + mAccountUID + sep + mSplitType.name();
         if (mMemo != null){
             splitString = splitString + sep + mMemo;
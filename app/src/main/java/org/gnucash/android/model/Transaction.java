@@ -181,6 +181,8 @@ public class Transaction extends BaseModel{
      * @return Split whose amount is the imbalance of this transaction
      */
     public Split getAutoBalanceSplit(){
+        if (hasBalancedNumerators())
+            return null;
         Money imbalance = getImbalance();
         if (!imbalance.isAmountZero()){
             Currency currency = Currency.getInstance(mCurrencyCode);
@@ -192,6 +194,26 @@ public class Transaction extends BaseModel{
         return null;
     }
 
+    /**
+     * Checks if the split values balance by adding their numerators, which does not create {@link Money} amounts
+     * for the splits whose values were set as numerator and denominator, like during imports.
+     * @return {@code true} if the transaction is balanced, {@code false} if it is not or if the values have different denominators
+     */
+    private boolean hasBalancedNumerators(){
+        long balance = 0;
+        long denominator = 0;
+        for (Split split : mSplitList) {
+            if (denominator == 0) {
+                denominator = split.getValueDenominator();
+            } else if (split.getValueDenominator() != denominator) {
+                return false;
+            }
+            long numerator = Math.abs(split.getValueNumerator());
+            balance += split.getType() == TransactionType.DEBIT ? -numerator : numerator;
+        }
+        return denominator != 0 && balance == 0;
+    }
+
     /**
      * Returns list of splits for this transaction
      * @return {@link java.util.List} of splits in the transaction
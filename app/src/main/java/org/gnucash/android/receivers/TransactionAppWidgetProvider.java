@@ -37,20 +37,7 @@ public class TransactionAppWidgetProvider extends AppWidgetProvider {
 	public void onUpdate(Context context, AppWidgetManager appWidgetManager,
 			int[] appWidgetIds) {
 		super.onUpdate(context, appWidgetManager, appWidgetIds);
-		final int N = appWidgetIds.length;
-
-        // Perform this loop procedure for each App Widget that belongs to this provider
-        for (int i=0; i<N; i++) {
-            int appWidgetId = appWidgetIds[i];
-
-            String accountUID = PreferenceManager
-                    .getDefaultSharedPreferences(context)
-                    .getString(UxArgument.SELECTED_ACCOUNT_UID + appWidgetId, null);
-            if (accountUID == null)
-            	return;
-            
-            WidgetConfigurationActivity.updateWidget(context, appWidgetId, accountUID);
-        }
+        WidgetConfigurationActivity.updateWidgets(context, appWidgetIds);
 	}
 
     @Override
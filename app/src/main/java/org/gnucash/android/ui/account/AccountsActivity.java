@@ -302,7 +302,9 @@ public class AccountsActivity extends BaseDrawerActivity implements OnAccountCli
             InputStream accountInputStream = null;
             try {
                 accountInputStream = getContentResolver().openInputStream(data);
-                new ImportAsyncTask(this).execute(accountInputStream);
+                ImportAsyncTask importTask = new ImportAsyncTask(this);
+                importTask.setFileSize(ImportAsyncTask.getFileSize(this, data));
+                importTask.execute(accountInputStream);
             } catch (FileNotFoundException e) {
                 Crashlytics.logException(e);
                 Log.e(LOG_TAG, "Error opening file for import - " + e.getMessage());
@@ -542,7 +544,9 @@ public class AccountsActivity extends BaseDrawerActivity implements OnAccountCli
         try {
             GncXmlExporter.createBackup();
             InputStream accountInputStream = context.getContentResolver().openInputStream(data.getData());
-            new ImportAsyncTask(context).execute(accountInputStream);
+            ImportAsyncTask importTask = new ImportAsyncTask(context);
+            importTask.setFileSize(ImportAsyncTask.getFileSize(context, data.getData()));
+            importTask.execute(accountInputStream);
         } catch (FileNotFoundException e) {
             Crashlytics.logException(e);
             Toast.makeText(context, R.string.toast_error_importing_accounts, Toast.LENGTH_SHORT).show();
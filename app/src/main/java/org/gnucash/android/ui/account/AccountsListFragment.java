@@ -53,14 +53,21 @@ import org.gnucash.android.db.AccountsDbAdapter;
 import org.gnucash.android.db.DatabaseCursorLoader;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.model.Account;
+import org.gnucash.android.model.Money;
 import org.gnucash.android.ui.common.FormActivity;
 import org.gnucash.android.ui.common.UxArgument;
+import org.gnucash.android.ui.transaction.TransactionsActivity;
 import org.gnucash.android.ui.util.AccountBalanceTask;
 import org.gnucash.android.ui.util.CursorRecyclerAdapter;
 import org.gnucash.android.ui.util.widget.EmptyRecyclerView;
 import org.gnucash.android.ui.util.OnAccountClickedListener;
 import org.gnucash.android.ui.util.Refreshable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import butterknife.Bind;
 import butterknife.ButterKnife;
 
@@ -323,6 +330,7 @@ public class AccountsListFragment extends Fragment implements
     @Override
     public void onLoadFinished(Loader<Cursor> loaderCursor, Cursor cursor) {
         Log.d(TAG, "Accounts loader finished. Swapping in cursor");
+        mAccountRecyclerAdapter.setAccountBalances(((AccountsCursorLoader) loaderCursor).getAccountBalances());
         mAccountRecyclerAdapter.swapCursor(cursor);
         mAccountRecyclerAdapter.notifyDataSetChanged();
     }
@@ -375,6 +383,11 @@ public class AccountsListFragment extends Fragment implements
         private String mFilter;
         private DisplayMode mDisplayMode = DisplayMode.TOP_LEVEL;
 
+        /**
+         * Balances of the loaded accounts, computed along with the cursor
+         */
+        private volatile Map<String, Money> mAccountBalances = Collections.emptyMap();
+
         /**
          * Initializes the loader to load accounts from the database.
          * If the <code>parentAccountId <= 0</code> then only top-level accounts are loaded.
@@ -429,19 +442,63 @@ public class AccountsListFragment extends Fragment implements
 
             }
 
-            if (cursor != null)
+            if (cursor != null) {
                 registerContentObserver(cursor);
+                mAccountBalances = loadAccountBalances(cursor);
+            }
             return cursor;
         }
+
+        /**
+         * Computes the balances of all accounts in the cursor at once
+         * @param cursor Cursor to the accounts
+         * @return Map of account GUIDs to their balances
+         */
+        private Map<String, Money> loadAccountBalances(Cursor cursor) {
+            List<String> accountUIDs = new ArrayList<>(cursor.getCount());
+            int uidColumnIndex = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID);
+            while (cursor.moveToNext()) {
+                accountUIDs.add(cursor.getString(uidColumnIndex));
+            }
+            cursor.moveToPosition(-1);
+            try {
+                return ((AccountsDbAdapter) mDatabaseAdapter).getCurrentAccountBalances(accountUIDs);
+            } catch (Exception e) {
+                Log.e(TAG, "Error computing account balances", e);
+                return Collections.emptyMap();
+            }
+        }
+
+        /**
+         * Returns the balances of the accounts loaded by the last call to {@link #loadInBackground()}
+         * @return Map of account GUIDs to their balances
+         */
+        public Map<String, Money> getAccountBalances() {
+            return mAccountBalances;
+        }
     }
 
 
     class AccountRecyclerAdapter extends CursorRecyclerAdapter<AccountRecyclerAdapter.AccountViewHolder> {
 
+        /**
+         * Balances of the accounts in the cursor, precomputed by the loader
+         */
+        private Map<String, Money> mAccountBalances = Collections.emptyMap();
+
         public AccountRecyclerAdapter(Cursor cursor){
            super(cursor);
         }
 
+        /**
+         * Sets the balances to display for the accounts.
+         * Accounts without a balance in the map have it computed when they are bound.
+         * @param accountBalances Map of account GUIDs to their balances
+         */
+        public void setAccountBalances(Map<String, Money> accountBalances){
+            mAccountBalances = accountBalances;
+        }
+
         @Override
         public AccountViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
             View v = LayoutInflater.from(parent.getContext())
@@ -465,7 +522,10 @@ public class AccountsListFragment extends Fragment implements
                 holder.description.setVisibility(View.GONE);
 
             // add a summary of transactions to the account view
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            Money balance = mAccountBalances.get(accountUID);
+            if (balance != null) {
+                TransactionsActivity.displayBalance(holder.accountBalance, balance);
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
                 // Make sure the balance task is truely multithread
                 new AccountBalanceTask(holder.accountBalance).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, accountUID);
             } else {
@@ -93,6 +93,16 @@ public class
 	 */
 	@Bind(R.id.checkbox_post_export_delete) CheckBox mDeleteAllCheckBox;
 
+	/**
+	 * Checkbox for exporting only the changes since the previous backup, in XML format
+	 */
+	@Bind(R.id.checkbox_differential_backup) CheckBox mDifferentialBackupCheckBox;
+
+	/**
+	 * Options of the differential backups, which are only shown for the XML format
+	 */
+	@Bind(R.id.differential_backup_options) View mDifferentialBackupOptions;
+
     /**
      * Text view for showing warnings based on chosen export format
      */
@@ -127,6 +137,7 @@ public class
 
 
     public void onRadioButtonClicked(View view){
+        mDifferentialBackupOptions.setVisibility(view.getId() == R.id.radio_xml_format ? View.VISIBLE : View.GONE);
         switch (view.getId()){
             case R.id.radio_ofx_format:
                 mExportFormat = ExportFormat.OFX;
@@ -236,6 +247,8 @@ public class
 		exportParameters.setExportAllTransactions(mExportAllCheckBox.isChecked());
 		exportParameters.setExportTarget(mExportTarget);
 		exportParameters.setDeleteTransactionsAfterExport(mDeleteAllCheckBox.isChecked());
+		exportParameters.setDifferentialBackup(mExportFormat == ExportFormat.XML
+				&& mDifferentialBackupCheckBox.isChecked());
 
 		List<ScheduledAction> scheduledActions = RecurrenceParser.parse(mEventRecurrence,
 				ScheduledAction.ActionType.BACKUP);
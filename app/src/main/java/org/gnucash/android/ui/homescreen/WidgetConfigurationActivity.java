@@ -46,7 +46,11 @@ import org.gnucash.android.ui.account.AccountsActivity;
 import org.gnucash.android.ui.transaction.TransactionsActivity;
 import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Activity for configuration which account to display on a widget.
@@ -139,6 +143,19 @@ public class WidgetConfigurationActivity extends Activity {
      * @param accountUID GUID of the account tied to the widget
 	 */
 	public static void updateWidget(Context context, int appWidgetId, String accountUID) {
+		AccountsDbAdapter accountsDbAdapter = AccountsDbAdapter.getInstance();
+		Money accountBalance = accountsDbAdapter.getCurrentAccountBalances(Collections.singletonList(accountUID))
+				.get(accountUID);
+		updateWidget(context, appWidgetId, accountUID, accountBalance);
+	}
+
+	/**
+	 * Updates the widget with id <code>appWidgetId</code> with the account balance <code>accountBalance</code>
+	 * @param appWidgetId ID of the widget to be updated
+	 * @param accountUID GUID of the account tied to the widget
+	 * @param accountBalance Balance of the account, or <code>null</code> if the account does not exist
+	 */
+	private static void updateWidget(Context context, int appWidgetId, String accountUID, Money accountBalance) {
 		Log.i("WidgetConfiguration", "Updating widget: " + appWidgetId);
 		AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
 
@@ -168,7 +185,6 @@ public class WidgetConfigurationActivity extends Activity {
 		RemoteViews views = new RemoteViews(context.getPackageName(),
 				R.layout.widget_4x1);
 		views.setTextViewText(R.id.account_name, account.getName());
-        Money accountBalance = accountsDbAdapter.getAccountBalance(accountUID, -1, System.currentTimeMillis());
 
         views.setTextViewText(R.id.transactions_summary,
 				accountBalance.formattedString(Locale.getDefault()));
@@ -206,15 +222,33 @@ public class WidgetConfigurationActivity extends Activity {
 		AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
 		ComponentName componentName = new ComponentName(context, TransactionAppWidgetProvider.class);
 		int[] appWidgetIds = widgetManager.getAppWidgetIds(componentName);
+		updateWidgets(context, appWidgetIds);
+	}
 
+	/**
+	 * Updates the widgets with the given IDs.
+	 * The balances of all the accounts tied to the widgets are computed at once.
+	 * @param context Application context
+	 * @param appWidgetIds IDs of the widgets to be updated
+	 */
+	public static void updateWidgets(Context context, int[] appWidgetIds){
         SharedPreferences defaultSharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+		Map<Integer, String> widgetAccountUIDs = new HashMap<>();
 		for (int widgetId : appWidgetIds) {
 			String accountUID = defaultSharedPrefs
             		.getString(UxArgument.SELECTED_ACCOUNT_UID + widgetId, null);
             
 			if (accountUID == null)
 				continue;
-			updateWidget(context, widgetId, accountUID);
+			widgetAccountUIDs.put(widgetId, accountUID);
+		}
+		if (widgetAccountUIDs.isEmpty())
+			return;
+
+		Map<String, Money> balances = AccountsDbAdapter.getInstance().getCurrentAccountBalances(
+				new HashSet<>(widgetAccountUIDs.values()));
+		for (Map.Entry<Integer, String> entry : widgetAccountUIDs.entrySet()) {
+			updateWidget(context, entry.getKey(), entry.getValue(), balances.get(entry.getValue()));
 		}
 	}
 }
@@ -38,6 +38,7 @@ import org.gnucash.android.ui.transaction.TransactionsActivity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -116,16 +117,24 @@ public class BalanceSheetFragment extends Fragment {
                         + DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER + " = 0",
                 null, DatabaseSchema.AccountEntry.COLUMN_FULL_NAME + " ASC");
 
+        List<String> accountUIDs = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()){
+            accountUIDs.add(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID)));
+        }
+        Map<String, Money> balances = mAccountsDbAdapter.getAccountBalances(accountUIDs, -1, -1);
+
+        cursor.moveToPosition(-1);
         while (cursor.moveToNext()){
             String accountUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID));
             String name = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_NAME));
-            Money balance = mAccountsDbAdapter.getAccountBalance(accountUID);
+            Money balance = balances.get(accountUID);
             View view = inflater.inflate(R.layout.row_balance_sheet, tableLayout, false);
             ((TextView)view.findViewById(R.id.account_name)).setText(name);
             TextView balanceTextView = ((TextView) view.findViewById(R.id.account_balance));
             TransactionsActivity.displayBalance(balanceTextView, balance);
             tableLayout.addView(view);
         }
+        cursor.close();
 
         View totalView = inflater.inflate(R.layout.row_balance_sheet, tableLayout, false);
         TableLayout.LayoutParams layoutParams = (TableLayout.LayoutParams) totalView.getLayoutParams();
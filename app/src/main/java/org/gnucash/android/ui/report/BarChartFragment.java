@@ -46,9 +46,11 @@ import com.github.mikephil.charting.utils.LargeValueFormatter;
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.SplitsDbAdapter;
 import org.gnucash.android.db.TransactionsDbAdapter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
 import org.joda.time.Months;
@@ -56,7 +58,6 @@ import org.joda.time.Years;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Currency;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -173,6 +174,22 @@ public class BarChartFragment extends Fragment implements OnChartValueSelectedLi
         LocalDateTime tmpDate = new LocalDateTime(getStartDate(mAccountType).toDate().getTime());
         int count = getDateDiff(new LocalDateTime(getStartDate(mAccountType).toDate().getTime()),
                 new LocalDateTime(getEndDate(mAccountType).toDate().getTime()));
+
+        List<Account> accounts = new ArrayList<>();
+        List<String> accountUIDs = new ArrayList<>();
+        for (Account account : mAccountsDbAdapter.getSimpleAccountList()) {
+            if (account.getAccountType() == mAccountType
+                    && !account.isPlaceholderAccount()
+                    && account.getCurrency() == mCurrency) {
+                accounts.add(account);
+                accountUIDs.add(account.getUID());
+            }
+        }
+
+        // the balances of all accounts in all intervals are fetched at once
+        List<String> intervalKeys = new ArrayList<>(count + 1);
+        long rangeStart = 0;
+        long rangeEnd = 0;
         for (int i = 0; i <= count; i++) {
             long start = 0;
             long end = 0;
@@ -200,32 +217,38 @@ public class BarChartFragment extends Fragment implements OnChartValueSelectedLi
                     tmpDate = tmpDate.plusYears(1);
                     break;
             }
+            intervalKeys.add(SplitsDbAdapter.getIntervalKey(start, mGroupInterval));
+            if (i == 0) {
+                rangeStart = start;
+            }
+            rangeEnd = end;
+        }
+        Map<String, Map<String, Money>> intervalBalances = SplitsDbAdapter.getInstance()
+                .getSplitBalancesByInterval(accountUIDs, rangeStart, rangeEnd, mGroupInterval);
+
+        for (int i = 0; i <= count; i++) {
             List<Float> stack = new ArrayList<>();
-            for (Account account : mAccountsDbAdapter.getSimpleAccountList()) {
-                if (account.getAccountType() == mAccountType
-                        && !account.isPlaceholderAccount()
-                        && account.getCurrency() == mCurrency) {
-
-                    double balance = mAccountsDbAdapter.getAccountsBalance(
-                            Collections.singletonList(account.getUID()), start, end).asDouble();
-                    if (balance != 0) {
-                        if (!accountToColorMap.containsKey(account.getUID())) {
-                            Integer color;
-                            if (mUseAccountColor) {
-                                color = (account.getColorHexCode() != null)
-                                        ? Color.parseColor(account.getColorHexCode())
-                                        : COLORS[accountToColorMap.size() % COLORS.length];
-                            } else {
-                                color = COLORS[accountToColorMap.size() % COLORS.length];
-                            }
-                            accountToColorMap.put(account.getUID(), color);
+            for (Account account : accounts) {
+                Map<String, Money> accountBalances = intervalBalances.get(account.getUID());
+                Money intervalBalance = accountBalances == null ? null : accountBalances.get(intervalKeys.get(i));
+                double balance = intervalBalance == null ? 0 : intervalBalance.asDouble();
+                if (balance != 0) {
+                    if (!accountToColorMap.containsKey(account.getUID())) {
+                        Integer color;
+                        if (mUseAccountColor) {
+                            color = (account.getColorHexCode() != null)
+                                    ? Color.parseColor(account.getColorHexCode())
+                                    : COLORS[accountToColorMap.size() % COLORS.length];
+                        } else {
+                            color = COLORS[accountToColorMap.size() % COLORS.length];
                         }
-
-                        stack.add((float) balance);
-                        labels.add(account.getName());
-                        colors.add(accountToColorMap.get(account.getUID()));
-                        Log.d(TAG, mAccountType + tmpDate.toString(" MMMM yyyy ") + account.getName() + " = " + stack.get(stack.size() - 1));
+                        accountToColorMap.put(account.getUID(), color);
                     }
+
+                    stack.add((float) balance);
+                    labels.add(account.getName());
+                    colors.add(accountToColorMap.get(account.getUID()));
+                    Log.d(TAG, mAccountType + " " + intervalKeys.get(i) + " " + account.getName() + " = " + stack.get(stack.size() - 1));
                 }
             }
 
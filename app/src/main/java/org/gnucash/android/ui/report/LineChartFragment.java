@@ -44,9 +44,11 @@ import com.github.mikephil.charting.utils.LargeValueFormatter;
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.SplitsDbAdapter;
 import org.gnucash.android.db.TransactionsDbAdapter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
 import org.gnucash.android.ui.report.ReportsActivity.GroupInterval;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalDateTime;
@@ -211,9 +213,36 @@ public class LineChartFragment extends Fragment implements OnChartValueSelectedL
             }
         }
 
+        // the balances of all accounts in all intervals are fetched at once
+        Map<AccountType, List<String>> accountUIDsByType = new HashMap<>();
+        List<String> accountUIDs = new ArrayList<>();
+        for (Account account : mAccountsDbAdapter.getSimpleAccountList()) {
+            if (accountTypeList.contains(account.getAccountType())
+                    && !account.isPlaceholderAccount()
+                    && account.getCurrency() == mCurrency) {
+                List<String> accountUIDList = accountUIDsByType.get(account.getAccountType());
+                if (accountUIDList == null) {
+                    accountUIDList = new ArrayList<>();
+                    accountUIDsByType.put(account.getAccountType(), accountUIDList);
+                }
+                accountUIDList.add(account.getUID());
+                accountUIDs.add(account.getUID());
+            }
+        }
+        long rangeStart = new LocalDateTime(mEarliestTransactionTimestamp).dayOfYear().withMinimumValue()
+                .millisOfDay().withMinimumValue().toDate().getTime();
+        long rangeEnd = new LocalDateTime(mLatestTransactionTimestamp).dayOfYear().withMaximumValue()
+                .millisOfDay().withMaximumValue().toDate().getTime();
+        Map<String, Map<String, Money>> intervalBalances = SplitsDbAdapter.getInstance()
+                .getSplitBalancesByInterval(accountUIDs, rangeStart, rangeEnd, mGroupInterval);
+
         List<LineDataSet> dataSets = new ArrayList<>();
         for (AccountType accountType : accountTypeList) {
-            LineDataSet set = new LineDataSet(getEntryList(accountType), accountType.toString());
+            List<String> accountUIDList = accountUIDsByType.get(accountType);
+            if (accountUIDList == null) {
+                accountUIDList = Collections.emptyList();
+            }
+            LineDataSet set = new LineDataSet(getEntryList(accountType, accountUIDList, intervalBalances), accountType.toString());
             set.setDrawFilled(true);
             set.setLineWidth(2);
             set.setColor(COLORS[dataSets.size()]);
@@ -282,18 +311,13 @@ public class LineChartFragment extends Fragment implements OnChartValueSelectedL
     /**
      * Returns entries which represent a user data of the specified account type
      * @param accountType account's type which user data will be processed
+     * @param accountUIDList GUIDs of the accounts of that type
+     * @param intervalBalances balances of the accounts per interval, as returned by
+     *                         {@link SplitsDbAdapter#getSplitBalancesByInterval(List, long, long, GroupInterval)}
      * @return entries which represent a user data
      */
-    private List<Entry> getEntryList(AccountType accountType) {
-        List<String> accountUIDList = new ArrayList<>();
-        for (Account account : mAccountsDbAdapter.getSimpleAccountList()) {
-            if (account.getAccountType() == accountType
-                    && !account.isPlaceholderAccount()
-                    && account.getCurrency() == mCurrency) {
-                accountUIDList.add(account.getUID());
-            }
-        }
-
+    private List<Entry> getEntryList(AccountType accountType, List<String> accountUIDList,
+                                     Map<String, Map<String, Money>> intervalBalances) {
         LocalDateTime earliest;
         LocalDateTime latest;
         if (mReportStartTime == -1 && mReportEndTime == -1) {
@@ -310,30 +334,26 @@ public class LineChartFragment extends Fragment implements OnChartValueSelectedL
         int count = getDateDiff(earliest, latest);
         List<Entry> values = new ArrayList<>(count + 1);
         for (int i = 0; i <= count; i++) {
-            long start = 0;
-            long end = 0;
+            String intervalKey = SplitsDbAdapter.getIntervalKey(earliest.toDate().getTime(), mGroupInterval);
             switch (mGroupInterval) {
                 case QUARTER:
-                    int quarter = getQuarter(earliest);
-                    start = earliest.withMonthOfYear(quarter * 3 - 2).dayOfMonth().withMinimumValue().millisOfDay().withMinimumValue().toDate().getTime();
-                    end = earliest.withMonthOfYear(quarter * 3).dayOfMonth().withMaximumValue().millisOfDay().withMaximumValue().toDate().getTime();
-
                     earliest = earliest.plusMonths(3);
                     break;
                 case MONTH:
-                    start = earliest.dayOfMonth().withMinimumValue().millisOfDay().withMinimumValue().toDate().getTime();
-                    end = earliest.dayOfMonth().withMaximumValue().millisOfDay().withMaximumValue().toDate().getTime();
-
                     earliest = earliest.plusMonths(1);
                     break;
                 case YEAR:
-                    start = earliest.dayOfYear().withMinimumValue().millisOfDay().withMinimumValue().toDate().getTime();
-                    end = earliest.dayOfYear().withMaximumValue().millisOfDay().withMaximumValue().toDate().getTime();
-
                     earliest = earliest.plusYears(1);
                     break;
             }
-            float balance = (float) mAccountsDbAdapter.getAccountsBalance(accountUIDList, start, end).asDouble();
+            Money intervalBalance = Money.createZeroInstance(mCurrency.getCurrencyCode());
+            for (String accountUID : accountUIDList) {
+                Map<String, Money> accountBalances = intervalBalances.get(accountUID);
+                if (accountBalances != null && accountBalances.containsKey(intervalKey)) {
+                    intervalBalance = intervalBalance.add(accountBalances.get(intervalKey));
+                }
+            }
+            float balance = (float) intervalBalance.asDouble();
             values.add(new Entry(balance, i + xAxisOffset));
             Log.d(TAG, accountType + earliest.toString(" MMM yyyy") + ", balance = " + balance);
 
@@ -53,6 +53,7 @@ import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -184,21 +185,30 @@ public class ReportSummaryFragment extends Fragment {
         PieDataSet dataSet = new PieDataSet(null, "");
         List<String> labels = new ArrayList<>();
         List<Integer> colors = new ArrayList<>();
+        List<Account> accounts = new ArrayList<>();
         for (Account account : mAccountsDbAdapter.getSimpleAccountList()) {
             if (account.getAccountType() == AccountType.EXPENSE
                     && !account.isPlaceholderAccount()
                     && account.getCurrency() == Currency.getInstance(mCurrencyCode)) {
-
-                long start = new LocalDate().minusMonths(2).dayOfMonth().withMinimumValue().toDate().getTime();
-                long end = new LocalDate().plusDays(1).toDate().getTime();
-                double balance = mAccountsDbAdapter.getAccountsBalance(Collections.singletonList(account.getUID()), start, end).absolute().asDouble();
-                if (balance != 0) {
-                    dataSet.addEntry(new Entry((float) balance, dataSet.getEntryCount()));
-                    colors.add(account.getColorHexCode() != null
-                            ? Color.parseColor(account.getColorHexCode())
-                            : ReportsActivity.COLORS[(dataSet.getEntryCount() - 1) % ReportsActivity.COLORS.length]);
-                    labels.add(account.getName());
-                }
+                accounts.add(account);
+            }
+        }
+        List<String> accountUIDs = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            accountUIDs.add(account.getUID());
+        }
+        long start = new LocalDate().minusMonths(2).dayOfMonth().withMinimumValue().toDate().getTime();
+        long end = new LocalDate().plusDays(1).toDate().getTime();
+        Map<String, Money> balances = mAccountsDbAdapter.getAccountBalances(accountUIDs, start, end, false);
+
+        for (Account account : accounts) {
+            double balance = balances.get(account.getUID()).absolute().asDouble();
+            if (balance != 0) {
+                dataSet.addEntry(new Entry((float) balance, dataSet.getEntryCount()));
+                colors.add(account.getColorHexCode() != null
+                        ? Color.parseColor(account.getColorHexCode())
+                        : ReportsActivity.COLORS[(dataSet.getEntryCount() - 1) % ReportsActivity.COLORS.length]);
+                labels.add(account.getName());
             }
         }
         dataSet.setColors(colors);
@@ -541,7 +541,9 @@ public class SettingsActivity extends AppCompatPreferenceActivity
 
                 try {
                     FileInputStream inputStream = new FileInputStream(backupFile);
-                    new ImportAsyncTask(SettingsActivity.this).execute(inputStream);
+                    ImportAsyncTask importTask = new ImportAsyncTask(SettingsActivity.this);
+                    importTask.setFileSize(backupFile.length());
+                    importTask.execute(inputStream);
                 } catch (FileNotFoundException e) {
                     Crashlytics.logException(e);
                     Log.e(LOG_TAG, "Error restoring backup: " + backupFile.getName());
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Input stream which decompresses gzip data made of several concatenated members,
+ * like the files written by {@link ParallelGzipOutputStream}.
+ * <p>The {@link java.util.zip.GZIPInputStream} of older Android versions stops after the first member,
+ * so it cannot be used to read such files. The members are read one after the other
+ * and their checksums are verified. Data after the last member which is not a gzip header is ignored</p>
+ */
+public class MultiMemberGzipInputStream extends InputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int METHOD_DEFLATE = 8;
+
+    private static final int FLAG_HEADER_CRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PushbackInputStream mIn;
+    private final Inflater mInflater = new Inflater(true);
+    private final CRC32 mCrc = new CRC32();
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mBufferLength = 0;
+    private long mMemberSize = 0;
+
+    private boolean mInMember = false;
+    private boolean mFirstMember = true;
+    private boolean mEndOfStream = false;
+    private boolean mClosed = false;
+
+    /**
+     * Creates a stream which reads the members of gzip data
+     * @param in Stream of the compressed data
+     * @throws IOException if the data does not start with a gzip header
+     */
+    public MultiMemberGzipInputStream(@NonNull InputStream in) throws IOException {
+        mIn = new PushbackInputStream(in, BUFFER_SIZE);
+        if (!readHeader())
+            throw new EOFException("Empty gzip stream");
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int count) throws IOException {
+        if (mClosed)
+            throw new IOException("Stream is closed");
+        if (count == 0)
+            return 0;
+        while (!mEndOfStream) {
+            if (!mInMember) {
+                if (!readHeader()) {
+                    mEndOfStream = true;
+                    break;
+                }
+            }
+            int length;
+            try {
+                length = mInflater.inflate(buffer, offset, count);
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid compressed data: " + e.getMessage());
+            }
+            if (length > 0) {
+                mCrc.update(buffer, offset, length);
+                mMemberSize += length;
+                return length;
+            }
+            if (mInflater.finished()) {
+                readTrailer();
+            } else if (mInflater.needsDictionary()) {
+                throw new ZipException("Compressed data needs a dictionary");
+            } else if (mInflater.needsInput()) {
+                mBufferLength = mIn.read(mBuffer, 0, mBuffer.length);
+                if (mBufferLength == -1)
+                    throw new EOFException("Unexpected end of gzip stream");
+                mInflater.setInput(mBuffer, 0, mBufferLength);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (mClosed)
+            throw new IOException("Stream is closed");
+        return mEndOfStream ? 0 : 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mClosed)
+            return;
+        mClosed = true;
+        mInflater.end();
+        mIn.close();
+    }
+
+    /**
+     * Reads the header of the next member
+     * @return {@code false} if there is no other member
+     */
+    private boolean readHeader() throws IOException {
+        int first = mIn.read();
+        if (first == -1)
+            return false;
+        int second = mIn.read();
+        if ((first | (second << 8)) != GZIP_MAGIC) {
+            if (mFirstMember)
+                throw new ZipException("Not in gzip format");
+            //trailing garbage after the last member
+            return false;
+        }
+        if (readUnsignedByte() != METHOD_DEFLATE)
+            throw new ZipException("Unsupported compression method");
+        int flags = readUnsignedByte();
+        skipFully(6); //modification time, extra flags and operating system
+        if ((flags & FLAG_EXTRA) != 0)
+            skipFully(readUnsignedShort());
+        if ((flags & FLAG_NAME) != 0)
+            skipZeroTerminated();
+        if ((flags & FLAG_COMMENT) != 0)
+            skipZeroTerminated();
+        if ((flags & FLAG_HEADER_CRC) != 0)
+            skipFully(2);
+
+        mInflater.reset();
+        mCrc.reset();
+        mMemberSize = 0;
+        mInMember = true;
+        mFirstMember = false;
+        return true;
+    }
+
+    /**
+     * Reads and checks the trailer of the current member, once its data has been inflated
+     */
+    private void readTrailer() throws IOException {
+        int remaining = mInflater.getRemaining();
+        if (remaining > 0)
+            mIn.unread(mBuffer, mBufferLength - remaining, remaining);
+        long crc = readUnsignedInt();
+        long size = readUnsignedInt();
+        if (crc != mCrc.getValue())
+            throw new ZipException("CRC mismatch");
+        if (size != (mMemberSize & 0xffffffffL))
+            throw new ZipException("Size mismatch");
+        mInMember = false;
+    }
+
+    private int readUnsignedByte() throws IOException {
+        int b = mIn.read();
+        if (b == -1)
+            throw new EOFException("Unexpected end of gzip stream");
+        return b;
+    }
+
+    private int readUnsignedShort() throws IOException {
+        return readUnsignedByte() | (readUnsignedByte() << 8);
+    }
+
+    private long readUnsignedInt() throws IOException {
+        return ((long) readUnsignedShort()) | ((long) readUnsignedShort() << 16);
+    }
+
+    private void skipFully(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readUnsignedByte();
+        }
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readUnsignedByte() != 0) {
+            //skip the characters
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream which compresses in gzip format on several threads, like pigz.
+ * <p>The data is cut in blocks of {@link #DEFAULT_BLOCK_SIZE} bytes, which are compressed in parallel by a pool
+ * of threads and written in order, each as a gzip member of its own. Concatenated gzip members are a valid
+ * gzip file, which is read by {@link MultiMemberGzipInputStream} and by desktop GnuCash.
+ * The blocks do not share their dictionary, so the output is slightly larger than with {@link GZIPOutputStream}</p>
+ * <p>At most two blocks per thread are waiting to be written, so the memory used does not depend on the size
+ * of the data. Like {@link GZIPOutputStream}, {@link #flush()} does not compress the data of the current block,
+ * it is written when the block is full or when the stream is closed. The stream must be closed
+ * to stop its threads</p>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    /**
+     * Number of bytes of the blocks compressed separately
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private final OutputStream mOut;
+    private final ExecutorService mExecutor;
+    private final int mBlockSize;
+    private final int mMaxPendingBlocks;
+
+    /**
+     * Compressed blocks which are not written yet, in the order of the data
+     */
+    private final Queue<Future<byte[]>> mPendingBlocks = new ArrayDeque<>();
+
+    private byte[] mBuffer;
+    private int mCount = 0;
+    private boolean mBlockWritten = false;
+    private boolean mClosed = false;
+
+    /**
+     * Creates a stream which compresses on one thread per processor
+     * @param out Stream to which the compressed data is written
+     */
+    public ParallelGzipOutputStream(@NonNull OutputStream out) {
+        this(out, getDefaultThreadCount());
+    }
+
+    /**
+     * Creates a stream which compresses on several threads
+     * @param out Stream to which the compressed data is written
+     * @param threadCount Number of compression threads, at least 1
+     */
+    public ParallelGzipOutputStream(@NonNull OutputStream out, int threadCount) {
+        this(out, threadCount, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a stream which compresses blocks of a given size on several threads
+     * @param out Stream to which the compressed data is written
+     * @param threadCount Number of compression threads, at least 1
+     * @param blockSize Number of bytes of the blocks compressed separately
+     */
+    public ParallelGzipOutputStream(@NonNull OutputStream out, int threadCount, int blockSize) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        if (blockSize < 1)
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        mOut = out;
+        mExecutor = Executors.newFixedThreadPool(threadCount);
+        mBlockSize = blockSize;
+        mMaxPendingBlocks = 2 * threadCount;
+        mBuffer = new byte[blockSize];
+    }
+
+    /**
+     * Returns the default number of compression threads, which is the number of processors
+     * @return Number of threads
+     */
+    public static int getDefaultThreadCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkNotClosed();
+        mBuffer[mCount++] = (byte) b;
+        if (mCount == mBlockSize)
+            submitBlock();
+    }
+
+    @Override
+    public void write(@NonNull byte[] buffer, int offset, int count) throws IOException {
+        checkNotClosed();
+        while (count > 0) {
+            int length = Math.min(count, mBlockSize - mCount);
+            System.arraycopy(buffer, offset, mBuffer, mCount, length);
+            mCount += length;
+            offset += length;
+            count -= length;
+            if (mCount == mBlockSize)
+                submitBlock();
+        }
+    }
+
+    /**
+     * Writes the blocks which are already compressed and flushes the underlying stream.
+     * The current block is not compressed until it is full
+     */
+    @Override
+    public void flush() throws IOException {
+        checkNotClosed();
+        while (!mPendingBlocks.isEmpty() && mPendingBlocks.peek().isDone()) {
+            writeNextBlock();
+        }
+        mOut.flush();
+    }
+
+    /**
+     * Compresses the last block, writes all the blocks and closes the underlying stream.
+     * The compression threads are stopped even if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed)
+            return;
+        try {
+            //an empty stream is written as an empty member, so that it is still a gzip file
+            if (mCount > 0 || !mBlockWritten)
+                submitBlock();
+            while (!mPendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+            mOut.close();
+        } finally {
+            mClosed = true;
+            mExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Hands the current block to the compression threads,
+     * after writing the oldest blocks if too many are waiting
+     */
+    private void submitBlock() throws IOException {
+        final byte[] block = mBuffer;
+        final int length = mCount;
+        mPendingBlocks.add(mExecutor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return compress(block, length);
+            }
+        }));
+        mBlockWritten = true;
+        mBuffer = new byte[mBlockSize];
+        mCount = 0;
+        while (mPendingBlocks.size() > mMaxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+
+    /**
+     * Waits for the oldest block to be compressed and writes it
+     */
+    private void writeNextBlock() throws IOException {
+        Future<byte[]> block = mPendingBlocks.remove();
+        try {
+            mOut.write(block.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Error compressing block", e.getCause());
+        }
+    }
+
+    /**
+     * Compresses a block into a complete gzip member
+     */
+    private static byte[] compress(byte[] block, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bytes);
+        gzipOutputStream.write(block, 0, length);
+        gzipOutputStream.close();
+        return bytes.toByteArray();
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (mClosed)
+            throw new IOException("Stream is closed");
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.util;
+
+import android.support.annotation.NonNull;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses the fixed date formats of the exported and imported files.
+ * <p>Unlike {@link SimpleDateFormat}, the methods are safe to call from several threads at once,
+ * and the {@code char[]} variants do not allocate. The fields are computed directly from the time
+ * in the proleptic Gregorian calendar, and the offsets of the time zone are cached a day at a time.</p>
+ * <p>The local time zone is the default time zone when this class is loaded,
+ * like it was for the static formatters this class replaces.
+ * Text which does not have the exact format, like fields which are not zero padded,
+ * is parsed with a {@link SimpleDateFormat} instead, which is slower but lenient.</p>
+ */
+public final class TimestampCodec {
+    /**
+     * Length of a timestamp in the format {@code yyyy-MM-dd HH:mm:ss Z}, e.g. 2015-08-21 13:45:10 +0200
+     */
+    public static final int TIMESTAMP_LENGTH = 25;
+
+    /**
+     * Length of a date in the format {@code yyyy-MM-dd}
+     */
+    public static final int DATE_LENGTH = 10;
+
+    private static final String TIMESTAMP_PATTERN   = "yyyy-MM-dd HH:mm:ss Z";
+    private static final String DATE_PATTERN        = "yyyy-MM-dd";
+    private static final String QIF_DATE_PATTERN    = "yyyy/M/d";
+    private static final String OFX_TIME_PATTERN    = "yyyyMMddHHmmss";
+    private static final String FILENAME_TIME_PATTERN = "yyyyMMdd_HHmmss";
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR   = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY    = 24 * MILLIS_PER_HOUR;
+
+    private static final TimeZone LOCAL_TIME_ZONE = TimeZone.getDefault();
+
+    /**
+     * Offset of the local time zone during one UTC day. Instances are immutable, so they can be shared between threads
+     */
+    private static final class OffsetCache {
+        final long mStart;
+        final long mEnd;
+        final int mOffset;
+
+        OffsetCache(long start, long end, int offset) {
+            mStart = start;
+            mEnd = end;
+            mOffset = offset;
+        }
+    }
+
+    private static volatile OffsetCache sOffsetCache = new OffsetCache(0, 0, 0);
+
+    private TimestampCodec() {
+        //only static methods
+    }
+
+    /**
+     * Formats a time in the local time zone as {@code yyyy-MM-dd HH:mm:ss Z}
+     * @param timeMillis Milliseconds since epoch
+     * @return Formatted timestamp
+     */
+    public static String formatTimestamp(long timeMillis) {
+        char[] buffer = new char[2 * TIMESTAMP_LENGTH];
+        return new String(buffer, 0, formatTimestamp(timeMillis, buffer, 0));
+    }
+
+    /**
+     * Formats a time in the local time zone as {@code yyyy-MM-dd HH:mm:ss Z} into {@code buffer}
+     * @param timeMillis Milliseconds since epoch
+     * @param buffer Destination, with at least {@link #TIMESTAMP_LENGTH} characters from {@code start}.
+     *               Years before 0 or after 9999 need more characters
+     * @param start Index in {@code buffer} of the first character
+     * @return Number of characters written
+     */
+    public static int formatTimestamp(long timeMillis, @NonNull char[] buffer, int start) {
+        int offset = getOffset(timeMillis);
+        long localMillis = timeMillis + offset;
+        int pos = formatDateFields(localMillis, buffer, start, '-');
+        if (pos < 0)
+            return copy(createFormat(TIMESTAMP_PATTERN).format(timeMillis), buffer, start);
+        buffer[pos++] = ' ';
+        pos = formatTimeFields(localMillis, buffer, pos, ':');
+        buffer[pos++] = ' ';
+        buffer[pos++] = offset < 0 ? '-' : '+';
+        int offsetMinutes = Math.abs(offset) / (int) MILLIS_PER_MINUTE;
+        pos = put2(buffer, pos, offsetMinutes / 60);
+        pos = put2(buffer, pos, offsetMinutes % 60);
+        return pos - start;
+    }
+
+    /**
+     * Parses a timestamp in the format {@code yyyy-MM-dd HH:mm:ss Z}
+     * @param text Timestamp, with its time zone offset
+     * @return Milliseconds since epoch
+     * @throws ParseException if the text is not a timestamp
+     */
+    public static long parseTimestamp(@NonNull CharSequence text) throws ParseException {
+        if (text.length() == TIMESTAMP_LENGTH
+                && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == ' '
+                && text.charAt(13) == ':' && text.charAt(16) == ':' && text.charAt(19) == ' ') {
+            long days = parseDays(text, 0, 5, 8);
+            int hours = parse2(text, 11);
+            int minutes = parse2(text, 14);
+            int seconds = parse2(text, 17);
+            char sign = text.charAt(20);
+            int offsetHours = parse2(text, 21);
+            int offsetMinutes = parse2(text, 23);
+            if (days != Long.MIN_VALUE && hours >= 0 && hours <= 23 && minutes >= 0 && minutes <= 59
+                    && seconds >= 0 && seconds <= 59
+                    && (sign == '+' || sign == '-') && offsetHours >= 0 && offsetMinutes >= 0) {
+                long offset = offsetHours * MILLIS_PER_HOUR + offsetMinutes * MILLIS_PER_MINUTE;
+                return days * MILLIS_PER_DAY + hours * MILLIS_PER_HOUR + minutes * MILLIS_PER_MINUTE
+                        + seconds * MILLIS_PER_SECOND - (sign == '-' ? -offset : offset);
+            }
+        }
+        return createFormat(TIMESTAMP_PATTERN).parse(text.toString()).getTime();
+    }
+
+    /**
+     * Formats the local date of a time as {@code yyyy-MM-dd}
+     * @param timeMillis Milliseconds since epoch
+     * @return Formatted date
+     */
+    public static String formatDate(long timeMillis) {
+        char[] buffer = new char[2 * DATE_LENGTH];
+        return new String(buffer, 0, formatDate(timeMillis, buffer, 0));
+    }
+
+    /**
+     * Formats the local date of a time as {@code yyyy-MM-dd} into {@code buffer}
+     * @param timeMillis Milliseconds since epoch
+     * @param buffer Destination, with at least {@link #DATE_LENGTH} characters from {@code start}.
+     *               Years before 0 or after 9999 need more characters
+     * @param start Index in {@code buffer} of the first character
+     * @return Number of characters written
+     */
+    public static int formatDate(long timeMillis, @NonNull char[] buffer, int start) {
+        int pos = formatDateFields(timeMillis + getOffset(timeMillis), buffer, start, '-');
+        if (pos < 0)
+            return copy(createFormat(DATE_PATTERN).format(timeMillis), buffer, start);
+        return pos - start;
+    }
+
+    /**
+     * Parses a date in the format {@code yyyy-MM-dd}
+     * @param text Date
+     * @return Milliseconds since epoch of the start of the day in the local time zone
+     * @throws ParseException if the text is not a date
+     */
+    public static long parseDate(@NonNull CharSequence text) throws ParseException {
+        if (text.length() == DATE_LENGTH && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            long days = parseDays(text, 0, 5, 8);
+            if (days != Long.MIN_VALUE)
+                return toUtc(days * MILLIS_PER_DAY);
+        }
+        return createFormat(DATE_PATTERN).parse(text.toString()).getTime();
+    }
+
+    /**
+     * Returns the start of a day in the local time zone
+     * @param year Year
+     * @param month Month, from 1 to 12
+     * @param day Day of the month, from 1 to 31
+     * @return Milliseconds since epoch of the start of the day
+     */
+    public static long getStartOfDay(int year, int month, int day) {
+        return toUtc(toDays(year, month, day) * MILLIS_PER_DAY);
+    }
+
+    /**
+     * Formats the local date of a time for QIF, as {@code yyyy/M/d}
+     * @param timeMillis Milliseconds since epoch
+     * @return Formatted date
+     */
+    public static String formatQifDate(long timeMillis) {
+        long packed = toCivil(floorDiv(timeMillis + getOffset(timeMillis), MILLIS_PER_DAY));
+        int year = (int) (packed >> 9);
+        if (year < 0 || year > 9999)
+            return createFormat(QIF_DATE_PATTERN).format(timeMillis);
+        char[] buffer = new char[DATE_LENGTH];
+        int pos = put4(buffer, 0, year);
+        buffer[pos++] = '/';
+        pos = putVariable(buffer, pos, (int) (packed >> 5) & 15);
+        buffer[pos++] = '/';
+        pos = putVariable(buffer, pos, (int) packed & 31);
+        return new String(buffer, 0, pos);
+    }
+
+    /**
+     * Formats a time in the local time zone for OFX, as {@code yyyyMMddHHmmss}
+     * @param timeMillis Milliseconds since epoch
+     * @return Formatted time
+     */
+    public static String formatOfxTime(long timeMillis) {
+        long localMillis = timeMillis + getOffset(timeMillis);
+        char[] buffer = new char[14];
+        int pos = formatDateFields(localMillis, buffer, 0, (char) 0);
+        if (pos < 0)
+            return createFormat(OFX_TIME_PATTERN).format(timeMillis);
+        pos = formatTimeFields(localMillis, buffer, pos, (char) 0);
+        return new String(buffer, 0, pos);
+    }
+
+    /**
+     * Formats a time in the local time zone for the names of exported files, as {@code yyyyMMdd_HHmmss}
+     * @param timeMillis Milliseconds since epoch
+     * @return Formatted time
+     */
+    public static String formatFilenameTime(long timeMillis) {
+        long localMillis = timeMillis + getOffset(timeMillis);
+        char[] buffer = new char[15];
+        int pos = formatDateFields(localMillis, buffer, 0, (char) 0);
+        if (pos < 0)
+            return createFormat(FILENAME_TIME_PATTERN).format(timeMillis);
+        buffer[pos++] = '_';
+        pos = formatTimeFields(localMillis, buffer, pos, (char) 0);
+        return new String(buffer, 0, pos);
+    }
+
+    /**
+     * Parses a time from the name of an exported file, in the format {@code yyyyMMdd_HHmmss}
+     * @param text Time in the local time zone
+     * @return Milliseconds since epoch
+     * @throws ParseException if the text is not a time in this format
+     */
+    public static long parseFilenameTime(@NonNull CharSequence text) throws ParseException {
+        if (text.length() == 15 && text.charAt(8) == '_') {
+            long days = parseDays(text, 0, 4, 6);
+            int hours = parse2(text, 9);
+            int minutes = parse2(text, 11);
+            int seconds = parse2(text, 13);
+            if (days != Long.MIN_VALUE && hours >= 0 && hours <= 23 && minutes >= 0 && minutes <= 59
+                    && seconds >= 0 && seconds <= 59) {
+                return toUtc(days * MILLIS_PER_DAY + hours * MILLIS_PER_HOUR
+                        + minutes * MILLIS_PER_MINUTE + seconds * MILLIS_PER_SECOND);
+            }
+        }
+        return createFormat(FILENAME_TIME_PATTERN).parse(text.toString()).getTime();
+    }
+
+    /**
+     * Returns the offset of the local time zone at a time.
+     * <p>The offset is cached for the UTC day of the time, unless the offset changes during that day</p>
+     * @param timeMillis Milliseconds since epoch
+     * @return Offset in milliseconds to add to UTC to get the local time
+     */
+    static int getOffset(long timeMillis) {
+        OffsetCache cache = sOffsetCache;
+        if (timeMillis >= cache.mStart && timeMillis < cache.mEnd)
+            return cache.mOffset;
+
+        long dayStart = floorDiv(timeMillis, MILLIS_PER_DAY) * MILLIS_PER_DAY;
+        int startOffset = LOCAL_TIME_ZONE.getOffset(dayStart);
+        int endOffset = LOCAL_TIME_ZONE.getOffset(dayStart + MILLIS_PER_DAY - 1);
+        if (startOffset != endOffset) //the day has a transition
+            return LOCAL_TIME_ZONE.getOffset(timeMillis);
+        sOffsetCache = new OffsetCache(dayStart, dayStart + MILLIS_PER_DAY, startOffset);
+        return startOffset;
+    }
+
+    /**
+     * Converts a local time to milliseconds since epoch, like {@link java.util.Calendar} does:
+     * local times repeated by a transition are in standard time,
+     * and local times skipped by a transition are moved forward.
+     * <p>This is only used for dates without offset, which are rare, so the offsets are not cached</p>
+     */
+    private static long toUtc(long localMillis) {
+        int offsetBefore = LOCAL_TIME_ZONE.getOffset(localMillis - MILLIS_PER_DAY);
+        int offsetAfter = LOCAL_TIME_ZONE.getOffset(localMillis + MILLIS_PER_DAY);
+        if (offsetBefore == offsetAfter)
+            return localMillis - offsetBefore;
+
+        boolean validBefore = LOCAL_TIME_ZONE.getOffset(localMillis - offsetBefore) == offsetBefore;
+        boolean validAfter = LOCAL_TIME_ZONE.getOffset(localMillis - offsetAfter) == offsetAfter;
+        if (validBefore && validAfter) //repeated local time
+            return localMillis - Math.min(offsetBefore, offsetAfter);
+        if (validAfter)
+            return localMillis - offsetAfter;
+        return localMillis - offsetBefore;
+    }
+
+    /**
+     * Writes the date of a local time as {@code yyyy[sep]MM[sep]dd}, without separators if {@code separator} is 0
+     * @return Index after the last character written, or -1 if the year does not have 4 digits
+     */
+    private static int formatDateFields(long localMillis, char[] buffer, int pos, char separator) {
+        long packed = toCivil(floorDiv(localMillis, MILLIS_PER_DAY));
+        int year = (int) (packed >> 9);
+        if (year < 0 || year > 9999)
+            return -1;
+        pos = put4(buffer, pos, year);
+        if (separator != 0)
+            buffer[pos++] = separator;
+        pos = put2(buffer, pos, (int) (packed >> 5) & 15);
+        if (separator != 0)
+            buffer[pos++] = separator;
+        return put2(buffer, pos, (int) packed & 31);
+    }
+
+    /**
+     * Writes the time of day of a local time as {@code HH[sep]mm[sep]ss}, without separators if {@code separator} is 0
+     * @return Index after the last character written
+     */
+    private static int formatTimeFields(long localMillis, char[] buffer, int pos, char separator) {
+        int seconds = (int) ((localMillis - floorDiv(localMillis, MILLIS_PER_DAY) * MILLIS_PER_DAY) / MILLIS_PER_SECOND);
+        pos = put2(buffer, pos, seconds / 3600);
+        if (separator != 0)
+            buffer[pos++] = separator;
+        pos = put2(buffer, pos, seconds / 60 % 60);
+        if (separator != 0)
+            buffer[pos++] = separator;
+        return put2(buffer, pos, seconds % 60);
+    }
+
+    /**
+     * Parses the 4 digit year, 2 digit month and 2 digit day at the given indexes
+     * @return Days since epoch, or {@link Long#MIN_VALUE} if the fields are not a valid date
+     */
+    private static long parseDays(CharSequence text, int yearIndex, int monthIndex, int dayIndex) {
+        int year = parse2(text, yearIndex);
+        int yearLow = parse2(text, yearIndex + 2);
+        int month = parse2(text, monthIndex);
+        int day = parse2(text, dayIndex);
+        if (year < 0 || yearLow < 0 || month < 1 || month > 12 || day < 1 || day > 31)
+            return Long.MIN_VALUE;
+        year = year * 100 + yearLow;
+        long days = toDays(year, month, day);
+        //reject days after the end of the month, like February 30
+        return toCivil(days) == ((long) year << 9 | month << 5 | day) ? days : Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the number of days since epoch of a date
+     */
+    private static long toDays(long year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns the date of a number of days since epoch, packed as {@code year << 9 | month << 5 | day}
+     */
+    private static long toCivil(long days) {
+        days += 719468;
+        long era = floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 9 | month << 5 | day;
+    }
+
+    /**
+     * Divides rounding towards negative infinity, so that times before epoch fall in the right day
+     */
+    private static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if ((dividend % divisor != 0) && ((dividend ^ divisor) < 0))
+            quotient--;
+        return quotient;
+    }
+
+    /**
+     * Parses two decimal digits
+     * @return Value of the digits, or -1 if they are not digits
+     */
+    private static int parse2(CharSequence text, int index) {
+        int high = text.charAt(index) - '0';
+        int low = text.charAt(index + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9)
+            return -1;
+        return high * 10 + low;
+    }
+
+    private static int put2(char[] buffer, int pos, int value) {
+        buffer[pos] = (char) ('0' + value / 10);
+        buffer[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    private static int put4(char[] buffer, int pos, int value) {
+        put2(buffer, pos, value / 100);
+        return put2(buffer, pos + 2, value % 100);
+    }
+
+    /**
+     * Writes a value of one or two digits without zero padding
+     */
+    private static int putVariable(char[] buffer, int pos, int value) {
+        if (value < 10) {
+            buffer[pos] = (char) ('0' + value);
+            return pos + 1;
+        }
+        return put2(buffer, pos, value);
+    }
+
+    private static int copy(String text, char[] buffer, int start) {
+        text.getChars(0, text.length(), buffer, start);
+        return text.length();
+    }
+
+    /**
+     * Creates a formatter for the dates which are not handled directly.
+     * A new instance is used each time, because formatters are not thread safe
+     */
+    private static SimpleDateFormat createFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(LOCAL_TIME_ZONE);
+        return format;
+    }
+}
@@ -5,6 +5,7 @@ import org.gnucash.android.BuildConfig;
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.MergeResult;
 import org.gnucash.android.db.ScheduledActionDbAdapter;
 import org.gnucash.android.db.SplitsDbAdapter;
 import org.gnucash.android.db.TransactionsDbAdapter;
@@ -29,8 +30,10 @@ import org.xml.sax.SAXException;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -292,6 +295,65 @@ public class AccountsDbAdapterTest{
         assertThat(balance).isEqualTo(expectedBalance);
     }
 
+    @Test
+    public void shouldComputeBalancesOfSeveralAccounts(){
+        Account parent = new Account("Parent", Currency.getInstance("USD"));
+        parent.setAccountType(AccountType.ASSET);
+        Account child = new Account("Child", Currency.getInstance("USD"));
+        child.setAccountType(AccountType.ASSET);
+        child.setParentUID(parent.getUID());
+        Account transferAcct = new Account("Transfer");
+        mAccountsDbAdapter.addRecord(parent);
+        mAccountsDbAdapter.addRecord(child);
+        mAccountsDbAdapter.addRecord(transferAcct);
+
+        Transaction transaction = new Transaction("Test description");
+        Split split = new Split(new Money("4.99", "USD"), parent.getUID());
+        split.setType(TransactionType.DEBIT);
+        transaction.addSplit(split);
+        split = new Split(new Money("10", "USD"), child.getUID());
+        split.setType(TransactionType.DEBIT);
+        transaction.addSplit(split);
+        split = new Split(new Money("14.99", "USD"), transferAcct.getUID());
+        split.setType(TransactionType.CREDIT);
+        transaction.addSplit(split);
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        List<String> accountUIDs = new ArrayList<>();
+        accountUIDs.add(parent.getUID());
+        accountUIDs.add(child.getUID());
+        accountUIDs.add(transferAcct.getUID());
+        Map<String, Money> balances = mAccountsDbAdapter.getAccountBalances(accountUIDs, -1, -1);
+
+        assertThat(balances).hasSize(3);
+        assertThat(balances.get(parent.getUID())).isEqualTo(new Money("14.99", "USD"));
+        assertThat(balances.get(child.getUID())).isEqualTo(new Money("10", "USD"));
+        for (String accountUID : accountUIDs) {
+            assertThat(balances.get(accountUID)).isEqualTo(mAccountsDbAdapter.getAccountBalance(accountUID));
+            assertThat(mAccountsDbAdapter.getAccountBalances(accountUIDs, -1, System.currentTimeMillis()).get(accountUID))
+                    .isEqualTo(mAccountsDbAdapter.getAccountBalance(accountUID, -1, System.currentTimeMillis()));
+        }
+
+        //transactions dated in the future are not in the current balances
+        Transaction future = new Transaction("Future");
+        future.setTime(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+        split = new Split(new Money("100", "USD"), child.getUID());
+        split.setType(TransactionType.DEBIT);
+        future.addSplit(split);
+        future.addSplit(split.createPair(transferAcct.getUID()));
+        mTransactionsDbAdapter.addRecord(future);
+
+        Map<String, Money> currentBalances = mAccountsDbAdapter.getCurrentAccountBalances(accountUIDs);
+        assertThat(currentBalances.get(parent.getUID())).isEqualTo(new Money("14.99", "USD"));
+        assertThat(currentBalances.get(child.getUID())).isEqualTo(new Money("10", "USD"));
+        for (String accountUID : accountUIDs) {
+            assertThat(currentBalances.get(accountUID))
+                    .isEqualTo(mAccountsDbAdapter.getAccountBalance(accountUID, -1, System.currentTimeMillis()));
+        }
+        assertThat(mAccountsDbAdapter.getAccountBalances(accountUIDs, -1, -1).get(parent.getUID()))
+                .isEqualTo(new Money("114.99", "USD"));
+    }
+
     /**
      * Test creating an account hierarchy by specifying fully qualified name
      */
@@ -360,6 +422,27 @@ public class AccountsDbAdapterTest{
 
     }
 
+    @Test
+    public void descendantAccountsShouldFollowReassignedAccounts(){
+        loadDefaultAccounts();
+
+        String savingsAcctUID = mAccountsDbAdapter.findAccountUidByFullName("Assets:Current Assets:Savings Account");
+        String currentAssetsUID = mAccountsDbAdapter.findAccountUidByFullName("Assets:Current Assets");
+        String assetsUID = mAccountsDbAdapter.findAccountUidByFullName("Assets");
+        assertThat(mAccountsDbAdapter.getDescendantAccountUIDs(currentAssetsUID, null, null)).contains(savingsAcctUID);
+
+        mAccountsDbAdapter.reassignDescendantAccounts(currentAssetsUID, assetsUID);
+
+        assertThat(mAccountsDbAdapter.getDescendantAccountUIDs(currentAssetsUID, null, null)).isEmpty();
+        assertThat(mAccountsDbAdapter.getDescendantAccountUIDs(assetsUID, null, null)).contains(savingsAcctUID, currentAssetsUID);
+
+        Account savingsAccount = mAccountsDbAdapter.getRecord(savingsAcctUID);
+        savingsAccount.setParentUID(currentAssetsUID);
+        mAccountsDbAdapter.addRecord(savingsAccount);
+        assertThat(mAccountsDbAdapter.getDescendantAccountUIDs(currentAssetsUID, null, null)).containsExactly(savingsAcctUID);
+        assertThat(mAccountsDbAdapter.getDescendantAccountUIDs(assetsUID, null, null)).contains(savingsAcctUID);
+    }
+
     @Test
     public void shouldCreateImbalanceAccountOnDemand(){
         assertThat(mAccountsDbAdapter.getRecordsCount()).isEqualTo(0);
@@ -374,6 +457,34 @@ public class AccountsDbAdapterTest{
         assertThat(mAccountsDbAdapter.getRecordsCount()).isEqualTo(2);
     }
 
+    @Test
+    public void mergingTheSameBookShouldOnlyAddNewRecords() throws Exception {
+        loadDefaultAccounts();
+        List<String> importedAccountNames = getAllFullNames();
+        Account localAccount = new Account("Local account");
+        mAccountsDbAdapter.addRecord(localAccount);
+
+        MergeResult result = GncXmlImporter.merge(
+                GnuCashApplication.getAppContext().getResources().openRawResource(R.raw.default_accounts), null);
+
+        assertThat(result.getAddedCount()).isEqualTo(0);
+        assertThat(result.getUpdatedCount()).isEqualTo(0);
+        assertThat(result.getUnchangedCount()).isEqualTo(importedAccountNames.size());
+        assertThat(result.hasChanges()).isFalse();
+        //records which are not in the file are kept
+        assertThat(mAccountsDbAdapter.getRecordsCount()).isEqualTo(importedAccountNames.size() + 1);
+        assertThat(mAccountsDbAdapter.getFullyQualifiedAccountName(localAccount.getUID())).isEqualTo("Local account");
+    }
+
+    private List<String> getAllFullNames(){
+        List<String> fullNames = new ArrayList<>();
+        for (Account account : mAccountsDbAdapter.getAllRecords()) {
+            fullNames.add(account.getUID() + " " + account.getFullName());
+        }
+        Collections.sort(fullNames);
+        return fullNames;
+    }
+
     /**
      * Loads the default accounts from file resource
      */
@@ -0,0 +1,311 @@
+package org.gnucash.android.test.unit.db;
+
+import android.database.Cursor;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.BackupChain;
+import org.gnucash.android.db.CommoditiesDbAdapter;
+import org.gnucash.android.db.DatabaseSchema;
+import org.gnucash.android.db.PricesDbAdapter;
+import org.gnucash.android.db.ScheduledActionDbAdapter;
+import org.gnucash.android.db.SplitsDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.ExportFormat;
+import org.gnucash.android.export.ExportParams;
+import org.gnucash.android.export.FileExportSink;
+import org.gnucash.android.export.xml.GncXmlExporter;
+import org.gnucash.android.export.xml.GncXmlHelper;
+import org.gnucash.android.importer.GncXmlImporter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.PeriodType;
+import org.gnucash.android.model.Price;
+import org.gnucash.android.model.ScheduledAction;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.test.unit.util.BookSnapshot;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the chain of differential backups and the tombstones of the deleted records
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class BackupChainTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private BackupChain mBackupChain;
+
+    @Before
+    public void setUp() {
+        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
+        mAccountsDbAdapter.deleteAllRecords();
+        mBackupChain = mAccountsDbAdapter.getBackupChain();
+    }
+
+    private int countTombstones(String since) {
+        Cursor cursor = mBackupChain.fetchTombstones(since);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void shouldStartWithFullBackup() {
+        assertThat(mBackupChain.shouldStartNewChain()).isTrue();
+        assertThat(mBackupChain.getLastBackupTimestamp()).isNull();
+
+        String timestamp = mBackupChain.getCurrentTimestamp();
+        mBackupChain.recordBackup(BackupChain.BackupType.FULL, timestamp);
+
+        assertThat(mBackupChain.shouldStartNewChain()).isFalse();
+        assertThat(mBackupChain.getLastBackupTimestamp()).isEqualTo(timestamp);
+    }
+
+    @Test
+    public void shouldStartNewChainAfterMaxDifferentialBackups() {
+        String timestamp = mBackupChain.getCurrentTimestamp();
+        mBackupChain.recordBackup(BackupChain.BackupType.FULL, timestamp);
+        for (int i = 0; i < BackupChain.MAX_DIFFERENTIAL_BACKUPS; i++) {
+            assertThat(mBackupChain.shouldStartNewChain()).isFalse();
+            mBackupChain.recordBackup(BackupChain.BackupType.DIFFERENTIAL, timestamp);
+        }
+        assertThat(mBackupChain.shouldStartNewChain()).isTrue();
+    }
+
+    @Test
+    public void shouldOnlyRecordDeletionsWhileChainExists() {
+        Account account = new Account("Deleted before backup");
+        mAccountsDbAdapter.addRecord(account);
+        mAccountsDbAdapter.deleteRecord(account.getUID());
+
+        String timestamp = mBackupChain.getCurrentTimestamp();
+        assertThat(countTombstones(timestamp)).isZero();
+
+        mBackupChain.recordBackup(BackupChain.BackupType.FULL, timestamp);
+        account = new Account("Deleted after backup");
+        mAccountsDbAdapter.addRecord(account);
+        mAccountsDbAdapter.deleteRecord(account.getUID());
+
+        Cursor cursor = mBackupChain.fetchTombstones(timestamp);
+        try {
+            assertThat(cursor.moveToFirst()).isTrue();
+            assertThat(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TombstoneEntry.COLUMN_TABLE_NAME)))
+                    .isEqualTo(DatabaseSchema.AccountEntry.TABLE_NAME);
+            assertThat(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TombstoneEntry.COLUMN_UID)))
+                    .isEqualTo(account.getUID());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void shouldResetChainWhenBookIsReplaced() {
+        mBackupChain.recordBackup(BackupChain.BackupType.FULL, mBackupChain.getCurrentTimestamp());
+        mAccountsDbAdapter.deleteAllRecords();
+
+        assertThat(mBackupChain.getLastBackupTimestamp()).isNull();
+        assertThat(countTombstones("0")).isZero();
+    }
+
+    /**
+     * Restores a full backup followed by a differential backup of edits and deletions,
+     * and compares the result with the import of the whole edited book
+     */
+    @Test
+    public void differentialBackupChainShouldRestoreTheSameBook() throws Exception {
+        TransactionsDbAdapter transactionsDbAdapter = TransactionsDbAdapter.getInstance();
+        Account assets = addAccount("Assets", AccountType.ASSET, null);
+        Account checking = addAccount("Checking", AccountType.BANK, assets);
+        Account expenses = addAccount("Expenses", AccountType.EXPENSE, null);
+        Account groceries = addAccount("Groceries", AccountType.EXPENSE, expenses);
+        Account leisure = addAccount("Leisure", AccountType.EXPENSE, expenses);
+        Account books = addAccount("Books", AccountType.EXPENSE, expenses);
+
+        Transaction shopping = addTransaction("Shopping", checking, groceries, "12.50", false);
+        addTransaction("Reading", checking, books, "20.00", false);
+        Transaction unchanged = addTransaction("Unchanged", checking, groceries, "1.00", false);
+        Transaction deleted = addTransaction("Deleted", checking, groceries, "5.00", false);
+        Transaction dinner = new Transaction("Dinner");
+        dinner.addSplit(new Split(new Money("30.00", Money.DEFAULT_CURRENCY_CODE), checking.getUID()));
+        Split groceriesSplit = new Split(new Money("10.00", Money.DEFAULT_CURRENCY_CODE), groceries.getUID());
+        groceriesSplit.setType(groceriesSplit.getType().invert());
+        dinner.addSplit(groceriesSplit);
+        Split deletedSplit = new Split(new Money("20.00", Money.DEFAULT_CURRENCY_CODE), leisure.getUID());
+        deletedSplit.setType(deletedSplit.getType().invert());
+        dinner.addSplit(deletedSplit);
+        transactionsDbAdapter.addRecord(dinner);
+
+        Transaction rent = addTransaction("Rent", checking, expenses, "500.00", true);
+        ScheduledAction scheduledAction = new ScheduledAction(ScheduledAction.ActionType.TRANSACTION);
+        scheduledAction.setActionUID(rent.getUID());
+        scheduledAction.setStartTime(System.currentTimeMillis());
+        scheduledAction.setPeriod(PeriodType.MONTH);
+        ScheduledActionDbAdapter.getInstance().addRecord(scheduledAction);
+
+        Price price = addPrice("EUR", 110);
+        Price deletedPrice = addPrice("GBP", 150);
+
+        File fullBackup = export("full", true);
+        assertThat(mBackupChain.shouldStartNewChain()).isFalse();
+
+        shopping.setDescription("Weekly shopping");
+        transactionsDbAdapter.addRecord(shopping);
+        SplitsDbAdapter.getInstance().deleteRecord(deletedSplit.getUID());
+        transactionsDbAdapter.deleteRecord(deleted.getUID());
+        PricesDbAdapter.getInstance().deleteRecord(deletedPrice.getUID());
+        Transaction added = addTransaction("Added", checking, groceries, "7.25", false);
+        //the template account of the template transaction is exported again, it must keep its GUID
+        rent.setDescription("Monthly rent");
+        transactionsDbAdapter.addRecord(rent);
+        //Leisure and Expenses are unchanged, but are exported as the ancestors of the moved account
+        Account movedAccount = mAccountsDbAdapter.getRecord(books.getUID());
+        movedAccount.setParentUID(leisure.getUID());
+        mAccountsDbAdapter.addRecord(movedAccount);
+
+        File differentialBackup = export("differential", true);
+        Scanner scanner = new Scanner(differentialBackup, "UTF-8");
+        String differentialXml = scanner.useDelimiter("\\A").next();
+        scanner.close();
+        assertThat(differentialXml).contains(GncXmlHelper.TAG_TOMBSTONE, deletedSplit.getUID(), deleted.getUID(),
+                deletedPrice.getUID(), added.getUID(), leisure.getUID(), expenses.getUID());
+        assertThat(differentialXml).doesNotContain(unchanged.getUID(), price.getUID());
+
+        File wholeBook = export("book", false);
+        mAccountsDbAdapter.deleteAllRecords();
+        InputStream wholeBookStream = new FileInputStream(wholeBook);
+        try {
+            GncXmlImporter.parse(wholeBookStream);
+        } finally {
+            wholeBookStream.close();
+        }
+        Map<String, List<String>> expected = BookSnapshot.take();
+
+        mAccountsDbAdapter.deleteAllRecords();
+        InputStream fullBackupStream = new FileInputStream(fullBackup);
+        InputStream differentialBackupStream = new FileInputStream(differentialBackup);
+        try {
+            GncXmlImporter.restoreBackupChain(Arrays.asList(fullBackupStream, differentialBackupStream), null);
+        } finally {
+            fullBackupStream.close();
+            differentialBackupStream.close();
+        }
+        assertThat(BookSnapshot.take()).isEqualTo(expected);
+
+        assertThat(transactionsDbAdapter.getRecordsCount()).isEqualTo(5);
+        assertThat(transactionsDbAdapter.getRecord(shopping.getUID()).getDescription()).isEqualTo("Weekly shopping");
+        List<Split> dinnerSplits = SplitsDbAdapter.getInstance().getSplitsForTransaction(dinner.getUID());
+        assertThat(dinnerSplits).hasSize(2);
+        for (Split split : dinnerSplits) {
+            assertThat(split.getUID()).isNotEqualTo(deletedSplit.getUID());
+        }
+        assertThat(PricesDbAdapter.getInstance().getRecordsCount()).isEqualTo(1);
+        assertThat(mAccountsDbAdapter.getParentAccountUID(books.getUID())).isEqualTo(leisure.getUID());
+        assertThat(mAccountsDbAdapter.getAccountFullName(books.getUID()))
+                .isEqualTo(mAccountsDbAdapter.getAccountFullName(leisure.getUID())
+                        + AccountsDbAdapter.ACCOUNT_NAME_SEPARATOR + "Books");
+        assertThat(ScheduledActionDbAdapter.getInstance().getRecordsCount()).isEqualTo(1);
+        List<Transaction> templates = transactionsDbAdapter.getScheduledTransactionsForAccount(checking.getUID());
+        assertThat(templates).hasSize(1);
+        assertThat(templates.get(0).getDescription()).isEqualTo("Monthly rent");
+    }
+
+    @Test
+    public void differentialBackupShouldIncludeRecordsUpdatedInPlace() throws Exception {
+        Account favorite = new Account("Favorite");
+        Account unchanged = new Account("Unchanged");
+        mAccountsDbAdapter.addRecord(favorite);
+        mAccountsDbAdapter.addRecord(unchanged);
+        //backdated, so that only the updates after the full backup have a recent modification time
+        for (Account account : Arrays.asList(favorite, unchanged)) {
+            mAccountsDbAdapter.updateRecord(account.getUID(), DatabaseSchema.AccountEntry.COLUMN_MODIFIED_AT,
+                    "2000-01-01 00:00:00");
+        }
+        mBackupChain.recordBackup(BackupChain.BackupType.FULL, mBackupChain.getCurrentTimestamp());
+
+        mAccountsDbAdapter.updateRecord(favorite.getUID(), DatabaseSchema.AccountEntry.COLUMN_FAVORITE, "1");
+
+        File differentialBackup = export("differential", true);
+        Scanner scanner = new Scanner(differentialBackup, "UTF-8");
+        String differentialXml = scanner.useDelimiter("\\A").next();
+        scanner.close();
+        assertThat(differentialXml).contains(favorite.getUID());
+        assertThat(differentialXml).doesNotContain(unchanged.getUID());
+    }
+
+    private Account addAccount(String name, AccountType accountType, Account parent) {
+        Account account = new Account(name);
+        account.setAccountType(accountType);
+        if (parent != null)
+            account.setParentUID(parent.getUID());
+        mAccountsDbAdapter.addRecord(account);
+        return account;
+    }
+
+    private static Transaction addTransaction(String description, Account account, Account transferAccount,
+                                              String amount, boolean template) {
+        Transaction transaction = new Transaction(description);
+        transaction.setTemplate(template);
+        Split split = new Split(new Money(amount, Money.DEFAULT_CURRENCY_CODE), account.getUID());
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(transferAccount.getUID()));
+        TransactionsDbAdapter.getInstance().addRecord(transaction);
+        return transaction;
+    }
+
+    private static Price addPrice(String commodityCode, long valueNum) {
+        CommoditiesDbAdapter commoditiesDbAdapter = CommoditiesDbAdapter.getInstance();
+        Price price = new Price(commoditiesDbAdapter.getCommodityUID(commodityCode),
+                commoditiesDbAdapter.getCommodityUID(Money.DEFAULT_CURRENCY_CODE));
+        price.setDate(new Timestamp(System.currentTimeMillis()));
+        price.setValueNum(valueNum);
+        price.setValueDenom(100);
+        PricesDbAdapter.getInstance().addRecord(price);
+        return price;
+    }
+
+    /**
+     * Exports the book to a folder of its own, since the name of the export file only changes every second
+     * @param differential {@code true} to export the next backup of the chain, {@code false} for a plain export
+     * @return Exported file
+     */
+    private File export(String folderName, boolean differential) throws Exception {
+        ExportParams params = new ExportParams(ExportFormat.XML);
+        params.setDifferentialBackup(differential);
+        FileExportSink sink = new FileExportSink(mTemporaryFolder.newFolder(folderName));
+        new GncXmlExporter(params).generateExport(sink);
+        return sink.getFiles().get(0);
+    }
+
+    @After
+    public void tearDown() {
+        mAccountsDbAdapter.deleteAllRecords();
+    }
+}
@@ -0,0 +1,148 @@
+package org.gnucash.android.test.unit.db;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.BulkLoadSession;
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.SplitsDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class BulkLoadSessionTest {
+
+    private DatabaseHelper mDbHelper;
+    private SQLiteDatabase mDb;
+    private AccountsDbAdapter mAccountsDbAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mDbHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        mDb = mDbHelper.getWritableDatabase();
+        mAccountsDbAdapter = new AccountsDbAdapter(mDb, new TransactionsDbAdapter(mDb, new SplitsDbAdapter(mDb)));
+    }
+
+    @Test
+    public void finishShouldRecreateTheDeferredIndexesAndTriggers(){
+        List<String> schema = getIndexesAndTriggers();
+        assertThat(schema).contains(SplitEntry.INDEX_ACCOUNT_UID, TransactionEntry.INDEX_TIMESTAMP,
+                "splits_insert_summary_trigger");
+
+        BulkLoadSession session = mAccountsDbAdapter.openBulkLoadSession();
+        try {
+            mDb.beginTransaction();
+            try {
+                session.deferIndexes();
+                assertThat(getIndexesAndTriggers()).doesNotContain(SplitEntry.INDEX_ACCOUNT_UID,
+                        TransactionEntry.INDEX_TIMESTAMP, "splits_insert_summary_trigger");
+                session.finish();
+                mDb.setTransactionSuccessful();
+            } finally {
+                mDb.endTransaction();
+            }
+        } finally {
+            session.close();
+        }
+        assertThat(getIndexesAndTriggers()).containsOnlyElementsOf(schema).hasSameSizeAs(schema);
+    }
+
+    @Test
+    public void closeShouldRestoreTheConnectionSettings(){
+        mDb.execSQL("PRAGMA synchronous=FULL");
+        assertThat(queryPragma("foreign_keys")).isEqualTo(1);
+        assertThat(queryPragma("synchronous")).isEqualTo(2);
+
+        BulkLoadSession session = mAccountsDbAdapter.openBulkLoadSession();
+        assertThat(queryPragma("foreign_keys")).isEqualTo(0);
+        assertThat(queryPragma("synchronous")).isEqualTo(0);
+        session.close();
+
+        assertThat(queryPragma("foreign_keys")).isEqualTo(1);
+        assertThat(queryPragma("synchronous")).isEqualTo(2);
+    }
+
+    @Test
+    public void foreignKeyViolationShouldRollBackTheLoad(){
+        Account account = new Account("Checking");
+        mAccountsDbAdapter.addRecord(account);
+        List<String> schema = getIndexesAndTriggers();
+
+        BulkLoadSession session = mAccountsDbAdapter.openBulkLoadSession();
+        try {
+            mDb.beginTransaction();
+            try {
+                session.deferIndexes();
+                mAccountsDbAdapter.deleteAllRecords();
+                //the foreign keys are not enforced during the load, so the split is written
+                mDb.execSQL("INSERT INTO " + SplitEntry.TABLE_NAME + " ( "
+                        + SplitEntry.COLUMN_UID + " , " + SplitEntry.COLUMN_TYPE + " , "
+                        + SplitEntry.COLUMN_VALUE_NUM + " , " + SplitEntry.COLUMN_VALUE_DENOM + " , "
+                        + SplitEntry.COLUMN_QUANTITY_NUM + " , " + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
+                        + SplitEntry.COLUMN_ACCOUNT_UID + " , " + SplitEntry.COLUMN_TRANSACTION_UID + " ) "
+                        + "VALUES ( 'split-uid' , 'DEBIT' , 100 , 100 , 100 , 100 , 'missing-account' , 'missing-transaction' )");
+                session.finish();
+                mDb.setTransactionSuccessful();
+                failBecauseExceptionWasNotThrown(SQLiteConstraintException.class);
+            } finally {
+                mDb.endTransaction();
+            }
+        } catch (SQLiteConstraintException e) {
+            assertThat(e.getMessage()).contains(SplitEntry.TABLE_NAME);
+        } finally {
+            session.close();
+        }
+
+        assertThat(DatabaseUtils.queryNumEntries(mDb, SplitEntry.TABLE_NAME)).isEqualTo(0);
+        assertThat(mAccountsDbAdapter.getRecord(account.getUID()).getName()).isEqualTo("Checking");
+        assertThat(getIndexesAndTriggers()).containsOnlyElementsOf(schema).hasSameSizeAs(schema);
+        assertThat(queryPragma("foreign_keys")).isEqualTo(1);
+    }
+
+    private List<String> getIndexesAndTriggers(){
+        Cursor cursor = mDb.rawQuery("SELECT name FROM sqlite_master WHERE type IN ('index', 'trigger')"
+                + " AND name NOT LIKE 'sqlite_%'", null);
+        List<String> names = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return names;
+    }
+
+    private long queryPragma(String pragma){
+        return DatabaseUtils.longForQuery(mDb, "PRAGMA " + pragma, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mDb.delete(AccountEntry.TABLE_NAME, null, null);
+        mDbHelper.close();
+    }
+}
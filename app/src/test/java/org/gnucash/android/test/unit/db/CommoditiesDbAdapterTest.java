@@ -0,0 +1,82 @@
+package org.gnucash.android.test.unit.db;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.CommoditiesDbAdapter;
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the commodities database adapter
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class CommoditiesDbAdapterTest {
+
+    private CommoditiesDbAdapter mCommoditiesDbAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mCommoditiesDbAdapter = CommoditiesDbAdapter.getInstance();
+    }
+
+    @Test
+    public void commodityLookupsShouldFollowCommodityChanges(){
+        String usdUID = mCommoditiesDbAdapter.getCommodityUID("USD");
+        assertThat(mCommoditiesDbAdapter.getCurrencyCode(usdUID)).isEqualTo("USD");
+
+        Commodity commodity = new Commodity("Test commodity", "TST", 100);
+        mCommoditiesDbAdapter.addRecord(commodity);
+        assertThat(mCommoditiesDbAdapter.getCommodityUID("TST")).isEqualTo(commodity.getUID());
+        assertThat(mCommoditiesDbAdapter.getCurrencyCode(commodity.getUID())).isEqualTo("TST");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rolledBackCommodityShouldNotBeFound(){
+        mCommoditiesDbAdapter.beginTransaction();
+        try {
+            Commodity commodity = new Commodity("Test commodity", "TST", 100);
+            mCommoditiesDbAdapter.addRecord(commodity);
+            //the transaction sees its own commodities
+            assertThat(mCommoditiesDbAdapter.getCommodityUID("TST")).isEqualTo(commodity.getUID());
+        } finally {
+            mCommoditiesDbAdapter.endTransaction();
+        }
+        mCommoditiesDbAdapter.getCommodityUID("TST");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rolledBackCommodityShouldNotBeFoundInTheNextTransaction(){
+        mCommoditiesDbAdapter.beginTransaction();
+        try {
+            Commodity commodity = new Commodity("Test commodity", "TST", 100);
+            mCommoditiesDbAdapter.addRecord(commodity);
+            assertThat(mCommoditiesDbAdapter.getCommodityUID("TST")).isEqualTo(commodity.getUID());
+        } finally {
+            mCommoditiesDbAdapter.endTransaction();
+        }
+        mCommoditiesDbAdapter.beginTransaction();
+        try {
+            mCommoditiesDbAdapter.getCommodityUID("TST");
+        } finally {
+            mCommoditiesDbAdapter.endTransaction();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deletedCommodityShouldNotBeFound(){
+        Commodity commodity = new Commodity("Test commodity", "TST", 100);
+        mCommoditiesDbAdapter.addRecord(commodity);
+        assertThat(mCommoditiesDbAdapter.getCommodityUID("TST")).isEqualTo(commodity.getUID());
+
+        mCommoditiesDbAdapter.deleteRecord(commodity.getUID());
+        mCommoditiesDbAdapter.getCommodityUID("TST");
+    }
+}
@@ -0,0 +1,178 @@
+package org.gnucash.android.test.unit.db;
+
+import android.util.Pair;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.CommoditiesDbAdapter;
+import org.gnucash.android.db.MergeResult;
+import org.gnucash.android.db.PricesDbAdapter;
+import org.gnucash.android.model.Price;
+import org.gnucash.android.model.PriceSeries;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the prices database adapter
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class PricesDbAdapterTest {
+
+    private PricesDbAdapter mPricesDbAdapter;
+    private String mCommodityUID;
+    private String mCurrencyUID;
+
+    @Before
+    public void setUp() throws Exception {
+        mPricesDbAdapter = PricesDbAdapter.getInstance();
+        CommoditiesDbAdapter commoditiesDbAdapter = CommoditiesDbAdapter.getInstance();
+        mCommodityUID = commoditiesDbAdapter.getCommodityUID("EUR");
+        mCurrencyUID = commoditiesDbAdapter.getCommodityUID("USD");
+    }
+
+    @Test
+    public void latestPriceShouldBeCachedUntilPricesChange(){
+        addPrice(3, 2, System.currentTimeMillis() - 1000);
+        long misses = PricesDbAdapter.getPriceCacheMisses();
+        long hits = PricesDbAdapter.getPriceCacheHits();
+
+        Pair<Long, Long> price = mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID);
+        assertThat(price.first).isEqualTo(3);
+        assertThat(price.second).isEqualTo(2);
+        price = mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID);
+        assertThat(price.first).isEqualTo(3);
+        assertThat(PricesDbAdapter.getPriceCacheMisses()).isEqualTo(misses + 1);
+        assertThat(PricesDbAdapter.getPriceCacheHits()).isEqualTo(hits + 1);
+
+        //the inverse pair is cached separately
+        price = mPricesDbAdapter.getPrice(mCurrencyUID, mCommodityUID);
+        assertThat(price.first).isEqualTo(2);
+        assertThat(price.second).isEqualTo(3);
+
+        addPrice(5, 4, System.currentTimeMillis());
+        price = mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID);
+        assertThat(price.first).isEqualTo(5);
+        assertThat(price.second).isEqualTo(4);
+
+        mPricesDbAdapter.deleteAllRecords();
+        price = mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID);
+        assertThat(price.first).isEqualTo(0);
+    }
+
+    @Test
+    public void priceSeriesCacheShouldBeCountedSeparately(){
+        addPrice(3, 2, 1000);
+        long latestHits = PricesDbAdapter.getPriceCacheHits();
+        long latestMisses = PricesDbAdapter.getPriceCacheMisses();
+        long seriesMisses = PricesDbAdapter.getPriceSeriesCacheMisses();
+        long seriesHits = PricesDbAdapter.getPriceSeriesCacheHits();
+
+        mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID);
+        mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID);
+        assertThat(PricesDbAdapter.getPriceSeriesCacheMisses()).isEqualTo(seriesMisses + 1);
+        assertThat(PricesDbAdapter.getPriceSeriesCacheHits()).isEqualTo(seriesHits + 1);
+        assertThat(PricesDbAdapter.getPriceCacheHits()).isEqualTo(latestHits);
+        assertThat(PricesDbAdapter.getPriceCacheMisses()).isEqualTo(latestMisses);
+    }
+
+    @Test
+    public void deletingAllAccountsShouldClearThePriceCache(){
+        addPrice(3, 2, 1000);
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID).first).isEqualTo(3);
+        assertThat(mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID).size()).isEqualTo(1);
+
+        //deletes the prices without going through the prices adapter
+        AccountsDbAdapter.getInstance().deleteAllRecords();
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID).first).isEqualTo(0);
+        assertThat(mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void mergingPricesShouldCountTheChangedRows(){
+        Price changed = addPrice(3, 2, 1000);
+        Price unchanged = addPrice(5, 4, 2000);
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID).first).isEqualTo(5);
+
+        changed.setValueNum(7);
+        Price added = new Price(mCommodityUID, mCurrencyUID);
+        added.setDate(new Timestamp(3000));
+        added.setValueNum(9);
+        added.setValueDenom(4);
+        MergeResult result = new MergeResult();
+        mPricesDbAdapter.mergeRecords(Arrays.asList(changed, unchanged, added), result);
+
+        assertThat(result.getAddedCount()).isEqualTo(1);
+        assertThat(result.getUpdatedCount()).isEqualTo(1);
+        assertThat(result.getUnchangedCount()).isEqualTo(1);
+        assertThat(mPricesDbAdapter.getRecord(changed.getUID()).getValueNum()).isEqualTo(7);
+        //the cached prices are replaced by the merged ones
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID).first).isEqualTo(9);
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID, 1500).first).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldReturnPriceInEffectAtDate(){
+        addPrice(1, 1, 1000);
+        addPrice(2, 1, 2000);
+        addPrice(3, 1, 3000);
+
+        PriceSeries priceSeries = mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID);
+        assertThat(priceSeries.size()).isEqualTo(3);
+        assertThat(priceSeries.getPriceAsOf(1000).first).isEqualTo(1);
+        assertThat(priceSeries.getPriceAsOf(2000).first).isEqualTo(2);
+        assertThat(priceSeries.getPriceAsOf(2999).first).isEqualTo(2);
+        assertThat(priceSeries.getPriceAsOf(5000).first).isEqualTo(3);
+
+        Pair<Long, Long> inversePrice = mPricesDbAdapter.getPrice(mCurrencyUID, mCommodityUID, 2500);
+        assertThat(inversePrice.first).isEqualTo(1);
+        assertThat(inversePrice.second).isEqualTo(2);
+    }
+
+    @Test
+    public void earliestPriceShouldBeUsedBeforeTheFirstOne(){
+        addPrice(2, 1, 2000);
+        addPrice(3, 1, 3000);
+
+        PriceSeries priceSeries = mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID);
+        assertThat(priceSeries.getPriceAsOf(500).first).isEqualTo(2);
+        assertThat(priceSeries.getPriceAsOf(1999).first).isEqualTo(2);
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID, 500).first).isEqualTo(2);
+        Pair<Long, Long> inversePrice = mPricesDbAdapter.getPrice(mCurrencyUID, mCommodityUID, 500);
+        assertThat(inversePrice.first).isEqualTo(1);
+        assertThat(inversePrice.second).isEqualTo(2);
+    }
+
+    @Test
+    public void emptySeriesShouldHaveNoPrice(){
+        PriceSeries priceSeries = mPricesDbAdapter.getPriceSeries(mCommodityUID, mCurrencyUID);
+        assertThat(priceSeries.size()).isEqualTo(0);
+        assertThat(priceSeries.getPriceAsOf(System.currentTimeMillis())).isNull();
+        assertThat(mPricesDbAdapter.getPrice(mCommodityUID, mCurrencyUID, 0).first).isEqualTo(0);
+    }
+
+    private Price addPrice(long valueNum, long valueDenom, long date){
+        Price price = new Price(mCommodityUID, mCurrencyUID);
+        price.setDate(new Timestamp(date));
+        price.setValueNum(valueNum);
+        price.setValueDenom(valueDenom);
+        mPricesDbAdapter.addRecord(price);
+        return price;
+    }
+
+    @After
+    public void tearDown(){
+        mPricesDbAdapter.deleteAllRecords();
+    }
+}
@@ -0,0 +1,181 @@
+package org.gnucash.android.test.unit.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.PricesDbAdapter;
+import org.gnucash.android.db.SplitsDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.gnucash.android.db.DatabaseSchema.PriceEntry;
+import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+
+/**
+ * Checks the query plans of the most frequent queries, so that a missing index shows up as a test failure.
+ * <p>The queries are captured from the adapters while they run, so that the test follows changes to the queries</p>
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class QueryPlanTest {
+
+    private DatabaseHelper mDbHelper;
+    private SQLiteDatabase mDb;
+    private QueryRecorder mQueryRecorder;
+
+    private SplitsDbAdapter mSplitsDbAdapter;
+    private TransactionsDbAdapter mTransactionsDbAdapter;
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private PricesDbAdapter mPricesDbAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mDbHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        String path = mDbHelper.getWritableDatabase().getPath();
+        //a second connection to the database, which records the queries of the adapters using it
+        mQueryRecorder = new QueryRecorder();
+        mDb = SQLiteDatabase.openDatabase(path, mQueryRecorder, SQLiteDatabase.OPEN_READWRITE);
+        mDb.execSQL("PRAGMA foreign_keys=ON");
+
+        mSplitsDbAdapter = new SplitsDbAdapter(mDb);
+        mTransactionsDbAdapter = new TransactionsDbAdapter(mDb, mSplitsDbAdapter);
+        mAccountsDbAdapter = new AccountsDbAdapter(mDb, mTransactionsDbAdapter);
+        mPricesDbAdapter = new PricesDbAdapter(mDb);
+    }
+
+    @Test
+    public void fetchingSplitsForTransactionShouldUseIndex(){
+        mSplitsDbAdapter.fetchSplitsForTransaction("trn-uid").close();
+        assertNoFullScan(SplitEntry.TABLE_NAME);
+    }
+
+    @Test
+    public void fetchingSplitsForAccountShouldUseIndex(){
+        mSplitsDbAdapter.fetchSplitsForAccount("acct-uid").close();
+        assertNoFullScan(SplitEntry.TABLE_NAME);
+    }
+
+    @Test
+    public void fetchingTransactionsForAccountShouldUseIndex(){
+        mTransactionsDbAdapter.fetchAllTransactionsForAccount("acct-uid").close();
+        assertNoFullScan(SplitEntry.TABLE_NAME);
+    }
+
+    @Test
+    public void computingBalanceInTimeRangeShouldUseIndex(){
+        mSplitsDbAdapter.computeSplitBalance(Arrays.asList("acct-uid-1", "acct-uid-2"),
+                Money.DEFAULT_CURRENCY_CODE, true, 0, 1000);
+        assertNoFullScan(SplitEntry.TABLE_NAME);
+
+        mAccountsDbAdapter.getAccountBalances(Arrays.asList("acct-uid-1", "acct-uid-2"), 0, 1000);
+        assertNoFullScan(SplitEntry.TABLE_NAME);
+    }
+
+    @Test
+    public void updatingAccountBalancesShouldUseIndex(){
+        Account alpha = new Account("Alpha");
+        Account bravo = new Account("Bravo");
+        mAccountsDbAdapter.addRecord(alpha);
+        mAccountsDbAdapter.addRecord(bravo);
+        mQueryRecorder.clear();
+
+        Transaction transaction = new Transaction("Balance");
+        Split split = new Split(new Money("4.99", Money.DEFAULT_CURRENCY_CODE), alpha.getUID());
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(bravo.getUID()));
+        mTransactionsDbAdapter.addRecord(transaction);
+        assertNoFullScan(SplitEntry.TABLE_NAME);
+    }
+
+    @Test
+    public void gettingPriceShouldUseIndex(){
+        PricesDbAdapter.invalidatePriceCache();
+        mPricesDbAdapter.getPrice("commodity-uid", "currency-uid");
+        assertNoFullScan(PriceEntry.TABLE_NAME);
+
+        mPricesDbAdapter.getPriceSeries("commodity-uid", "currency-uid");
+        assertNoFullScan(PriceEntry.TABLE_NAME);
+    }
+
+    /**
+     * Asserts that none of the queries recorded since the last call scans the whole of {@code tableName},
+     * and clears the recorded queries
+     * @param tableName Name of the table which should be accessed through an index
+     */
+    private void assertNoFullScan(String tableName){
+        List<String> queries = mQueryRecorder.clear();
+        assertThat(queries).as("Recorded queries").isNotEmpty();
+        for (String sql : queries) {
+            //the arguments are left unbound, they do not change the plan
+            Cursor cursor = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+            List<String> fullScans = new ArrayList<>();
+            try {
+                int detailColumn = cursor.getColumnIndexOrThrow("detail");
+                while (cursor.moveToNext()) {
+                    String detail = cursor.getString(detailColumn);
+                    if (detail.matches("SCAN (TABLE )?" + tableName + "\\b.*")) {
+                        fullScans.add(detail);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            assertThat(fullScans).as("Query plan of: " + sql).isEmpty();
+        }
+        mQueryRecorder.clear();
+    }
+
+    /**
+     * Cursor factory recording the SQL of the queries run on the database
+     */
+    private static class QueryRecorder implements SQLiteDatabase.CursorFactory {
+        private final List<String> mQueries = new ArrayList<>();
+
+        @Override
+        public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable, SQLiteQuery query) {
+            //SQLiteQuery describes itself as "SQLiteQuery: <sql>"
+            String description = query.toString();
+            mQueries.add(description.substring(description.indexOf(':') + 1).trim());
+            return new SQLiteCursor(masterQuery, editTable, query);
+        }
+
+        /**
+         * Clears the recorded queries
+         * @return Queries recorded until now
+         */
+        List<String> clear() {
+            List<String> queries = new ArrayList<>(mQueries);
+            mQueries.clear();
+            return queries;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mDb.close();
+        mDbHelper.close();
+    }
+}
@@ -8,19 +8,28 @@ import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.SplitsDbAdapter;
 import org.gnucash.android.db.TransactionsDbAdapter;
 import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.Money;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
+import org.gnucash.android.model.TransactionType;
 import org.gnucash.android.test.unit.util.GnucashTestRunner;
 import org.gnucash.android.test.unit.util.ShadowCrashlytics;
 import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.gnucash.android.ui.report.ReportsActivity.GroupInterval;
+import org.joda.time.LocalDateTime;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -105,6 +114,110 @@ public class SplitsDbAdapterTest {
         assertThat(Boolean.parseBoolean(isExported)).isFalse();
     }
 
+    /**
+     * Every column of a split should be read back by the reader of the adapter
+     */
+    @Test
+    public void splitShouldBeReadBackAsWritten(){
+        Account euroAccount = new Account("Euro account", Currency.getInstance("EUR"));
+        mAccountsDbAdapter.addRecord(euroAccount);
+        Transaction transaction = new Transaction("Exchange");
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        Split split = new Split(new Money("12.50", Money.DEFAULT_CURRENCY_CODE), new Money("11.37", "EUR"),
+                euroAccount.getUID());
+        split.setType(TransactionType.CREDIT);
+        split.setMemo("Exchange fee");
+        split.setTransactionUID(transaction.getUID());
+        mSplitsDbAdapter.addRecord(split);
+
+        Split readSplit = mSplitsDbAdapter.getRecord(split.getUID());
+        assertThat(readSplit.getUID()).isEqualTo(split.getUID());
+        assertThat(readSplit.getAccountUID()).isEqualTo(euroAccount.getUID());
+        assertThat(readSplit.getTransactionUID()).isEqualTo(transaction.getUID());
+        assertThat(readSplit.getType()).isEqualTo(TransactionType.CREDIT);
+        assertThat(readSplit.getMemo()).isEqualTo("Exchange fee");
+        assertThat(readSplit.getValue().asBigDecimal()).isEqualByComparingTo(new BigDecimal("12.50"));
+        assertThat(readSplit.getValue().getCurrency().getCurrencyCode()).isEqualTo(Money.DEFAULT_CURRENCY_CODE);
+        assertThat(readSplit.getQuantity().asBigDecimal()).isEqualByComparingTo(new BigDecimal("11.37"));
+        assertThat(readSplit.getQuantity().getCurrency().getCurrencyCode()).isEqualTo("EUR");
+        assertThat(readSplit.getCreatedTimestamp()).isEqualTo(split.getCreatedTimestamp());
+    }
+
+    @Test
+    public void shouldGroupSplitBalancesByInterval(){
+        long january = new LocalDateTime(2015, 1, 10, 12, 0).toDate().getTime();
+        long march = new LocalDateTime(2015, 3, 20, 12, 0).toDate().getTime();
+        addTransaction(january, "10.00");
+        addTransaction(january, "2.50");
+        addTransaction(march, "4.99");
+
+        Map<String, Map<String, Money>> balances = mSplitsDbAdapter.getSplitBalancesByInterval(
+                Collections.singletonList(mAccount.getUID()), january, march, GroupInterval.MONTH);
+        Map<String, Money> accountBalances = balances.get(mAccount.getUID());
+        assertThat(accountBalances).hasSize(2);
+        //credit splits are subtracted
+        assertThat(accountBalances.get(SplitsDbAdapter.getIntervalKey(january, GroupInterval.MONTH))
+                .asBigDecimal()).isEqualByComparingTo(new BigDecimal("-12.50"));
+        assertThat(accountBalances.get(SplitsDbAdapter.getIntervalKey(march, GroupInterval.MONTH))
+                .asBigDecimal()).isEqualByComparingTo(new BigDecimal("-4.99"));
+
+        balances = mSplitsDbAdapter.getSplitBalancesByInterval(
+                Collections.singletonList(mAccount.getUID()), january, march, GroupInterval.QUARTER);
+        assertThat(balances.get(mAccount.getUID())).hasSize(1);
+        assertThat(balances.get(mAccount.getUID()).get("2015-Q1").asBigDecimal())
+                .isEqualByComparingTo(new BigDecimal("-17.49"));
+    }
+
+    @Test
+    public void splitBalancesByIntervalShouldBeSignedByNormalBalance(){
+        Account expense = new Account("Groceries");
+        expense.setAccountType(AccountType.EXPENSE);
+        Account income = new Account("Salary");
+        income.setAccountType(AccountType.INCOME);
+        mAccountsDbAdapter.addRecord(expense);
+        mAccountsDbAdapter.addRecord(income);
+
+        long january = new LocalDateTime(2015, 1, 10, 12, 0).toDate().getTime();
+        long february = new LocalDateTime(2015, 2, 10, 12, 0).toDate().getTime();
+        //january: 30 spent. february: 20 spent and 50 refunded, so a net refund
+        addTransaction(january, "30.00", TransactionType.DEBIT, expense.getUID(), income.getUID());
+        addTransaction(february, "20.00", TransactionType.DEBIT, expense.getUID(), income.getUID());
+        addTransaction(february, "50.00", TransactionType.CREDIT, expense.getUID(), income.getUID());
+
+        Map<String, Map<String, Money>> balances = mSplitsDbAdapter.getSplitBalancesByInterval(
+                Arrays.asList(expense.getUID(), income.getUID()), january, february, GroupInterval.MONTH);
+        String januaryKey = SplitsDbAdapter.getIntervalKey(january, GroupInterval.MONTH);
+        String februaryKey = SplitsDbAdapter.getIntervalKey(february, GroupInterval.MONTH);
+        assertThat(balances.get(expense.getUID()).get(januaryKey).asBigDecimal())
+                .isEqualByComparingTo(new BigDecimal("30.00"));
+        assertThat(balances.get(expense.getUID()).get(februaryKey).asBigDecimal())
+                .isEqualByComparingTo(new BigDecimal("-30.00"));
+        //the income account has a credit normal balance
+        assertThat(balances.get(income.getUID()).get(januaryKey).asBigDecimal())
+                .isEqualByComparingTo(new BigDecimal("-30.00"));
+        assertThat(balances.get(income.getUID()).get(februaryKey).asBigDecimal())
+                .isEqualByComparingTo(new BigDecimal("30.00"));
+    }
+
+    private void addTransaction(long timestamp, String amount, TransactionType type, String accountUID,
+                                String transferAccountUID){
+        Transaction transaction = new Transaction("");
+        transaction.setTime(timestamp);
+        Split split = new Split(new Money(amount, Money.DEFAULT_CURRENCY_CODE), accountUID);
+        split.setType(type);
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(transferAccountUID));
+        mTransactionsDbAdapter.addRecord(transaction);
+    }
+
+    private void addTransaction(long timestamp, String amount){
+        Transaction transaction = new Transaction("");
+        transaction.setTime(timestamp);
+        transaction.addSplit(new Split(new Money(amount, Money.DEFAULT_CURRENCY_CODE), mAccount.getUID()));
+        mTransactionsDbAdapter.addRecord(transaction);
+    }
+
     @After
     public void tearDown(){
         mAccountsDbAdapter.deleteAllRecords();
@@ -3,10 +3,13 @@ package org.gnucash.android.test.unit.db;
 import org.assertj.core.data.Index;
 import org.gnucash.android.BuildConfig;
 import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.MergeResult;
+import org.gnucash.android.db.ScheduledActionDbAdapter;
 import org.gnucash.android.db.SplitsDbAdapter;
 import org.gnucash.android.db.TransactionsDbAdapter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.Money;
+import org.gnucash.android.model.ScheduledAction;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.test.unit.util.GnucashTestRunner;
@@ -19,6 +22,9 @@ import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
 
@@ -129,6 +135,218 @@ public class TransactionsDbAdapterTest {
 		assertThat(savedBalance.getCurrency()).isEqualTo(secondSplitAmount.getCurrency());
 	}
 
+	@Test
+	public void accountBalancesShouldTrackTransactionChanges(){
+		Transaction transaction = new Transaction("Balance");
+		Split split = new Split(new Money("4.99", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		transaction.addSplit(split);
+		transaction.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(transaction);
+
+		Money alphaBalance = mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID());
+		assertThat(alphaBalance.asBigDecimal()).isEqualByComparingTo(new BigDecimal("-4.99"));
+
+		transaction.getSplits().get(0).setValue(new Money("2.50", DEFAULT_CURRENCY.getCurrencyCode()));
+		transaction.getSplits().get(0).setQuantity(new Money("2.50", DEFAULT_CURRENCY.getCurrencyCode()));
+		transaction.getSplits().get(1).setValue(new Money("2.50", DEFAULT_CURRENCY.getCurrencyCode()));
+		transaction.getSplits().get(1).setQuantity(new Money("2.50", DEFAULT_CURRENCY.getCurrencyCode()));
+		mTransactionsDbAdapter.addRecord(transaction);
+
+		alphaBalance = mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID());
+		assertThat(alphaBalance.asBigDecimal()).isEqualByComparingTo(new BigDecimal("-2.50"));
+
+		mTransactionsDbAdapter.deleteRecord(transaction.getUID());
+		alphaBalance = mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID());
+		assertThat(alphaBalance.isAmountZero()).isTrue();
+	}
+
+	@Test
+	public void bulkAddRecordsShouldUpdateTheBalancesOfTheChangedSplits(){
+		Transaction first = new Transaction("First");
+		Split split = new Split(new Money("4.99", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		first.addSplit(split);
+		first.addSplit(split.createPair(bravoAccount.getUID()));
+		Transaction second = new Transaction("Second");
+		split = new Split(new Money("1.01", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		second.addSplit(split);
+		second.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.bulkAddRecords(Arrays.asList(first, second));
+
+		Money alphaBalance = mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID());
+		assertThat(alphaBalance.asBigDecimal()).isEqualByComparingTo(new BigDecimal("-6.00"));
+
+		//replacing one transaction only changes the balance by its difference
+		for (Split transactionSplit : second.getSplits()) {
+			transactionSplit.setValue(new Money("3.01", DEFAULT_CURRENCY.getCurrencyCode()));
+			transactionSplit.setQuantity(new Money("3.01", DEFAULT_CURRENCY.getCurrencyCode()));
+		}
+		mTransactionsDbAdapter.bulkAddRecords(Collections.singletonList(second));
+		alphaBalance = mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID());
+		assertThat(alphaBalance.asBigDecimal()).isEqualByComparingTo(new BigDecimal("-8.00"));
+
+		//re-adding the accounts with their transactions keeps the balances
+		Account alpha = mAccountsDbAdapter.getRecord(alphaAccount.getUID());
+		mAccountsDbAdapter.bulkAddRecords(Collections.singletonList(alpha));
+		alphaBalance = mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID());
+		assertThat(alphaBalance.asBigDecimal()).isEqualByComparingTo(new BigDecimal("-8.00"));
+
+		mSplitsDbAdapter.rebuildAccountBalances();
+		assertThat(mAccountsDbAdapter.getAccountBalance(alphaAccount.getUID())).isEqualTo(alphaBalance);
+		assertThat(mAccountsDbAdapter.getAccountBalance(bravoAccount.getUID()).asBigDecimal())
+				.isEqualByComparingTo(new BigDecimal("8.00"));
+	}
+
+	@Test
+	public void transactionSummaryShouldFollowSplitChanges(){
+		Transaction transaction = new Transaction("Summary");
+		Split split = new Split(new Money("4.99", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		transaction.addSplit(split);
+		transaction.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(transaction);
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(transaction.getUID())).isEqualTo(1);
+
+		Account euroAccount = new Account("Euro", Currency.getInstance("EUR"));
+		mAccountsDbAdapter.addRecord(euroAccount);
+		Split euroSplit = new Split(new Money("1.00", "EUR"), euroAccount.getUID());
+		euroSplit.setTransactionUID(transaction.getUID());
+		mSplitsDbAdapter.addRecord(euroSplit);
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(transaction.getUID())).isEqualTo(2);
+
+		//saving the transaction again removes the euro split
+		mTransactionsDbAdapter.addRecord(transaction);
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(transaction.getUID())).isEqualTo(1);
+
+		mTransactionsDbAdapter.deleteRecord(transaction.getUID());
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(transaction.getUID())).isEqualTo(0);
+	}
+
+	@Test
+	public void transactionSummaryShouldFollowSplitsMovedToAnotherTransaction(){
+		Transaction source = new Transaction("Source");
+		Split split = new Split(new Money("4.99", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		source.addSplit(split);
+		source.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(source);
+		Transaction target = new Transaction("Target");
+		target.addSplit(new Split(new Money("1.00", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(target);
+
+		Account euroAccount = new Account("Euro", Currency.getInstance("EUR"));
+		mAccountsDbAdapter.addRecord(euroAccount);
+		Split euroSplit = new Split(new Money("1.00", "EUR"), euroAccount.getUID());
+		euroSplit.setTransactionUID(source.getUID());
+		mSplitsDbAdapter.addRecord(euroSplit);
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(source.getUID())).isEqualTo(2);
+
+		//the split is replaced with another transaction
+		euroSplit.setTransactionUID(target.getUID());
+		mSplitsDbAdapter.bulkAddRecords(Collections.singletonList(euroSplit));
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(source.getUID())).isEqualTo(1);
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(target.getUID())).isEqualTo(2);
+
+		mTransactionsDbAdapter.deleteAllRecords();
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(source.getUID())).isEqualTo(0);
+		assertThat(mTransactionsDbAdapter.getNumCurrencies(target.getUID())).isEqualTo(0);
+	}
+
+	@Test
+	public void mergeRecordsShouldAddUpdateAndDeleteSplits(){
+		Transaction changed = createTransaction("Changed", "4.99");
+		Transaction unchanged = createTransaction("Unchanged", "1.01");
+		mTransactionsDbAdapter.addRecord(changed);
+		mTransactionsDbAdapter.addRecord(unchanged);
+
+		changed.setDescription("Changed description");
+		Split changedSplit = changed.getSplits().get(0);
+		changedSplit.setMemo("Changed memo");
+		Split deletedSplit = changed.getSplits().get(1);
+		Split addedSplit = changedSplit.createPair(bravoAccount.getUID());
+		changed.setSplits(new ArrayList<>(Arrays.asList(changedSplit, addedSplit)));
+		Transaction added = createTransaction("Added", "2.00");
+
+		MergeResult result = new MergeResult();
+		int nChanged = mTransactionsDbAdapter.mergeRecords(Arrays.asList(changed, unchanged, added), result);
+		assertThat(nChanged).isEqualTo(2);
+		//the added transaction with its two splits, and the split added to the changed transaction
+		assertThat(result.getAddedCount()).isEqualTo(4);
+		//the changed transaction and its changed split
+		assertThat(result.getUpdatedCount()).isEqualTo(2);
+		//the unchanged transaction with its two splits
+		assertThat(result.getUnchangedCount()).isEqualTo(3);
+		assertThat(result.getDeletedCount()).isEqualTo(1);
+
+		assertThat(mTransactionsDbAdapter.getRecord(changed.getUID()).getDescription()).isEqualTo("Changed description");
+		List<String> splitUIDs = new ArrayList<>();
+		for (Split split : mSplitsDbAdapter.getSplitsForTransaction(changed.getUID())) {
+			splitUIDs.add(split.getUID());
+		}
+		assertThat(splitUIDs).containsOnly(changedSplit.getUID(), addedSplit.getUID());
+		assertThat(splitUIDs).doesNotContain(deletedSplit.getUID());
+		assertThat(mSplitsDbAdapter.getRecord(changedSplit.getUID()).getMemo()).isEqualTo("Changed memo");
+		assertThat(mSplitsDbAdapter.getSplitsForTransaction(added.getUID())).hasSize(2);
+
+		//merging the same records again changes nothing
+		result = new MergeResult();
+		mTransactionsDbAdapter.mergeRecords(Arrays.asList(changed, unchanged, added), result);
+		assertThat(result.hasChanges()).isFalse();
+		assertThat(result.getUnchangedCount()).isEqualTo(9);
+	}
+
+	@Test
+	public void mergingSplitsShouldOnlyUpdateTheChangedOnes(){
+		Transaction transaction = createTransaction("Splits", "4.99");
+		mTransactionsDbAdapter.addRecord(transaction);
+
+		Split split = transaction.getSplits().get(0);
+		split.setMemo("Changed memo");
+		MergeResult result = new MergeResult();
+		mSplitsDbAdapter.mergeRecords(transaction.getSplits(), result);
+		assertThat(result.getUpdatedCount()).isEqualTo(1);
+		assertThat(result.getUnchangedCount()).isEqualTo(1);
+		assertThat(result.getAddedCount()).isEqualTo(0);
+		assertThat(mSplitsDbAdapter.getRecord(split.getUID()).getMemo()).isEqualTo("Changed memo");
+	}
+
+	/**
+	 * Every column of a transaction, and its splits, should be read back by the reader of the adapter
+	 */
+	@Test
+	public void transactionShouldBeReadBackAsWritten(){
+		ScheduledAction scheduledAction = new ScheduledAction(ScheduledAction.ActionType.TRANSACTION);
+		ScheduledActionDbAdapter.getInstance().addRecord(scheduledAction);
+
+		Transaction transaction = createTransaction("Rent", "450.00");
+		transaction.setNote("Paid by transfer");
+		transaction.setTime(1420070400000L);
+		transaction.setScheduledActionUID(scheduledAction.getUID());
+		mTransactionsDbAdapter.addRecord(transaction);
+
+		Transaction readTransaction = mTransactionsDbAdapter.getRecord(transaction.getUID());
+		assertThat(readTransaction.getUID()).isEqualTo(transaction.getUID());
+		assertThat(readTransaction.getDescription()).isEqualTo("Rent");
+		assertThat(readTransaction.getNote()).isEqualTo("Paid by transfer");
+		assertThat(readTransaction.getTimeMillis()).isEqualTo(1420070400000L);
+		assertThat(readTransaction.getCurrencyCode()).isEqualTo(DEFAULT_CURRENCY.getCurrencyCode());
+		assertThat(readTransaction.isTemplate()).isFalse();
+		assertThat(readTransaction.getScheduledActionUID()).isEqualTo(scheduledAction.getUID());
+		assertThat(readTransaction.getCreatedTimestamp()).isEqualTo(transaction.getCreatedTimestamp());
+		assertThat(readTransaction.getSplits()).hasSize(2);
+		for (Split split : readTransaction.getSplits()) {
+			assertThat(split.getTransactionUID()).isEqualTo(transaction.getUID());
+			assertThat(split.getValue().asBigDecimal()).isEqualByComparingTo(new BigDecimal("450.00"));
+		}
+		assertThat(readTransaction.getSplits()).extracting("mAccountUID")
+				.containsOnly(alphaAccount.getUID(), bravoAccount.getUID());
+	}
+
+	private Transaction createTransaction(String description, String amount){
+		Transaction transaction = new Transaction(description);
+		Split split = new Split(new Money(amount, DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		transaction.addSplit(split);
+		transaction.addSplit(split.createPair(bravoAccount.getUID()));
+		return transaction;
+	}
+
 	@After
 	public void tearDown() throws Exception {
 		mAccountsDbAdapter.deleteAllRecords();
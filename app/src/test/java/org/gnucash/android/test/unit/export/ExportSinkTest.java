@@ -0,0 +1,91 @@
+package org.gnucash.android.test.unit.export;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.ExportFormat;
+import org.gnucash.android.export.ExportParams;
+import org.gnucash.android.export.FileExportSink;
+import org.gnucash.android.export.qif.QifExporter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.Currency;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class ExportSinkTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteOneQifFilePerCurrencyToTheSink() throws Exception {
+        addTransaction("Checking", "Groceries", Currency.getInstance("USD"));
+        addTransaction("Konto", "Lebensmittel", Currency.getInstance("EUR"));
+
+        ExportParams params = new ExportParams(ExportFormat.QIF);
+        params.setExportAllTransactions(true);
+        FileExportSink sink = new FileExportSink(new File(mTemporaryFolder.getRoot(), "exports"));
+        new QifExporter(params).generateExport(sink);
+
+        List<File> files = sink.getFiles();
+        assertThat(files).hasSize(2);
+        for (File file : files) {
+            assertThat(file).exists();
+            assertThat(file.length()).isGreaterThan(0);
+            assertThat(file.getName()).matches(".*_(USD|EUR)\\.qif");
+        }
+    }
+
+    @Test
+    public void abortShouldDeleteTheWrittenFiles() throws Exception {
+        FileExportSink sink = new FileExportSink(mTemporaryFolder.getRoot());
+        OutputStream outputStream = sink.openFile("export.xml", ExportFormat.XML.getMimeType());
+        outputStream.write("<gnc-v2/>".getBytes("UTF-8"));
+        outputStream.close();
+        File file = sink.getFiles().get(0);
+        assertThat(file).exists();
+
+        sink.abort();
+        assertThat(file).doesNotExist();
+        assertThat(sink.getFiles()).isEmpty();
+    }
+
+    private void addTransaction(String assetName, String expenseName, Currency currency) {
+        Account asset = new Account(assetName, currency);
+        asset.setAccountType(AccountType.BANK);
+        Account expense = new Account(expenseName, currency);
+        expense.setAccountType(AccountType.EXPENSE);
+        AccountsDbAdapter.getInstance().addRecord(asset);
+        AccountsDbAdapter.getInstance().addRecord(expense);
+
+        Transaction transaction = new Transaction("Shopping");
+        Split split = new Split(new Money("12.50", currency.getCurrencyCode()), asset.getUID());
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(expense.getUID()));
+        TransactionsDbAdapter.getInstance().addRecord(transaction);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AccountsDbAdapter.getInstance().deleteAllRecords();
+    }
+}
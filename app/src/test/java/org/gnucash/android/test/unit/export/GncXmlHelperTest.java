@@ -32,6 +32,19 @@ public class GncXmlHelperTest {
         GncXmlHelper.parseSplitAmount("123.45");
     }
 
+    @Test
+    public void shouldParseSplitAmountNumeratorForDenominator(){
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("12345/100", 100)).isEqualTo(12345);
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("-12345/100", 100)).isEqualTo(-12345);
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("35/1", 100)).isEqualTo(3500);
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("12340/1000", 100)).isEqualTo(1234);
+
+        //not exact or not plain fractions are left to parseSplitAmount
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("12345/1000", 100)).isEqualTo(Long.MIN_VALUE);
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("1.234,50/100", 100)).isEqualTo(Long.MIN_VALUE);
+        assertThat(GncXmlHelper.parseSplitAmountNumerator("123.45", 100)).isEqualTo(Long.MIN_VALUE);
+    }
+
     @Test
     public void testFormatSplitAmount(){
         BigDecimal bigDecimal = new BigDecimal("45.90");
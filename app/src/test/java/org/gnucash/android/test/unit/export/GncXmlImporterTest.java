@@ -0,0 +1,217 @@
+package org.gnucash.android.test.unit.export;
+
+import android.database.sqlite.SQLiteException;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.DatabaseSchema.PriceEntry;
+import org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.xml.GncXmlHelper;
+import org.gnucash.android.importer.GncXmlHandler;
+import org.gnucash.android.importer.GncXmlImporter;
+import org.gnucash.android.importer.ImportProgress;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.test.unit.util.BookGenerator;
+import org.gnucash.android.test.unit.util.BookSnapshot;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+/**
+ * Tests for the import of GnuCash XML books
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class GncXmlImporterTest {
+
+    /**
+     * Enough transactions for several batches in streaming mode
+     */
+    private static final int TRANSACTION_COUNT = 2 * GncXmlHandler.DEFAULT_BATCH_SIZE + 100;
+
+    private static final String FAILING_TRIGGER = "fail_transaction_insert";
+
+    @Test
+    public void streamedImportShouldMatchTheImportAtTheEndOfTheDocument() throws Exception {
+        String book = generateBook();
+
+        importBook(book, 0, false);
+        Map<String, List<String>> expected = BookSnapshot.take();
+        assertThat(TransactionsDbAdapter.getInstance().getRecordsCount()).isEqualTo(TRANSACTION_COUNT);
+
+        importBook(book, GncXmlHandler.DEFAULT_BATCH_SIZE, false);
+        assertThat(BookSnapshot.take()).isEqualTo(expected);
+    }
+
+    @Test
+    public void pullParserShouldImportTheSameBook() throws Exception {
+        byte[] book = generateBook().getBytes("UTF-8");
+
+        GncXmlImporter.parse(new ByteArrayInputStream(book), GncXmlImporter.ParserType.SAX);
+        Map<String, List<String>> expected = BookSnapshot.take();
+        assertThat(expected.get(ScheduledActionEntry.TABLE_NAME)).isNotEmpty();
+        assertThat(expected.get(PriceEntry.TABLE_NAME)).isNotEmpty();
+
+        AccountsDbAdapter.getInstance().deleteAllRecords();
+        GncXmlImporter.parse(new ByteArrayInputStream(book), GncXmlImporter.ParserType.PULL);
+        assertThat(BookSnapshot.take()).isEqualTo(expected);
+    }
+
+    @Test
+    public void parseErrorShouldRollBackTheFlushedBatches() throws Exception {
+        addExistingBook();
+        Map<String, List<String>> expected = BookSnapshot.take();
+
+        String book = generateBook();
+        String truncatedBook = book.substring(0, book.length() * 9 / 10);
+        //the error must come after some batches were written
+        assertThat(truncatedBook.split("<" + GncXmlHelper.TAG_TRANSACTION + "\\b").length - 1)
+                .isGreaterThan(GncXmlHandler.DEFAULT_BATCH_SIZE);
+        try {
+            importBook(truncatedBook, GncXmlHandler.DEFAULT_BATCH_SIZE, false);
+            failBecauseExceptionWasNotThrown(SAXException.class);
+        } catch (SAXException e) {
+            //the document is incomplete
+        }
+        assertThat(BookSnapshot.take()).isEqualTo(expected);
+    }
+
+    @Test
+    public void cancelledImportShouldLeaveTheBookUnchanged() throws Exception {
+        addExistingBook();
+        Map<String, List<String>> expected = BookSnapshot.take();
+        byte[] book = generateBook().getBytes("UTF-8");
+        assertThat((long) book.length).isGreaterThan(ImportProgress.REPORT_INTERVAL_BYTES);
+
+        ImportProgress progress = new ImportProgress() {
+            @Override
+            protected void onProgress() {
+                //cancel when the first part of the book has been read
+                cancel();
+            }
+        };
+        try {
+            GncXmlImporter.parse(new ByteArrayInputStream(book), GncXmlImporter.ParserType.SAX, progress);
+            failBecauseExceptionWasNotThrown(SAXException.class);
+        } catch (SAXException e) {
+            assertThat(progress.isCancelled()).isTrue();
+        }
+        assertThat(progress.getBytesRead()).isGreaterThanOrEqualTo(ImportProgress.REPORT_INTERVAL_BYTES);
+        assertThat(BookSnapshot.take()).isEqualTo(expected);
+    }
+
+    @Test
+    public void cancelShouldBeIgnoredOnceTheImportCommitted() throws Exception {
+        ImportProgress progress = new ImportProgress();
+        GncXmlImporter.parse(new ByteArrayInputStream(generateBook().getBytes("UTF-8")),
+                GncXmlImporter.ParserType.SAX, progress);
+
+        assertThat(progress.cancel()).isFalse();
+        assertThat(progress.isCancelled()).isFalse();
+        assertThat(progress.getTransactionCount()).isEqualTo(TRANSACTION_COUNT);
+        assertThat(TransactionsDbAdapter.getInstance().getRecordsCount()).isEqualTo(TRANSACTION_COUNT);
+    }
+
+    /**
+     * Fails the writer thread once some batches are written, while the parser has many more to submit.
+     * The parser must get the error instead of waiting for room in the queue forever
+     */
+    @Test(timeout = 60000)
+    public void writerErrorShouldReachTheParserAndRollBack() throws Exception {
+        addExistingBook();
+        Map<String, List<String>> expected = BookSnapshot.take();
+        execSQL("CREATE TRIGGER " + FAILING_TRIGGER + " BEFORE INSERT ON " + TransactionEntry.TABLE_NAME
+                + " WHEN ( SELECT COUNT(*) FROM " + TransactionEntry.TABLE_NAME + " ) >= 50"
+                + " BEGIN SELECT RAISE(ABORT, 'writer failure'); END");
+
+        try {
+            importBook(generateBook(), 10, true);
+            failBecauseExceptionWasNotThrown(SAXException.class);
+        } catch (SAXException e) {
+            assertThat(e.getException()).isInstanceOf(SQLiteException.class);
+        }
+        execSQL("DROP TRIGGER " + FAILING_TRIGGER);
+        assertThat(BookSnapshot.take()).isEqualTo(expected);
+    }
+
+    private static void addExistingBook() {
+        Account account = new Account("Checking");
+        Account expense = new Account("Groceries");
+        AccountsDbAdapter.getInstance().addRecord(account);
+        AccountsDbAdapter.getInstance().addRecord(expense);
+        Transaction transaction = new Transaction("Shopping");
+        Split split = new Split(new Money("12.50", Money.DEFAULT_CURRENCY_CODE), account.getUID());
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(expense.getUID()));
+        TransactionsDbAdapter.getInstance().addRecord(transaction);
+    }
+
+    private static String generateBook() throws Exception {
+        BookGenerator generator = new BookGenerator(20, TRANSACTION_COUNT);
+        generator.setPriceCount(50);
+        generator.setScheduledActionCount(5);
+        StringWriter writer = new StringWriter();
+        generator.write(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Imports {@code book} with the SAX parser
+     * @param batchSize Number of transactions written at once, or 0 to write them at the end of the document
+     * @param pipelined {@code true} to write to the database on a separate thread
+     */
+    private static void importBook(String book, int batchSize, boolean pipelined) throws Exception {
+        GncXmlHandler handler = new GncXmlHandler();
+        handler.setBatchSize(batchSize);
+        handler.setPipelined(pipelined);
+        XMLReader reader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+        reader.setContentHandler(handler);
+        try {
+            reader.parse(new InputSource(new ByteArrayInputStream(book.getBytes("UTF-8"))));
+        } finally {
+            handler.cancelImport();
+        }
+    }
+
+    /**
+     * Runs {@code sql} on a connection of its own, since the adapters do not expose theirs
+     */
+    private static void execSQL(String sql) {
+        DatabaseHelper dbHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        try {
+            dbHelper.getWritableDatabase().execSQL(sql);
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        execSQL("DROP TRIGGER IF EXISTS " + FAILING_TRIGGER);
+        AccountsDbAdapter.getInstance().deleteAllRecords();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.export;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.PricesDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.ExportFormat;
+import org.gnucash.android.export.ExportParams;
+import org.gnucash.android.export.Exporter;
+import org.gnucash.android.export.ofx.OfxExporter;
+import org.gnucash.android.export.qif.QifExporter;
+import org.gnucash.android.export.xml.GncXmlExporter;
+import org.gnucash.android.importer.GncXmlHandler;
+import org.gnucash.android.importer.GncXmlImporter;
+import org.gnucash.android.test.unit.util.BookGenerator;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times the import and the exports of a generated book, and logs their throughput and peak heap.
+ * <p>The benchmarks are skipped unless they are enabled with {@code -Dgnucash.benchmark=true},
+ * so that they do not slow down the test suite. The book is small by default.
+ * Larger books are benchmarked by setting the system properties of the test JVM, for example
+ * {@code -Dgnucash.benchmark.accounts=2000 -Dgnucash.benchmark.transactions=500000}</p>
+ * @see BookGenerator
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class ImportExportBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportExportBenchmarkTest.class.getName());
+
+    private static final int ACCOUNT_COUNT = Integer.getInteger("gnucash.benchmark.accounts", 50);
+    private static final int TRANSACTION_COUNT = Integer.getInteger("gnucash.benchmark.transactions", 1000);
+    private static final int PRICE_COUNT = Integer.getInteger("gnucash.benchmark.prices", 100);
+    private static final int SCHEDULED_ACTION_COUNT = Integer.getInteger("gnucash.benchmark.scheduledactions", 10);
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private File mBookFile;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("gnucash.benchmark"));
+        BookGenerator generator = new BookGenerator(ACCOUNT_COUNT, TRANSACTION_COUNT);
+        generator.setPriceCount(PRICE_COUNT);
+        generator.setScheduledActionCount(SCHEDULED_ACTION_COUNT);
+        mBookFile = File.createTempFile("benchmark", ".gnucash");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mBookFile), "UTF-8"));
+        try {
+            generator.write(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void benchmarkImport() throws Exception {
+        benchmark("Import", mBookFile, new Task() {
+            @Override
+            public void run() throws Exception {
+                importBook();
+            }
+        });
+        assertImported();
+    }
+
+    /**
+     * Times the import with and without the bulk load mode, so that both can be compared on the same book
+     */
+    @Test
+    public void benchmarkBulkLoad() throws Exception {
+        for (final boolean bulkLoad : new boolean[]{false, true}) {
+            AccountsDbAdapter.getInstance().deleteAllRecords();
+            benchmark(bulkLoad ? "Import in bulk load mode" : "Import without bulk load mode", mBookFile, new Task() {
+                @Override
+                public void run() throws Exception {
+                    importBook(bulkLoad);
+                }
+            });
+            assertImported();
+        }
+    }
+
+    private static void assertImported() {
+        assertThat(TransactionsDbAdapter.getInstance().getRecordsCount()).isEqualTo(TRANSACTION_COUNT);
+        assertThat(TransactionsDbAdapter.getInstance().getTemplateTransactionsCount()).isEqualTo(SCHEDULED_ACTION_COUNT);
+        assertThat(PricesDbAdapter.getInstance().getRecordsCount()).isEqualTo(PRICE_COUNT);
+    }
+
+    @Test
+    public void benchmarkExports() throws Exception {
+        importBook();
+
+        exportBook("GnuCash XML export", new GncXmlExporter(getExportParams(ExportFormat.XML)));
+        exportBook("QIF export", new QifExporter(getExportParams(ExportFormat.QIF)));
+        exportBook("OFX export", new OfxExporter(getExportParams(ExportFormat.OFX)));
+    }
+
+    private void importBook() throws Exception {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(mBookFile));
+        try {
+            GncXmlImporter.parse(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Imports the book with the settings of {@link GncXmlImporter}, except for the bulk load mode
+     * @param bulkLoad {@code true} to write the records in a bulk load session
+     */
+    private void importBook(boolean bulkLoad) throws Exception {
+        GncXmlHandler handler = new GncXmlHandler();
+        handler.setBatchSize(GncXmlHandler.DEFAULT_BATCH_SIZE);
+        handler.setPipelined(true);
+        handler.setBulkLoad(bulkLoad);
+        XMLReader reader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+        reader.setContentHandler(handler);
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(mBookFile));
+        try {
+            reader.parse(new InputSource(inputStream));
+        } finally {
+            handler.cancelImport();
+            inputStream.close();
+        }
+    }
+
+    private void exportBook(String name, final Exporter exporter) throws Exception {
+        final File exportFile = File.createTempFile("benchmark", ".export");
+        try {
+            benchmark(name, exportFile, new Task() {
+                @Override
+                public void run() throws Exception {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(exportFile), "UTF-8"));
+                    try {
+                        exporter.generateExport(writer);
+                    } finally {
+                        writer.close();
+                    }
+                }
+            });
+            assertThat(exportFile.length()).isGreaterThan(0);
+        } finally {
+            exportFile.delete();
+        }
+    }
+
+    private static ExportParams getExportParams(ExportFormat format) {
+        ExportParams params = new ExportParams(format);
+        params.setExportAllTransactions(true);
+        return params;
+    }
+
+    /**
+     * Runs {@code task} and logs its duration, its throughput in transactions and bytes of {@code file},
+     * and the peak heap usage while it ran
+     */
+    private static void benchmark(String name, File file, Task task) throws Exception {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long start = System.nanoTime();
+        task.run();
+        long elapsed = System.nanoTime() - start;
+
+        //the pools do not peak at the same time, so this is an upper bound of the peak heap
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peakHeap += pool.getPeakUsage().getUsed();
+        }
+        double seconds = elapsed / 1e9;
+        double megabytes = file.length() / (1024.0 * 1024.0);
+        LOGGER.info(String.format(Locale.US,
+                "%s: %d accounts, %d transactions in %.2f s, %.0f transactions/s, %.2f MB at %.2f MB/s, peak heap %d MB",
+                name, ACCOUNT_COUNT, TRANSACTION_COUNT, seconds, TRANSACTION_COUNT / seconds,
+                megabytes, megabytes / seconds, peakHeap / (1024 * 1024)));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mBookFile == null)
+            return;
+        mBookFile.delete();
+        AccountsDbAdapter.getInstance().deleteAllRecords();
+    }
+}
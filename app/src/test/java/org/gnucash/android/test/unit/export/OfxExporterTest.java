@@ -0,0 +1,175 @@
+package org.gnucash.android.test.unit.export;
+
+import android.preference.PreferenceManager;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.R;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.ExportFormat;
+import org.gnucash.android.export.ExportParams;
+import org.gnucash.android.export.ofx.OfxExporter;
+import org.gnucash.android.export.ofx.OfxHelper;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.model.TransactionType;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.ProcessingInstruction;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Currency;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class OfxExporterTest {
+
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private TransactionsDbAdapter mTransactionsDbAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
+        mTransactionsDbAdapter = TransactionsDbAdapter.getInstance();
+    }
+
+    @Test
+    public void shouldWriteTheSameDocumentAsDom() throws Exception {
+        addBook();
+        String expected = buildDomExport();
+
+        String ofx = exportOfx();
+        assertThat(withoutCurrentTime(ofx)).isEqualTo(withoutCurrentTime(expected));
+        assertThat(ofx).contains("<NAME/>").contains("Line one&#13;\nLine two");
+    }
+
+    @Test
+    public void shouldWriteAnXmlDocumentWithTheXmlHeader() throws Exception {
+        addBook();
+        String sgml = exportOfx();
+        PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application).edit()
+                .putBoolean(RuntimeEnvironment.application.getString(R.string.key_xml_ofx_header), true).commit();
+        String xml = exportOfx();
+
+        assertThat(xml).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>")
+                .doesNotContain(OfxHelper.OFX_SGML_HEADER);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(xml)));
+        ProcessingInstruction header = (ProcessingInstruction) document.getFirstChild();
+        assertThat(header.getTarget()).isEqualTo("OFX");
+        assertThat(header.getData()).isEqualTo(OfxHelper.OFX_HEADER);
+        assertThat(document.getDocumentElement().getTagName()).isEqualTo("OFX");
+        //only the header differs from the SGML export
+        assertThat(withoutCurrentTime(xml.substring(xml.indexOf("<OFX>"))))
+                .isEqualTo(withoutCurrentTime(sgml.substring(sgml.indexOf("<OFX>"))));
+    }
+
+    private void addBook() {
+        Account checking = new Account("Checking", Currency.getInstance("USD"));
+        checking.setAccountType(AccountType.BANK);
+        Account groceries = new Account("Groceries", Currency.getInstance("USD"));
+        groceries.setAccountType(AccountType.EXPENSE);
+        Account salary = new Account("Salary", Currency.getInstance("USD"));
+        salary.setAccountType(AccountType.INCOME);
+        Account unused = new Account("Unused", Currency.getInstance("USD"));
+        mAccountsDbAdapter.addRecord(checking);
+        mAccountsDbAdapter.addRecord(groceries);
+        mAccountsDbAdapter.addRecord(salary);
+        mAccountsDbAdapter.addRecord(unused);
+
+        Transaction shopping = new Transaction("\u00c9picerie & <co>");
+        shopping.setNote("Line one\r\nLine two");
+        shopping.setTime(1440157510000L);
+        Split split = new Split(new Money("25.50", checking.getCurrency().getCurrencyCode()), checking.getUID());
+        split.setType(TransactionType.CREDIT);
+        shopping.addSplit(split);
+        shopping.addSplit(split.createPair(groceries.getUID()));
+        mTransactionsDbAdapter.addRecord(shopping);
+
+        Transaction payday = new Transaction("");
+        payday.setTime(1440257510000L);
+        Split income = new Split(new Money("1000", checking.getCurrency().getCurrencyCode()), salary.getUID());
+        income.setType(TransactionType.CREDIT);
+        Split deposit = new Split(new Money("900", checking.getCurrency().getCurrencyCode()), checking.getUID());
+        deposit.setType(TransactionType.DEBIT);
+        Split tax = new Split(new Money("100", checking.getCurrency().getCurrencyCode()), groceries.getUID());
+        tax.setType(TransactionType.DEBIT);
+        payday.addSplit(income);
+        payday.addSplit(deposit);
+        payday.addSplit(tax);
+        mTransactionsDbAdapter.addRecord(payday);
+    }
+
+    private static String exportOfx() throws Exception {
+        ExportParams params = new ExportParams(ExportFormat.OFX);
+        params.setExportAllTransactions(true);
+        StringWriter writer = new StringWriter();
+        new OfxExporter(params).generateExport(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Builds the export of all the transactions with a DOM document, like the exporter used to
+     */
+    private String buildDomExport() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element root = document.createElement("OFX");
+        document.appendChild(root);
+        Element transactionUid = document.createElement(OfxHelper.TAG_TRANSACTION_UID);
+        transactionUid.appendChild(document.createTextNode(OfxHelper.UNSOLICITED_TRANSACTION_ID));
+        Element statementTransactionResponse = document.createElement(OfxHelper.TAG_STATEMENT_TRANSACTION_RESPONSE);
+        statementTransactionResponse.appendChild(transactionUid);
+        Element bankmsgs = document.createElement(OfxHelper.TAG_BANK_MESSAGES_V1);
+        bankmsgs.appendChild(statementTransactionResponse);
+        root.appendChild(bankmsgs);
+        for (Account account : mAccountsDbAdapter.getAllRecords()) {
+            if (account.getTransactionCount() > 0)
+                account.toOfx(document, statementTransactionResponse, true);
+        }
+
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        StringWriter writer = new StringWriter();
+        transformer.transform(new DOMSource(root), new StreamResult(writer));
+        return OfxHelper.OFX_SGML_HEADER + '\n' + writer.toString();
+    }
+
+    /**
+     * Removes the times of the export, which change between two exports
+     */
+    private static String withoutCurrentTime(String ofx) {
+        return ofx.replaceAll("<(DTSTART|DTEND|DTASOF)>[^<]*<", "<$1><");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application).edit()
+                .remove(RuntimeEnvironment.application.getString(R.string.key_xml_ofx_header)).commit();
+        mAccountsDbAdapter.deleteAllRecords();
+    }
+}
@@ -0,0 +1,233 @@
+package org.gnucash.android.test.unit.export;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsDbAdapter;
+import org.gnucash.android.db.CommoditiesDbAdapter;
+import org.gnucash.android.db.PricesDbAdapter;
+import org.gnucash.android.db.TransactionsDbAdapter;
+import org.gnucash.android.export.qif.QifHelper;
+import org.gnucash.android.importer.ImportProgress;
+import org.gnucash.android.importer.QifImporter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Price;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.model.TransactionType;
+import org.gnucash.android.test.unit.util.GnucashTestRunner;
+import org.gnucash.android.test.unit.util.ShadowCrashlytics;
+import org.gnucash.android.test.unit.util.ShadowUserVoice;
+import org.gnucash.android.util.TimestampCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.Currency;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class QifImporterTest {
+
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private TransactionsDbAdapter mTransactionsDbAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
+        mTransactionsDbAdapter = TransactionsDbAdapter.getInstance();
+    }
+
+    private int importQif(String qif) throws Exception {
+        return QifImporter.parse(new ByteArrayInputStream(qif.getBytes("UTF-8")), null);
+    }
+
+    @Test
+    public void shouldImportTransactionsIntoCategories() throws Exception {
+        String qif = "!Account\nNChecking\nTBank\n^\n"
+                + "!Type:Bank\n"
+                + "D1/25'15\nT-1,025.50\nPLandlord\nMJanuary\nLHousing:Rent\n^\n"
+                + "D2015/1/31\nT2000.00\nPEmployer\nSSalary\n$2100.00\nSTaxes\nETax withheld\n$-100.00\n^\n";
+        assertThat(importQif(qif)).isEqualTo(2);
+
+        String checkingUID = mAccountsDbAdapter.findAccountUidByFullName("Checking");
+        String rentUID = mAccountsDbAdapter.findAccountUidByFullName("Housing:Rent");
+        assertThat(checkingUID).isNotNull();
+        assertThat(rentUID).isNotNull();
+        assertThat(mAccountsDbAdapter.getParentAccountUID(rentUID))
+                .isEqualTo(mAccountsDbAdapter.findAccountUidByFullName("Housing"));
+
+        List<Transaction> transactions = mTransactionsDbAdapter.getAllTransactionsForAccount(checkingUID);
+        assertThat(transactions).hasSize(2);
+        for (Transaction transaction : transactions) {
+            assertThat(transaction.getImbalance().isAmountZero()).isTrue();
+            if (transaction.getDescription().equals("Landlord")) {
+                assertThat(transaction.getNote()).isEqualTo("January");
+                assertThat(transaction.getTimeMillis()).isEqualTo(TimestampCodec.getStartOfDay(2015, 1, 25));
+                assertThat(transaction.getSplits()).hasSize(2);
+                Split rentSplit = findSplit(transaction, rentUID);
+                assertThat(rentSplit.getType()).isEqualTo(TransactionType.DEBIT);
+                assertThat(rentSplit.getValue().asBigDecimal()).isEqualByComparingTo(new BigDecimal("1025.50"));
+            } else {
+                assertThat(transaction.getSplits()).hasSize(3);
+                Split taxSplit = findSplit(transaction, mAccountsDbAdapter.findAccountUidByFullName("Taxes"));
+                assertThat(taxSplit.getType()).isEqualTo(TransactionType.DEBIT);
+                assertThat(taxSplit.getMemo()).isEqualTo("Tax withheld");
+                assertThat(findSplit(transaction, checkingUID).getType()).isEqualTo(TransactionType.DEBIT);
+            }
+        }
+    }
+
+    @Test
+    public void shouldImportTransfersOnce() throws Exception {
+        String qif = "!Account\nNChecking\nTBank\n^\n!Type:Bank\n"
+                + "D3/1/2015\nT-100.00\nPSavings deposit\nL[Savings]\n^\n"
+                + "!Account\nNSavings\nTBank\n^\n!Type:Bank\n"
+                + "D3/1/2015\nT100\nPSavings deposit\nL[Checking]\n^\n";
+        assertThat(importQif(qif)).isEqualTo(1);
+        assertThat(mTransactionsDbAdapter.getRecordsCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldImportTransfersBetweenCurrenciesOnce() throws Exception {
+        addPrice("USD", "EUR", 9, 10);
+        String qif = "*EUR\n!Account\nNKonto\nTBank\n^\n"
+                + "*USD\n!Account\nNChecking\nTBank\n^\n!Type:Bank\n"
+                + "D2015/4/2\nT-100.00\nPTransfer\nL[Konto]\n^\n"
+                + "!Account\nNKonto\nTBank\n^\n!Type:Bank\n"
+                + "D2015/4/2\nT90.00\nPTransfer\nL[Checking]\n^\n";
+        assertThat(importQif(qif)).isEqualTo(1);
+        assertThat(mTransactionsDbAdapter.getRecordsCount()).isEqualTo(1);
+
+        Transaction transaction = mTransactionsDbAdapter.getAllTransactions().get(0);
+        assertThat(transaction.getCurrencyCode()).isEqualTo("USD");
+        Split kontoSplit = findSplit(transaction, mAccountsDbAdapter.findAccountUidByFullName("Konto"));
+        assertThat(kontoSplit.getValue().asBigDecimal()).isEqualByComparingTo(new BigDecimal("100"));
+        assertThat(kontoSplit.getQuantity().asBigDecimal()).isEqualByComparingTo(new BigDecimal("90"));
+        assertThat(kontoSplit.getQuantity().getCurrency().getCurrencyCode()).isEqualTo("EUR");
+    }
+
+    @Test
+    public void shouldConvertSplitsToAccountsInAnotherCurrency() throws Exception {
+        Account groceries = new Account("Groceries", Currency.getInstance("USD"));
+        groceries.setAccountType(AccountType.EXPENSE);
+        mAccountsDbAdapter.addRecord(groceries);
+        addPrice("EUR", "USD", 11, 10);
+
+        String qif = "*EUR\n!Account\nNWallet\nTCash\n^\n!Type:Cash\nD2015/4/2\nT-10.00\nLGroceries\n^\n";
+        assertThat(importQif(qif)).isEqualTo(1);
+
+        Transaction transaction = mTransactionsDbAdapter.getAllTransactions().get(0);
+        assertThat(transaction.getImbalance().isAmountZero()).isTrue();
+        Split split = findSplit(transaction, groceries.getUID());
+        assertThat(split.getValue().asBigDecimal()).isEqualByComparingTo(new BigDecimal("10"));
+        assertThat(split.getValue().getCurrency().getCurrencyCode()).isEqualTo("EUR");
+        assertThat(split.getQuantity().asBigDecimal()).isEqualByComparingTo(new BigDecimal("11"));
+        assertThat(split.getQuantity().getCurrency().getCurrencyCode()).isEqualTo("USD");
+    }
+
+    @Test
+    public void splitsToAccountsInAnotherCurrencyWithoutPriceShouldGoToImbalance() throws Exception {
+        Account groceries = new Account("Groceries", Currency.getInstance("USD"));
+        groceries.setAccountType(AccountType.EXPENSE);
+        mAccountsDbAdapter.addRecord(groceries);
+
+        String qif = "*EUR\n!Account\nNWallet\nTCash\n^\n!Type:Cash\nD2015/4/2\nT-10.00\nLGroceries\n^\n";
+        assertThat(importQif(qif)).isEqualTo(1);
+
+        Transaction transaction = mTransactionsDbAdapter.getAllTransactions().get(0);
+        for (Split split : transaction.getSplits()) {
+            assertThat(split.getAccountUID()).isNotEqualTo(groceries.getUID());
+            assertThat(split.getQuantity().getCurrency().getCurrencyCode()).isEqualTo("EUR");
+        }
+        findSplit(transaction, mAccountsDbAdapter.getImbalanceAccountUID(Currency.getInstance("EUR")));
+    }
+
+    @Test
+    public void shouldBoundTheTransfersWaitingForTheirSecondCopy() throws Exception {
+        String qif = "!Account\nNChecking\nTBank\n^\n!Type:Bank\n"
+                + "D3/1/2015\nT-100.00\nPSavings deposit\nL[Savings]\n^\n"
+                + "D3/2/2015\nT-50.00\nPSavings deposit\nL[Savings]\n^\n"
+                + "!Account\nNSavings\nTBank\n^\n!Type:Bank\n"
+                + "D3/1/2015\nT100\nPSavings deposit\nL[Checking]\n^\n"
+                + "D3/2/2015\nT50\nPSavings deposit\nL[Checking]\n^\n";
+        QifImporter importer = new QifImporter(mAccountsDbAdapter, mTransactionsDbAdapter,
+                PricesDbAdapter.getInstance(), null);
+        importer.setMaxPendingTransfers(1);
+        //the first transfer is dropped while waiting, so its second copy is imported too
+        assertThat(importer.importQif(new ByteArrayInputStream(qif.getBytes("UTF-8")))).isEqualTo(3);
+        assertThat(mTransactionsDbAdapter.getRecordsCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldBalanceTransactionsWithoutCategory() throws Exception {
+        String qif = "*EUR\n!Account\nNWallet\nTCash\n^\n!Type:Cash\nD2015/4/2\nT-12.00\nMCoffee\n^\n";
+        assertThat(importQif(qif)).isEqualTo(1);
+
+        Transaction transaction = mTransactionsDbAdapter.getAllTransactions().get(0);
+        assertThat(transaction.getDescription()).isEqualTo("Coffee");
+        assertThat(transaction.getCurrencyCode()).isEqualTo("EUR");
+        assertThat(transaction.getImbalance().isAmountZero()).isTrue();
+        assertThat(findSplit(transaction, mAccountsDbAdapter.findAccountUidByFullName("Wallet")).getType())
+                .isEqualTo(TransactionType.CREDIT);
+        assertThat(mAccountsDbAdapter.getImbalanceAccountUID(Currency.getInstance("EUR"))).isNotNull();
+    }
+
+    @Test
+    public void progressShouldCountTheBytesOfTheFile() throws Exception {
+        //the payee has multi-byte characters, which must be counted as bytes
+        byte[] qif = ("!Account\nNWallet\nTCash\n^\n!Type:Cash\nD2015/4/2\nT-3.50\nPCafé Münster\n^\n")
+                .getBytes("UTF-8");
+        ImportProgress progress = new ImportProgress();
+        assertThat(QifImporter.parse(new ByteArrayInputStream(qif), progress)).isEqualTo(1);
+        assertThat(progress.getBytesRead()).isEqualTo(qif.length);
+        assertThat(progress.getTransactionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldParseQifDates() throws ParseException {
+        long expected = TimestampCodec.getStartOfDay(2015, 1, 25);
+        assertThat(QifHelper.parseDate("2015/1/25")).isEqualTo(expected);
+        assertThat(QifHelper.parseDate("1/25/2015")).isEqualTo(expected);
+        assertThat(QifHelper.parseDate("1/25'15")).isEqualTo(expected);
+        assertThat(QifHelper.parseDate(" 1/25' 15")).isEqualTo(expected);
+        assertThat(QifHelper.parseDate("25/01/15")).isEqualTo(expected);
+        assertThat(QifHelper.parseDate("01-25-1999")).isEqualTo(TimestampCodec.getStartOfDay(1999, 1, 25));
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldRejectInvalidDates() throws Exception {
+        importQif("!Type:Bank\nD13/13/2015\nT1.00\n^\n");
+    }
+
+    private static void addPrice(String commodityCode, String currencyCode, long valueNum, long valueDenom) {
+        CommoditiesDbAdapter commoditiesDbAdapter = CommoditiesDbAdapter.getInstance();
+        Price price = new Price(commoditiesDbAdapter.getCommodityUID(commodityCode),
+                commoditiesDbAdapter.getCommodityUID(currencyCode));
+        price.setDate(new Timestamp(TimestampCodec.getStartOfDay(2015, 1, 1)));
+        price.setValueNum(valueNum);
+        price.setValueDenom(valueDenom);
+        PricesDbAdapter.getInstance().addRecord(price);
+    }
+
+    private static Split findSplit(Transaction transaction, String accountUID) {
+        for (Split split : transaction.getSplits()) {
+            if (split.getAccountUID().equals(accountUID))
+                return split;
+        }
+        throw new AssertionError("No split for account " + accountUID);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mAccountsDbAdapter.deleteAllRecords();
+    }
+}
@@ -43,6 +43,23 @@ public class SplitTest {
         assertThat(clone2.getUID()).isNotEqualTo(split.getUID());
     }
 
+    @Test
+    public void shouldCreateMoneyFromNumeratorAndDenominatorWhenRequested(){
+        Split split = new Split(Money.getZeroInstance(), "account");
+        split.setValue(3250, 100, Currency.getInstance("USD"));
+        split.setQuantity(3000, 1, Currency.getInstance("JPY"));
+
+        assertThat(split.getValueNumerator()).isEqualTo(3250);
+        assertThat(split.getValueDenominator()).isEqualTo(100);
+        assertThat(split.getValue()).isEqualTo(new Money(new BigDecimal("32.50"), Currency.getInstance("USD")));
+        assertThat(split.getQuantityNumerator()).isEqualTo(3000);
+        assertThat(split.getQuantity()).isEqualTo(new Money(new BigDecimal("3000"), Currency.getInstance("JPY")));
+
+        split.setValue(new Money(BigDecimal.TEN, Currency.getInstance("EUR")));
+        assertThat(split.getValueNumerator()).isEqualTo(1000);
+        assertThat(split.getValue().getCurrency().getCurrencyCode()).isEqualTo("EUR");
+    }
+
     /**
      * Tests that a split pair has the inverse transaction type as the origin split.
      * Everything else should be the same
@@ -0,0 +1,435 @@
+package org.gnucash.android.test.unit.util;
+
+import org.gnucash.android.export.xml.GncXmlHelper;
+import org.gnucash.android.model.AccountType;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates GnuCash XML books of configurable size, for testing imports and exports on large books.
+ * <p>The book has a tree of accounts in several currencies, transactions with two to four splits
+ * (some of them in accounts of another currency), prices between the currencies and scheduled transactions.
+ * The records are written as they are generated, so the size of the book is not limited by the heap.
+ * The same seed always generates the same book.</p>
+ * <p>Scheduled transactions are not auto-created, so importing the book does not add any transaction</p>
+ */
+public class BookGenerator {
+    /**
+     * Time of the first generated transaction, 2010-01-01 UTC
+     */
+    private static final long START_TIME = 1262304000000L;
+
+    private static final String[] NAMESPACES = {"gnc", "act", "book", "cd", "cmdty", "price", "slot",
+            "split", "trn", "ts", "sx", "recurrence"};
+
+    /**
+     * Types of the top level accounts. Descendant accounts have the type of their parent
+     */
+    private static final AccountType[] TOP_LEVEL_TYPES = {AccountType.ASSET, AccountType.BANK,
+            AccountType.LIABILITY, AccountType.INCOME, AccountType.EXPENSE, AccountType.EQUITY};
+
+    private int mAccountCount;
+    private int mTransactionCount;
+    private int mPriceCount = 100;
+    private int mScheduledActionCount = 10;
+    private String[] mCurrencyCodes = {"USD", "EUR", "GBP", "JPY"};
+    private long mSeed = 1;
+
+    private Random mRandom;
+    private String[] mAccountUIDs;
+    private int[] mAccountCurrencies;
+
+    /**
+     * Creates a generator for books with the given number of accounts and transactions
+     * @param accountCount Number of accounts, not counting the root account
+     * @param transactionCount Number of transactions, not counting the scheduled ones
+     */
+    public BookGenerator(int accountCount, int transactionCount) {
+        if (accountCount < TOP_LEVEL_TYPES.length)
+            throw new IllegalArgumentException("At least " + TOP_LEVEL_TYPES.length + " accounts are needed");
+        mAccountCount = accountCount;
+        mTransactionCount = transactionCount;
+    }
+
+    public void setPriceCount(int priceCount) {
+        mPriceCount = priceCount;
+    }
+
+    public void setScheduledActionCount(int scheduledActionCount) {
+        mScheduledActionCount = scheduledActionCount;
+    }
+
+    /**
+     * Sets the currencies of the accounts. The first one is the currency of the root account
+     * @param currencyCodes ISO 4217 currency codes
+     */
+    public void setCurrencyCodes(String... currencyCodes) {
+        mCurrencyCodes = currencyCodes;
+    }
+
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    public int getAccountCount() {
+        return mAccountCount;
+    }
+
+    public int getTransactionCount() {
+        return mTransactionCount;
+    }
+
+    public int getPriceCount() {
+        return mPriceCount;
+    }
+
+    public int getScheduledActionCount() {
+        return mScheduledActionCount;
+    }
+
+    /**
+     * Writes the book to {@code writer}. The writer is flushed but not closed
+     * @param writer Destination of the XML
+     * @throws IOException if writing fails
+     */
+    public void write(Writer writer) throws IOException {
+        XmlSerializer xml;
+        try {
+            xml = XmlPullParserFactory.newInstance().newSerializer();
+        } catch (XmlPullParserException e) {
+            throw new IOException(e);
+        }
+        mRandom = new Random(mSeed);
+        xml.setOutput(writer);
+        xml.startDocument("utf-8", true);
+        xml.startTag(null, GncXmlHelper.TAG_ROOT);
+        for (String ns : NAMESPACES) {
+            xml.attribute(null, "xmlns:" + ns, "http://www.gnucash.org/XML/" + ns);
+        }
+        writeCountData(xml, GncXmlHelper.ATTR_VALUE_BOOK, 1);
+        xml.startTag(null, GncXmlHelper.TAG_BOOK);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.BOOK_VERSION);
+        writeTag(xml, GncXmlHelper.TAG_BOOK_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+        writeCountData(xml, "commodity", mCurrencyCodes.length);
+        writeCountData(xml, "account", mAccountCount + 1);
+        writeCountData(xml, "transaction", mTransactionCount);
+        //prices need two currencies
+        int priceCount = mCurrencyCodes.length > 1 ? mPriceCount : 0;
+        if (priceCount > 0)
+            writeCountData(xml, "price", priceCount);
+
+        for (String currencyCode : mCurrencyCodes) {
+            xml.startTag(null, GncXmlHelper.TAG_COMMODITY);
+            xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, "2.0.0");
+            writeTag(xml, GncXmlHelper.TAG_COMMODITY_SPACE, null, "ISO4217");
+            writeTag(xml, GncXmlHelper.TAG_COMMODITY_ID, null, currencyCode);
+            xml.endTag(null, GncXmlHelper.TAG_COMMODITY);
+        }
+        if (priceCount > 0)
+            writePrices(xml, priceCount);
+        writeAccounts(xml);
+        for (int i = 0; i < mTransactionCount; i++) {
+            writeTransaction(xml, i);
+        }
+        if (mScheduledActionCount > 0)
+            writeScheduledActions(xml);
+
+        xml.endTag(null, GncXmlHelper.TAG_BOOK);
+        xml.endTag(null, GncXmlHelper.TAG_ROOT);
+        xml.endDocument();
+        writer.flush();
+    }
+
+    private void writePrices(XmlSerializer xml, int priceCount) throws IOException {
+        xml.startTag(null, GncXmlHelper.TAG_PRICEDB);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, "1");
+        for (int i = 0; i < priceCount; i++) {
+            int commodity = mRandom.nextInt(mCurrencyCodes.length);
+            int currency = (commodity + 1 + mRandom.nextInt(mCurrencyCodes.length - 1)) % mCurrencyCodes.length;
+            xml.startTag(null, GncXmlHelper.TAG_PRICE);
+            writeTag(xml, GncXmlHelper.TAG_PRICE_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+            writeCommodity(xml, GncXmlHelper.TAG_PRICE_COMMODITY, mCurrencyCodes[commodity]);
+            writeCommodity(xml, GncXmlHelper.TAG_PRICE_CURRENCY, mCurrencyCodes[currency]);
+            xml.startTag(null, GncXmlHelper.TAG_PRICE_TIME);
+            writeTag(xml, GncXmlHelper.TAG_TS_DATE, null, GncXmlHelper.formatDate(START_TIME + i * 86400000L));
+            xml.endTag(null, GncXmlHelper.TAG_PRICE_TIME);
+            writeTag(xml, GncXmlHelper.TAG_PRICE_SOURCE, null, "user:price");
+            long denom = 10000;
+            long num = Math.round(getRate(currency) / getRate(commodity) * denom * (0.9 + mRandom.nextDouble() / 5));
+            writeTag(xml, GncXmlHelper.TAG_PRICE_VALUE, null, Math.max(num, 1) + "/" + denom);
+            xml.endTag(null, GncXmlHelper.TAG_PRICE);
+        }
+        xml.endTag(null, GncXmlHelper.TAG_PRICEDB);
+    }
+
+    /**
+     * Writes the root account and its descendants. Parents are always written before their children
+     */
+    private void writeAccounts(XmlSerializer xml) throws IOException {
+        String rootUID = generateUID();
+        writeAccount(xml, "Root Account", rootUID, AccountType.ROOT, 0, null);
+
+        mAccountUIDs = new String[mAccountCount];
+        mAccountCurrencies = new int[mAccountCount];
+        AccountType[] types = new AccountType[mAccountCount];
+        for (int i = 0; i < mAccountCount; i++) {
+            String parentUID;
+            if (i < TOP_LEVEL_TYPES.length) {
+                types[i] = TOP_LEVEL_TYPES[i];
+                parentUID = rootUID;
+            } else {
+                int parent = mRandom.nextInt(i);
+                types[i] = types[parent];
+                parentUID = mAccountUIDs[parent];
+            }
+            mAccountUIDs[i] = generateUID();
+            mAccountCurrencies[i] = mRandom.nextInt(4) == 0 ? mRandom.nextInt(mCurrencyCodes.length) : 0;
+            writeAccount(xml, "Account " + i, mAccountUIDs[i], types[i], mAccountCurrencies[i], parentUID);
+        }
+    }
+
+    private void writeAccount(XmlSerializer xml, String name, String uid, AccountType type,
+                              int currency, String parentUID) throws IOException {
+        xml.startTag(null, GncXmlHelper.TAG_ACCOUNT);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.BOOK_VERSION);
+        writeTag(xml, GncXmlHelper.TAG_NAME, null, name);
+        writeTag(xml, GncXmlHelper.TAG_ACCT_ID, GncXmlHelper.ATTR_VALUE_GUID, uid);
+        writeTag(xml, GncXmlHelper.TAG_TYPE, null, type.name());
+        writeCommodity(xml, GncXmlHelper.TAG_ACCOUNT_COMMODITY, mCurrencyCodes[currency]);
+        writeTag(xml, GncXmlHelper.TAG_COMMODITY_SCU, null, Long.toString(getDenominator(currency)));
+        if (parentUID != null)
+            writeTag(xml, GncXmlHelper.TAG_PARENT_UID, GncXmlHelper.ATTR_VALUE_GUID, parentUID);
+        xml.endTag(null, GncXmlHelper.TAG_ACCOUNT);
+    }
+
+    /**
+     * Writes a transaction with two to four balanced splits.
+     * The transaction has the currency of its first split account
+     */
+    private void writeTransaction(XmlSerializer xml, int index) throws IOException {
+        int splitCount = 2 + mRandom.nextInt(3);
+        int[] accounts = new int[splitCount];
+        long[] values = new long[splitCount];
+        long total = 0;
+        for (int i = 0; i < splitCount; i++) {
+            accounts[i] = mRandom.nextInt(mAccountCount);
+            if (i < splitCount - 1) {
+                values[i] = 1 + mRandom.nextInt(100000);
+                total += values[i];
+            }
+        }
+        values[splitCount - 1] = -total;
+        int currency = mAccountCurrencies[accounts[0]];
+        long time = START_TIME + index * 600000L + mRandom.nextInt(600000);
+
+        xml.startTag(null, GncXmlHelper.TAG_TRANSACTION);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.BOOK_VERSION);
+        writeTag(xml, GncXmlHelper.TAG_TRX_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+        writeCommodity(xml, GncXmlHelper.TAG_TRX_CURRENCY, mCurrencyCodes[currency]);
+        writeTimestamp(xml, GncXmlHelper.TAG_DATE_POSTED, time);
+        writeTimestamp(xml, GncXmlHelper.TAG_DATE_ENTERED, time);
+        writeTag(xml, GncXmlHelper.TAG_TRN_DESCRIPTION, null, "Transaction " + index);
+        xml.startTag(null, GncXmlHelper.TAG_TRN_SPLITS);
+        for (int i = 0; i < splitCount; i++) {
+            int splitCurrency = mAccountCurrencies[accounts[i]];
+            long quantity = values[i];
+            if (splitCurrency != currency) {
+                double amount = (double) values[i] / getDenominator(currency) * getRate(splitCurrency) / getRate(currency);
+                quantity = Math.round(amount * getDenominator(splitCurrency));
+                if (quantity == 0)
+                    quantity = Long.signum(values[i]);
+            }
+            xml.startTag(null, GncXmlHelper.TAG_TRN_SPLIT);
+            writeTag(xml, GncXmlHelper.TAG_SPLIT_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+            writeTag(xml, GncXmlHelper.TAG_SPLIT_MEMO, null, "Split " + i);
+            writeTag(xml, GncXmlHelper.TAG_RECONCILED_STATE, null, "n");
+            writeTag(xml, GncXmlHelper.TAG_SPLIT_VALUE, null, values[i] + "/" + getDenominator(currency));
+            writeTag(xml, GncXmlHelper.TAG_SPLIT_QUANTITY, null, quantity + "/" + getDenominator(splitCurrency));
+            writeTag(xml, GncXmlHelper.TAG_SPLIT_ACCOUNT, GncXmlHelper.ATTR_VALUE_GUID, mAccountUIDs[accounts[i]]);
+            xml.endTag(null, GncXmlHelper.TAG_TRN_SPLIT);
+        }
+        xml.endTag(null, GncXmlHelper.TAG_TRN_SPLITS);
+        xml.endTag(null, GncXmlHelper.TAG_TRANSACTION);
+    }
+
+    /**
+     * Writes the template transactions, each in its own template account, followed by their scheduled actions
+     */
+    private void writeScheduledActions(XmlSerializer xml) throws IOException {
+        String[] templateAccountUIDs = new String[mScheduledActionCount];
+        xml.startTag(null, GncXmlHelper.TAG_TEMPLATE_TRANSACTIONS);
+        String templateRootUID = generateUID();
+        writeTemplateAccount(xml, "Template Root", templateRootUID, AccountType.ROOT, null);
+        for (int i = 0; i < mScheduledActionCount; i++) {
+            templateAccountUIDs[i] = generateUID();
+            writeTemplateAccount(xml, templateAccountUIDs[i], templateAccountUIDs[i], AccountType.BANK, templateRootUID);
+        }
+        for (int i = 0; i < mScheduledActionCount; i++) {
+            int debitAccount = mRandom.nextInt(mAccountCount);
+            int creditAccount = mRandom.nextInt(mAccountCount);
+            long amount = 1 + mRandom.nextInt(100000);
+            xml.startTag(null, GncXmlHelper.TAG_TRANSACTION);
+            xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.BOOK_VERSION);
+            writeTag(xml, GncXmlHelper.TAG_TRX_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+            writeCommodity(xml, GncXmlHelper.TAG_TRX_CURRENCY, mCurrencyCodes[mAccountCurrencies[debitAccount]]);
+            writeTimestamp(xml, GncXmlHelper.TAG_DATE_POSTED, START_TIME);
+            writeTimestamp(xml, GncXmlHelper.TAG_DATE_ENTERED, START_TIME);
+            writeTag(xml, GncXmlHelper.TAG_TRN_DESCRIPTION, null, "Scheduled " + i);
+            xml.startTag(null, GncXmlHelper.TAG_TRN_SPLITS);
+            writeTemplateSplit(xml, templateAccountUIDs[i], debitAccount, amount, false);
+            writeTemplateSplit(xml, templateAccountUIDs[i], creditAccount, amount, true);
+            xml.endTag(null, GncXmlHelper.TAG_TRN_SPLITS);
+            xml.endTag(null, GncXmlHelper.TAG_TRANSACTION);
+        }
+        xml.endTag(null, GncXmlHelper.TAG_TEMPLATE_TRANSACTIONS);
+
+        for (int i = 0; i < mScheduledActionCount; i++) {
+            xml.startTag(null, GncXmlHelper.TAG_SCHEDULED_ACTION);
+            xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, "2.0.0");
+            writeTag(xml, GncXmlHelper.TAG_SX_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+            writeTag(xml, GncXmlHelper.TAG_SX_NAME, null, "Scheduled " + i);
+            writeTag(xml, GncXmlHelper.TAG_SX_ENABLED, null, "y");
+            writeTag(xml, GncXmlHelper.TAG_SX_AUTO_CREATE, null, "n");
+            writeTag(xml, GncXmlHelper.TAG_SX_AUTO_CREATE_NOTIFY, null, "n");
+            writeTag(xml, GncXmlHelper.TAG_SX_ADVANCE_CREATE_DAYS, null, "0");
+            writeTag(xml, GncXmlHelper.TAG_SX_ADVANCE_REMIND_DAYS, null, "0");
+            writeTag(xml, GncXmlHelper.TAG_SX_INSTANCE_COUNT, null, "0");
+            writeDate(xml, GncXmlHelper.TAG_SX_START, START_TIME);
+            writeTag(xml, GncXmlHelper.TAG_SX_NUM_OCCUR, null, "12");
+            writeTag(xml, GncXmlHelper.TAG_SX_REM_OCCUR, null, "12");
+            writeTag(xml, GncXmlHelper.TAG_SX_TEMPL_ACCOUNT, GncXmlHelper.ATTR_VALUE_GUID, templateAccountUIDs[i]);
+            xml.startTag(null, GncXmlHelper.TAG_SX_SCHEDULE);
+            xml.startTag(null, GncXmlHelper.TAG_RECURRENCE);
+            xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.RECURRENCE_VERSION);
+            writeTag(xml, GncXmlHelper.TAG_RX_MULT, null, "1");
+            writeTag(xml, GncXmlHelper.TAG_RX_PERIOD_TYPE, null, "month");
+            writeDate(xml, GncXmlHelper.TAG_RX_START, START_TIME);
+            xml.endTag(null, GncXmlHelper.TAG_RECURRENCE);
+            xml.endTag(null, GncXmlHelper.TAG_SX_SCHEDULE);
+            xml.endTag(null, GncXmlHelper.TAG_SCHEDULED_ACTION);
+        }
+    }
+
+    private void writeTemplateAccount(XmlSerializer xml, String name, String uid, AccountType type,
+                                      String parentUID) throws IOException {
+        xml.startTag(null, GncXmlHelper.TAG_ACCOUNT);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_VERSION, GncXmlHelper.BOOK_VERSION);
+        writeTag(xml, GncXmlHelper.TAG_NAME, null, name);
+        writeTag(xml, GncXmlHelper.TAG_ACCT_ID, GncXmlHelper.ATTR_VALUE_GUID, uid);
+        writeTag(xml, GncXmlHelper.TAG_TYPE, null, type.name());
+        xml.startTag(null, GncXmlHelper.TAG_ACCOUNT_COMMODITY);
+        writeTag(xml, GncXmlHelper.TAG_COMMODITY_SPACE, null, "template");
+        writeTag(xml, GncXmlHelper.TAG_COMMODITY_ID, null, "template");
+        xml.endTag(null, GncXmlHelper.TAG_ACCOUNT_COMMODITY);
+        writeTag(xml, GncXmlHelper.TAG_COMMODITY_SCU, null, "1");
+        if (parentUID != null)
+            writeTag(xml, GncXmlHelper.TAG_PARENT_UID, GncXmlHelper.ATTR_VALUE_GUID, parentUID);
+        xml.endTag(null, GncXmlHelper.TAG_ACCOUNT);
+    }
+
+    private void writeTemplateSplit(XmlSerializer xml, String templateAccountUID, int account,
+                                    long amount, boolean credit) throws IOException {
+        Currency currency = Currency.getInstance(mCurrencyCodes[mAccountCurrencies[account]]);
+        BigDecimal decimalAmount = BigDecimal.valueOf(amount, currency.getDefaultFractionDigits());
+        xml.startTag(null, GncXmlHelper.TAG_TRN_SPLIT);
+        writeTag(xml, GncXmlHelper.TAG_SPLIT_ID, GncXmlHelper.ATTR_VALUE_GUID, generateUID());
+        writeTag(xml, GncXmlHelper.TAG_RECONCILED_STATE, null, "n");
+        writeTag(xml, GncXmlHelper.TAG_SPLIT_VALUE, null, "0/100");
+        writeTag(xml, GncXmlHelper.TAG_SPLIT_QUANTITY, null, "0/100");
+        writeTag(xml, GncXmlHelper.TAG_SPLIT_ACCOUNT, GncXmlHelper.ATTR_VALUE_GUID, templateAccountUID);
+        xml.startTag(null, GncXmlHelper.TAG_SPLIT_SLOTS);
+        xml.startTag(null, GncXmlHelper.TAG_SLOT);
+        writeTag(xml, GncXmlHelper.TAG_SLOT_KEY, null, GncXmlHelper.KEY_SCHEDX_ACTION);
+        xml.startTag(null, GncXmlHelper.TAG_SLOT_VALUE);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, "frame");
+        writeSlot(xml, GncXmlHelper.KEY_SPLIT_ACCOUNT_SLOT, GncXmlHelper.ATTR_VALUE_GUID, mAccountUIDs[account]);
+        writeSlot(xml, GncXmlHelper.KEY_CREDIT_FORMULA, GncXmlHelper.ATTR_VALUE_STRING,
+                credit ? GncXmlHelper.formatTemplateSplitAmount(decimalAmount) : "");
+        writeSlot(xml, GncXmlHelper.KEY_CREDIT_NUMERIC, GncXmlHelper.ATTR_VALUE_NUMERIC,
+                credit ? GncXmlHelper.formatSplitAmount(decimalAmount, currency) : "0/1");
+        writeSlot(xml, GncXmlHelper.KEY_DEBIT_FORMULA, GncXmlHelper.ATTR_VALUE_STRING,
+                credit ? "" : GncXmlHelper.formatTemplateSplitAmount(decimalAmount));
+        writeSlot(xml, GncXmlHelper.KEY_DEBIT_NUMERIC, GncXmlHelper.ATTR_VALUE_NUMERIC,
+                credit ? "0/1" : GncXmlHelper.formatSplitAmount(decimalAmount, currency));
+        xml.endTag(null, GncXmlHelper.TAG_SLOT_VALUE);
+        xml.endTag(null, GncXmlHelper.TAG_SLOT);
+        xml.endTag(null, GncXmlHelper.TAG_SPLIT_SLOTS);
+        xml.endTag(null, GncXmlHelper.TAG_TRN_SPLIT);
+    }
+
+    private void writeSlot(XmlSerializer xml, String key, String type, String value) throws IOException {
+        xml.startTag(null, GncXmlHelper.TAG_SLOT);
+        writeTag(xml, GncXmlHelper.TAG_SLOT_KEY, null, key);
+        writeTag(xml, GncXmlHelper.TAG_SLOT_VALUE, type, value);
+        xml.endTag(null, GncXmlHelper.TAG_SLOT);
+    }
+
+    private void writeCountData(XmlSerializer xml, String type, long count) throws IOException {
+        xml.startTag(null, GncXmlHelper.TAG_COUNT_DATA);
+        xml.attribute(null, GncXmlHelper.ATTR_KEY_CD_TYPE, type);
+        xml.text(Long.toString(count));
+        xml.endTag(null, GncXmlHelper.TAG_COUNT_DATA);
+    }
+
+    private void writeCommodity(XmlSerializer xml, String tag, String currencyCode) throws IOException {
+        xml.startTag(null, tag);
+        writeTag(xml, GncXmlHelper.TAG_COMMODITY_SPACE, null, "ISO4217");
+        writeTag(xml, GncXmlHelper.TAG_COMMODITY_ID, null, currencyCode);
+        xml.endTag(null, tag);
+    }
+
+    private void writeTimestamp(XmlSerializer xml, String tag, long time) throws IOException {
+        xml.startTag(null, tag);
+        writeTag(xml, GncXmlHelper.TAG_TS_DATE, null, GncXmlHelper.formatDate(time));
+        xml.endTag(null, tag);
+    }
+
+    private void writeDate(XmlSerializer xml, String tag, long time) throws IOException {
+        xml.startTag(null, tag);
+        writeTag(xml, GncXmlHelper.TAG_GDATE, null, GncXmlHelper.formatGDate(time));
+        xml.endTag(null, tag);
+    }
+
+    /**
+     * Writes a text element, with a {@code type} attribute if {@code type} is not null
+     */
+    private void writeTag(XmlSerializer xml, String tag, String type, String text) throws IOException {
+        xml.startTag(null, tag);
+        if (type != null)
+            xml.attribute(null, GncXmlHelper.ATTR_KEY_TYPE, type);
+        xml.text(text);
+        xml.endTag(null, tag);
+    }
+
+    private long getDenominator(int currency) {
+        int fractionDigits = Currency.getInstance(mCurrencyCodes[currency]).getDefaultFractionDigits();
+        long denominator = 1;
+        for (int i = 0; i < fractionDigits; i++) {
+            denominator *= 10;
+        }
+        return denominator;
+    }
+
+    /**
+     * Returns the number of units of the currency for one unit of the first currency.
+     * The rates are made up, they only keep the converted amounts in the same range
+     */
+    private double getRate(int currency) {
+        return 1 + currency * 0.25;
+    }
+
+    /**
+     * Generates a GUID from the random generator, so that the book only depends on the seed
+     */
+    private String generateUID() {
+        return new UUID(mRandom.nextLong(), mRandom.nextLong()).toString().replaceAll("-", "");
+    }
+}
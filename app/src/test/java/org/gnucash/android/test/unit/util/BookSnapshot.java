@@ -0,0 +1,81 @@
+package org.gnucash.android.test.unit.util;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.DatabaseSchema.AccountAncestryEntry;
+import org.gnucash.android.db.DatabaseSchema.AccountBalanceEntry;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.DatabaseSchema.CommonColumns;
+import org.gnucash.android.db.DatabaseSchema.PriceEntry;
+import org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
+import org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import org.gnucash.android.db.DatabaseSchema.TransactionSummaryEntry;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the contents of the book tables, so that the books written by different code paths can be compared.
+ * <p>The row ids and the creation and modification times differ between equal books, so they are left out.
+ * The rows of each table are sorted, since their order has no meaning</p>
+ */
+public class BookSnapshot {
+    /**
+     * Tables of the book, including the ones derived from the others
+     */
+    public static final String[] TABLE_NAMES = {AccountEntry.TABLE_NAME, TransactionEntry.TABLE_NAME,
+            SplitEntry.TABLE_NAME, ScheduledActionEntry.TABLE_NAME, PriceEntry.TABLE_NAME,
+            AccountBalanceEntry.TABLE_NAME, AccountAncestryEntry.TABLE_NAME, TransactionSummaryEntry.TABLE_NAME};
+
+    /**
+     * Reads the book tables of the application database
+     * @return Sorted rows of each table, by table name
+     */
+    public static Map<String, List<String>> take() {
+        DatabaseHelper dbHelper = new DatabaseHelper(RuntimeEnvironment.application);
+        try {
+            return take(dbHelper.getReadableDatabase());
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Reads the book tables of {@code db}
+     * @param db Database holding the book
+     * @return Sorted rows of each table, by table name
+     */
+    public static Map<String, List<String>> take(SQLiteDatabase db) {
+        Map<String, List<String>> snapshot = new LinkedHashMap<>();
+        for (String tableName : TABLE_NAMES) {
+            List<String> rows = new ArrayList<>();
+            Cursor cursor = db.query(tableName, null, null, null, null, null, null);
+            try {
+                String[] columnNames = cursor.getColumnNames();
+                while (cursor.moveToNext()) {
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 0; i < columnNames.length; i++) {
+                        String columnName = columnNames[i];
+                        if (columnName.equals(CommonColumns._ID) || columnName.equals(CommonColumns.COLUMN_CREATED_AT)
+                                || columnName.equals(CommonColumns.COLUMN_MODIFIED_AT))
+                            continue;
+                        row.append(columnName).append('=').append(cursor.getString(i)).append(' ');
+                    }
+                    rows.add(row.toString());
+                }
+            } finally {
+                cursor.close();
+            }
+            Collections.sort(rows);
+            snapshot.put(tableName, rows);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,96 @@
+package org.gnucash.android.test.unit.util;
+
+import org.gnucash.android.util.MultiMemberGzipInputStream;
+import org.gnucash.android.util.ParallelGzipOutputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Round trips data through the parallel gzip writer and the multi-member gzip reader
+ */
+public class ParallelGzipOutputStreamTest {
+
+    private static byte[] compress(byte[] data, int threadCount, int blockSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ParallelGzipOutputStream gzipOutputStream = new ParallelGzipOutputStream(bytes, threadCount, blockSize);
+        //write in uneven chunks so that they straddle the blocks
+        int offset = 0;
+        int chunk = 1;
+        while (offset < data.length) {
+            int length = Math.min(chunk, data.length - offset);
+            gzipOutputStream.write(data, offset, length);
+            offset += length;
+            chunk = chunk * 3 % 1001 + 1;
+        }
+        gzipOutputStream.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, length);
+        }
+        inputStream.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] generateData(int size) {
+        Random random = new Random(1);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            //compressible but not trivial, like XML
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    @Test
+    public void shouldRoundTripSeveralBlocks() throws IOException {
+        byte[] data = generateData(100000);
+        byte[] compressed = compress(data, 3, 4096);
+
+        assertThat(readFully(new MultiMemberGzipInputStream(new ByteArrayInputStream(compressed)))).isEqualTo(data);
+        assertThat(readFully(new GZIPInputStream(new ByteArrayInputStream(compressed)))).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldWriteEmptyStreamAsGzip() throws IOException {
+        byte[] compressed = compress(new byte[0], 2, 4096);
+
+        assertThat(readFully(new MultiMemberGzipInputStream(new ByteArrayInputStream(compressed)))).isEmpty();
+    }
+
+    @Test
+    public void shouldReadSingleMemberAndIgnoreTrailingData() throws IOException {
+        byte[] data = generateData(20000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bytes);
+        gzipOutputStream.write(data);
+        gzipOutputStream.close();
+        bytes.write(new byte[]{0, 0, 0, 0});
+
+        assertThat(readFully(new MultiMemberGzipInputStream(new ByteArrayInputStream(bytes.toByteArray()))))
+                .isEqualTo(data);
+    }
+
+    @Test(expected = ZipException.class)
+    public void shouldRejectCorruptedData() throws IOException {
+        byte[] compressed = compress(generateData(10000), 2, 4096);
+        compressed[compressed.length - 6] ^= 1; //checksum of the last member
+
+        readFully(new MultiMemberGzipInputStream(new ByteArrayInputStream(compressed)));
+    }
+}
@@ -0,0 +1,108 @@
+package org.gnucash.android.test.unit.util;
+
+import org.gnucash.android.util.TimestampCodec;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the timestamp codec against {@link SimpleDateFormat} with the same patterns
+ */
+public class TimestampCodecTest {
+
+    private static final String TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss Z";
+
+    @Test
+    public void shouldFormatLikeSimpleDateFormat() throws ParseException {
+        SimpleDateFormat timestampFormat = new SimpleDateFormat(TIMESTAMP_PATTERN, Locale.US);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        SimpleDateFormat qifFormat = new SimpleDateFormat("yyyy/M/d", Locale.US);
+        SimpleDateFormat ofxFormat = new SimpleDateFormat("yyyyMMddHHmmss", Locale.US);
+        SimpleDateFormat filenameFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            //seconds between 1950 and 2100, the formats do not have milliseconds
+            long time = (-631152000L + (long) (random.nextDouble() * 4733510400L)) * 1000;
+
+            String timestamp = TimestampCodec.formatTimestamp(time);
+            assertThat(timestamp).isEqualTo(timestampFormat.format(time));
+            assertThat(TimestampCodec.parseTimestamp(timestamp)).isEqualTo(time);
+
+            String date = TimestampCodec.formatDate(time);
+            assertThat(date).isEqualTo(dateFormat.format(time));
+            assertThat(TimestampCodec.parseDate(date)).isEqualTo(dateFormat.parse(date).getTime());
+
+            assertThat(TimestampCodec.formatQifDate(time)).isEqualTo(qifFormat.format(time));
+            assertThat(TimestampCodec.formatOfxTime(time)).isEqualTo(ofxFormat.format(time));
+
+            String filenameTime = TimestampCodec.formatFilenameTime(time);
+            assertThat(filenameTime).isEqualTo(filenameFormat.format(time));
+            assertThat(TimestampCodec.parseFilenameTime(filenameTime)).isEqualTo(filenameFormat.parse(filenameTime).getTime());
+        }
+    }
+
+    @Test
+    public void shouldParseOffsetsOfOtherTimeZones() throws ParseException {
+        assertThat(TimestampCodec.parseTimestamp("2015-08-21 13:45:10 +0200")).isEqualTo(1440157510000L);
+        assertThat(TimestampCodec.parseTimestamp("2015-08-21 06:15:10 -0530")).isEqualTo(1440157510000L);
+    }
+
+    @Test
+    public void shouldFormatIntoBuffer() {
+        char[] buffer = new char[TimestampCodec.TIMESTAMP_LENGTH + 2];
+        int length = TimestampCodec.formatTimestamp(1440157510000L, buffer, 2);
+        assertThat(length).isEqualTo(TimestampCodec.TIMESTAMP_LENGTH);
+        assertThat(new String(buffer, 2, length)).isEqualTo(TimestampCodec.formatTimestamp(1440157510000L));
+    }
+
+    @Test
+    public void shouldParseTimestampsWhichAreNotZeroPadded() throws ParseException {
+        SimpleDateFormat timestampFormat = new SimpleDateFormat(TIMESTAMP_PATTERN, Locale.US);
+        String timestamp = "2015-8-1 3:05:10 +0000";
+        assertThat(TimestampCodec.parseTimestamp(timestamp)).isEqualTo(timestampFormat.parse(timestamp).getTime());
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldFailToParseInvalidDates() throws ParseException {
+        TimestampCodec.parseDate("2015-02-3x");
+    }
+
+    @Test
+    public void shouldFormatFromSeveralThreads() throws InterruptedException {
+        final long time = 1440157510000L;
+        final String expected = new SimpleDateFormat(TIMESTAMP_PATTERN, Locale.US).format(time);
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        //alternate between days, so that the cached offsets change
+                        long offset = (j % 2) * 86400000L * (thread + 1);
+                        try {
+                            if (TimestampCodec.parseTimestamp(TimestampCodec.formatTimestamp(time + offset)) != time + offset
+                                    || (offset == 0 && !TimestampCodec.formatTimestamp(time).equals(expected))) {
+                                failed[0] = true;
+                            }
+                        } catch (ParseException e) {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failed[0]).isFalse();
+    }
+}